@@ -0,0 +1,79 @@
+/**
+ * Benchmarks for each stage from the metric calculation over the translation objects: the sorting and filtering and
+ * the grouping by minute done by {@link MetricService#calculateAverageEventDurationPerMinute(List, Integer)}, and the
+ * moving average done by {@link MetricService#calculateAverageEventDuration(List, Integer)}.
+ * Each operation processes the amount of events defined by the "events" parameter.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class AggregationBenchmark {
+
+    private static final int WINDOW_SIZE = 10;
+
+    @Param({"10000", "1000000", "10000000"})
+    int events;
+
+    MetricService metricService;
+    List<Translation> translations;
+    List<Translation> sortedTranslations;
+
+    @Setup
+    public void generateTranslations() {
+        FileProcessor fileProcessor = new FileProcessor();
+        metricService = new MetricService();
+        translations = new ArrayList<>(events);
+        BenchmarkEvents.forEachLine(events, line -> translations.addAll(fileProcessor.convertFileLines(Collections.singletonList(line))));
+        sortedTranslations = new ArrayList<>(translations);
+        metricService.orderTranslationEventsByTimestamp(sortedTranslations);
+    }
+
+    @Benchmark
+    public List<Translation> sortByTimestamp() {
+        List<Translation> copy = new ArrayList<>(translations);
+        metricService.orderTranslationEventsByTimestamp(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public List<Translation> filterWindow() {
+        return metricService.extractEventsWithinWindowSize(sortedTranslations, WINDOW_SIZE);
+    }
+
+    @Benchmark
+    public Map<Long, List<Long>> groupByMinute() {
+        return metricService.groupEventsByTimestampAsIndexAndDurationAsValue(sortedTranslations);
+    }
+
+    @Benchmark
+    public List<MetricResponse> movingAverage() {
+        return metricService.calculateAverageEventDuration(translations, WINDOW_SIZE);
+    }
+}
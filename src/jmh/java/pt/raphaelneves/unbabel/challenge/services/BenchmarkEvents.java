@@ -0,0 +1,80 @@
+/**
+ * This class creates the translation events used by the benchmarks through the {@link EventGenerator}. The events are
+ * generated from a fixed seed, so every run measures the same input. There are about 10 events per second, and 5% of
+ * them arrive up to 30 seconds late, as happens on the real files.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import pt.raphaelneves.unbabel.challenge.models.GeneratorSettings;
+
+final class BenchmarkEvents {
+
+    /**
+     * The amount of distinct lines used by the benchmarks that only depend on the line content, such as parsing.
+     * They iterate over these lines as many times as needed, so the input size does not depend on the heap size.
+     */
+    static final int DISTINCT_LINES = 10_000;
+
+    private BenchmarkEvents() {
+    }
+
+    /**
+     * @param count The amount of lines
+     * @return List<String> The generated lines, on the incoming file format
+     */
+    static List<String> generateLines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        forEachLine(count, lines::add);
+        return lines;
+    }
+
+    /**
+     * Send each generated line to the consumer, without keeping them in memory
+     * @param count The amount of lines
+     * @param consumer The consumer that will receive each line
+     */
+    static void forEachLine(int count, Consumer<String> consumer) {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        new EventGenerator(settings(count)).generate(new OutputStream() {
+            @Override
+            public void write(int b) {
+                if (b != '\n') {
+                    line.write(b);
+                    return;
+                }
+                consumer.accept(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                line.reset();
+            }
+        });
+    }
+
+    /**
+     * Write the generated lines straight to a file, without keeping them in memory
+     * @param file The file to be written
+     * @param count The amount of lines
+     */
+    static void writeLines(Path file, int count) {
+        new EventGenerator(settings(count)).generate(file.toFile());
+    }
+
+    private static GeneratorSettings settings(int count) {
+        return GeneratorSettings.builder()
+                                .events(count)
+                                .eventsPerSecond(10)
+                                .clients(1_000)
+                                .languages(8)
+                                .outOfOrderRatio(0.05)
+                                .maxDelaySeconds(30)
+                                .build();
+    }
+}
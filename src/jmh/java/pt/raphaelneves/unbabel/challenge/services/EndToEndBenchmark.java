@@ -0,0 +1,78 @@
+/**
+ * Benchmarks for the whole file processing, from the file on disk until the moving average metrics, comparing the
+ * in-memory conversion of all lines, the streaming decoder and the parallel decoder over the memory-mapped file.
+ * Each operation processes a file with the amount of events defined by the "events" parameter.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class EndToEndBenchmark {
+
+    private static final int WINDOW_SIZE = 10;
+
+    @Param({"10000", "1000000", "10000000"})
+    int events;
+
+    File file;
+    FileProcessor fileProcessor;
+    MetricService metricService;
+
+    @Setup
+    public void writeFile() throws IOException {
+        file = Files.createTempFile("unbabel-challenge-benchmark", ".json").toFile();
+        BenchmarkEvents.writeLines(file.toPath(), events);
+        fileProcessor = new FileProcessor();
+        metricService = new MetricService();
+    }
+
+    @TearDown
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public List<MetricResponse> legacyInMemory() {
+        List<String> lines = fileProcessor.extractFileLines(file);
+        return metricService.calculateAverageEventDuration(fileProcessor.convertFileLines(lines), WINDOW_SIZE);
+    }
+
+    @Benchmark
+    public List<MetricResponse> streamingDecoder() {
+        MetricAccumulator accumulator = metricService.createAccumulator(WINDOW_SIZE);
+        fileProcessor.streamFileEvents(file, new EventDecoder(), accumulator::accept);
+        return accumulator.getMetrics();
+    }
+
+    @Benchmark
+    public List<MetricResponse> parallelDecoder() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return fileProcessor.streamFileEventsInParallel(file, () -> metricService.createAccumulator(WINDOW_SIZE), parallelism).getMetrics();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Benchmarks for the conversion of the file lines into translation events, comparing the Jackson data binding used by
+ * {@link FileProcessor#convertFileLines(List)} with the streaming {@link EventDecoder}.
+ * Each operation converts the amount of events defined by the "events" parameter, iterating over
+ * {@link BenchmarkEvents#DISTINCT_LINES} distinct lines.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@State(Scope.Benchmark)
+public class ParsingBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int events;
+
+    List<String> lines;
+    byte[][] lineBytes;
+    FileProcessor fileProcessor;
+    EventDecoder decoder;
+    TranslationEvent event;
+
+    @Setup
+    public void generateLines() {
+        lines = BenchmarkEvents.generateLines(BenchmarkEvents.DISTINCT_LINES);
+        lineBytes = lines.stream().map(line -> line.getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+        fileProcessor = new FileProcessor();
+        decoder = new EventDecoder();
+        event = new TranslationEvent();
+    }
+
+    @Benchmark
+    public List<Translation> jacksonDataBinding() {
+        return fileProcessor.convertFileLines(new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return lines.get(index % lines.size());
+            }
+
+            @Override
+            public int size() {
+                return events;
+            }
+        });
+    }
+
+    @Benchmark
+    public void eventDecoder(Blackhole blackhole) {
+        for (int i = 0; i < events; i++) {
+            byte[] line = lineBytes[i % lineBytes.length];
+            decoder.decode(line, 0, line.length, event);
+            blackhole.consume(event.getTimestamp());
+            blackhole.consume(event.getDuration());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Benchmarks for the timestamp conversion, comparing the {@link TimestampParser} with the DateTimeFormatter parsing
+ * previously done by {@link Translation#setTimestamp(String)}.
+ * Each operation converts the amount of timestamps defined by the "events" parameter, iterating over
+ * {@link BenchmarkEvents#DISTINCT_LINES} distinct timestamps.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    int events;
+
+    String[] timestamps;
+    char[][] timestampChars;
+    Translation translation;
+
+    @Setup
+    public void generateTimestamps() {
+        timestamps = BenchmarkEvents.generateLines(BenchmarkEvents.DISTINCT_LINES).stream()
+                                    .map(line -> line.substring(15, line.indexOf('"', 15)))
+                                    .toArray(String[]::new);
+        timestampChars = new char[timestamps.length][];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestampChars[i] = timestamps[i].toCharArray();
+        }
+        translation = new Translation();
+    }
+
+    @Benchmark
+    public void legacyDateTimeFormatter(Blackhole blackhole) {
+        for (int i = 0; i < events; i++) {
+            String timestamp = timestamps[i % timestamps.length];
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            blackhole.consume(LocalDateTime.parse(timestamp.substring(0, timestamp.lastIndexOf(".")), formatter));
+        }
+    }
+
+    @Benchmark
+    public void translationSetTimestamp(Blackhole blackhole) {
+        for (int i = 0; i < events; i++) {
+            translation.setTimestamp(timestamps[i % timestamps.length]);
+            blackhole.consume(translation.getTimestamp());
+        }
+    }
+
+    @Benchmark
+    public void parseEpochSecond(Blackhole blackhole) {
+        for (int i = 0; i < events; i++) {
+            char[] timestamp = timestampChars[i % timestampChars.length];
+            blackhole.consume(TimestampParser.parseEpochSecond(timestamp, 0, timestamp.length));
+        }
+    }
+
+    @Benchmark
+    public void parseEpochMicros(Blackhole blackhole) {
+        for (int i = 0; i < events; i++) {
+            char[] timestamp = timestampChars[i % timestampChars.length];
+            blackhole.consume(TimestampParser.parseEpochMicros(timestamp, 0, timestamp.length));
+        }
+    }
+}
@@ -1,26 +1,71 @@
 /**
  * Entrypoint class to the challenge suggested by Unbabel.
  * This class will trigger all processes related to metric extraction.
+ * Without arguments the settings are asked on the console. With arguments on format --name=value, the events are read
+ * from the standard input instead and each row is written to the standard output as soon as its minute is finalized,
+ * so it can be used as a stage from a shell pipeline.
+ * E.g.: zcat events.json.gz | grep translation_delivered | java -jar challenge-unbabel-jar-with-dependencies.jar --window=10
  * @author Raphael Neves
  **/
 
 package pt.raphaelneves.unbabel.challenge;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.HeavyHitter;
+import pt.raphaelneves.unbabel.challenge.models.LatePolicy;
 import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
-import pt.raphaelneves.unbabel.challenge.models.Translation;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+import pt.raphaelneves.unbabel.challenge.services.EventDecoder;
+import pt.raphaelneves.unbabel.challenge.services.EventDeduplicator;
+import pt.raphaelneves.unbabel.challenge.services.EventTimeProcessor;
+import pt.raphaelneves.unbabel.challenge.services.FileFollower;
+import pt.raphaelneves.unbabel.challenge.services.IngestionCheckpoint;
+import pt.raphaelneves.unbabel.challenge.services.LineQuarantine;
+import pt.raphaelneves.unbabel.challenge.services.MetricAccumulator;
 import pt.raphaelneves.unbabel.challenge.services.MetricService;
+import pt.raphaelneves.unbabel.challenge.services.PipelineMetrics;
+import pt.raphaelneves.unbabel.challenge.services.RollupStore;
+import pt.raphaelneves.unbabel.challenge.services.TopKAccumulator;
 import pt.raphaelneves.unbabel.challenge.services.FileProcessor;
 
 public class Application {
 
+    private static final long FOLLOW_POLL_INTERVAL_MILLIS = 1000L;
+    private static final long EXPECTED_TRANSLATION_IDS_PER_DAY = 20_000_000L;
+    private static final double REPEATED_ID_FALSE_POSITIVE_RATE = 0.001;
+    private static final long CHECKPOINT_INTERVAL_BYTES = 256L * 1024 * 1024;
+    private static final int HEAVY_HITTER_COUNTERS_PER_ROW = 10;
+    private static final Set<Dimension> CLIENT = EnumSet.of(Dimension.CLIENT_NAME);
+    private static final Set<Dimension> LANGUAGE_PAIR = EnumSet.of(Dimension.SOURCE_LANGUAGE, Dimension.TARGET_LANGUAGE);
+    private static final String USAGE = "Usage: --window=<minutes>[,<minutes>...] [--percentiles=true|false] "
+            + "[--drop-repeated=true|false] [--allowed-lateness-seconds=<seconds>] [--late-policy=drop|correct] "
+            + "[--quarantine=<file>] [--max-rejected-percentage=<percentage>] [--summary=true|false]";
+
     public static void main(String[] args) {
-        FileProcessor fileProcessor = new FileProcessor();
-        MetricService metricService = new MetricService();
+        if (args.length > 0) {
+            streamStandardInput(args);
+            return;
+        }
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        FileProcessor fileProcessor = new FileProcessor(pipelineMetrics);
+        MetricService metricService = new MetricService(pipelineMetrics);
 
         System.out.println("###########################################");
         System.out.println("Hello Unbabel friends, let's test this app?");
@@ -28,23 +73,341 @@ public class Application {
 
         Scanner scanner = new Scanner(System.in);
 
-        System.out.print("1- Enter the absolute path from the file to be analyzed: ");
+        System.out.print("1- Enter the absolute path from the file, folder or glob pattern (such as /logs/*.json.gz) to be analyzed: ");
         String filePath = scanner.nextLine();
 
-        System.out.print("2- Enter the window size to extract the events metrics (in minutes): ");
-        Integer windowSize = Integer.parseInt(scanner.nextLine());
+        System.out.print("2- Enter the window size to extract the events metrics (in minutes, comma separated for multiple windows): ");
+        List<Integer> windowSizes = parseWindowSizes(scanner.nextLine());
+
+        System.out.print("3- Include the p50, p90 and p99 delivery times? (y/N): ");
+        boolean percentiles = scanner.hasNextLine() && "y".equalsIgnoreCase(scanner.nextLine().trim());
+
+        System.out.print("4- Drop the events repeating a translation id? (y/N): ");
+        EventDeduplicator deduplicator = scanner.hasNextLine() && "y".equalsIgnoreCase(scanner.nextLine().trim())
+                ? metricService.createDeduplicator(windowSizes, EXPECTED_TRANSLATION_IDS_PER_DAY, REPEATED_ID_FALSE_POSITIVE_RATE) : null;
+
+        System.out.print("5- Keep following the file and show each minute as soon as it closes? (y/N): ");
+        boolean follow = scanner.hasNextLine() && "y".equalsIgnoreCase(scanner.nextLine().trim());
+
+        List<File> filesToProcess = fileProcessor.loadFilesFrom(filePath);
+        File fileToProcess = filesToProcess.get(0);
+        if (follow) {
+            if (filesToProcess.size() > 1) {
+                throw new RuntimeException("Only a single file can be followed");
+            }
+            System.out.print("6- Enter how late an out of order event may arrive (in seconds, default 0): ");
+            String lateness = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+            long allowedLatenessSeconds = lateness.isEmpty() ? 0L : Long.parseLong(lateness);
+
+            System.out.print("7- Correct the minutes already shown when even later events arrive? (y/N): ");
+            LatePolicy latePolicy = scanner.hasNextLine() && "y".equalsIgnoreCase(scanner.nextLine().trim()) ? LatePolicy.CORRECT : LatePolicy.DROP;
+
+            EventTimeProcessor processor = metricService.createEventTimeProcessor(windowSizes, percentiles, allowedLatenessSeconds, latePolicy, System.out::println);
+            followFile(fileToProcess, dropRepeatedEvents(deduplicator, processor::accept));
+            return;
+        }
+        System.out.print("6- Enter the file receiving the invalid lines, instead of stopping on the first one (empty to stop): ");
+        String quarantinePath = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        String percentage = "";
+        if (!quarantinePath.isEmpty()) {
+            System.out.print("7- Enter the maximum percentage of invalid lines before stopping the run (empty for no limit): ");
+            percentage = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        }
+        System.out.print(String.format("8- Enter the amount of threads reading the files (default %d, 1 to read on a single thread): ",
+                Runtime.getRuntime().availableProcessors()));
+        String threads = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        int parallelism = threads.isEmpty() ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+
+        System.out.print("9- Enter the folder keeping the per-minute rollups between runs (empty to read the whole file): ");
+        String rollupPath = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+
+        System.out.print("10- Enter the checkpoint file used to resume an interrupted run (empty to disable): ");
+        String checkpointPath = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+
+        System.out.print("11- Enter how many of the slowest clients and language pairs must be shown from each window (empty to skip): ");
+        String topK = scanner.hasNextLine() ? scanner.nextLine().trim() : "";
+        int k = topK.isEmpty() ? 0 : Integer.parseInt(topK);
+
+        validateBatchSettings(filesToProcess, parallelism, rollupPath, checkpointPath, k);
+        LineQuarantine quarantine = quarantinePath.isEmpty() ? null
+                : new LineQuarantine(Paths.get(quarantinePath), percentage.isEmpty() ? -1 : Double.parseDouble(percentage));
+        processBatch(filesToProcess, windowSizes, percentiles, deduplicator, parallelism, rollupPath, checkpointPath, k,
+                pipelineMetrics, quarantine);
+    }
+
+    /**
+     * Check the batch settings before any file is read, since some features can't be combined
+     * @throws RuntimeException When the settings ask for features that can't be combined
+     */
+    private static void validateBatchSettings(List<File> filesToProcess, int parallelism, String rollupPath, String checkpointPath, int k) {
+        if (parallelism < 1) {
+            throw new RuntimeException("The amount of threads must be a positive number");
+        }
+        if (k < 0) {
+            throw new RuntimeException("The amount of slowest clients and language pairs can't be negative");
+        }
+        if (filesToProcess.size() > 1 && (!rollupPath.isEmpty() || !checkpointPath.isEmpty())) {
+            throw new RuntimeException(String.format("Rollups and checkpoints need a single file, but %d files have been found",
+                    filesToProcess.size()));
+        }
+        if (!rollupPath.isEmpty() && !checkpointPath.isEmpty()) {
+            throw new RuntimeException("Rollups and checkpoints can't be used together, since the rollup folder already keeps "
+                    + "where the previous run stopped");
+        }
+        if (k > 0 && (!rollupPath.isEmpty() || !checkpointPath.isEmpty())) {
+            throw new RuntimeException("The slowest clients and language pairs can't be combined with rollups or checkpoints, "
+                    + "since they need all the events from the window, which are not kept between runs");
+        }
+    }
+
+    /**
+     * Read the files once and show the moving average from all their events. Every requested consumer, such as the
+     * deduplicator and the slowest clients and language pairs, receives the events on the same pass.
+     * @param filesToProcess The files to be read
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param percentiles If the duration percentiles must be calculated as well
+     * @param deduplicator The deduplicator used to drop the repeated events, or null when they must be kept
+     * @param parallelism The amount of threads reading the files when the events are only aggregated
+     * @param rollupPath The folder keeping the per-minute rollups between runs, or empty to read the whole file
+     * @param checkpointPath The checkpoint file used to resume an interrupted run, or empty to disable it
+     * @param k The amount of slowest clients and language pairs shown from each window, or zero to skip them
+     * @param pipelineMetrics The metrics measuring each stage
+     * @param quarantine The quarantine receiving the invalid lines, or null to stop on the first one
+     */
+    private static void processBatch(List<File> filesToProcess, List<Integer> windowSizes, boolean percentiles, EventDeduplicator deduplicator,
+                                     int parallelism, String rollupPath, String checkpointPath, int k, PipelineMetrics pipelineMetrics,
+                                     LineQuarantine quarantine) {
+        FileProcessor fileProcessor = new FileProcessor(pipelineMetrics, quarantine);
+        MetricService metricService = new MetricService(pipelineMetrics, quarantine);
+        File fileToProcess = filesToProcess.get(0);
+        List<MetricResponse> metrics;
+        List<HeavyHitter> heavyHitters = Collections.emptyList();
+        try {
+            if (!rollupPath.isEmpty()) {
+                RollupStore store = new RollupStore(Paths.get(rollupPath));
+                metrics = metricService.calculateAverageEventDurationFromRollups(store, fileToProcess, windowSizes, percentiles, deduplicator);
+            } else if (!checkpointPath.isEmpty()) {
+                IngestionCheckpoint checkpoint = fileProcessor.streamFileEventsWithCheckpoints(fileToProcess, Paths.get(checkpointPath),
+                        CHECKPOINT_INTERVAL_BYTES, metricService.createAccumulatorForWindows(windowSizes, percentiles), deduplicator);
+                metrics = metricService.calculateMovingAverage(checkpoint.getAccumulator());
+                deduplicator = checkpoint.getDeduplicator();
+            } else if (k > 0) {
+                MetricAccumulator accumulator = metricService.createAccumulatorForWindows(windowSizes, percentiles);
+                EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME, Dimension.SOURCE_LANGUAGE, Dimension.TARGET_LANGUAGE));
+                TopKAccumulator clients = metricService.createTopKAccumulator(windowSizes, CLIENT, decoder.getDictionaries(),
+                        k, k * HEAVY_HITTER_COUNTERS_PER_ROW);
+                TopKAccumulator languagePairs = metricService.createTopKAccumulator(windowSizes, LANGUAGE_PAIR, decoder.getDictionaries(),
+                        k, k * HEAVY_HITTER_COUNTERS_PER_ROW);
+                Consumer<TranslationEvent> consumer = dropRepeatedEvents(deduplicator, event -> {
+                    accumulator.accept(event);
+                    clients.accept(event);
+                    languagePairs.accept(event);
+                });
+                filesToProcess.stream()
+                              .filter(file -> filesToProcess.size() == 1 || file.length() > 0)
+                              .forEach(file -> fileProcessor.streamFileEvents(file, decoder, consumer));
+                metrics = metricService.calculateMovingAverage(accumulator);
+                heavyHitters = new ArrayList<>();
+                heavyHitters.addAll(clients.getTopByTotalDuration());
+                heavyHitters.addAll(clients.getTopByAverageDuration());
+                heavyHitters.addAll(languagePairs.getTopByTotalDuration());
+                heavyHitters.addAll(languagePairs.getTopByAverageDuration());
+            } else {
+                metrics = metricService.calculateMovingAverage(processFiles(fileProcessor, filesToProcess,
+                        () -> metricService.createAccumulatorForWindows(windowSizes, percentiles), deduplicator, parallelism));
+            }
+        } finally {
+            if (Objects.nonNull(quarantine)) {
+                quarantine.close();
+            }
+        }
+        printResult(fileProcessor, metrics, heavyHitters, deduplicator, pipelineMetrics, quarantine);
+    }
+
+    /**
+     * Read the translation events from the standard input until it's closed, writing each row to the standard output
+     * as soon as its minute is finalized by the watermark. Only the open minutes are kept in memory, whatever the
+     * amount of events, and the run summary is written to the standard error when requested.
+     * @param args The settings on format --name=value
+     * @throws RuntimeException When an argument is unknown or the window size is missing
+     */
+    private static void streamStandardInput(String[] args) {
+        List<Integer> windowSizes = null;
+        boolean percentiles = false;
+        boolean dropRepeated = false;
+        long allowedLatenessSeconds = 0L;
+        LatePolicy latePolicy = LatePolicy.DROP;
+        String quarantinePath = null;
+        double maxRejectedPercentage = -1;
+        boolean summary = false;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new RuntimeException(USAGE);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "window":
+                    windowSizes = parseWindowSizes(value);
+                    break;
+                case "percentiles":
+                    percentiles = Boolean.parseBoolean(value);
+                    break;
+                case "drop-repeated":
+                    dropRepeated = Boolean.parseBoolean(value);
+                    break;
+                case "allowed-lateness-seconds":
+                    allowedLatenessSeconds = Long.parseLong(value);
+                    break;
+                case "late-policy":
+                    latePolicy = LatePolicy.valueOf(value.toUpperCase());
+                    break;
+                case "quarantine":
+                    quarantinePath = value;
+                    break;
+                case "max-rejected-percentage":
+                    maxRejectedPercentage = Double.parseDouble(value);
+                    break;
+                case "summary":
+                    summary = Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new RuntimeException(USAGE);
+            }
+        }
+        if (windowSizes == null) {
+            throw new RuntimeException(USAGE);
+        }
+
+        PipelineMetrics pipelineMetrics = summary ? new PipelineMetrics() : PipelineMetrics.DISABLED;
+        LineQuarantine quarantine = Objects.isNull(quarantinePath) ? null : new LineQuarantine(Paths.get(quarantinePath), maxRejectedPercentage);
+        MetricService metricService = new MetricService(pipelineMetrics);
+        EventTimeProcessor processor = metricService.createEventTimeProcessor(windowSizes, percentiles, allowedLatenessSeconds,
+                latePolicy, System.out::println);
+        EventDeduplicator deduplicator = dropRepeated
+                ? metricService.createDeduplicator(windowSizes, EXPECTED_TRANSLATION_IDS_PER_DAY, REPEATED_ID_FALSE_POSITIVE_RATE) : null;
+        try {
+            new FileProcessor(pipelineMetrics, quarantine).streamEvents(System.in, new EventDecoder(), dropRepeatedEvents(deduplicator, processor::accept));
+        } finally {
+            if (Objects.nonNull(quarantine)) {
+                quarantine.close();
+            }
+        }
+        processor.flush();
+        System.out.flush();
+        if (Objects.nonNull(quarantine)) {
+            System.err.println(describeRejectedLines(quarantine));
+        }
+        if (summary) {
+            System.err.println(pipelineMetrics.getSummary());
+        }
+    }
+
+    /**
+     * @param quarantine The quarantine that received the invalid lines
+     * @return String The amount of invalid lines, by reject reason
+     */
+    private static String describeRejectedLines(LineQuarantine quarantine) {
+        return String.format("%d of %d lines were invalid and have been written to the quarantine file %s",
+                quarantine.getRejectedLines(), quarantine.getLines(), quarantine.getRejectedLinesByReason());
+    }
 
-        File fileToProcess = fileProcessor.loadFileFrom(filePath);
-        List<String> fileLines = fileProcessor.extractFileLines(fileToProcess);
-        List<Translation> translations = fileProcessor.convertFileLines(fileLines);
+    /**
+     * @param windowSizes The window sizes in minutes, comma separated
+     * @return List<Integer> The window sizes
+     */
+    private static List<Integer> parseWindowSizes(String windowSizes) {
+        return Arrays.stream(windowSizes.split(","))
+                     .map(String::trim)
+                     .map(Integer::parseInt)
+                     .collect(Collectors.toList());
+    }
 
-        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, windowSize);
-        String outputPath = String.format("%s/unbabel-challenge/response-%d.json", System.getProperty("user.home"), new Date().getTime());
+    /**
+     * Show the metrics in the console and export them to a file on the user home folder, together with the run summary
+     * measured by the pipeline metrics
+     * @param fileProcessor The processor used to export the metrics
+     * @param metrics The calculated metrics
+     * @param heavyHitters The slowest clients and language pairs, shown after the metrics
+     * @param deduplicator The deduplicator used to drop the repeated events, or null when they have been kept
+     * @param pipelineMetrics The metrics measured from each stage
+     * @param quarantine The quarantine that received the invalid lines, or null when there was none
+     */
+    private static void printResult(FileProcessor fileProcessor, List<MetricResponse> metrics, List<HeavyHitter> heavyHitters, EventDeduplicator deduplicator,
+                                    PipelineMetrics pipelineMetrics, LineQuarantine quarantine) {
+        long now = new Date().getTime();
+        String outputPath = String.format("%s/unbabel-challenge/response-%d.json", System.getProperty("user.home"), now);
         fileProcessor.createOutputFile(metrics, outputPath);
+        String summaryPath = String.format("%s/unbabel-challenge/summary-%d.json", System.getProperty("user.home"), now);
+        String summary = pipelineMetrics.getSummary();
+        try {
+            Files.write(Paths.get(summaryPath), Collections.singletonList(summary));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the run summary.");
+        }
 
         System.out.println("\nResult: \n");
         metrics.forEach(System.out::println);
-        System.out.println(String.format("\n>>> The above report was exported to %s <<<\n", outputPath));
+        if (!heavyHitters.isEmpty()) {
+            System.out.println("\nSlowest clients and language pairs, by total and by average delivery time: \n");
+            heavyHitters.forEach(System.out::println);
+        }
+        if (Objects.nonNull(deduplicator)) {
+            System.out.println(String.format("%d events repeating a translation id have been dropped", deduplicator.getDuplicates()));
+        }
+        if (Objects.nonNull(quarantine)) {
+            System.out.println(describeRejectedLines(quarantine));
+        }
+        System.out.println(String.format("\n>>> The above report was exported to %s <<<", outputPath));
+        System.out.println(String.format(">>> The run summary was exported to %s <<<\n", summaryPath));
+        System.err.println(summary);
+    }
+
+    /**
+     * Read many files, such as the logs sharded by host and hour, or a single one. They are read in parallel unless the
+     * repeated events must be dropped, since the deduplicator must see the events from all files on a single thread.
+     * A single file is split into chunks, or into its gzip members, decoded on their own threads.
+     * @param fileProcessor The processor used to read the files
+     * @param files The files to be read
+     * @param accumulatorFactory The factory creating the accumulators
+     * @param deduplicator The deduplicator used to drop the repeated events, or null when they must be kept
+     * @param parallelism The amount of threads reading the files
+     * @return MetricAccumulator The accumulator containing the events from all files
+     */
+    private static MetricAccumulator processFiles(FileProcessor fileProcessor, List<File> files, Supplier<MetricAccumulator> accumulatorFactory,
+                                                  EventDeduplicator deduplicator, int parallelism) {
+        if (Objects.isNull(deduplicator) && files.size() == 1) {
+            return fileProcessor.streamFileEventsInParallel(files.get(0), accumulatorFactory, parallelism);
+        }
+        if (Objects.isNull(deduplicator)) {
+            return fileProcessor.streamFilesEventsInParallel(files, accumulatorFactory, parallelism);
+        }
+        MetricAccumulator accumulator = accumulatorFactory.get();
+        files.stream()
+             .filter(file -> file.length() > 0)
+             .forEach(file -> fileProcessor.streamFileEvents(file, new EventDecoder(), deduplicator.filter(accumulator::accept)));
+        return accumulator;
+    }
+
+    /**
+     * @param deduplicator The deduplicator used to drop the repeated events, or null when they must be kept
+     * @param consumer The consumer that will receive the events
+     * @return Consumer<TranslationEvent> The consumer that must receive all the decoded events
+     */
+    private static Consumer<TranslationEvent> dropRepeatedEvents(EventDeduplicator deduplicator, Consumer<TranslationEvent> consumer) {
+        return Objects.isNull(deduplicator) ? consumer : deduplicator.filter(consumer);
+    }
+
+    /**
+     * Follow the file for new events until the application is stopped, showing each minute as soon as it closes
+     * @param file The file to be followed
+     * @param consumer The consumer that calculates the moving average from the new events
+     */
+    private static void followFile(File file, Consumer<TranslationEvent> consumer) {
+        FileFollower follower = new FileFollower(file, new EventDecoder(), consumer, FOLLOW_POLL_INTERVAL_MILLIS);
+        Runtime.getRuntime().addShutdownHook(new Thread(follower::stop));
+        System.out.println("\nFollowing the file, press Ctrl+C to stop.\n");
+        follower.run();
     }
 
 }
@@ -0,0 +1,96 @@
+/**
+ * Entrypoint class to generate synthetic translation event files, used for load and soak tests.
+ * The settings are received as arguments on format --name=value, and the ones not received keep their default value.
+ * E.g.: java -cp challenge-unbabel-jar-with-dependencies.jar pt.raphaelneves.unbabel.challenge.GeneratorApplication
+ *       --output=events.json --events=100000000 --clients=5000 --out-of-order-ratio=0.01
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge;
+
+import java.io.File;
+
+import pt.raphaelneves.unbabel.challenge.models.GeneratorSettings;
+import pt.raphaelneves.unbabel.challenge.services.EventGenerator;
+
+public class GeneratorApplication {
+
+    private static final String USAGE = "Usage: --output=<file> [--events=<amount>] [--seed=<seed>] [--start-epoch-second=<epoch second>] "
+            + "[--events-per-second=<rate>] [--clients=<amount>] [--languages=<amount>] "
+            + "[--duration-distribution=uniform|exponential|normal|log_normal] [--duration-mean=<mean>] "
+            + "[--duration-standard-deviation=<deviation>] [--out-of-order-ratio=<ratio>] [--max-delay-seconds=<seconds>] "
+            + "[--duplicate-ratio=<ratio>] [--malformed-ratio=<ratio>]";
+
+    public static void main(String[] args) {
+        String output = null;
+        GeneratorSettings settings = GeneratorSettings.builder().build();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new RuntimeException(USAGE);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            if ("output".equals(name)) {
+                output = value;
+            } else {
+                applySetting(settings, name, value);
+            }
+        }
+        if (output == null) {
+            throw new RuntimeException(USAGE);
+        }
+
+        long start = System.nanoTime();
+        File file = new File(output);
+        long lines = new EventGenerator(settings).generate(file);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d lines (%d bytes) written to %s in %.1f seconds", lines, file.length(), file.getAbsolutePath(), seconds));
+    }
+
+    private static void applySetting(GeneratorSettings settings, String name, String value) {
+        switch (name) {
+            case "events":
+                settings.setEvents(Long.parseLong(value));
+                break;
+            case "seed":
+                settings.setSeed(Long.parseLong(value));
+                break;
+            case "start-epoch-second":
+                settings.setStartEpochSecond(Long.parseLong(value));
+                break;
+            case "events-per-second":
+                settings.setEventsPerSecond(Double.parseDouble(value));
+                break;
+            case "clients":
+                settings.setClients(Integer.parseInt(value));
+                break;
+            case "languages":
+                settings.setLanguages(Integer.parseInt(value));
+                break;
+            case "duration-distribution":
+                settings.setDurationDistribution(GeneratorSettings.DurationDistribution.valueOf(value.toUpperCase()));
+                break;
+            case "duration-mean":
+                settings.setDurationMean(Double.parseDouble(value));
+                break;
+            case "duration-standard-deviation":
+                settings.setDurationStandardDeviation(Double.parseDouble(value));
+                break;
+            case "out-of-order-ratio":
+                settings.setOutOfOrderRatio(Double.parseDouble(value));
+                break;
+            case "max-delay-seconds":
+                settings.setMaxDelaySeconds(Long.parseLong(value));
+                break;
+            case "duplicate-ratio":
+                settings.setDuplicateRatio(Double.parseDouble(value));
+                break;
+            case "malformed-ratio":
+                settings.setMalformedRatio(Double.parseDouble(value));
+                break;
+            default:
+                throw new RuntimeException(USAGE);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Entrypoint class to serve the translation metrics over HTTP from a long-running process. The file is read once, or
+ * followed for new events, into an in-memory {@link MetricStore}, and the moving average is queried by window size
+ * and client without reading the file again. The settings are received as arguments on format --name=value.
+ * When the file is read once and the reading fails, the server is stopped, so a partial store is never answered.
+ * E.g.: java -cp challenge-unbabel-jar-with-dependencies.jar pt.raphaelneves.unbabel.challenge.ServerApplication
+ *       --file=events.json --port=8080 --follow=true --allowed-lateness-seconds=60
+ *       curl "http://localhost:8080/metrics?window=10&client=easyjet"
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Objects;
+
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.services.EventDecoder;
+import pt.raphaelneves.unbabel.challenge.services.FileFollower;
+import pt.raphaelneves.unbabel.challenge.services.FileProcessor;
+import pt.raphaelneves.unbabel.challenge.services.LineQuarantine;
+import pt.raphaelneves.unbabel.challenge.services.MetricServer;
+import pt.raphaelneves.unbabel.challenge.services.MetricStore;
+import pt.raphaelneves.unbabel.challenge.services.PipelineMetrics;
+
+public class ServerApplication {
+
+    private static final long FOLLOW_POLL_INTERVAL_MILLIS = 1000L;
+    private static final String USAGE = "Usage: --file=<file> [--port=<port>] [--threads=<amount>] [--follow=true|false] "
+            + "[--allowed-lateness-seconds=<seconds>] [--retention-minutes=<minutes>] [--quarantine=<file>] "
+            + "[--max-rejected-percentage=<percentage>]";
+
+    public static void main(String[] args) {
+        String filePath = null;
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean follow = false;
+        long allowedLatenessSeconds = 0L;
+        long retentionMinutes = 0L;
+        String quarantinePath = null;
+        double maxRejectedPercentage = -1;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new RuntimeException(USAGE);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "file":
+                    filePath = value;
+                    break;
+                case "port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "follow":
+                    follow = Boolean.parseBoolean(value);
+                    break;
+                case "allowed-lateness-seconds":
+                    allowedLatenessSeconds = Long.parseLong(value);
+                    break;
+                case "retention-minutes":
+                    retentionMinutes = Long.parseLong(value);
+                    break;
+                case "quarantine":
+                    quarantinePath = value;
+                    break;
+                case "max-rejected-percentage":
+                    maxRejectedPercentage = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new RuntimeException(USAGE);
+            }
+        }
+        if (filePath == null) {
+            throw new RuntimeException(USAGE);
+        }
+
+        LineQuarantine quarantine = Objects.isNull(quarantinePath) ? null : new LineQuarantine(Paths.get(quarantinePath), maxRejectedPercentage);
+        FileProcessor fileProcessor = new FileProcessor(PipelineMetrics.DISABLED, quarantine);
+        File file = fileProcessor.loadFileFrom(filePath);
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricStore store = new MetricStore(decoder.getDictionary(Dimension.CLIENT_NAME), allowedLatenessSeconds, retentionMinutes);
+        FileFollower follower = follow ? new FileFollower(file, decoder, store::accept, FOLLOW_POLL_INTERVAL_MILLIS, quarantine) : null;
+        MetricServer server = new MetricServer(store, follower, port, threads);
+        if (!follow) {
+            server.startLoading(quarantine);
+        }
+        server.start();
+        System.out.println(String.format("Serving the metrics from %s on http://localhost:%d/metrics?window=<minutes>[&client=<name>]",
+                file.getAbsolutePath(), server.getPort()));
+
+        if (follow) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                follower.stop();
+                server.close();
+                if (Objects.nonNull(quarantine)) {
+                    quarantine.close();
+                }
+            }));
+            try {
+                follower.run();
+            } catch (RuntimeException e) {
+                System.err.println("Stopped following " + file.getAbsolutePath() + ": " + follower.getFailure()
+                        + ". The metrics are no longer updated, as reported on /status.");
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            fileProcessor.streamFileEvents(file, decoder, store::accept);
+            store.flush();
+        } catch (RuntimeException e) {
+            server.failLoading(Objects.isNull(e.getMessage()) ? e.toString() : e.getMessage());
+            server.close();
+            throw e;
+        } finally {
+            if (Objects.nonNull(quarantine)) {
+                quarantine.close();
+            }
+        }
+        server.finishLoading();
+        System.out.println(String.format("%d events loaded into %d minutes in %.1f seconds", store.getEvents(),
+                store.getSealedMinutes(), (System.nanoTime() - start) / 1e9));
+    }
+}
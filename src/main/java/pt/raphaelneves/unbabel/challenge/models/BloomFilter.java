@@ -0,0 +1,88 @@
+/**
+ * This class represents a Bloom filter of 64 bits hashes, used to remember a large amount of values within a fixed
+ * amount of memory. A value that has been added is always found, while a value that has never been added is found
+ * with the false positive rate requested, as long as no more than the expected amount of values is added.
+ * The bit positions are derived from the received hash by double hashing, so the hash must be well distributed.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class BloomFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedValues The amount of values expected to be added
+     * @param falsePositiveRate The probability of finding a value that has never been added, from 0 to 1 (exclusive)
+     * @throws RuntimeException When the expected values is not a positive number or the rate is out of its range
+     */
+    public BloomFilter(long expectedValues, double falsePositiveRate) {
+        if (expectedValues < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new RuntimeException("Invalid Bloom filter settings.");
+        }
+        long optimalBits = (long) Math.ceil(-expectedValues * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.min(Integer.MAX_VALUE - 8, Math.max(1L, (optimalBits + 63) / 64))];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = (int) Math.max(1L, Math.round((double) bitCount / expectedValues * Math.log(2)));
+    }
+
+    /**
+     * @param hash The hash from the value to be added
+     */
+    public void put(long hash) {
+        long combined = (int) hash;
+        long increment = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(combined, bitCount);
+            bits[(int) (index >>> 6)] |= 1L << index;
+            combined += increment;
+        }
+    }
+
+    /**
+     * @param hash The hash from the value to be found
+     * @return boolean If the value may have been added, or false when it has certainly never been added
+     */
+    public boolean mightContain(long hash) {
+        long combined = (int) hash;
+        long increment = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(combined, bitCount);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+            combined += increment;
+        }
+        return true;
+    }
+
+    /**
+     * Remove all values, keeping the allocated bits
+     */
+    public void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * @return long The size of the filter in bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return int The amount of bits set by each value
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * This class represents a dictionary used to encode repeated String values as sequential int identifiers.
+ * Values can be looked up straight from a char array slice, so no String is created for values that are
+ * already known. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class Dictionary implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The known values indexed by their identifier
+     */
+    private String[] values = new String[INITIAL_CAPACITY];
+
+    /**
+     * The open addressing hash table holding the value identifier plus one, so zero means an empty slot
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * The amount of known values
+     */
+    private int size;
+
+    /**
+     * Find the identifier from a value, registering the value when it is not known yet
+     * @param chars The char array containing the value
+     * @param offset The value first position on the char array
+     * @param length The value length
+     * @return int The value identifier
+     */
+    public int lookup(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        while (slots[slot] != 0) {
+            String value = values[slots[slot] - 1];
+            if (value.hashCode() == hash && matches(value, chars, offset, length)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return register(new String(chars, offset, length), slot);
+    }
+
+    /**
+     * Find the identifier from a value, registering the value when it is not known yet
+     * @param value The value to be encoded
+     * @return int The value identifier
+     */
+    public int lookup(String value) {
+        return lookup(value.toCharArray(), 0, value.length());
+    }
+
+    /**
+     * Find the value from an identifier
+     * @param id The value identifier
+     * @return String The value registered with the identifier
+     * @throws RuntimeException When the identifier is not known
+     */
+    public String getValue(int id) {
+        if (id < 0 || id >= size) {
+            throw new RuntimeException("Unknown dictionary identifier " + id);
+        }
+        return values[id];
+    }
+
+    /**
+     * @return int The amount of known values
+     */
+    public int size() {
+        return size;
+    }
+
+    private int register(String value, int slot) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(values[id].hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static boolean matches(String value, char[] chars, int offset, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * This enum represents the translation event attributes that can be used to break down the extracted metrics.
+ * Each dimension keeps the attribute name used on the incoming file.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum Dimension {
+
+    CLIENT_NAME("client_name"),
+    SOURCE_LANGUAGE("source_language"),
+    TARGET_LANGUAGE("target_language"),
+    EVENT_NAME("event_name");
+
+    /**
+     * The attribute name on the incoming file
+     */
+    private final String fieldName;
+}
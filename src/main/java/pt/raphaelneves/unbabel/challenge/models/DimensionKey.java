@@ -0,0 +1,70 @@
+/**
+ * This class is used to pack the dictionary identifiers from the translation event dimensions into a single long,
+ * which is used as a compact composite key when grouping the events by dimension.
+ * The key reserves 24 bits for the client name, 12 bits for each language and 16 bits for the event name.
+ * Dimensions that are not grouped are packed with all their bits set.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.Set;
+
+public final class DimensionKey {
+
+    private static final int[] BITS = new int[Dimension.values().length];
+    private static final int[] SHIFTS = new int[Dimension.values().length];
+
+    static {
+        BITS[Dimension.CLIENT_NAME.ordinal()] = 24;
+        BITS[Dimension.SOURCE_LANGUAGE.ordinal()] = 12;
+        BITS[Dimension.TARGET_LANGUAGE.ordinal()] = 12;
+        BITS[Dimension.EVENT_NAME.ordinal()] = 16;
+        int shift = 0;
+        for (Dimension dimension : Dimension.values()) {
+            SHIFTS[dimension.ordinal()] = shift;
+            shift += BITS[dimension.ordinal()];
+        }
+    }
+
+    private DimensionKey() {
+    }
+
+    /**
+     * Pack the identifiers from the grouped dimensions into a composite key
+     * @param dimensions The grouped dimensions
+     * @param ids The dictionary identifiers indexed by the {@link Dimension} ordinal
+     * @return long The composite key
+     * @throws RuntimeException When an identifier doesn't fit in the bits reserved to its dimension
+     */
+    public static long pack(Set<Dimension> dimensions, int[] ids) {
+        long key = 0;
+        for (Dimension dimension : Dimension.values()) {
+            long mask = mask(dimension);
+            long value = mask;
+            if (dimensions.contains(dimension) && ids[dimension.ordinal()] != TranslationEvent.UNDEFINED) {
+                value = ids[dimension.ordinal()];
+                if (value >= mask) {
+                    throw new RuntimeException("Too many distinct values to group by " + dimension.getFieldName());
+                }
+            }
+            key |= value << SHIFTS[dimension.ordinal()];
+        }
+        return key;
+    }
+
+    /**
+     * Extract a dimension identifier from a composite key
+     * @param key The composite key
+     * @param dimension The dimension to be extracted
+     * @return int The dimension identifier, or {@link TranslationEvent#UNDEFINED} when the dimension was not grouped
+     */
+    public static int unpack(long key, Dimension dimension) {
+        long value = (key >>> SHIFTS[dimension.ordinal()]) & mask(dimension);
+        return value == mask(dimension) ? TranslationEvent.UNDEFINED : (int) value;
+    }
+
+    private static long mask(Dimension dimension) {
+        return (1L << BITS[dimension.ordinal()]) - 1;
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * This class represents a batch of translation events stored by column, using primitive arrays instead of one
+ * {@link Translation} object per event. The client name, the language pair and the event name are encoded as
+ * dictionary identifiers, so each event takes 32 bytes. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class EventBatch implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The events timestamp as epoch second (UTC)
+     */
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+
+    /**
+     * The events duration
+     */
+    private long[] durations = new long[INITIAL_CAPACITY];
+
+    /**
+     * The amount of words translated by each event
+     */
+    private int[] numberWords = new int[INITIAL_CAPACITY];
+
+    /**
+     * The identifiers from the events client name, language pair and event name
+     */
+    private int[] clientIds = new int[INITIAL_CAPACITY];
+    private int[] languagePairIds = new int[INITIAL_CAPACITY];
+    private int[] eventNameIds = new int[INITIAL_CAPACITY];
+
+    /**
+     * The amount of events in the batch
+     */
+    private int size;
+
+    /**
+     * The dictionaries used to encode the event attributes. Both source and target languages share the same
+     * dictionary, and each language pair is encoded from the source and target language identifiers.
+     */
+    private final Dictionary clientNames = new Dictionary();
+    private final Dictionary languages = new Dictionary();
+    private final Dictionary eventNames = new Dictionary();
+    private final LongDictionary languagePairs = new LongDictionary();
+
+    /**
+     * @return Map<Dimension, Dictionary> The dictionaries to be used when decoding the events added to this batch
+     */
+    public Map<Dimension, Dictionary> getDictionaries() {
+        Map<Dimension, Dictionary> dictionaries = new EnumMap<>(Dimension.class);
+        dictionaries.put(Dimension.CLIENT_NAME, clientNames);
+        dictionaries.put(Dimension.SOURCE_LANGUAGE, languages);
+        dictionaries.put(Dimension.TARGET_LANGUAGE, languages);
+        dictionaries.put(Dimension.EVENT_NAME, eventNames);
+        return Collections.unmodifiableMap(dictionaries);
+    }
+
+    /**
+     * Add a decoded event to the batch. The event dimensions must have been encoded with the batch dictionaries.
+     * @param event The decoded translation event
+     */
+    public void add(TranslationEvent event) {
+        if (size == timestamps.length) {
+            grow();
+        }
+        timestamps[size] = event.getTimestamp();
+        durations[size] = event.getDuration();
+        numberWords[size] = event.getNumberWords();
+        clientIds[size] = event.getDimensionId(Dimension.CLIENT_NAME);
+        eventNameIds[size] = event.getDimensionId(Dimension.EVENT_NAME);
+        int sourceId = event.getDimensionId(Dimension.SOURCE_LANGUAGE);
+        int targetId = event.getDimensionId(Dimension.TARGET_LANGUAGE);
+        languagePairIds[size] = sourceId == TranslationEvent.UNDEFINED || targetId == TranslationEvent.UNDEFINED
+                ? TranslationEvent.UNDEFINED
+                : languagePairs.lookup(((long) sourceId << 32) | targetId);
+        size++;
+    }
+
+    /**
+     * @return int The amount of events in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    public long getDuration(int index) {
+        return durations[index];
+    }
+
+    public int getNumberWords(int index) {
+        return numberWords[index];
+    }
+
+    public int getClientId(int index) {
+        return clientIds[index];
+    }
+
+    public int getLanguagePairId(int index) {
+        return languagePairIds[index];
+    }
+
+    public int getEventNameId(int index) {
+        return eventNameIds[index];
+    }
+
+    /**
+     * @param clientId The client identifier
+     * @return String The client name
+     */
+    public String getClientName(int clientId) {
+        return clientNames.getValue(clientId);
+    }
+
+    /**
+     * @param languagePairId The language pair identifier
+     * @return int The source language identifier from the pair
+     */
+    public int getSourceLanguageId(int languagePairId) {
+        return (int) (languagePairs.getValue(languagePairId) >>> 32);
+    }
+
+    /**
+     * @param languagePairId The language pair identifier
+     * @return int The target language identifier from the pair
+     */
+    public int getTargetLanguageId(int languagePairId) {
+        return (int) languagePairs.getValue(languagePairId);
+    }
+
+    /**
+     * @param languagePairId The language pair identifier
+     * @return String The source language from the pair
+     */
+    public String getSourceLanguage(int languagePairId) {
+        return languages.getValue(getSourceLanguageId(languagePairId));
+    }
+
+    /**
+     * @param languagePairId The language pair identifier
+     * @return String The target language from the pair
+     */
+    public String getTargetLanguage(int languagePairId) {
+        return languages.getValue(getTargetLanguageId(languagePairId));
+    }
+
+    /**
+     * @param eventNameId The event name identifier
+     * @return String The event name
+     */
+    public String getEventName(int eventNameId) {
+        return eventNames.getValue(eventNameId);
+    }
+
+    private void grow() {
+        int capacity = timestamps.length * 2;
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        durations = Arrays.copyOf(durations, capacity);
+        numberWords = Arrays.copyOf(numberWords, capacity);
+        clientIds = Arrays.copyOf(clientIds, capacity);
+        languagePairIds = Arrays.copyOf(languagePairIds, capacity);
+        eventNameIds = Arrays.copyOf(eventNameIds, capacity);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * This class represents the settings used to generate synthetic translation events, such as the volume, the
+ * cardinality from each dimension, the duration distribution and the ratio of unusual lines.
+ * It uses the Project Lombok to provide an out of the box Builder class, where every setting has a default value.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeneratorSettings {
+
+    /**
+     * The seed used by the random generator. The same settings always generate the same lines.
+     */
+    @Builder.Default
+    private long seed = 42L;
+
+    /**
+     * The amount of lines to be generated, including the duplicated and malformed ones
+     */
+    @Builder.Default
+    private long events = 1_000_000L;
+
+    /**
+     * The timestamp from the first event as epoch second
+     */
+    @Builder.Default
+    private long startEpochSecond = 1_545_847_868L;
+
+    /**
+     * The average amount of events per second. The interval between the events follows an exponential distribution.
+     */
+    @Builder.Default
+    private double eventsPerSecond = 100.0;
+
+    /**
+     * The amount of distinct client names and languages
+     */
+    @Builder.Default
+    private int clients = 100;
+    @Builder.Default
+    private int languages = 10;
+
+    /**
+     * The duration distribution and its mean. The standard deviation is only used by the normal distributions.
+     */
+    @Builder.Default
+    private DurationDistribution durationDistribution = DurationDistribution.LOG_NORMAL;
+    @Builder.Default
+    private double durationMean = 30.0;
+    @Builder.Default
+    private double durationStandardDeviation = 20.0;
+
+    /**
+     * The ratio of events that arrive late, and how late they can be
+     */
+    @Builder.Default
+    private double outOfOrderRatio = 0.0;
+    @Builder.Default
+    private long maxDelaySeconds = 60L;
+
+    /**
+     * The ratio of lines that repeat a previous event, with the same translation identifier
+     */
+    @Builder.Default
+    private double duplicateRatio = 0.0;
+
+    /**
+     * The ratio of lines that are not valid JSON objects
+     */
+    @Builder.Default
+    private double malformedRatio = 0.0;
+
+    /**
+     * The distributions that can be used to generate the event durations
+     */
+    public enum DurationDistribution {
+        UNIFORM,
+        EXPONENTIAL,
+        NORMAL,
+        LOG_NORMAL
+    }
+}
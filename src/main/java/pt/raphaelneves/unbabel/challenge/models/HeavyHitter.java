@@ -0,0 +1,68 @@
+/**
+ * This class represents one of the slowest clients or language pairs from a window, estimated by a
+ * {@link SpaceSavingSketch}, together with the error bounds from its estimate.
+ * It uses the Project Lombok to avoid boilerplate code, such as Setters and Getters, and also provide an
+ * out of the box Builder class.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+
+public class HeavyHitter implements Serializable {
+
+    /**
+     * The flat timestamp with format yyyy-MM-dd HH:mm:00 from the minute after the window, like the moving average
+     */
+    private String timestamp;
+    /**
+     * The window size in minutes
+     */
+    private Integer windowSize;
+    /**
+     * The dimension values identifying the client or the language pair
+     */
+    private String clientName;
+    private String sourceLanguage;
+    private String targetLanguage;
+    /**
+     * The upper bound from the events duration sum within the window, and how much it may exceed the real sum
+     */
+    private Long totalDuration;
+    private Long totalDurationError;
+    /**
+     * The amount of events counted since the key has been tracked, and their average duration. Both are exact when
+     * the total duration error is zero, otherwise the events before the key has been tracked are missing.
+     */
+    private Long events;
+    private Double averageDeliveryTime;
+
+    /**
+     * Define the specific notation for the HeavyHitter model when serialized as flat String
+     * @return A flat JSON notation from HeavyHitter
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{\"date\": ").append(timestamp)
+                                                                 .append(", \"window_size\": ").append(windowSize);
+        MetricResponse.appendDimension(builder, "client_name", clientName);
+        MetricResponse.appendDimension(builder, "source_language", sourceLanguage);
+        MetricResponse.appendDimension(builder, "target_language", targetLanguage);
+        return builder.append(", \"total_duration\": ").append(totalDuration)
+                      .append(", \"total_duration_error\": ").append(totalDurationError)
+                      .append(", \"events\": ").append(events)
+                      .append(", \"average_delivery_time\": ").append(averageDeliveryTime)
+                      .append("}").toString();
+    }
+}
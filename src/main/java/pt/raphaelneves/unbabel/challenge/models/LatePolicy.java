@@ -0,0 +1,20 @@
+/**
+ * This enum represents what is done with the events that arrive after their minute has been finalized, which happens
+ * once the watermark passes it.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+public enum LatePolicy {
+
+    /**
+     * The late events are only counted, so the emitted rows are never changed
+     */
+    DROP,
+
+    /**
+     * The late events are added to the rows already emitted, which are emitted again flagged as corrected
+     */
+    CORRECT
+}
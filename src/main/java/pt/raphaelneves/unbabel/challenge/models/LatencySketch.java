@@ -0,0 +1,201 @@
+/**
+ * This class represents a mergeable histogram of translation durations, used to estimate their percentiles without
+ * keeping every duration. The buckets follow a log-linear layout, like the HdrHistogram: the durations below 128 have
+ * their own bucket, and each power of two above it is split into 64 buckets with the same width. So any duration is
+ * estimated with a relative error below 1%, and a sketch never has more than 3712 buckets, whatever the amount of
+ * durations recorded. Sketches can be merged and subtracted, which allows a window to be moved minute by minute.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class LatencySketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The amount of bits from each duration kept by its bucket, which defines the relative error
+     */
+    private static final int PRECISION_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << PRECISION_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+    private static final int INITIAL_CAPACITY = SUB_BUCKET_COUNT;
+
+    /**
+     * The amount of durations by bucket. It grows on demand until the bucket from the biggest duration recorded.
+     */
+    private long[] counts = new long[INITIAL_CAPACITY];
+
+    /**
+     * The range from the buckets that may have durations, so sparse sketches are merged and reset quickly
+     */
+    private int minIndex = Integer.MAX_VALUE;
+    private int maxIndex = -1;
+
+    /**
+     * The amount of durations recorded
+     */
+    private long totalCount;
+
+    /**
+     * Record a duration. Negative durations are recorded as zero.
+     * @param value The duration
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Record the same duration multiple times
+     * @param value The duration
+     * @param count The amount of times it must be recorded
+     */
+    public void record(long value, long count) {
+        increment(indexOf(Math.max(value, 0)), count);
+    }
+
+    /**
+     * Add all the durations from another sketch
+     * @param other The sketch to be merged
+     */
+    public void merge(LatencySketch other) {
+        for (int index = other.minIndex; index <= other.maxIndex; index++) {
+            if (other.counts[index] != 0) {
+                increment(index, other.counts[index]);
+            }
+        }
+    }
+
+    /**
+     * Remove all the durations from another sketch, which must have been merged into this one before
+     * @param other The sketch to be subtracted
+     */
+    public void subtract(LatencySketch other) {
+        for (int index = other.minIndex; index <= other.maxIndex; index++) {
+            if (other.counts[index] != 0) {
+                counts[index] -= other.counts[index];
+                totalCount -= other.counts[index];
+            }
+        }
+    }
+
+    /**
+     * Remove all the durations, keeping the allocated buckets
+     */
+    public void reset() {
+        if (maxIndex >= 0) {
+            Arrays.fill(counts, minIndex, maxIndex + 1, 0L);
+        }
+        minIndex = Integer.MAX_VALUE;
+        maxIndex = -1;
+        totalCount = 0;
+    }
+
+    /**
+     * @return long The amount of durations recorded
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Estimate the duration at a percentile, which is the middle of the bucket holding it
+     * @param percentile The percentile, from 0 to 100
+     * @return long The estimated duration, or zero when the sketch is empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long cumulative = 0;
+        for (int index = minIndex; index <= maxIndex; index++) {
+            cumulative += counts[index];
+            if (cumulative >= rank) {
+                return medianValueOf(index);
+            }
+        }
+        return medianValueOf(maxIndex);
+    }
+
+    /**
+     * @return int The amount of bytes written by {@link #writeTo(ByteBuffer)}
+     */
+    public int getSerializedSize() {
+        int buckets = 0;
+        for (int index = minIndex; index <= maxIndex; index++) {
+            if (counts[index] != 0) {
+                buckets++;
+            }
+        }
+        return 4 + buckets * 10;
+    }
+
+    /**
+     * Write the non-empty buckets as their amount (4 bytes) followed by each bucket index (2 bytes) and count (8 bytes)
+     * @param buffer The buffer receiving the sketch at its current position
+     */
+    public void writeTo(ByteBuffer buffer) {
+        int start = buffer.position();
+        buffer.putInt(0);
+        int buckets = 0;
+        for (int index = minIndex; index <= maxIndex; index++) {
+            if (counts[index] != 0) {
+                buffer.putShort((short) index).putLong(counts[index]);
+                buckets++;
+            }
+        }
+        buffer.putInt(start, buckets);
+    }
+
+    /**
+     * Add all the durations from a sketch written by {@link #writeTo(ByteBuffer)}
+     * @param buffer The buffer holding the sketch
+     * @param offset The sketch position on the buffer
+     */
+    public void mergeFrom(ByteBuffer buffer, int offset) {
+        int buckets = buffer.getInt(offset);
+        for (int i = 0, position = offset + 4; i < buckets; i++, position += 10) {
+            increment(buffer.getShort(position), buffer.getLong(position + 2));
+        }
+    }
+
+    private void increment(int index, long count) {
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index] += count;
+        totalCount += count;
+        minIndex = Math.min(minIndex, index);
+        maxIndex = Math.max(maxIndex, index);
+    }
+
+    /**
+     * Find the bucket from a non-negative duration. Durations below 128 are their own bucket. Above it, the exponent
+     * defines how many low bits are dropped, and the remaining 7 bits define the bucket within that power of two.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 64 - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return exponent * HALF_SUB_BUCKET_COUNT + (int) (value >>> exponent);
+    }
+
+    /**
+     * Find the middle duration from a bucket, which is the inverse from {@link #indexOf(long)}
+     */
+    static long medianValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / HALF_SUB_BUCKET_COUNT - 1;
+        long lowestValue = (long) (index - exponent * HALF_SUB_BUCKET_COUNT) << exponent;
+        return lowestValue + ((1L << exponent) >> 1);
+    }
+}
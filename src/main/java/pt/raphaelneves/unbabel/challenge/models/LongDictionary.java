@@ -0,0 +1,101 @@
+/**
+ * This class represents a dictionary used to encode repeated long values, such as composite keys, as sequential
+ * int identifiers. It works like {@link Dictionary}, but without boxing the values. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+public class LongDictionary implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The known values indexed by their identifier
+     */
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    /**
+     * The open addressing hash table holding the value identifier plus one, so zero means an empty slot
+     */
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * The amount of known values
+     */
+    private int size;
+
+    /**
+     * Find the identifier from a value, registering the value when it is not known yet
+     * @param value The value to be encoded
+     * @return int The value identifier
+     */
+    public int lookup(long value) {
+        int slot = find(value);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * Find the identifier from a value without registering it
+     * @param value The value to be found
+     * @return int The value identifier, or -1 when the value is not known
+     */
+    public int indexOf(long value) {
+        return slots[find(value)] - 1;
+    }
+
+    /**
+     * Find the value from an identifier
+     * @param id The value identifier
+     * @return long The value registered with the identifier
+     * @throws RuntimeException When the identifier is not known
+     */
+    public long getValue(int id) {
+        if (id < 0 || id >= size) {
+            throw new RuntimeException("Unknown dictionary identifier " + id);
+        }
+        return values[id];
+    }
+
+    /**
+     * @return int The amount of known values
+     */
+    public int size() {
+        return size;
+    }
+
+    private int find(long value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != 0 && values[slots[slot] - 1] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        for (int id = 0; id < size; id++) {
+            slots[find(values[id])] = id + 1;
+        }
+    }
+
+    private static int hash(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * This class represents a set of long values, such as hashes, using open addressing with linear probing over a single
+ * primitive array, so each value takes 16 bytes at most and no object is created per value. Removed values are
+ * replaced by shifting back the values after them, so the set never needs tombstones. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+
+public class LongSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The open addressing slots, where zero means an empty slot. Zero itself is kept apart.
+     */
+    private long[] slots = new long[INITIAL_CAPACITY];
+    private boolean containsZero;
+
+    /**
+     * The amount of values in the set
+     */
+    private int size;
+
+    /**
+     * @param value The value to be added
+     * @return boolean If the value was not in the set yet
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = find(value);
+        if (slots[slot] != 0) {
+            return false;
+        }
+        slots[slot] = value;
+        size++;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param value The value to be found
+     * @return boolean If the value is in the set
+     */
+    public boolean contains(long value) {
+        return value == 0 ? containsZero : slots[find(value)] != 0;
+    }
+
+    /**
+     * @param value The value to be removed
+     * @return boolean If the value was in the set
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            if (!containsZero) {
+                return false;
+            }
+            containsZero = false;
+            size--;
+            return true;
+        }
+        int slot = find(value);
+        if (slots[slot] == 0) {
+            return false;
+        }
+        int mask = slots.length - 1;
+        int next = (slot + 1) & mask;
+        while (slots[next] != 0) {
+            int home = hash(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                slots[slot] = slots[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[slot] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return int The amount of values in the set
+     */
+    public int size() {
+        return size;
+    }
+
+    private int find(long value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != 0 && slots[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] previous = slots;
+        slots = new long[previous.length * 2];
+        for (long value : previous) {
+            if (value != 0) {
+                slots[find(value)] = value;
+            }
+        }
+    }
+
+    private static int hash(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -8,7 +8,9 @@
 package pt.raphaelneves.unbabel.challenge.models;
 
 import java.io.Serializable;
+import java.util.Objects;
 
+import com.fasterxml.jackson.core.util.BufferRecyclers;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -26,10 +28,31 @@ public class MetricResponse implements Serializable {
      * translation events that have been occurred at the same time interval.
      */
     private String timestamp;
+    /**
+     * The window size in minutes used to calculate the average, when multiple window sizes have been requested
+     */
+    private Integer windowSize;
+    /**
+     * The dimension values shared by the translations used to calculate the average, when they are grouped by dimension
+     */
+    private String clientName;
+    private String sourceLanguage;
+    private String targetLanguage;
+    private String eventName;
     /**
      * The average duration from a set of translations in a specific interval
      */
     private Double averageDeliveryTime;
+    /**
+     * The estimated median, 90th and 99th percentile durations from the same translations, when they have been requested
+     */
+    private Double p50;
+    private Double p90;
+    private Double p99;
+    /**
+     * If the row replaces one emitted before, because events have arrived after it
+     */
+    private Boolean corrected;
 
     /**
      * Define the specific notation for the MetricResponse model when serialized as flat String
@@ -37,6 +60,33 @@ public class MetricResponse implements Serializable {
      */
     @Override
     public String toString() {
-        return "{\"date\": " + timestamp + ", \"average_delivery_time\": " + averageDeliveryTime +"}";
+        StringBuilder builder = new StringBuilder("{\"date\": ").append(timestamp);
+        if (Objects.nonNull(windowSize)) {
+            builder.append(", \"window_size\": ").append(windowSize);
+        }
+        appendDimension(builder, "client_name", clientName);
+        appendDimension(builder, "source_language", sourceLanguage);
+        appendDimension(builder, "target_language", targetLanguage);
+        appendDimension(builder, "event_name", eventName);
+        builder.append(", \"average_delivery_time\": ").append(averageDeliveryTime);
+        if (Objects.nonNull(p50)) {
+            builder.append(", \"p50\": ").append(p50).append(", \"p90\": ").append(p90).append(", \"p99\": ").append(p99);
+        }
+        if (Boolean.TRUE.equals(corrected)) {
+            builder.append(", \"corrected\": true");
+        }
+        return builder.append("}").toString();
+    }
+
+    /**
+     * Append the dimension value when it's defined, escaping the quotes, backslashes and control characters coming
+     * from the incoming file so the row is still a valid JSON object
+     */
+    static void appendDimension(StringBuilder builder, String name, String value) {
+        if (Objects.nonNull(value)) {
+            builder.append(", \"").append(name).append("\": \"");
+            BufferRecyclers.quoteAsJsonText(value, builder);
+            builder.append("\"");
+        }
     }
 }
@@ -0,0 +1,90 @@
+/**
+ * This class represents the aggregate from the translation events within a minute: their amount, duration sum,
+ * minimum and maximum duration, and optionally their durations sketch. It's used to build and to read the rollup
+ * segments, so the same instance is usually reset and reused. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import lombok.Getter;
+
+@Getter
+public class MinuteRollup {
+
+    /**
+     * The events amount and duration sum
+     */
+    private long count;
+    private long sum;
+
+    /**
+     * The minimum and maximum durations, only meaningful when there are events
+     */
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    /**
+     * The durations sketch, or null when the sketches are not kept
+     */
+    private final LatencySketch sketch;
+
+    /**
+     * @param withSketch If the durations sketch must be kept
+     */
+    public MinuteRollup(boolean withSketch) {
+        this.sketch = withSketch ? new LatencySketch() : null;
+    }
+
+    /**
+     * Add a single event
+     * @param duration The event duration
+     */
+    public void add(long duration) {
+        add(1, duration, duration, duration);
+        if (Objects.nonNull(sketch)) {
+            sketch.record(duration);
+        }
+    }
+
+    /**
+     * Add the aggregate from a group of events, without their sketch
+     * @param count The amount of events
+     * @param sum The events duration sum
+     * @param min The minimum event duration
+     * @param max The maximum event duration
+     */
+    public void add(long count, long sum, long min, long max) {
+        this.count += count;
+        this.sum += sum;
+        this.min = Math.min(this.min, min);
+        this.max = Math.max(this.max, max);
+    }
+
+    /**
+     * Add the durations from a sketch written by {@link LatencySketch#writeTo(ByteBuffer)}, when the sketches are kept
+     * @param buffer The buffer holding the sketch
+     * @param offset The sketch position on the buffer
+     */
+    public void mergeSketch(ByteBuffer buffer, int offset) {
+        if (Objects.nonNull(sketch)) {
+            sketch.mergeFrom(buffer, offset);
+        }
+    }
+
+    /**
+     * Remove all events, keeping the allocated sketch
+     */
+    public void reset() {
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+        if (Objects.nonNull(sketch)) {
+            sketch.reset();
+        }
+    }
+}
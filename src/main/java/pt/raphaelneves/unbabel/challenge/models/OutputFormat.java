@@ -0,0 +1,35 @@
+/**
+ * This enum represents the formats that can be used to export the extracted metrics.
+ * Each format keeps the extension used on the exported file name.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public enum OutputFormat {
+
+    /**
+     * One JSON object per line, as shown in the console
+     */
+    JSON("json"),
+
+    /**
+     * Comma separated values with a header line
+     */
+    CSV("csv"),
+
+    /**
+     * Length-prefixed big-endian records, described on {@link pt.raphaelneves.unbabel.challenge.services.MetricWriter}
+     */
+    BINARY("bin");
+
+    /**
+     * The file extension without the dot
+     */
+    private final String extension;
+}
@@ -0,0 +1,58 @@
+/**
+ * This enum represents why a line from the incoming file could not become a translation event, used to count the
+ * rejected lines by reason when they are sent to a quarantine file instead of stopping the run.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+public enum RejectReason {
+
+    /**
+     * The line is not valid JSON, such as a truncated line
+     */
+    MALFORMED_JSON("The line is not valid JSON"),
+
+    /**
+     * The line is valid JSON, but not an object
+     */
+    NOT_AN_OBJECT("The line is not a JSON object"),
+
+    /**
+     * The timestamp is missing
+     */
+    MISSING_TIMESTAMP("The timestamp is missing"),
+
+    /**
+     * The timestamp is not a string on format yyyy-MM-dd HH:mm:ss with an optional fraction, or not a valid date
+     */
+    INVALID_TIMESTAMP("The timestamp is not a valid date"),
+
+    /**
+     * The duration is missing
+     */
+    MISSING_DURATION("The duration is missing"),
+
+    /**
+     * The duration is not an integer number
+     */
+    INVALID_DURATION("The duration is not an integer number"),
+
+    /**
+     * Another attribute has a value that can't be bound to its type
+     */
+    INVALID_ATTRIBUTE("An attribute has an invalid value");
+
+    private final String description;
+
+    RejectReason(String description) {
+        this.description = description;
+    }
+
+    /**
+     * @return String The reason description, as written on the quarantine file
+     */
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * This class represents a table of translation events summaries indexed by a composite long key, such as the packed
+ * dimension identifiers from a {@link DimensionKey}. It uses open addressing over primitive arrays, so each key takes
+ * a few bytes and no object is created per key. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+
+public class RollupTable implements Serializable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The open addressing slots. A slot is empty when its count is zero.
+     */
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] counts = new long[INITIAL_CAPACITY];
+    private long[] sums = new long[INITIAL_CAPACITY];
+
+    /**
+     * The amount of keys in the table
+     */
+    private int size;
+
+    /**
+     * Add a summary to the key
+     * @param key The composite key
+     * @param count The amount of events
+     * @param sum The events duration sum
+     */
+    public void add(long key, long count, long sum) {
+        if (count == 0) {
+            return;
+        }
+        int slot = find(key);
+        if (counts[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += count;
+        sums[slot] += sum;
+        if (size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Add all the summaries from another table
+     * @param other The table to be added
+     */
+    public void addAll(RollupTable other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * @param key The composite key
+     * @return long The amount of events from the key
+     */
+    public long getCount(long key) {
+        return counts[find(key)];
+    }
+
+    /**
+     * @param key The composite key
+     * @return long The events duration sum from the key
+     */
+    public long getSum(long key) {
+        return sums[find(key)];
+    }
+
+    /**
+     * @return int The amount of keys in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Send each key summary to the consumer
+     * @param consumer The consumer that will receive each key with its amount of events and duration sum
+     */
+    public void forEach(SummaryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                consumer.accept(keys[slot], counts[slot], sums[slot]);
+            }
+        }
+    }
+
+    /**
+     * The callback that receives each key summary from the table
+     */
+    @FunctionalInterface
+    public interface SummaryConsumer {
+        void accept(long key, long count, long sum);
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (counts[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldSums = sums;
+        keys = new long[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        sums = new long[oldKeys.length * 2];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldCounts[slot] != 0) {
+                int newSlot = find(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                counts[newSlot] = oldCounts[slot];
+                sums[newSlot] = oldSums[slot];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
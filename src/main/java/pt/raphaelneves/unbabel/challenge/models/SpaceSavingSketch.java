@@ -0,0 +1,277 @@
+/**
+ * This class represents a weighted Space-Saving sketch, used to find the keys with the biggest total duration, such as
+ * the slowest clients, while keeping a fixed amount of counters whatever the amount of distinct keys. When a new key
+ * arrives and every counter is taken, it replaces the key with the smallest total, inheriting that total as its error.
+ * So each tracked total is an upper bound from the key real total, which is at least the total minus its error, and any
+ * key whose real total is bigger than {@link #getFloor()} is always tracked. The counters also keep the amount of events
+ * and duration sum added since the key has been tracked, which is exact when its error is zero.
+ * Sketches can be merged, which allows a window to be built from the sketches of its minutes.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpaceSavingSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The maximum amount of keys tracked
+     */
+    private final int capacity;
+
+    /**
+     * The counters, indexed from zero until the amount of keys tracked. The weight is the upper bound from the key
+     * total duration, the error is the weight inherited from the replaced key, and the count is the amount of events
+     * added since the key has been tracked.
+     */
+    private final long[] keys;
+    private final long[] weights;
+    private final long[] errors;
+    private final long[] counts;
+    private int size;
+
+    /**
+     * The counters as a binary min-heap by weight, and the heap position of each counter, so the counter with the
+     * smallest weight is found in constant time and each update costs a logarithmic time
+     */
+    private final int[] heap;
+    private final int[] heapPositions;
+
+    /**
+     * The open addressing index from each tracked key to its counter. A slot is empty when its counter is -1.
+     */
+    private final long[] slotKeys;
+    private final int[] slotCounters;
+
+    /**
+     * The upper bound from the total of any key not tracked, received from the merged sketches
+     */
+    private long mergedFloor;
+
+    /**
+     * @param capacity The maximum amount of keys tracked, which defines the memory used and the error bounds
+     * @throws RuntimeException When the capacity is not a positive number
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new RuntimeException("The heavy hitter sketch capacity must be a positive number");
+        }
+        this.capacity = capacity;
+        keys = new long[capacity];
+        weights = new long[capacity];
+        errors = new long[capacity];
+        counts = new long[capacity];
+        heap = new int[capacity];
+        heapPositions = new int[capacity];
+        int slots = Integer.highestOneBit(capacity * 2 - 1) * 2;
+        slotKeys = new long[slots];
+        slotCounters = new int[slots];
+        Arrays.fill(slotCounters, -1);
+    }
+
+    /**
+     * Add an event duration to the key total. When the key is not tracked and every counter is taken, it replaces the
+     * key with the smallest total.
+     * @param key The key, such as a packed {@link DimensionKey}
+     * @param weight The event duration. Negative durations are added as zero, since the totals must never decrease.
+     */
+    public void add(long key, long weight) {
+        long increment = Math.max(0, weight);
+        int counter = find(key);
+        if (counter >= 0) {
+            weights[counter] += increment;
+            counts[counter]++;
+            siftDown(heapPositions[counter]);
+            return;
+        }
+        if (size < capacity) {
+            track(size++, key, mergedFloor + increment, mergedFloor, 1);
+            heap[size - 1] = size - 1;
+            heapPositions[size - 1] = size - 1;
+            siftUp(size - 1);
+            return;
+        }
+        counter = heap[0];
+        long floor = Math.max(weights[counter], mergedFloor);
+        remove(keys[counter]);
+        track(counter, key, floor + increment, floor, 1);
+        siftDown(0);
+    }
+
+    /**
+     * Merge this sketch with another one into a new sketch with the biggest capacity from both. The totals and errors
+     * from a key are summed up, and a key missing from one sketch takes the floor from that sketch as both total and
+     * error, so the merged totals keep being upper bounds and the merged errors keep bounding them.
+     * @param other The sketch to be merged
+     * @return SpaceSavingSketch The merged sketch, keeping the keys with the biggest totals
+     */
+    public SpaceSavingSketch merge(SpaceSavingSketch other) {
+        long floor = getFloor();
+        long otherFloor = other.getFloor();
+        Map<Long, long[]> union = new HashMap<>();
+        forEach((key, weight, error, count) -> union.put(key, new long[]{key, weight + otherFloor, error + otherFloor, count}));
+        other.forEach((key, weight, error, count) -> {
+            long[] counter = union.get(key);
+            if (counter == null) {
+                union.put(key, new long[]{key, weight + floor, error + floor, count});
+            } else {
+                counter[1] += weight - otherFloor;
+                counter[2] += error - otherFloor;
+                counter[3] += count;
+            }
+        });
+        List<long[]> counters = new ArrayList<>(union.values());
+        counters.sort(Comparator.comparingLong((long[] counter) -> counter[1]).reversed().thenComparingLong(counter -> counter[0]));
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(Math.max(capacity, other.capacity));
+        merged.mergedFloor = floor + otherFloor;
+        for (long[] counter : counters) {
+            if (merged.size == merged.capacity) {
+                merged.mergedFloor = Math.max(merged.mergedFloor, counter[1]);
+                break;
+            }
+            merged.heap[merged.size] = merged.size;
+            merged.heapPositions[merged.size] = merged.size;
+            merged.track(merged.size++, counter[0], counter[1], counter[2], counter[3]);
+        }
+        for (int position = merged.size / 2 - 1; position >= 0; position--) {
+            merged.siftDown(position);
+        }
+        return merged;
+    }
+
+    /**
+     * @return long The upper bound from the total of any key not tracked, which is zero until every counter is taken
+     */
+    public long getFloor() {
+        return Math.max(mergedFloor, size < capacity ? 0 : weights[heap[0]]);
+    }
+
+    /**
+     * @return int The maximum amount of keys tracked
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return int The amount of keys tracked
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Send each tracked key to the consumer
+     * @param consumer The consumer that will receive each key with its total upper bound, error and amount of events
+     */
+    public void forEach(CounterConsumer consumer) {
+        for (int counter = 0; counter < size; counter++) {
+            consumer.accept(keys[counter], weights[counter], errors[counter], counts[counter]);
+        }
+    }
+
+    /**
+     * The callback that receives each tracked key from the sketch
+     */
+    @FunctionalInterface
+    public interface CounterConsumer {
+        void accept(long key, long weight, long error, long count);
+    }
+
+    private void track(int counter, long key, long weight, long error, long count) {
+        keys[counter] = key;
+        weights[counter] = weight;
+        errors[counter] = error;
+        counts[counter] = count;
+        int slot = slot(key);
+        slotKeys[slot] = key;
+        slotCounters[slot] = counter;
+    }
+
+    private int find(long key) {
+        return slotCounters[slot(key)];
+    }
+
+    private int slot(long key) {
+        int mask = slotKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (slotCounters[slot] >= 0 && slotKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Remove a key from the index, moving back the keys placed after it, so no tombstone is needed
+     */
+    private void remove(long key) {
+        int mask = slotKeys.length - 1;
+        int empty = slot(key);
+        slotCounters[empty] = -1;
+        int slot = (empty + 1) & mask;
+        while (slotCounters[slot] >= 0) {
+            int home = hash(slotKeys[slot]) & mask;
+            if (((slot - home) & mask) >= ((slot - empty) & mask)) {
+                slotKeys[empty] = slotKeys[slot];
+                slotCounters[empty] = slotCounters[slot];
+                slotCounters[slot] = -1;
+                empty = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (weights[heap[parent]] <= weights[heap[position]]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = position * 2 + 1;
+            int right = left + 1;
+            if (left < size && weights[heap[left]] < weights[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && weights[heap[right]] < weights[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int first, int second) {
+        int counter = heap[first];
+        heap[first] = heap[second];
+        heap[second] = counter;
+        heapPositions[heap[first]] = first;
+        heapPositions[heap[second]] = second;
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
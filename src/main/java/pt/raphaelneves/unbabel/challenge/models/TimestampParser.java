@@ -0,0 +1,184 @@
+/**
+ * This class converts the translation event timestamps, on the fixed format yyyy-MM-dd HH:mm:ss.ffffff (UTC), into
+ * epoch seconds or microseconds straight from their chars, without creating any object, and renders the epoch
+ * minutes used as bucket keys back into the "yyyy-MM-dd HH:mm:00" format only when the metrics are shown.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+public final class TimestampParser {
+
+    private static final long SECONDS_PER_MINUTE = 60L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final long MINUTES_PER_DAY = 1_440L;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final int FRACTION_DIGITS = 6;
+    private static final int SECONDS_LENGTH = 19;
+    private static final DateTimeFormatter INDEX_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:00");
+
+    private TimestampParser() {
+    }
+
+    /**
+     * @param timestamp The timestamp on format yyyy-MM-dd HH:mm:ss with an optional fraction of second
+     * @return long The timestamp as epoch second, ignoring the fraction of second
+     * @throws RuntimeException When the timestamp is not valid
+     */
+    public static long parseEpochSecond(CharSequence timestamp) {
+        return parse(null, timestamp, 0, timestamp.length(), false);
+    }
+
+    /**
+     * @param chars The char array containing the timestamp
+     * @param offset The timestamp first position on the char array
+     * @param length The timestamp length
+     * @return long The timestamp as epoch second, ignoring the fraction of second
+     * @throws RuntimeException When the timestamp is not valid
+     */
+    public static long parseEpochSecond(char[] chars, int offset, int length) {
+        return parse(chars, null, offset, length, false);
+    }
+
+    /**
+     * @param timestamp The timestamp on format yyyy-MM-dd HH:mm:ss with an optional fraction of second
+     * @return long The timestamp as epoch microsecond. Fraction digits after the sixth one are ignored.
+     * @throws RuntimeException When the timestamp is not valid
+     */
+    public static long parseEpochMicros(CharSequence timestamp) {
+        return parse(null, timestamp, 0, timestamp.length(), true);
+    }
+
+    /**
+     * @param chars The char array containing the timestamp
+     * @param offset The timestamp first position on the char array
+     * @param length The timestamp length
+     * @return long The timestamp as epoch microsecond. Fraction digits after the sixth one are ignored.
+     * @throws RuntimeException When the timestamp is not valid
+     */
+    public static long parseEpochMicros(char[] chars, int offset, int length) {
+        return parse(chars, null, offset, length, true);
+    }
+
+    /**
+     * @param epochSecond The timestamp as epoch second
+     * @return long The epoch minute containing the timestamp
+     */
+    public static long toEpochMinute(long epochSecond) {
+        return Math.floorDiv(epochSecond, SECONDS_PER_MINUTE);
+    }
+
+    /**
+     * Render an epoch minute as the timestamp used to identify the metrics
+     * @param epochMinute The epoch minute
+     * @return String The timestamp on format "yyyy-MM-dd HH:mm:00"
+     */
+    public static String formatEpochMinute(long epochMinute) {
+        long days = Math.floorDiv(epochMinute, MINUTES_PER_DAY);
+        int minuteOfDay = (int) Math.floorMod(epochMinute, MINUTES_PER_DAY);
+        long dayOfEra = Math.floorMod(days + 719_468L, 146_097L);
+        long era = Math.floorDiv(days + 719_468L, 146_097L);
+        long yearOfEra = (dayOfEra - dayOfEra / 1_460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) (shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9_999) {
+            return INDEX_FORMATTER.format(LocalDateTime.ofEpochSecond(epochMinute * SECONDS_PER_MINUTE, 0, ZoneOffset.UTC));
+        }
+        char[] chars = {'0', '0', '0', '0', '-', '0', '0', '-', '0', '0', ' ', '0', '0', ':', '0', '0', ':', '0', '0'};
+        writeDigits(chars, 0, 4, (int) year);
+        writeDigits(chars, 5, 2, month);
+        writeDigits(chars, 8, 2, day);
+        writeDigits(chars, 11, 2, minuteOfDay / 60);
+        writeDigits(chars, 14, 2, minuteOfDay % 60);
+        return new String(chars);
+    }
+
+    /**
+     * Parse the timestamp from a char array or from a char sequence, whichever is defined, so both share the same
+     * validation without wrapping one into the other
+     */
+    private static long parse(char[] chars, CharSequence text, int offset, int length, boolean micros) {
+        if (length < SECONDS_LENGTH || charAt(chars, text, offset + 4) != '-' || charAt(chars, text, offset + 7) != '-'
+                || charAt(chars, text, offset + 10) != ' ' || charAt(chars, text, offset + 13) != ':'
+                || charAt(chars, text, offset + 16) != ':' || (length > SECONDS_LENGTH && charAt(chars, text, offset + SECONDS_LENGTH) != '.')) {
+            throw invalidTimestamp(chars, text, offset, length);
+        }
+        int year = parseDigits(chars, text, offset, 4);
+        int month = parseDigits(chars, text, offset + 5, 2);
+        int day = parseDigits(chars, text, offset + 8, 2);
+        int hour = parseDigits(chars, text, offset + 11, 2);
+        int minute = parseDigits(chars, text, offset + 14, 2);
+        int second = parseDigits(chars, text, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            throw invalidTimestamp(chars, text, offset, length);
+        }
+        long epochSecond = daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        if (!micros) {
+            return epochSecond;
+        }
+        int fractionLength = Math.max(0, length - SECONDS_LENGTH - 1);
+        int fraction = parseDigits(chars, text, offset + SECONDS_LENGTH + 1, Math.min(fractionLength, FRACTION_DIGITS));
+        if (fraction < 0 || (length > SECONDS_LENGTH && fractionLength == 0)) {
+            throw invalidTimestamp(chars, text, offset, length);
+        }
+        for (int i = fractionLength; i < FRACTION_DIGITS; i++) {
+            fraction *= 10;
+        }
+        return epochSecond * MICROS_PER_SECOND + fraction;
+    }
+
+    private static char charAt(char[] chars, CharSequence text, int index) {
+        return chars != null ? chars[index] : text.charAt(index);
+    }
+
+    private static int parseDigits(char[] chars, CharSequence text, int offset, int length) {
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int digit = charAt(chars, text, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void writeDigits(char[] chars, int offset, int length, int value) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        }
+        return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+    }
+
+    /**
+     * Count the days since 1970-01-01 from a proleptic Gregorian date
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    private static RuntimeException invalidTimestamp(char[] chars, CharSequence text, int offset, int length) {
+        String timestamp = chars != null ? new String(chars, offset, length) : text.subSequence(offset, offset + length).toString();
+        return new RuntimeException("Invalid timestamp " + timestamp);
+    }
+}
@@ -9,7 +9,7 @@ package pt.raphaelneves.unbabel.challenge.models;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 import java.util.Objects;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -84,13 +84,12 @@ public class Translation implements Serializable {
 
 
     /**
-     * Convert the timestamp as String to a valid LocalDateTime format
+     * Convert the timestamp as String to a valid LocalDateTime format, ignoring the fraction of second
      * @param timestamp The timestamp as String
      * @return The timestamp converted into LocalDateTime
      */
     public void setTimestamp(String timestamp) {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        this.timestamp = LocalDateTime.parse(timestamp.substring(0, timestamp.lastIndexOf(".")), formatter);
+        this.timestamp = LocalDateTime.ofEpochSecond(TimestampParser.parseEpochSecond(timestamp), 0, ZoneOffset.UTC);
     }
 
 
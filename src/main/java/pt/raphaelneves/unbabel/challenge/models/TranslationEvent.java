@@ -0,0 +1,65 @@
+/**
+ * This class represents the translation event attributes used by the metric calculation.
+ * Unlike {@link Translation}, a single instance is meant to be reused for every decoded line, so the timestamp is
+ * kept as epoch second and the requested dimensions are kept as {@link Dictionary} identifiers.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.Arrays;
+
+import lombok.Data;
+
+@Data
+public class TranslationEvent {
+
+    /**
+     * Identifier used when a dimension was not requested or was not present on the line
+     */
+    public static final int UNDEFINED = -1;
+
+    /**
+     * The timestamp of when translation event has occurred as epoch second (UTC)
+     */
+    private long timestamp;
+
+    /**
+     * The 64 bits hash from the translation identifier, used to find repeated events, or zero when it was not present
+     */
+    private long translationIdHash;
+
+    /**
+     * The translation event duration
+     */
+    private long duration;
+
+    /**
+     * The amount of word that have been translated
+     */
+    private int numberWords;
+
+    /**
+     * The dictionary identifiers from the requested dimensions, indexed by the {@link Dimension} ordinal
+     */
+    private final int[] dimensionIds = new int[Dimension.values().length];
+
+    /**
+     * @param dimension The requested dimension
+     * @return int The dictionary identifier from the dimension value or {@link #UNDEFINED}
+     */
+    public int getDimensionId(Dimension dimension) {
+        return dimensionIds[dimension.ordinal()];
+    }
+
+    /**
+     * Clear all the attributes before decoding a new line
+     */
+    public void reset() {
+        timestamp = 0;
+        translationIdHash = 0;
+        duration = 0;
+        numberWords = 0;
+        Arrays.fill(dimensionIds, UNDEFINED);
+    }
+}
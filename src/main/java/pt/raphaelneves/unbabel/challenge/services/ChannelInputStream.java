@@ -0,0 +1,91 @@
+/**
+ * This class is a stream reading a file range with absolute reads, so it doesn't change the shared channel position
+ * and many threads can read different ranges from the same channel at once.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+class ChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * The position of the next byte to be read, and the position where the range ends
+     */
+    private long position;
+    private final long end;
+
+    /**
+     * @param channel The file channel
+     * @param position The range first position
+     * @param end The position right after the range, or Long.MAX_VALUE to read until the file end
+     * @param bufferSize The amount of bytes read from the channel at once
+     */
+    ChannelInputStream(FileChannel channel, long position, long end, int bufferSize) {
+        this.channel = channel;
+        this.position = position;
+        this.end = end;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        buffer.flip();
+    }
+
+    /**
+     * @return long The position of the next byte to be read
+     */
+    long getPosition() {
+        return position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        position++;
+        return buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int read = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, read);
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long amount) throws IOException {
+        long skipped = 0;
+        while (skipped < amount && (buffer.hasRemaining() || fill())) {
+            int step = (int) Math.min(amount - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+        }
+        position += skipped;
+        return skipped;
+    }
+
+    private boolean fill() throws IOException {
+        if (position >= end) {
+            return false;
+        }
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read = channel.read(buffer, position);
+        buffer.flip();
+        return read > 0;
+    }
+}
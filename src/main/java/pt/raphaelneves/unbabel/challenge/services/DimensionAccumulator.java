@@ -0,0 +1,142 @@
+/**
+ * This class is used to calculate the average event duration broken down by dimension, such as client name,
+ * language pair and event name, in a single pass over the events. Each event is summarized in a {@link RollupTable}
+ * from its minute under a compact {@link DimensionKey}, and only the minutes within the window size interval from the
+ * newest event are kept. The result has one row per dimension combination, from the same interval used by the last
+ * row of the moving average.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.RollupTable;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class DimensionAccumulator {
+
+    private static final Comparator<String> NULLS_FIRST = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    /**
+     * The window size in minutes
+     */
+    private final int windowSize;
+
+    /**
+     * The grouped dimensions and the dictionaries used to encode their values
+     */
+    private final Set<Dimension> dimensions;
+    private final Map<Dimension, Dictionary> dictionaries;
+
+    /**
+     * The events summary by dimension key from each minute within the window size interval
+     */
+    private final TreeMap<Long, RollupTable> minutes = new TreeMap<>();
+
+    /**
+     * The epoch minute from the newest event received so far
+     */
+    private long newestMinute = Long.MIN_VALUE;
+
+    /**
+     * The last table that received an event, since consecutive events usually share the same minute
+     */
+    private long lastMinute;
+    private RollupTable lastTable;
+
+    DimensionAccumulator(int windowSize, Set<Dimension> dimensions, Map<Dimension, Dictionary> dictionaries) {
+        this.windowSize = windowSize;
+        this.dimensions = EnumSet.copyOf(dimensions);
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Add a decoded translation event, whose dimensions have been encoded with the accumulator dictionaries
+     * @param event The translation event decoded from the incoming file
+     */
+    public void accept(TranslationEvent event) {
+        add(event.getTimestamp(), event.getDuration(), DimensionKey.pack(dimensions, event.getDimensionIds()));
+    }
+
+    /**
+     * Add a translation event duration to the summary from its minute and dimension key. When the event is the
+     * newest one received so far, all the minutes that fell out of the window size interval are discarded.
+     * @param epochSecond The event timestamp as epoch second
+     * @param duration The event duration
+     * @param key The event dimension key
+     */
+    void add(long epochSecond, long duration, long key) {
+        long minute = TimestampParser.toEpochMinute(epochSecond);
+        if (minute > newestMinute) {
+            newestMinute = minute;
+            minutes.headMap(getFirstMinute()).clear();
+            lastTable = null;
+        } else if (minute < getFirstMinute()) {
+            return;
+        }
+        if (Objects.isNull(lastTable) || minute != lastMinute) {
+            lastMinute = minute;
+            lastTable = minutes.computeIfAbsent(minute, newMinute -> new RollupTable());
+        }
+        lastTable.add(key, 1, duration);
+    }
+
+    /**
+     * Calculate the average event duration by dimension from the events within the window size interval before the
+     * minute after the newest event. The rows are sorted by their dimension values.
+     * @return List<MetricResponse> A collection containing the average event duration from each dimension combination
+     * @throws RuntimeException When no events have been received
+     */
+    public List<MetricResponse> getMetrics() {
+        if (newestMinute == Long.MIN_VALUE) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        RollupTable window = new RollupTable();
+        minutes.tailMap(getFirstMinute()).values().forEach(window::addAll);
+        String timestamp = TimestampParser.formatEpochMinute(newestMinute + 1);
+        List<MetricResponse> metrics = new ArrayList<>();
+        window.forEach((key, count, sum) -> metrics.add(MetricResponse.builder()
+                                                                      .timestamp(timestamp)
+                                                                      .windowSize(windowSize)
+                                                                      .clientName(resolve(key, Dimension.CLIENT_NAME))
+                                                                      .sourceLanguage(resolve(key, Dimension.SOURCE_LANGUAGE))
+                                                                      .targetLanguage(resolve(key, Dimension.TARGET_LANGUAGE))
+                                                                      .eventName(resolve(key, Dimension.EVENT_NAME))
+                                                                      .averageDeliveryTime((double) sum / count)
+                                                                      .build()));
+        metrics.sort(Comparator.comparing(MetricResponse::getClientName, NULLS_FIRST)
+                               .thenComparing(MetricResponse::getSourceLanguage, NULLS_FIRST)
+                               .thenComparing(MetricResponse::getTargetLanguage, NULLS_FIRST)
+                               .thenComparing(MetricResponse::getEventName, NULLS_FIRST));
+        return metrics;
+    }
+
+    /**
+     * Find the dimension value from a dimension key
+     */
+    private String resolve(long key, Dimension dimension) {
+        int id = DimensionKey.unpack(key, dimension);
+        return id == TranslationEvent.UNDEFINED ? null : dictionaries.get(dimension).getValue(id);
+    }
+
+    /**
+     * @return long The first epoch minute within the window size interval from the newest event
+     */
+    private long getFirstMinute() {
+        return newestMinute - windowSize + 1;
+    }
+}
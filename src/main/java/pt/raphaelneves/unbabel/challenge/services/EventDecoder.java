@@ -0,0 +1,216 @@
+/**
+ * This class is used to decode the incoming file lines into {@link pt.raphaelneves.unbabel.challenge.models.TranslationEvent}
+ * objects using the Jackson streaming parser. Only the attributes needed by the metric calculation are extracted, and
+ * the requested dimensions are encoded through a {@link pt.raphaelneves.unbabel.challenge.models.Dictionary}, so no
+ * intermediate String or Translation object is created for each line.
+ * This class is not thread-safe, so each reading thread must use its own instance.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class EventDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * The dictionaries from the requested dimensions
+     */
+    private final Map<Dimension, Dictionary> dictionaries = new EnumMap<>(Dimension.class);
+
+    /**
+     * Create a decoder that only extracts the timestamp, the duration and the amount of words
+     */
+    public EventDecoder() {
+        this(Collections.emptySet());
+    }
+
+    /**
+     * Create a decoder that also extracts the requested dimensions
+     * @param dimensions The dimensions to be extracted from each line
+     */
+    public EventDecoder(Set<Dimension> dimensions) {
+        dimensions.forEach(dimension -> dictionaries.put(dimension, new Dictionary()));
+    }
+
+    /**
+     * Create a decoder that extracts the dimensions using existing dictionaries, such as the ones from an
+     * {@link pt.raphaelneves.unbabel.challenge.models.EventBatch}
+     * @param dictionaries The dictionaries used to encode each requested dimension
+     */
+    public EventDecoder(Map<Dimension, Dictionary> dictionaries) {
+        this.dictionaries.putAll(dictionaries);
+    }
+
+    /**
+     * @param dimension The requested dimension
+     * @return Dictionary The dictionary used to encode the dimension values, or null when the dimension was not requested
+     */
+    public Dictionary getDictionary(Dimension dimension) {
+        return dictionaries.get(dimension);
+    }
+
+    /**
+     * @return Map<Dimension, Dictionary> The dictionaries from all the requested dimensions
+     */
+    public Map<Dimension, Dictionary> getDictionaries() {
+        return Collections.unmodifiableMap(dictionaries);
+    }
+
+    /**
+     * Decode a single line into the received event
+     * @param buffer The byte array containing the line
+     * @param offset The line first position on the byte array
+     * @param length The line length
+     * @param event The event to be filled with the line attributes
+     * @throws InvalidLineException When the line is not a valid translation event
+     */
+    public void decode(byte[] buffer, int offset, int length, TranslationEvent event) {
+        event.reset();
+        boolean hasTimestamp = false;
+        boolean hasDuration = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(buffer, offset, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw invalidLine(RejectReason.NOT_AN_OBJECT, buffer, offset, length);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (fieldName) {
+                    case "timestamp":
+                        if (value != JsonToken.VALUE_STRING) {
+                            throw invalidValue(RejectReason.INVALID_TIMESTAMP, parser, buffer, offset, length);
+                        }
+                        event.setTimestamp(parseTimestamp(parser, buffer, offset, length));
+                        hasTimestamp = true;
+                        break;
+                    case "duration":
+                        event.setDuration(parseDuration(value, parser, buffer, offset, length));
+                        hasDuration = true;
+                        break;
+                    case "translation_id":
+                        if (value == JsonToken.VALUE_STRING) {
+                            event.setTranslationIdHash(hash(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                        }
+                        break;
+                    case "nr_words":
+                        if (value == JsonToken.VALUE_NUMBER_INT) {
+                            event.setNumberWords(parser.getIntValue());
+                        }
+                        break;
+                    default:
+                        decodeDimension(fieldName, value, parser, event);
+                        parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidLineException(RejectReason.MALFORMED_JSON, new String(buffer, offset, length, StandardCharsets.UTF_8),
+                    e.getOriginalMessage(), e.getLocation());
+        } catch (IOException e) {
+            throw invalidLine(RejectReason.MALFORMED_JSON, buffer, offset, length);
+        }
+        if (!hasTimestamp) {
+            throw invalidLine(RejectReason.MISSING_TIMESTAMP, buffer, offset, length);
+        }
+        if (!hasDuration) {
+            throw invalidLine(RejectReason.MISSING_DURATION, buffer, offset, length);
+        }
+    }
+
+    private static long parseTimestamp(JsonParser parser, byte[] buffer, int offset, int length) throws IOException {
+        try {
+            return TimestampParser.parseEpochSecond(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        } catch (RuntimeException e) {
+            throw new InvalidLineException(RejectReason.INVALID_TIMESTAMP, new String(buffer, offset, length, StandardCharsets.UTF_8),
+                    e.getMessage(), parser.getTokenLocation());
+        }
+    }
+
+    /**
+     * Read the duration as the Jackson coercion would, accepting an integral float such as 20.0 and a string holding
+     * an integer such as "20", but rejecting the fractional ones instead of truncating them
+     */
+    private static long parseDuration(JsonToken value, JsonParser parser, byte[] buffer, int offset, int length) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+            double duration = parser.getDoubleValue();
+            if (duration == Math.rint(duration) && Math.abs(duration) <= Long.MAX_VALUE) {
+                return (long) duration;
+            }
+        } else if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Long.parseLong(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                // Rejected below with the value found
+            }
+        }
+        throw invalidValue(RejectReason.INVALID_DURATION, parser, buffer, offset, length);
+    }
+
+    /**
+     * Encode the field value when the field is one of the requested dimensions
+     */
+    private void decodeDimension(String fieldName, JsonToken value, JsonParser parser, TranslationEvent event) throws IOException {
+        if (dictionaries.isEmpty() || value != JsonToken.VALUE_STRING) {
+            return;
+        }
+        for (Map.Entry<Dimension, Dictionary> entry : dictionaries.entrySet()) {
+            if (entry.getKey().getFieldName().equals(fieldName)) {
+                int id = entry.getValue().lookup(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                event.getDimensionIds()[entry.getKey().ordinal()] = id;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Hash the chars with FNV-1a followed by the MurmurHash3 finalizer, so similar identifiers are well distributed.
+     * Zero is reserved for the events without identifier.
+     * @param chars The char array containing the value
+     * @param offset The value first position on the char array
+     * @param length The value length
+     * @return long The 64 bits hash, never zero
+     */
+    static long hash(char[] chars, int offset, int length) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ chars[i]) * 0x100000001B3L;
+        }
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static InvalidLineException invalidLine(RejectReason reason, byte[] buffer, int offset, int length) {
+        return new InvalidLineException(reason, new String(buffer, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return InvalidLineException The exception describing the value found instead of the expected one, and its column
+     */
+    private static InvalidLineException invalidValue(RejectReason reason, JsonParser parser, byte[] buffer, int offset, int length)
+            throws IOException {
+        return new InvalidLineException(reason, new String(buffer, offset, length, StandardCharsets.UTF_8),
+                reason.getDescription() + ", found " + parser.getText(), parser.getTokenLocation());
+    }
+}
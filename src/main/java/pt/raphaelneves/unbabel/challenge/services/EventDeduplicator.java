@@ -0,0 +1,239 @@
+/**
+ * This class is used to drop the translation events replayed by the producers, which repeat the translation identifier
+ * from an event already received. The identifiers are kept as the 64 bits hash computed by the {@link EventDecoder}.
+ * - The identifiers from the last minutes, counting back from the newest event minute, are kept in an exact set,
+ * bucketed by their event minute so a whole minute is forgotten at once when it gets too old.
+ * - The identifiers from the forgotten minutes are moved into a Bloom filter, so older replays are still found within
+ * a fixed amount of memory. Two filter generations are kept and the oldest one is cleared every filter period,
+ * so an identifier is remembered between one and two periods after leaving the exact set.
+ * The exact set never holds more identifiers than the events from its minutes, and the filters never grow, so memory
+ * stays bounded however long the application runs. The filters may find an identifier never received, dropping a
+ * valid event, with the false positive rate requested, while the exact set never does.
+ * Events without translation identifier are never dropped.
+ * The whole state is serializable, so it can be kept on an {@link IngestionCheckpoint}. This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import pt.raphaelneves.unbabel.challenge.models.BloomFilter;
+import pt.raphaelneves.unbabel.challenge.models.LongSet;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class EventDeduplicator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    /**
+     * How many minutes, counting back from the newest event minute, are kept in the exact set
+     */
+    private final int exactMinutes;
+
+    /**
+     * How many minutes each filter generation covers, and its sizing. A zero period disables the filters.
+     */
+    private final long filterPeriodMinutes;
+    private final long expectedIdsPerPeriod;
+    private final double falsePositiveRate;
+
+    /**
+     * The identifiers within the exact minutes, and the same identifiers by event minute, used to forget them
+     */
+    private final LongSet exactIds = new LongSet();
+    private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+    /**
+     * The filter generations, where the current one receives the forgotten identifiers. They are created on demand.
+     */
+    private BloomFilter currentFilter;
+    private BloomFilter previousFilter;
+    private long currentFilterStart;
+
+    /**
+     * The newest event timestamp as epoch minute
+     */
+    private long newestMinute = Long.MIN_VALUE;
+
+    /**
+     * The amount of events dropped
+     */
+    private long duplicates;
+
+    /**
+     * Create a deduplicator that only keeps the identifiers from the exact minutes
+     * @param exactMinutes How many minutes, counting back from the newest event minute, are kept in the exact set
+     * @throws RuntimeException When the amount of minutes is not a positive number
+     */
+    public EventDeduplicator(int exactMinutes) {
+        this(exactMinutes, 0, 1, 0.5);
+    }
+
+    /**
+     * @param exactMinutes How many minutes, counting back from the newest event minute, are kept in the exact set
+     * @param filterPeriodMinutes How many minutes each filter generation covers, or zero to disable the filters
+     * @param expectedIdsPerPeriod The amount of identifiers expected within a filter period, used to size the filters
+     * @param falsePositiveRate The probability of dropping a valid event once its identifier left the exact set
+     * @throws RuntimeException When any setting is out of its valid range
+     */
+    public EventDeduplicator(int exactMinutes, long filterPeriodMinutes, long expectedIdsPerPeriod, double falsePositiveRate) {
+        if (exactMinutes < 1 || filterPeriodMinutes < 0 || expectedIdsPerPeriod < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new RuntimeException("Invalid settings to drop the repeated events.");
+        }
+        this.exactMinutes = exactMinutes;
+        this.filterPeriodMinutes = filterPeriodMinutes;
+        this.expectedIdsPerPeriod = expectedIdsPerPeriod;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Wrap a consumer so it only receives the events not dropped
+     * @param consumer The consumer that will receive each event seen for the first time
+     * @return Consumer<TranslationEvent> The consumer that must receive all the decoded events
+     */
+    public Consumer<TranslationEvent> filter(Consumer<TranslationEvent> consumer) {
+        return event -> {
+            if (!isDuplicate(event)) {
+                consumer.accept(event);
+            }
+        };
+    }
+
+    /**
+     * Check if the event repeats a known translation identifier, registering the identifier otherwise
+     * @param event The decoded translation event
+     * @return boolean If the event must be dropped
+     */
+    public boolean isDuplicate(TranslationEvent event) {
+        return isDuplicate(event.getTimestamp(), event.getTranslationIdHash());
+    }
+
+    /**
+     * Check if the translation identifier is known, registering it otherwise
+     * @param epochSecond The event timestamp as epoch second
+     * @param translationIdHash The translation identifier hash, or zero when the event has no identifier
+     * @return boolean If the event must be dropped
+     */
+    public boolean isDuplicate(long epochSecond, long translationIdHash) {
+        if (translationIdHash == 0) {
+            return false;
+        }
+        long epochMinute = TimestampParser.toEpochMinute(epochSecond);
+        if (epochMinute > newestMinute) {
+            newestMinute = epochMinute;
+            rotateFilters();
+            forgetMinutesBefore(epochMinute - exactMinutes + 1);
+        }
+        if (exactIds.contains(translationIdHash) || filtersContain(translationIdHash)) {
+            duplicates++;
+            return true;
+        }
+        if (epochMinute > newestMinute - exactMinutes) {
+            exactIds.add(translationIdHash);
+            addToBucket(epochMinute, translationIdHash);
+        } else if (filterPeriodMinutes > 0) {
+            currentFilter().put(translationIdHash);
+        }
+        return false;
+    }
+
+    /**
+     * @return long The amount of events dropped
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return int The amount of identifiers in the exact set
+     */
+    public int getExactIds() {
+        return exactIds.size();
+    }
+
+    private boolean filtersContain(long translationIdHash) {
+        return (Objects.nonNull(currentFilter) && currentFilter.mightContain(translationIdHash))
+                || (Objects.nonNull(previousFilter) && previousFilter.mightContain(translationIdHash));
+    }
+
+    private void addToBucket(long epochMinute, long translationIdHash) {
+        Bucket bucket = buckets.get(epochMinute);
+        if (Objects.isNull(bucket)) {
+            bucket = new Bucket();
+            buckets.put(epochMinute, bucket);
+        }
+        bucket.add(translationIdHash);
+    }
+
+    /**
+     * Remove the minutes before the received one from the exact set, moving their identifiers into the current filter
+     */
+    private void forgetMinutesBefore(long epochMinute) {
+        Iterator<Bucket> iterator = buckets.headMap(epochMinute).values().iterator();
+        while (iterator.hasNext()) {
+            Bucket bucket = iterator.next();
+            for (int i = 0; i < bucket.size; i++) {
+                long translationIdHash = bucket.ids[i];
+                exactIds.remove(translationIdHash);
+                if (filterPeriodMinutes > 0) {
+                    currentFilter().put(translationIdHash);
+                }
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Clear the oldest filter generation and make it the current one when the current one is over
+     */
+    private void rotateFilters() {
+        if (Objects.isNull(currentFilter) || newestMinute - currentFilterStart < filterPeriodMinutes) {
+            return;
+        }
+        BloomFilter expired = previousFilter;
+        previousFilter = currentFilter;
+        currentFilter = expired;
+        if (Objects.nonNull(currentFilter)) {
+            currentFilter.clear();
+        }
+        currentFilterStart = newestMinute;
+    }
+
+    /**
+     * Find the filter receiving the forgotten identifiers, creating it on the first use
+     */
+    private BloomFilter currentFilter() {
+        if (Objects.isNull(currentFilter)) {
+            currentFilter = new BloomFilter(expectedIdsPerPeriod, falsePositiveRate);
+            currentFilterStart = newestMinute;
+        }
+        return currentFilter;
+    }
+
+    /**
+     * The identifiers registered within the same event minute
+     */
+    private static class Bucket implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private long[] ids = new long[INITIAL_BUCKET_CAPACITY];
+        private int size;
+
+        private void add(long translationIdHash) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = translationIdHash;
+        }
+    }
+}
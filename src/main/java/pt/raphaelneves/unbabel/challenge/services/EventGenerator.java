@@ -0,0 +1,282 @@
+/**
+ * This class is used to generate synthetic translation events on the same format as the incoming file, one JSON
+ * object per line, to reproduce large volumes locally. The events are generated from a seeded random generator,
+ * so the same {@link GeneratorSettings} always produce the same file. Each line is written straight into a reused
+ * byte array, without formatters or Strings, so billions of lines can be generated with a constant memory usage.
+ * The lines can be:
+ * - Duplicated, repeating the previous valid line with the same translation identifier
+ * - Malformed, cut at a random position so they are not valid JSON objects
+ * - Out of order, with a timestamp up to the maximum delay before the previous events
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import pt.raphaelneves.unbabel.challenge.models.GeneratorSettings;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+
+public class EventGenerator {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long MICROS_PER_SECOND = 1_000_000L;
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final int MAX_WORDS = 500;
+    private static final String[] KNOWN_LANGUAGES = {"en", "fr", "pt", "de", "es", "it", "nl", "ja", "zh", "ru"};
+    private static final byte[] HEX_DIGITS = ascii("0123456789abcdef");
+    private static final byte[][] EVENT_NAMES = {ascii("translation_requested"), ascii("translation_delivered")};
+
+    private static final byte[] TIMESTAMP_FIELD = ascii("{\"timestamp\": \"");
+    private static final byte[] TRANSLATION_ID_FIELD = ascii("\",\"translation_id\": \"");
+    private static final byte[] SOURCE_LANGUAGE_FIELD = ascii("\",\"source_language\": \"");
+    private static final byte[] TARGET_LANGUAGE_FIELD = ascii("\",\"target_language\": \"");
+    private static final byte[] CLIENT_NAME_FIELD = ascii("\",\"client_name\": \"");
+    private static final byte[] EVENT_NAME_FIELD = ascii("\",\"event_name\": \"");
+    private static final byte[] NUMBER_WORDS_FIELD = ascii("\",\"nr_words\": ");
+    private static final byte[] DURATION_FIELD = ascii(", \"duration\": ");
+
+    private final GeneratorSettings settings;
+    private final byte[][] clientNames;
+    private final byte[][] languages;
+
+    /**
+     * The parameters from the log-normal distribution that result in the requested mean and standard deviation
+     */
+    private final double logNormalMu;
+    private final double logNormalSigma;
+
+    /**
+     * The line being generated and the last valid line, used for the duplicates
+     */
+    private byte[] line = new byte[512];
+    private int length;
+    private byte[] previousLine = new byte[512];
+    private int previousLength;
+
+    /**
+     * The date part from the last timestamp, which only changes once a day
+     */
+    private long cachedDay = Long.MIN_VALUE;
+    private byte[] cachedDate;
+
+    /**
+     * @param settings The settings used to generate the events
+     * @throws RuntimeException When any setting is out of its valid range
+     */
+    public EventGenerator(GeneratorSettings settings) {
+        if (Objects.isNull(settings) || settings.getEvents() < 0 || settings.getEventsPerSecond() <= 0
+                || settings.getClients() < 1 || settings.getLanguages() < 1 || settings.getDurationMean() < 0
+                || settings.getDurationStandardDeviation() < 0 || settings.getMaxDelaySeconds() < 0
+                || Objects.isNull(settings.getDurationDistribution()) || !isRatio(settings.getOutOfOrderRatio())
+                || !isRatio(settings.getDuplicateRatio()) || !isRatio(settings.getMalformedRatio())
+                || settings.getDuplicateRatio() + settings.getMalformedRatio() > 1) {
+            throw new RuntimeException("Invalid settings to generate the events.");
+        }
+        this.settings = settings;
+        this.clientNames = new byte[settings.getClients()][];
+        for (int i = 0; i < clientNames.length; i++) {
+            clientNames[i] = ascii("client-" + i);
+        }
+        this.languages = new byte[settings.getLanguages()][];
+        for (int i = 0; i < languages.length; i++) {
+            languages[i] = ascii(i < KNOWN_LANGUAGES.length ? KNOWN_LANGUAGES[i] : "l" + i);
+        }
+        double mean = Math.max(settings.getDurationMean(), Double.MIN_NORMAL);
+        double variance = settings.getDurationStandardDeviation() * settings.getDurationStandardDeviation();
+        this.logNormalSigma = Math.sqrt(Math.log(1 + variance / (mean * mean)));
+        this.logNormalMu = Math.log(mean) - logNormalSigma * logNormalSigma / 2;
+    }
+
+    /**
+     * Generate the events into a file, replacing its content
+     * @param file The file to be written
+     * @return long The amount of lines written
+     * @throws RuntimeException When something went wrong while writing the file
+     */
+    public long generate(File file) {
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE)) {
+            return generate(output);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the events file");
+        }
+    }
+
+    /**
+     * Generate the events into an output stream, which is not closed
+     * @param output The stream that will receive the lines
+     * @return long The amount of lines written
+     * @throws RuntimeException When something went wrong while writing the lines
+     */
+    public long generate(OutputStream output) {
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        double meanGapMicros = MICROS_PER_SECOND / settings.getEventsPerSecond();
+        long maxDelayMicros = settings.getMaxDelaySeconds() * MICROS_PER_SECOND;
+        double clockMicros = settings.getStartEpochSecond() * (double) MICROS_PER_SECOND;
+        previousLength = 0;
+        try {
+            for (long i = 0; i < settings.getEvents(); i++) {
+                double kind = random.nextDouble();
+                if (previousLength > 0 && kind < settings.getDuplicateRatio()) {
+                    output.write(previousLine, 0, previousLength);
+                    continue;
+                }
+                clockMicros += -Math.log(1 - random.nextDouble()) * meanGapMicros;
+                long epochMicros = (long) clockMicros;
+                if (random.nextDouble() < settings.getOutOfOrderRatio()) {
+                    epochMicros -= (long) (random.nextDouble() * maxDelayMicros);
+                }
+                writeEvent(random, epochMicros);
+                if (kind < settings.getDuplicateRatio() + settings.getMalformedRatio()) {
+                    int cut = 1 + random.nextInt(length - 2);
+                    output.write(line, 0, cut);
+                    output.write('\n');
+                    continue;
+                }
+                output.write(line, 0, length);
+                byte[] swap = previousLine;
+                previousLine = line;
+                previousLength = length;
+                line = swap;
+            }
+            output.flush();
+            return settings.getEvents();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the generated events");
+        }
+    }
+
+    /**
+     * Write a valid event line, including its line separator, into the line buffer
+     */
+    private void writeEvent(SplittableRandom random, long epochMicros) {
+        length = 0;
+        append(TIMESTAMP_FIELD);
+        appendTimestamp(epochMicros);
+        append(TRANSLATION_ID_FIELD);
+        appendHex(random.nextLong(), 16);
+        appendHex(random.nextLong(), 4);
+        append(SOURCE_LANGUAGE_FIELD);
+        append(languages[random.nextInt(languages.length)]);
+        append(TARGET_LANGUAGE_FIELD);
+        append(languages[random.nextInt(languages.length)]);
+        append(CLIENT_NAME_FIELD);
+        append(clientNames[random.nextInt(clientNames.length)]);
+        append(EVENT_NAME_FIELD);
+        append(EVENT_NAMES[random.nextInt(EVENT_NAMES.length)]);
+        append(NUMBER_WORDS_FIELD);
+        appendNumber(1 + random.nextInt(MAX_WORDS), 1);
+        append(DURATION_FIELD);
+        appendNumber(nextDuration(random), 1);
+        appendByte('}');
+        appendByte('\n');
+    }
+
+    private long nextDuration(SplittableRandom random) {
+        double mean = settings.getDurationMean();
+        double duration;
+        switch (settings.getDurationDistribution()) {
+            case UNIFORM:
+                duration = random.nextDouble() * 2 * mean;
+                break;
+            case EXPONENTIAL:
+                duration = -Math.log(1 - random.nextDouble()) * mean;
+                break;
+            case NORMAL:
+                duration = mean + nextGaussian(random) * settings.getDurationStandardDeviation();
+                break;
+            default:
+                duration = Math.exp(logNormalMu + nextGaussian(random) * logNormalSigma);
+        }
+        return Math.max(0L, Math.round(duration));
+    }
+
+    /**
+     * Generate a standard normal value with the Box-Muller transform, since SplittableRandom has no gaussian values
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * Write the timestamp on format yyyy-MM-dd HH:mm:ss.ffffff. The date part is rendered once a day.
+     */
+    private void appendTimestamp(long epochMicros) {
+        long epochSecond = Math.floorDiv(epochMicros, MICROS_PER_SECOND);
+        long day = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (day != cachedDay) {
+            cachedDay = day;
+            cachedDate = ascii(TimestampParser.formatEpochMinute(day * 1_440L).substring(0, 11));
+        }
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        append(cachedDate);
+        appendNumber(secondOfDay / 3600, 2);
+        appendByte(':');
+        appendNumber(secondOfDay / 60 % 60, 2);
+        appendByte(':');
+        appendNumber(secondOfDay % 60, 2);
+        appendByte('.');
+        appendNumber(Math.floorMod(epochMicros, MICROS_PER_SECOND), 6);
+    }
+
+    /**
+     * Write a non-negative number with at least the requested amount of digits, padded with zeros
+     */
+    private void appendNumber(long value, int minDigits) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            line[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendHex(long value, int digits) {
+        ensureCapacity(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            line[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+        length += digits;
+    }
+
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, line, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void appendByte(char value) {
+        ensureCapacity(1);
+        line[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (length + bytes > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, length + bytes)];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+        }
+    }
+
+    private static boolean isRatio(double value) {
+        return value >= 0 && value <= 1;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * This class is used to calculate the moving average from translation events that may arrive out of order, such as
+ * when following a growing file, by their event time instead of their arrival order.
+ * The watermark is the newest event timestamp minus the allowed lateness: events older than it are not expected
+ * anymore, so every minute before the watermark minute is finalized and sent to the {@link MovingAverageEngine},
+ * oldest first, which emits its rows. Until then the minute summaries wait in a reorder buffer, which never holds more
+ * minutes than the allowed lateness in whole minutes plus two, whatever the amount of events.
+ * Events from a finalized minute are late, and they are handled according to the {@link LatePolicy}: either only
+ * counted, or added to the rows already emitted, which are emitted again flagged as corrected.
+ * E.g:
+ * Allowed lateness: 90 seconds
+ * An event from 18:25:10 moves the watermark to 18:23:40, so the minutes until 18:22 are finalized and the row from
+ * 18:23:00 is emitted, while an event from 18:23:30 arriving afterwards is still considered as on time.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import pt.raphaelneves.unbabel.challenge.models.LatePolicy;
+import pt.raphaelneves.unbabel.challenge.models.LatencySketch;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class EventTimeProcessor {
+
+    private final MovingAverageEngine engine;
+    private final long allowedLatenessSeconds;
+    private final LatePolicy latePolicy;
+
+    /**
+     * The reorder buffer with the events amount and duration sum from each minute not finalized yet, by epoch minute,
+     * together with their durations sketch when the percentiles have been requested
+     */
+    private final TreeMap<Long, long[]> openMinutes = new TreeMap<>();
+    private final Map<Long, LatencySketch> openSketches = new HashMap<>();
+
+    /**
+     * The sketches from the finalized minutes, reused by the next ones
+     */
+    private final ArrayDeque<LatencySketch> spareSketches = new ArrayDeque<>();
+
+    /**
+     * The sketch used to send a single late event duration
+     */
+    private final LatencySketch eventSketch;
+
+    /**
+     * The newest event timestamp as epoch second
+     */
+    private long maxEventSecond = Long.MIN_VALUE;
+
+    /**
+     * The epoch minute containing the watermark. Every minute before it has been finalized.
+     */
+    private long watermarkMinute = Long.MIN_VALUE;
+
+    /**
+     * If any minute has been sent to the engine, which then emits every minute until the watermark
+     */
+    private boolean started;
+
+    /**
+     * The amount of events from finalized minutes and the amount of rows emitted again because of them
+     */
+    private long lateEvents;
+    private long correctedRows;
+
+    /**
+     * @param engine The engine that receives the finalized minutes
+     * @param allowedLatenessSeconds How long after the newest event an older event is still considered as on time
+     * @param latePolicy What must be done with the events from finalized minutes
+     * @throws RuntimeException When the allowed lateness is a negative number or the late policy is not defined
+     */
+    public EventTimeProcessor(MovingAverageEngine engine, long allowedLatenessSeconds, LatePolicy latePolicy) {
+        if (Objects.isNull(engine) || allowedLatenessSeconds < 0 || Objects.isNull(latePolicy)) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        this.engine = engine;
+        this.allowedLatenessSeconds = allowedLatenessSeconds;
+        this.latePolicy = latePolicy;
+        this.eventSketch = engine.isPercentiles() ? new LatencySketch() : null;
+    }
+
+    /**
+     * Add a decoded translation event
+     * @param event The translation event, which is not kept
+     */
+    public void accept(TranslationEvent event) {
+        add(event.getTimestamp(), event.getDuration());
+    }
+
+    /**
+     * Add a single event, finalizing the minutes passed by the watermark when it is the newest one
+     * @param epochSecond The event timestamp as epoch second
+     * @param duration The event duration
+     */
+    public void add(long epochSecond, long duration) {
+        long epochMinute = TimestampParser.toEpochMinute(epochSecond);
+        if (epochMinute < watermarkMinute) {
+            addLate(epochMinute, duration);
+            return;
+        }
+        long[] summary = openMinutes.get(epochMinute);
+        if (Objects.isNull(summary)) {
+            summary = new long[2];
+            openMinutes.put(epochMinute, summary);
+        }
+        summary[0]++;
+        summary[1] += duration;
+        if (engine.isPercentiles()) {
+            openSketches.computeIfAbsent(epochMinute, minute -> spareSketch()).record(duration);
+        }
+        if (epochSecond > maxEventSecond) {
+            maxEventSecond = epochSecond;
+            advanceWatermark(TimestampParser.toEpochMinute(epochSecond - allowedLatenessSeconds));
+        }
+    }
+
+    /**
+     * Finalize all minutes still in the reorder buffer and close the last one. No more events are expected after this call.
+     */
+    public void flush() {
+        finalizeMinutesBefore(Long.MAX_VALUE);
+        engine.flush();
+    }
+
+    /**
+     * @return long The amount of events that have arrived after their minute has been finalized
+     */
+    public long getLateEvents() {
+        return lateEvents;
+    }
+
+    /**
+     * @return long The amount of rows emitted again because of the late events
+     */
+    public long getCorrectedRows() {
+        return correctedRows;
+    }
+
+    /**
+     * @return int The amount of minutes waiting in the reorder buffer
+     */
+    public int getBufferedMinutes() {
+        return openMinutes.size();
+    }
+
+    private void addLate(long epochMinute, long duration) {
+        lateEvents++;
+        if (latePolicy == LatePolicy.CORRECT) {
+            if (Objects.nonNull(eventSketch)) {
+                eventSketch.reset();
+                eventSketch.record(duration);
+            }
+            correctedRows += engine.correct(epochMinute, 1, duration, eventSketch);
+        }
+    }
+
+    /**
+     * Finalize the minutes before the new watermark minute, and emit every minute until it
+     */
+    private void advanceWatermark(long epochMinute) {
+        if (epochMinute <= watermarkMinute) {
+            return;
+        }
+        watermarkMinute = epochMinute;
+        finalizeMinutesBefore(epochMinute);
+        if (started) {
+            engine.advanceTo(epochMinute);
+        }
+    }
+
+    private void finalizeMinutesBefore(long epochMinute) {
+        Iterator<Map.Entry<Long, long[]>> iterator = openMinutes.headMap(epochMinute).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, long[]> entry = iterator.next();
+            LatencySketch sketch = openSketches.remove(entry.getKey());
+            engine.add(entry.getKey(), entry.getValue()[0], entry.getValue()[1], sketch);
+            if (Objects.nonNull(sketch)) {
+                sketch.reset();
+                spareSketches.push(sketch);
+            }
+            iterator.remove();
+            started = true;
+        }
+    }
+
+    private LatencySketch spareSketch() {
+        return spareSketches.isEmpty() ? new LatencySketch() : spareSketches.pop();
+    }
+}
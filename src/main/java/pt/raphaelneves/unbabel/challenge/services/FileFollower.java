@@ -0,0 +1,276 @@
+/**
+ * This class is used to follow a growing file, like tail -f, decoding only the lines appended since the last read.
+ * The byte offset from the last complete line is kept between reads, and incomplete lines wait until their line
+ * separator arrives. When the file is truncated it is read again from the beginning, and when it is rotated the
+ * remaining lines from the old file are read before moving to the new one.
+ * The invalid lines are skipped and counted, and also written to a {@link LineQuarantine} when there is one, so a bad
+ * line never stops following the file. When the following stops because of a failure, it's kept to be reported.
+ * This class is not thread-safe, except for {@link #stop()} and the getters from the rejected lines and failure.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class FileFollower implements Runnable, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final EventDecoder decoder;
+    private final Consumer<TranslationEvent> consumer;
+    private final long pollIntervalMillis;
+    private final LineQuarantine quarantine;
+    private final TranslationEvent event = new TranslationEvent();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The channel from the file being followed and its identity, used to detect rotations
+     */
+    private FileChannel channel;
+    private Object fileKey;
+
+    /**
+     * The position on the file right after the last byte read
+     */
+    private long offset;
+
+    /**
+     * The bytes from the incomplete line waiting for its line separator
+     */
+    private byte[] pending = new byte[BUFFER_SIZE];
+    private int pendingLength;
+
+    private volatile boolean running = true;
+
+    /**
+     * The amount of invalid lines skipped, and the failure that stopped following the file, if any
+     */
+    private volatile long rejectedLines;
+    private volatile String failure;
+
+    /**
+     * @param file The file to be followed
+     * @param decoder The decoder used to extract the event attributes
+     * @param consumer The consumer that will receive each decoded event. The same event instance is reused.
+     * @param pollIntervalMillis The interval between the checks for new lines when the file has not changed
+     */
+    public FileFollower(File file, EventDecoder decoder, Consumer<TranslationEvent> consumer, long pollIntervalMillis) {
+        this(file, decoder, consumer, pollIntervalMillis, null);
+    }
+
+    /**
+     * @param file The file to be followed
+     * @param decoder The decoder used to extract the event attributes
+     * @param consumer The consumer that will receive each decoded event. The same event instance is reused.
+     * @param pollIntervalMillis The interval between the checks for new lines when the file has not changed
+     * @param quarantine The quarantine receiving the invalid lines, or null to only count them
+     */
+    public FileFollower(File file, EventDecoder decoder, Consumer<TranslationEvent> consumer, long pollIntervalMillis,
+                        LineQuarantine quarantine) {
+        this.path = file.toPath().toAbsolutePath();
+        this.decoder = decoder;
+        this.consumer = consumer;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Keep polling the file for new lines until {@link #stop()} is called or the thread is interrupted
+     * @throws RuntimeException When something went wrong while reading the file, which is kept as the failure
+     */
+    @Override
+    public void run() {
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                if (poll() == 0) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure = Objects.isNull(e.getMessage()) ? e.toString() : e.getMessage();
+            throw e;
+        } finally {
+            running = false;
+            close();
+        }
+    }
+
+    /**
+     * Read and decode all complete lines appended to the file since the last call
+     * @return long The amount of lines decoded
+     * @throws RuntimeException When something went wrong while reading the file
+     */
+    public long poll() {
+        try {
+            BasicFileAttributes attributes = readAttributes();
+            if (Objects.isNull(attributes)) {
+                return Objects.isNull(channel) ? 0 : readUntilEnd();
+            }
+            if (Objects.isNull(channel)) {
+                open(attributes);
+            }
+            long lines = 0;
+            if (!Objects.equals(fileKey, attributes.fileKey())) {
+                lines += readUntilEnd();
+                close();
+                open(attributes);
+            } else if (attributes.size() < offset) {
+                offset = 0;
+                pendingLength = 0;
+            }
+            return lines + readUntilEnd();
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+    }
+
+    /**
+     * @return long The position on the file right after the last byte read
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return long The amount of invalid lines skipped so far
+     */
+    public long getRejectedLines() {
+        return rejectedLines;
+    }
+
+    /**
+     * @return boolean If the file is still being followed, which is false once it has been stopped or has failed
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return String The description of the failure that stopped following the file, or null when it hasn't failed
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stop following the file after the current poll
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Release the file being followed
+     */
+    @Override
+    public void close() {
+        if (Objects.nonNull(channel)) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Error while closing the file.");
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    private BasicFileAttributes readAttributes() throws IOException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private void open(BasicFileAttributes attributes) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileKey = attributes.fileKey();
+        offset = 0;
+        pendingLength = 0;
+    }
+
+    /**
+     * Read the open channel from the last offset until its end, decoding each complete line
+     */
+    private long readUntilEnd() throws IOException {
+        long lines = 0;
+        int read;
+        readBuffer.clear();
+        while ((read = channel.read(readBuffer, offset)) > 0) {
+            offset += read;
+            lines += consume(readBuffer.array(), read, offset - read);
+            readBuffer.clear();
+        }
+        return lines;
+    }
+
+    /**
+     * Append the bytes read to the incomplete line and decode every line completed by them, skipping the invalid ones
+     * @param position The position on the file from the first byte read
+     */
+    private long consume(byte[] bytes, int length, long position) {
+        long lines = 0;
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            append(bytes, start, i - start);
+            int lineLength = pendingLength > 0 && pending[pendingLength - 1] == '\r' ? pendingLength - 1 : pendingLength;
+            if (lineLength > 0 && decodeLine(lineLength, position + i - pendingLength)) {
+                consumer.accept(event);
+                lines++;
+            }
+            pendingLength = 0;
+            start = i + 1;
+        }
+        append(bytes, start, length - start);
+        return lines;
+    }
+
+    /**
+     * Decode the incomplete line buffer into the event
+     * @return boolean If the line is a valid event, which must be sent to the consumer
+     */
+    private boolean decodeLine(int lineLength, long linePosition) {
+        if (Objects.nonNull(quarantine)) {
+            quarantine.countLine();
+        }
+        try {
+            decoder.decode(pending, 0, lineLength, event);
+            return true;
+        } catch (InvalidLineException e) {
+            rejectedLines++;
+            if (Objects.nonNull(quarantine)) {
+                quarantine.reject(linePosition, pending, 0, lineLength, e);
+            }
+            return false;
+        }
+    }
+
+    private void append(byte[] bytes, int start, int length) {
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        System.arraycopy(bytes, start, pending, pendingLength, length);
+        pendingLength += length;
+    }
+}
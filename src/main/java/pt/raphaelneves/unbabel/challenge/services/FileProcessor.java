@@ -5,24 +5,96 @@
  **/
 package pt.raphaelneves.unbabel.challenge.services;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.io.FileUtils;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.AllArgsConstructor;
+import pt.raphaelneves.unbabel.challenge.models.EventBatch;
 import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.OutputFormat;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
 import pt.raphaelneves.unbabel.challenge.models.Translation;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
 
 public class FileProcessor {
 
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    private static final int RANGE_BUFFER_SIZE = 64 * 1024;
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final ObjectReader TRANSLATION_READER = new ObjectMapper().readerFor(Translation.class);
+
+    /**
+     * The metrics measuring each stage, which measure nothing unless they're received on the constructor
+     */
+    private final PipelineMetrics metrics;
+
+    /**
+     * The quarantine receiving the invalid lines, or null to stop reading on the first one
+     */
+    private final LineQuarantine quarantine;
+
+    public FileProcessor() {
+        this(PipelineMetrics.DISABLED);
+    }
+
+    public FileProcessor(PipelineMetrics metrics) {
+        this(metrics, null);
+    }
+
+    /**
+     * Create a processor that writes the invalid lines to a quarantine and keeps reading, instead of stopping
+     * @param metrics The metrics measuring each stage
+     * @param quarantine The quarantine receiving the invalid lines, or null to stop reading on the first one
+     */
+    public FileProcessor(PipelineMetrics metrics, LineQuarantine quarantine) {
+        this.metrics = metrics;
+        this.quarantine = quarantine;
+    }
+
     /**
      * Load the file into the application context
      * @param filePath The file absolute path
@@ -42,21 +114,729 @@ public class FileProcessor {
     }
 
     /**
-     * Read all lines from loaded file
+     * Load all the files from a folder or matching a glob pattern, such as the logs sharded by host and hour
+     * E.g.: /var/log/translations or /var/log/translations/events-*.json.gz
+     * @param pathOrPattern The file or folder path, or a glob pattern. The folders are not read recursively, unless
+     * the pattern has **.
+     * @return List<File> The regular files found, sorted by their path
+     * @throws RuntimeException When the path is not defined
+     * @throws RuntimeException When no file is found
+     */
+    public List<File> loadFilesFrom(String pathOrPattern) {
+        if(Objects.isNull(pathOrPattern)) {
+            throw new RuntimeException("Must specify the file path to be processed");
+        }
+        File file = new File(pathOrPattern);
+        List<File> files;
+        try {
+            if (file.isDirectory()) {
+                files = findFiles(file.toPath(), 1, path -> true);
+            } else if (file.exists()) {
+                files = Collections.singletonList(file);
+            } else {
+                files = findFilesMatching(pathOrPattern);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading the files from " + pathOrPattern);
+        }
+        if(files.isEmpty()) {
+            throw new RuntimeException("File not found");
+        }
+        return files;
+    }
+
+    private static List<File> findFilesMatching(String pattern) throws IOException {
+        int firstGlob = -1;
+        for (int i = 0; i < pattern.length() && firstGlob < 0; i++) {
+            firstGlob = GLOB_CHARACTERS.indexOf(pattern.charAt(i)) >= 0 ? i : -1;
+        }
+        if (firstGlob < 0) {
+            return Collections.emptyList();
+        }
+        int separator = pattern.lastIndexOf(File.separatorChar, firstGlob);
+        Path base = Paths.get(separator < 0 ? "." : separator == 0 ? File.separator : pattern.substring(0, separator));
+        String glob = pattern.substring(separator + 1);
+        if (!Files.isDirectory(base)) {
+            return Collections.emptyList();
+        }
+        PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + glob);
+        int depth = glob.contains("**") ? Integer.MAX_VALUE : glob.split(Pattern.quote(File.separator)).length;
+        return findFiles(base, depth, path -> matcher.matches(base.relativize(path)));
+    }
+
+    private static List<File> findFiles(Path base, int depth, Predicate<Path> filter) throws IOException {
+        try (Stream<Path> paths = Files.walk(base, depth)) {
+            return paths.filter(Files::isRegularFile)
+                        .filter(filter)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Open the loaded file for reading, decompressing it while it's read when it starts with the gzip magic bytes.
+     * The members from a multi-member gzip file are read one after the other.
+     * @param file The loaded incoming file
+     * @return InputStream The stream with the file content
+     * @throws IOException When something went wrong while opening the file
+     */
+    InputStream openInputStream(File file) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(Paths.get(file.getAbsolutePath())), GZIP_BUFFER_SIZE);
+        inputStream.mark(2);
+        boolean gzip = inputStream.read() == 0x1f && inputStream.read() == 0x8b;
+        inputStream.reset();
+        return gzip ? new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE) : inputStream;
+    }
+
+    private BufferedReader openReader(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(openInputStream(file), StandardCharsets.UTF_8.newDecoder()));
+    }
+
+    /**
+     * Read all lines from loaded file, decompressing it when it's a gzip file
      * @param file The loaded incoming file
      * @return List<String> A list containing all the lines from the file as String
      * @throws IOException When something went wrong while reading the file lines
      */
     public List<String> extractFileLines(File file) {
-        List<String> fileLines;
-        try {
-            fileLines = Files.readAllLines(Paths.get(file.getAbsolutePath()));
+        PipelineMetrics.Stage stage = metrics.start("extract_lines");
+        List<String> fileLines = new ArrayList<>();
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                fileLines.add(line);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error while reading file lines.");
         }
+        stage.stop(fileLines.size(), file.length());
+        metrics.countInput(fileLines.size(), file.length());
         return fileLines;
     }
 
+    /**
+     * Read the loaded file line by line, converting each line into a {@link pt.raphaelneves.unbabel.challenge.models.Translation}
+     * and pushing it straight to the consumer. Only one line is kept in memory at a time. Gzip files are decompressed
+     * while they are read.
+     * @param file The loaded incoming file
+     * @param consumer The consumer that will receive each converted translation
+     * @return long The amount of lines that have been processed
+     * @throws RuntimeException When something went wrong while reading the file lines
+     * @throws RuntimeException When the file is empty
+     */
+    public long streamFileLines(File file, Consumer<Translation> consumer) {
+        PipelineMetrics.Stage stage = metrics.start("stream_lines");
+        long processedLines = 0;
+        try (BufferedReader reader = openReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Translation translation = convertLine(line);
+                if (Objects.nonNull(translation)) {
+                    consumer.accept(translation);
+                }
+                processedLines++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        if(processedLines == 0) {
+            throw new RuntimeException("Error while converting the file");
+        }
+        stage.stop(processedLines, file.length());
+        metrics.countInput(processedLines, file.length());
+        return processedLines;
+    }
+
+    /**
+     * Read the loaded file as raw bytes, decoding each line into a {@link pt.raphaelneves.unbabel.challenge.models.TranslationEvent}
+     * and pushing it straight to the consumer. The same event instance is reused for every line, so the consumer
+     * must not keep it after returning. This is the fast path that avoids the Translation binding.
+     * Gzip files, including the ones with multiple members, are decompressed while they are read, without temporary files.
+     * @param file The loaded incoming file
+     * @param decoder The decoder used to extract the event attributes
+     * @param consumer The consumer that will receive each decoded event
+     * @return long The amount of lines that have been processed
+     * @throws RuntimeException When something went wrong while reading the file lines
+     * @throws RuntimeException When the file is empty
+     */
+    public long streamFileEvents(File file, EventDecoder decoder, Consumer<TranslationEvent> consumer) {
+        PipelineMetrics.Stage stage = metrics.start("decode");
+        long processedLines;
+        try (InputStream inputStream = openInputStream(file)) {
+            processedLines = readEvents(inputStream, !(inputStream instanceof GZIPInputStream), decoder, consumer);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        if(processedLines == 0) {
+            throw new RuntimeException("Error while converting the file");
+        }
+        stage.stop(processedLines, file.length());
+        metrics.countInput(processedLines, file.length());
+        return processedLines;
+    }
+
+    /**
+     * Read a stream as raw bytes like {@link #streamFileEvents(File, EventDecoder, Consumer)}, such as the standard
+     * input from a shell pipeline. Each line is decoded and pushed to the consumer as soon as its line separator
+     * arrives, so the consumer sees the events while the stream is still being written. The stream is not closed.
+     * @param inputStream The stream containing one translation event per line, which is not decompressed
+     * @param decoder The decoder used to extract the event attributes
+     * @param consumer The consumer that will receive each decoded event
+     * @return long The amount of lines that have been processed, which may be zero
+     * @throws RuntimeException When something went wrong while reading the stream
+     */
+    public long streamEvents(InputStream inputStream, EventDecoder decoder, Consumer<TranslationEvent> consumer) {
+        PipelineMetrics.Stage stage = metrics.start("decode");
+        long[] bytes = new long[1];
+        long processedLines;
+        try {
+            processedLines = readEvents(new FilterInputStream(inputStream) {
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int read = super.read(buffer, offset, length);
+                    bytes[0] += Math.max(read, 0);
+                    return read;
+                }
+            }, true, decoder, consumer);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        stage.stop(processedLines, bytes[0]);
+        metrics.countInput(processedLines, bytes[0]);
+        return processedLines;
+    }
+
+    /**
+     * Read the lines from a position until the end of a plain file with positional reads, like
+     * {@link #streamFileEvents(File, EventDecoder, Consumer)}, such as to resume reading where a previous run stopped.
+     * Each event is sent to the consumer together with the position of its line.
+     * @param channel The incoming file channel, which must not be a gzip file
+     * @param start The position of the first line to be read
+     * @param decoder The decoder used to extract the event attributes
+     * @param consumer The consumer that will receive each decoded event and its line position
+     * @return long The amount of lines that have been processed, which may be zero
+     * @throws IOException When something went wrong while reading the file
+     */
+    long streamChannelEvents(FileChannel channel, long start, EventDecoder decoder, ObjLongConsumer<TranslationEvent> consumer) throws IOException {
+        PipelineMetrics.Stage stage = metrics.start("decode");
+        TranslationEvent event = new TranslationEvent();
+        ChannelInputStream input = new ChannelInputStream(channel, start, Long.MAX_VALUE, RANGE_BUFFER_SIZE);
+        long processedLines = LineReader.readLines(input, (buffer, offset, length, position) -> {
+            if (decodeLine(decoder, buffer, offset, length, start + position, event)) {
+                consumer.accept(event, start + position);
+            }
+        });
+        stage.stop(processedLines, input.getPosition() - start);
+        metrics.countInput(processedLines, input.getPosition() - start);
+        return processedLines;
+    }
+
+    /**
+     * @param filePositions If the positions on the stream are the ones from the file, which is false when the stream
+     * is decompressed, so the rejected lines are written with an unknown offset instead of the decompressed one
+     */
+    private long readEvents(InputStream inputStream, boolean filePositions, EventDecoder decoder, Consumer<TranslationEvent> consumer)
+            throws IOException {
+        TranslationEvent event = new TranslationEvent();
+        return LineReader.readLines(inputStream, (buffer, offset, length, position) -> {
+            if (decodeLine(decoder, buffer, offset, length, filePositions ? position : -1L, event)) {
+                consumer.accept(event);
+            }
+        });
+    }
+
+    /**
+     * Decode a line into the event. Without a quarantine an invalid line stops the reading, otherwise it's written to
+     * the quarantine and skipped.
+     * @param position The line position on the incoming file, or -1 when it's not known
+     * @return boolean If the line is a valid event, which must be sent to the consumer
+     */
+    private boolean decodeLine(EventDecoder decoder, byte[] buffer, int offset, int length, long position, TranslationEvent event) {
+        if (Objects.isNull(quarantine)) {
+            decoder.decode(buffer, offset, length, event);
+            return true;
+        }
+        quarantine.countLine();
+        try {
+            decoder.decode(buffer, offset, length, event);
+            return true;
+        } catch (InvalidLineException e) {
+            quarantine.reject(position, buffer, offset, length, e);
+            metrics.countRejectedLines(1);
+            return false;
+        }
+    }
+
+    /**
+     * Read the loaded file as raw bytes like {@link #streamFileEvents(File, EventDecoder, Consumer)}, writing an
+     * {@link IngestionCheckpoint} with the aggregation state every time the interval is read. When a checkpoint from a
+     * previous run exists, its state is restored and the file is read from its position instead of the beginning,
+     * so a run that died produces the same metrics as an uninterrupted one. The quarantine counters and file end are
+     * kept on the checkpoint as well, so the lines rejected after it are appended to the same quarantine file.
+     * The checkpoint is deleted once the whole file has been read.
+     * @param file The loaded incoming file
+     * @param checkpointPath The checkpoint file, written on the same folder
+     * @param checkpointIntervalBytes The amount of bytes read between two checkpoints
+     * @param accumulator The accumulator receiving the events when there is no checkpoint to resume from
+     * @param deduplicator The deduplicator dropping the repeated events when there is no checkpoint to resume from,
+     * or null to keep all of them
+     * @return IngestionCheckpoint The final state, holding the accumulator and deduplicator used to read the events
+     * @throws RuntimeException When something went wrong while reading the file lines or writing the checkpoint
+     * @throws RuntimeException When the checkpoint was written from another file or with other settings
+     * @throws RuntimeException When the file is empty
+     */
+    public IngestionCheckpoint streamFileEventsWithCheckpoints(File file, Path checkpointPath, long checkpointIntervalBytes,
+                                                               MetricAccumulator accumulator, EventDeduplicator deduplicator) {
+        if(checkpointIntervalBytes < 1) {
+            throw new RuntimeException("The checkpoint interval must be a positive number");
+        }
+        PipelineMetrics.Stage stage = metrics.start("decode");
+        IngestionCheckpoint restored = IngestionCheckpoint.read(checkpointPath);
+        IngestionCheckpoint checkpoint = Objects.isNull(restored) ? new IngestionCheckpoint(accumulator, deduplicator) : restored;
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolutePath()), StandardOpenOption.READ)) {
+            if (GzipMemberDecoder.isGzip(channel)) {
+                throw new RuntimeException("Unable to write checkpoints while reading a gzip file");
+            }
+            if (Objects.nonNull(restored) && (!restored.matches(channel) || !restored.getAccumulator().hasSameSettings(accumulator)
+                    || Objects.isNull(restored.getDeduplicator()) != Objects.isNull(deduplicator))) {
+                throw new RuntimeException("The checkpoint doesn't match the file and settings being processed.");
+            }
+            if (Objects.nonNull(restored) && Objects.nonNull(quarantine)) {
+                if (Objects.isNull(restored.getQuarantineState())) {
+                    quarantine.countLines(restored.getLines());
+                } else {
+                    quarantine.restoreState(restored.getQuarantineState());
+                }
+            }
+            long startPosition = checkpoint.getPosition();
+            long startLines = checkpoint.getLines();
+            MetricAccumulator target = checkpoint.getAccumulator();
+            Consumer<TranslationEvent> consumer = Objects.isNull(checkpoint.getDeduplicator())
+                    ? target::accept : checkpoint.getDeduplicator().filter(target::accept);
+            EventDecoder decoder = new EventDecoder();
+            TranslationEvent event = new TranslationEvent();
+            channel.position(startPosition);
+            long lines = startLines + LineReader.readLines(Channels.newInputStream(channel), new LineReader.LineHandler() {
+                private long lineCount = startLines;
+                private long lastCheckpoint = startPosition;
+
+                @Override
+                public void onLine(byte[] buffer, int offset, int length, long position) {
+                    long linePosition = startPosition + position;
+                    if (linePosition - lastCheckpoint >= checkpointIntervalBytes) {
+                        writeCheckpoint(checkpoint, channel, checkpointPath, linePosition, lineCount);
+                        lastCheckpoint = linePosition;
+                    }
+                    if (decodeLine(decoder, buffer, offset, length, linePosition, event)) {
+                        consumer.accept(event);
+                    }
+                    lineCount++;
+                }
+            });
+            if(lines == 0) {
+                throw new RuntimeException("Error while converting the file");
+            }
+            checkpoint.moveTo(channel.position(), lines);
+            Files.deleteIfExists(checkpointPath);
+            stage.stop(lines - startLines, channel.position() - startPosition);
+            metrics.countInput(lines - startLines, channel.position() - startPosition);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Create or update the {@link TimestampIndex} from the loaded file, measured as the index stage. An index written
+     * by a previous run with the same block size is updated with the lines appended since then, otherwise the whole
+     * file is indexed, as well as when the previous index can't be read. The index is written to its file before being returned.
+     * @param file The loaded incoming file
+     * @param indexPath The index file, written on the same folder
+     * @param blockSize The minimum amount of bytes from each block, such as {@link TimestampIndex#DEFAULT_BLOCK_SIZE}
+     * @return TimestampIndex The index covering all the lines ended by a separator
+     * @throws RuntimeException When something went wrong while reading the file or writing the index
+     * @throws RuntimeException When the file is a gzip file, which can't be read from any position
+     */
+    public TimestampIndex indexFile(File file, Path indexPath, int blockSize) {
+        PipelineMetrics.Stage stage = metrics.start("index");
+        TimestampIndex restored = TimestampIndex.read(indexPath);
+        TimestampIndex index = Objects.nonNull(restored) && restored.getBlockSize() == blockSize ? restored : new TimestampIndex(blockSize);
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolutePath()), StandardOpenOption.READ)) {
+            if (GzipMemberDecoder.isGzip(channel)) {
+                throw new RuntimeException("Unable to index a gzip file");
+            }
+            long indexedBytes = index.update(channel);
+            index.write(indexPath);
+            stage.stop(0, indexedBytes);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        return index;
+    }
+
+    /**
+     * Read only the events with timestamp from the range start, inclusive, until the range end, exclusive, such as
+     * from 10:00:00 until 10:15:00. The index is binary searched for the bytes that may have them, which are read
+     * with positional reads, together with the lines appended after the index end. The other lines are never read.
+     * Each invalid line is handled like {@link #streamFileEvents(File, EventDecoder, Consumer)} does, only when it
+     * belongs to the bytes read.
+     * @param file The loaded incoming file
+     * @param index The index from the file, such as the one returned by {@link #indexFile(File, Path, int)}
+     * @param fromEpochSecond The range start as epoch second
+     * @param toEpochSecond The range end as epoch second
+     * @param decoder The decoder used to read each line
+     * @param consumer The consumer that will receive the events within the range. The same event instance is reused
+     * for every line, so it must not be kept by the consumer.
+     * @return long The amount of events within the range
+     * @throws RuntimeException When something went wrong while reading the file lines
+     * @throws RuntimeException When the file has been changed since the index was updated, other than by appending lines
+     */
+    public long streamFileEventsBetween(File file, TimestampIndex index, long fromEpochSecond, long toEpochSecond,
+                                        EventDecoder decoder, Consumer<TranslationEvent> consumer) {
+        PipelineMetrics.Stage stage = metrics.start("range_query");
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolutePath()), StandardOpenOption.READ)) {
+            if (!index.matches(channel)) {
+                throw new RuntimeException("The index doesn't match the file being processed.");
+            }
+            long[] range = index.findRange(fromEpochSecond, toEpochSecond);
+            long[] totals = new long[3];
+            if (Objects.nonNull(range)) {
+                readRange(channel, range[0], range[1], fromEpochSecond, toEpochSecond, decoder, consumer, totals);
+            }
+            if (fromEpochSecond < toEpochSecond) {
+                readRange(channel, index.getLength(), channel.size(), fromEpochSecond, toEpochSecond, decoder, consumer, totals);
+            }
+            stage.stop(totals[0], totals[2]);
+            metrics.countInput(totals[1], totals[2]);
+            return totals[0];
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+    }
+
+    /**
+     * Read the lines from a file range, sending the events within the time range to the consumer
+     * @param totals The amount of events within the time range, lines and bytes read so far, which are increased
+     */
+    private void readRange(FileChannel channel, long start, long end, long fromEpochSecond, long toEpochSecond,
+                           EventDecoder decoder, Consumer<TranslationEvent> consumer, long[] totals) throws IOException {
+        if (start >= end) {
+            return;
+        }
+        TranslationEvent event = new TranslationEvent();
+        totals[1] += LineReader.readLines(new ChannelInputStream(channel, start, end, RANGE_BUFFER_SIZE), (buffer, offset, length, position) -> {
+            if (decodeLine(decoder, buffer, offset, length, start + position, event)
+                    && event.getTimestamp() >= fromEpochSecond && event.getTimestamp() < toEpochSecond) {
+                totals[0]++;
+                consumer.accept(event);
+            }
+        });
+        totals[2] += end - start;
+    }
+
+    private void writeCheckpoint(IngestionCheckpoint checkpoint, FileChannel channel, Path path, long position, long lines) {
+        checkpoint.moveTo(position, lines);
+        checkpoint.setQuarantineState(Objects.isNull(quarantine) ? null : quarantine.saveState());
+        try {
+            checkpoint.computeFingerprint(channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        checkpoint.write(path);
+    }
+
+    /**
+     * Read all events from the loaded file into a columnar {@link pt.raphaelneves.unbabel.challenge.models.EventBatch},
+     * decoding each line straight into the batch columns
+     * @param file The loaded incoming file
+     * @return EventBatch The batch containing all events from the file
+     * @throws RuntimeException When something went wrong while reading the file lines
+     * @throws RuntimeException When the file is empty
+     */
+    public EventBatch loadEventBatch(File file) {
+        EventBatch batch = new EventBatch();
+        streamFileEvents(file, new EventDecoder(batch.getDictionaries()), batch::add);
+        return batch;
+    }
+
+    /**
+     * Memory-map the loaded file and split it into chunks aligned to the line separator. Each chunk is decoded on its
+     * own thread into a partial {@link MetricAccumulator}, and all the partial accumulators are merged at the end, so the
+     * result is the same one produced by the sequential reading.
+     * Gzip files can't be split at any position, so each gzip member is decompressed on its own thread instead,
+     * as described on {@link GzipMemberDecoder}. A file with a single member is decompressed by a single thread.
+     * @param file The loaded incoming file
+     * @param accumulatorFactory The factory used to create the accumulator from each chunk
+     * @param parallelism The amount of threads used to decode the chunks
+     * @return MetricAccumulator The accumulator containing the events from all chunks
+     * @throws RuntimeException When something went wrong while reading the file lines
+     * @throws RuntimeException When the file is empty
+     */
+    public MetricAccumulator streamFileEventsInParallel(File file, Supplier<MetricAccumulator> accumulatorFactory, int parallelism) {
+        if(parallelism < 1) {
+            throw new RuntimeException("The parallelism must be a positive number");
+        }
+        PipelineMetrics.Stage stage = metrics.start("decode_parallel");
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolutePath()), StandardOpenOption.READ)) {
+            if (GzipMemberDecoder.isGzip(channel)) {
+                return streamGzipMembers(channel, accumulatorFactory, executor, stage);
+            }
+            List<Future<ChunkResult>> chunks = new ArrayList<>();
+            long[] boundaries = splitIntoChunks(channel, parallelism);
+            for (int i = 0; i < boundaries.length - 1; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                chunks.add(executor.submit(() -> processChunk(channel, start, end, accumulatorFactory.get())));
+            }
+            MetricAccumulator accumulator = accumulatorFactory.get();
+            long processedLines = 0;
+            for (Future<ChunkResult> chunk : chunks) {
+                ChunkResult result = chunk.get();
+                accumulator.merge(result.accumulator);
+                processedLines += result.processedLines;
+            }
+            if(processedLines == 0) {
+                throw new RuntimeException("Error while converting the file");
+            }
+            stage.stop(processedLines, channel.size());
+            metrics.countInput(processedLines, channel.size());
+            return accumulator;
+        } catch (IOException | InterruptedException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error while reading file lines.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decode many files at once, such as the logs sharded by host and hour, each one on a task from a bounded pool of
+     * threads and into its own partial {@link MetricAccumulator}. The partial accumulators are merged as soon as their
+     * file is done, so the result is the same one produced by reading all the files as a single one: the minutes span
+     * from the oldest event until the newest one from all files. Empty files are skipped.
+     * @param files The loaded incoming files, which may be gzip files
+     * @param accumulatorFactory The factory used to create the accumulator from each file
+     * @param parallelism The amount of files decoded at once
+     * @return MetricAccumulator The accumulator containing the events from all files
+     * @throws RuntimeException When something went wrong while reading the files or any line is invalid
+     * @throws RuntimeException When all files are empty
+     */
+    public MetricAccumulator streamFilesEventsInParallel(List<File> files, Supplier<MetricAccumulator> accumulatorFactory, int parallelism) {
+        if(parallelism < 1) {
+            throw new RuntimeException("The parallelism must be a positive number");
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, files.size())));
+        try {
+            CompletionService<ChunkResult> completion = new ExecutorCompletionService<>(executor);
+            int submitted = 0;
+            for (File file : files) {
+                if (file.length() > 0) {
+                    completion.submit(() -> {
+                        MetricAccumulator partial = accumulatorFactory.get();
+                        long processedLines = streamFileEvents(file, new EventDecoder(), partial::accept);
+                        return new ChunkResult(partial, processedLines);
+                    });
+                    submitted++;
+                }
+            }
+            MetricAccumulator accumulator = accumulatorFactory.get();
+            long processedLines = 0;
+            for (int i = 0; i < submitted; i++) {
+                ChunkResult result = completion.take().get();
+                accumulator.merge(result.accumulator);
+                processedLines += result.processedLines;
+            }
+            if(processedLines == 0) {
+                throw new RuntimeException("Error while converting the file");
+            }
+            return accumulator;
+        } catch (InterruptedException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error while reading file lines.");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Decompress every candidate gzip member on its own task, then follow the chain of members from the file start,
+     * merging their accumulators. The lines split between two members are joined and decoded here.
+     */
+    private MetricAccumulator streamGzipMembers(FileChannel channel, Supplier<MetricAccumulator> accumulatorFactory,
+                                                ExecutorService executor, PipelineMetrics.Stage stage) throws IOException, InterruptedException, ExecutionException {
+        Map<Long, Future<MemberResult>> members = new HashMap<>();
+        for (long start : GzipMemberDecoder.findMemberCandidates(channel)) {
+            members.put(start, executor.submit(() -> processMember(channel, start, accumulatorFactory.get())));
+        }
+        MetricAccumulator accumulator = accumulatorFactory.get();
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        ByteArrayOutputStream pendingLine = new ByteArrayOutputStream();
+        long processedLines = 0;
+        long size = channel.size();
+        for (long position = 0; position < size; ) {
+            Future<MemberResult> member = members.get(position);
+            MemberResult result = Objects.isNull(member) ? null : member.get();
+            if (Objects.nonNull(result) && Objects.nonNull(result.failure)) {
+                throw result.failure;
+            }
+            if (Objects.isNull(result) || result.end < 0) {
+                throw new RuntimeException("Invalid gzip file");
+            }
+            if (Objects.nonNull(result.head)) {
+                pendingLine.write(result.head, 0, result.head.length);
+                byte[] line = pendingLine.toByteArray();
+                int length = result.head.length == 0 && line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+                if (decodeLine(decoder, line, 0, length, -1, event)) {
+                    accumulator.accept(event);
+                }
+                processedLines++;
+                pendingLine.reset();
+            }
+            if (Objects.nonNull(result.tail)) {
+                pendingLine.write(result.tail, 0, result.tail.length);
+            }
+            if (Objects.nonNull(quarantine)) {
+                quarantine.countLines(result.processedLines);
+                for (int i = 0; i < result.rejections.size(); i++) {
+                    quarantine.reject(-1, result.rejectedLines.get(i), result.rejections.get(i));
+                }
+                metrics.countRejectedLines(result.rejections.size());
+            }
+            accumulator.merge(result.accumulator);
+            processedLines += result.processedLines;
+            position = result.end;
+        }
+        if (pendingLine.size() > 0) {
+            byte[] line = pendingLine.toByteArray();
+            if (decodeLine(decoder, line, 0, line[line.length - 1] == '\r' ? line.length - 1 : line.length, -1, event)) {
+                accumulator.accept(event);
+            }
+            processedLines++;
+        }
+        if(processedLines == 0) {
+            throw new RuntimeException("Error while converting the file");
+        }
+        stage.stop(processedLines, size);
+        metrics.countInput(processedLines, size);
+        return accumulator;
+    }
+
+    /**
+     * Decompress a candidate gzip member into the received accumulator. The bytes before its first line separator
+     * and after its last one are kept apart, since they belong to the lines shared with the sibling members.
+     * The invalid lines are kept apart as well, and only sent to the quarantine once the member is found on the chain,
+     * since a candidate found inside the compressed data may produce lines before failing.
+     */
+    private MemberResult processMember(FileChannel channel, long start, MetricAccumulator accumulator) throws IOException {
+        MemberResult result = new MemberResult(accumulator);
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        try {
+            result.end = GzipMemberDecoder.decodeMember(channel, start, (buffer, offset, length, position) -> {
+                if (Objects.isNull(result.head)) {
+                    result.head = Arrays.copyOfRange(buffer, offset, offset + length);
+                    return;
+                }
+                result.processedLines++;
+                try {
+                    decoder.decode(buffer, offset, length, event);
+                    accumulator.accept(event);
+                } catch (InvalidLineException e) {
+                    if (Objects.isNull(quarantine)) {
+                        throw e;
+                    }
+                    result.rejectedLines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+                    result.rejections.add(e);
+                }
+            }, (buffer, offset, length, position) -> result.tail = Arrays.copyOfRange(buffer, offset, offset + length));
+        } catch (RuntimeException e) {
+            result.failure = e;
+        }
+        return result;
+    }
+
+    /**
+     * Define the chunk boundaries from the file, moving each boundary to the position right after a line separator.
+     * Each chunk is kept under the memory mapping limit, so big files get more chunks than threads.
+     * @param channel The channel from the incoming file
+     * @param parallelism The amount of threads used to decode the chunks
+     * @return long[] The chunk boundaries, starting at zero and ending at the file size
+     * @throws IOException When something went wrong while reading the file
+     */
+    long[] splitIntoChunks(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkCount = Math.max(parallelism, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+        for (long i = 1; i < chunkCount; i++) {
+            long position = Math.max(size * i / chunkCount, boundaries.get(boundaries.size() - 1));
+            long boundary = size;
+            while (position < size && boundary == size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                for (int j = 0; j < read; j++) {
+                    if (buffer.get(j) == '\n') {
+                        boundary = position + j + 1;
+                        break;
+                    }
+                }
+                position += Math.max(read, 0);
+            }
+            if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+                boundaries.add(boundary);
+            }
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Decode all lines from a memory-mapped chunk into the received accumulator
+     */
+    private ChunkResult processChunk(FileChannel channel, long start, long end, MetricAccumulator accumulator) throws IOException {
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        byte[] line = new byte[1024];
+        long processedLines = 0;
+        int lineStart = 0;
+        int limit = chunk.limit();
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && chunk.get(i) != '\n') {
+                continue;
+            }
+            int length = i - lineStart;
+            if (length > 0 && chunk.get(i - 1) == '\r') {
+                length--;
+            }
+            if (i < limit || length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                chunk.position(lineStart);
+                chunk.get(line, 0, length);
+                if (decodeLine(decoder, line, 0, length, start + lineStart, event)) {
+                    accumulator.accept(event);
+                }
+                processedLines++;
+            }
+            lineStart = i + 1;
+        }
+        return new ChunkResult(accumulator, processedLines);
+    }
+
     /**
      * Convert the extracted lines from the file into a {@link pt.raphaelneves.unbabel.challenge.models.Translation} collection
      * @param lines The extracted lines from the incoming file
@@ -67,43 +847,110 @@ public class FileProcessor {
         if(Objects.isNull(lines) || lines.isEmpty()) {
             throw new RuntimeException("Error while converting the file");
         }
-        return lines.stream().map(this::convertFileLineToObject).collect(Collectors.toList());
+        PipelineMetrics.Stage stage = metrics.start("convert_lines");
+        List<Translation> translations = lines.stream().map(this::convertLine).filter(Objects::nonNull).collect(Collectors.toList());
+        stage.stop(translations.size(), 0);
+        return translations;
     }
 
 
     /**
-     * Convert a single line into a {@link pt.raphaelneves.unbabel.challenge.models.Translation} object
+     * Convert a single line like {@link #convertFileLineToObject(String)}. Without a quarantine an invalid line stops
+     * the reading, otherwise it's written to the quarantine, with an unknown offset since the lines are read as text.
+     * @param line The file line to be converted
+     * @return Translation The line converted into a Translation object, or null when it has been rejected
+     */
+    private Translation convertLine(String line) {
+        if (Objects.isNull(quarantine)) {
+            return convertFileLineToObject(line);
+        }
+        quarantine.countLine();
+        try {
+            return convertFileLineToObject(line);
+        } catch (InvalidLineException e) {
+            quarantine.reject(-1, line, e);
+            metrics.countRejectedLines(1);
+            return null;
+        }
+    }
+
+    /**
+     * Convert a single line into a {@link pt.raphaelneves.unbabel.challenge.models.Translation} object.
+     * This is the slow path that binds every attribute from the line, use {@link EventDecoder} when only the
+     * metric attributes are needed.
      * @param line The file line to be converted
      * @return Translation The line converted into a Translation object
-     * @throws IOException When something went wrong while deserializing the information
+     * @throws InvalidLineException When something went wrong while deserializing the information
      */
     private Translation convertFileLineToObject(String line) {
-        ObjectMapper mapper = new ObjectMapper();
         Translation translation;
         try {
-            translation = mapper.readValue(line, Translation.class);
+            translation = TRANSLATION_READER.readValue(line);
+        } catch (JsonParseException e) {
+            throw new InvalidLineException(RejectReason.MALFORMED_JSON, line, e.getOriginalMessage(), e.getLocation());
+        } catch (JsonProcessingException e) {
+            throw new InvalidLineException(RejectReason.INVALID_ATTRIBUTE, line, e.getOriginalMessage(), e.getLocation());
         } catch (IOException e) {
-            throw new RuntimeException("Error while converting the file line " + line);
+            throw new InvalidLineException(RejectReason.INVALID_ATTRIBUTE, line);
+        }
+        if (Objects.isNull(translation)) {
+            throw new InvalidLineException(RejectReason.NOT_AN_OBJECT, line);
         }
         return translation;
     }
 
     /**
-     * Create a file on user.home folder containing the result from the average event duration calculation
+     * The partial result from a decoded chunk
+     */
+    @AllArgsConstructor
+    private static class ChunkResult {
+        private final MetricAccumulator accumulator;
+        private final long processedLines;
+    }
+
+    /**
+     * The result from a candidate gzip member. The head is null when the member has no line separator, and the end
+     * is -1 when the candidate is not a valid member. The invalid lines are only kept when there is a quarantine.
+     */
+    private static class MemberResult {
+        private final MetricAccumulator accumulator;
+        private long processedLines;
+        private long end = -1;
+        private byte[] head;
+        private byte[] tail;
+        private RuntimeException failure;
+        private final List<String> rejectedLines = new ArrayList<>();
+        private final List<InvalidLineException> rejections = new ArrayList<>();
+
+        private MemberResult(MetricAccumulator accumulator) {
+            this.accumulator = accumulator;
+        }
+    }
+
+    /**
+     * Create a file on user.home folder containing the result from the average event duration calculation,
+     * with one JSON object per line
      * @param metrics A collection of extracted metrics
      * @return String The full path of the created file
-     * @throws IOException When something went wrong while creating the file
+     * @throws RuntimeException When something went wrong while creating the file
      */
     public String createOutputFile(List<MetricResponse> metrics, String pathToSaveFile) {
-        File responseFile = new File(pathToSaveFile);
-        metrics.forEach(metric -> {
-            try {
-                FileUtils.write(responseFile, String.format("%s\n", metric.toString()), Charset.defaultCharset(), true);
-            } catch (IOException e) {
-                throw new RuntimeException("Unable to create the response file");
-            }
-        });
-        return responseFile.getAbsolutePath();
+        return createOutputFile(metrics, pathToSaveFile, OutputFormat.JSON);
+    }
+
+    /**
+     * Create a file containing the result from the average event duration calculation on the requested format.
+     * The file is written at once through a {@link MetricWriter}, replacing an existing one.
+     * @param metrics A collection of extracted metrics
+     * @param format The format used to write the metrics
+     * @return String The full path of the created file
+     * @throws RuntimeException When something went wrong while creating the file
+     */
+    public String createOutputFile(List<MetricResponse> metrics, String pathToSaveFile, OutputFormat format) {
+        PipelineMetrics.Stage stage = this.metrics.start("write_output");
+        String path = new MetricWriter(format).write(metrics, pathToSaveFile);
+        stage.stop(metrics.size(), new File(path).length());
+        return path;
     }
 
 }
@@ -0,0 +1,28 @@
+/**
+ * This interface is used by {@link PipelineMetrics} to commit the Java Flight Recorder events without linking against
+ * jdk.jfr, which is only available on JDK 8u262 and later. Its only implementation, {@link PipelineEvents}, is loaded
+ * by name when the JDK supports it, and it's left out of the build by the without-jfr profile, so the project still
+ * compiles against the JDK 8 API alone. The events are passed around as Object for the same reason.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+interface FlightRecorder {
+
+    /**
+     * @return Object The stage event, with its start time set
+     */
+    Object beginStage();
+
+    /**
+     * Commit a stage event created by {@link #beginStage()}, unless no recording is interested in it
+     */
+    void commitStage(Object stageEvent, String name, long events, long bytes, long allocatedBytes);
+
+    /**
+     * Commit the run totals, unless no recording is interested in them
+     */
+    void commitRun(long events, long bytes, long rejectedLines, double eventsPerSecond, double bytesPerSecond,
+                   double allocatedBytesPerEvent);
+}
@@ -0,0 +1,178 @@
+/**
+ * This class is used to read the gzip files (RFC 1952) member by member, so the members from a multi-member file,
+ * such as concatenated log rotations, can be decompressed on their own threads.
+ * The member boundaries are only known once the previous member has been decompressed, so every position starting
+ * with the gzip magic bytes is a candidate member: all candidates are decompressed in parallel and only the ones
+ * chained from the file start, each one starting where the previous one ends, are considered. A candidate found
+ * inside the compressed data almost always fails on decompression or on its checksum, and is discarded anyway when
+ * it doesn't belong to the chain.
+ * The channel is only read with absolute positions, so it can be shared by many threads.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+final class GzipMemberDecoder {
+
+    private static final int ID1 = 0x1f;
+    private static final int ID2 = 0x8b;
+    private static final int DEFLATE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED_FLAGS = 0xe0;
+    private static final int TRAILER_SIZE = 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private GzipMemberDecoder() {
+    }
+
+    /**
+     * @param channel The channel from the incoming file
+     * @return boolean If the file starts with the gzip magic bytes
+     * @throws IOException When something went wrong while reading the file
+     */
+    static boolean isGzip(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(3);
+        channel.read(header, 0);
+        return header.position() == 3 && isMemberStart(header.get(0), header.get(1), header.get(2));
+    }
+
+    /**
+     * Find all positions that may start a gzip member: the magic bytes followed by the deflate method
+     * @param channel The channel from the incoming file
+     * @return List<Long> The candidate positions, in file order
+     * @throws IOException When something went wrong while reading the file
+     */
+    static List<Long> findMemberCandidates(FileChannel channel) throws IOException {
+        List<Long> candidates = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            buffer.clear();
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer, position + buffer.position());
+            }
+            int limit = buffer.position();
+            for (int i = 0; i + 3 < limit; i++) {
+                if (isMemberStart(buffer.get(i), buffer.get(i + 1), buffer.get(i + 2)) && (buffer.get(i + 3) & RESERVED_FLAGS) == 0) {
+                    candidates.add(position + i);
+                }
+            }
+            if (position + limit >= size) {
+                break;
+            }
+            position += limit - 3;
+        }
+        return candidates;
+    }
+
+    /**
+     * Decompress a single member, sending its lines to the handlers
+     * @param channel The channel from the incoming file
+     * @param start The member first position
+     * @param handler The handler that will receive each line ended by a separator, with its position on the member
+     * @param tailHandler The handler that will receive the bytes after the last separator, when there are any
+     * @return long The position right after the member, or -1 when it's not a valid member
+     * @throws IOException When something went wrong while reading the file
+     * @throws RuntimeException When a handler fails, such as on an invalid line, which is not related to the member
+     */
+    static long decodeMember(FileChannel channel, long start, LineReader.LineHandler handler, LineReader.LineHandler tailHandler) throws IOException {
+        ChannelInputStream input = new ChannelInputStream(channel, start, Long.MAX_VALUE, BUFFER_SIZE);
+        long dataStart = skipHeader(input);
+        if (dataStart < 0) {
+            return -1;
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            CheckedInputStream data = new CheckedInputStream(new InflaterInputStream(input, inflater, BUFFER_SIZE), new CRC32());
+            try {
+                LineReader.readLines(data, handler, tailHandler);
+            } catch (IOException e) {
+                return -1;
+            }
+            if (!inflater.finished()) {
+                return -1;
+            }
+            long trailer = dataStart + inflater.getBytesRead();
+            ByteBuffer buffer = ByteBuffer.allocate(TRAILER_SIZE);
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer, trailer + buffer.position());
+            }
+            if (buffer.hasRemaining()) {
+                return -1;
+            }
+            long crc = littleEndianInt(buffer, 0);
+            long size = littleEndianInt(buffer, 4);
+            if (crc != data.getChecksum().getValue() || size != (inflater.getBytesWritten() & 0xffffffffL)) {
+                return -1;
+            }
+            return trailer + TRAILER_SIZE;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Read the member header
+     * @return long The position right after the header, or -1 when it's not a valid header
+     */
+    private static long skipHeader(ChannelInputStream input) throws IOException {
+        if (input.read() != ID1 || input.read() != ID2 || input.read() != DEFLATE) {
+            return -1;
+        }
+        int flags = input.read();
+        if (flags < 0 || (flags & RESERVED_FLAGS) != 0 || input.skip(6) != 6) {
+            return -1;
+        }
+        if ((flags & FEXTRA) != 0) {
+            int low = input.read();
+            int high = input.read();
+            if (high < 0 || input.skip(low | high << 8) != (low | high << 8)) {
+                return -1;
+            }
+        }
+        if ((flags & FNAME) != 0 && !skipZeroTerminated(input)) {
+            return -1;
+        }
+        if ((flags & FCOMMENT) != 0 && !skipZeroTerminated(input)) {
+            return -1;
+        }
+        if ((flags & FHCRC) != 0 && input.skip(2) != 2) {
+            return -1;
+        }
+        return input.getPosition();
+    }
+
+    private static boolean skipZeroTerminated(InputStream input) throws IOException {
+        int value = input.read();
+        while (value > 0) {
+            value = input.read();
+        }
+        return value == 0;
+    }
+
+    private static boolean isMemberStart(byte id1, byte id2, byte method) {
+        return (id1 & 0xff) == ID1 && (id2 & 0xff) == ID2 && method == DEFLATE;
+    }
+
+    private static long littleEndianInt(ByteBuffer buffer, int offset) {
+        return (buffer.get(offset) & 0xffL) | (buffer.get(offset + 1) & 0xffL) << 8
+                | (buffer.get(offset + 2) & 0xffL) << 16 | (buffer.get(offset + 3) & 0xffL) << 24;
+    }
+}
@@ -0,0 +1,178 @@
+/**
+ * This class represents the progress from a long ingestion run: the position on the incoming file, in bytes, of the
+ * next line to be read, together with the aggregation state built from all the lines before it. It's written
+ * periodically by {@link FileProcessor#streamFileEventsWithCheckpoints}, so a run that died can resume from the last
+ * checkpoint and still produce the same metrics as an uninterrupted run.
+ * The checkpoint also keeps a checksum from the bytes right before its position, used to refuse resuming over a
+ * different file. It's stored with the Java serialization, like the other models, and replaced atomically.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class IngestionCheckpoint implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The amount of bytes before the position used to recognize the file
+     */
+    private static final int FINGERPRINT_SIZE = 4096;
+
+    /**
+     * The aggregation state from all the lines before the position. The deduplicator is null when the repeated
+     * events are kept.
+     */
+    private final MetricAccumulator accumulator;
+    private final EventDeduplicator deduplicator;
+
+    /**
+     * The position of the next line to be read, the amount of lines read before it and the checksum from the bytes
+     * right before it
+     */
+    private long position;
+    private long lines;
+    private long fingerprint;
+
+    /**
+     * The quarantine counters and file end at the position, or null when the invalid lines stop the reading
+     */
+    private LineQuarantine.State quarantineState;
+
+    IngestionCheckpoint(MetricAccumulator accumulator, EventDeduplicator deduplicator) {
+        this.accumulator = accumulator;
+        this.deduplicator = deduplicator;
+    }
+
+    /**
+     * @return MetricAccumulator The accumulator holding the events read so far
+     */
+    public MetricAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * @return EventDeduplicator The deduplicator holding the translation identifiers read so far, or null when the
+     * repeated events are kept
+     */
+    public EventDeduplicator getDeduplicator() {
+        return deduplicator;
+    }
+
+    /**
+     * @return long The position of the next line to be read, in bytes
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return long The amount of lines read before the position
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return LineQuarantine.State The quarantine state at the position, or null when there was no quarantine
+     */
+    LineQuarantine.State getQuarantineState() {
+        return quarantineState;
+    }
+
+    void setQuarantineState(LineQuarantine.State quarantineState) {
+        this.quarantineState = quarantineState;
+    }
+
+    /**
+     * Move the checkpoint to a new line, after all the lines before it have been added to the state
+     */
+    void moveTo(long position, long lines) {
+        this.position = position;
+        this.lines = lines;
+    }
+
+    /**
+     * Compute the checksum from the bytes before the position on the file, which must be called before writing
+     */
+    void computeFingerprint(FileChannel channel) throws IOException {
+        fingerprint = fingerprintOf(channel, position);
+    }
+
+    /**
+     * @return boolean If the bytes before the position on the file are the ones seen when the checkpoint was written
+     */
+    boolean matches(FileChannel channel) throws IOException {
+        return position <= channel.size() && fingerprint == fingerprintOf(channel, position);
+    }
+
+    /**
+     * Write the checkpoint into a temporary file on the same folder and rename it, so the previous checkpoint is only
+     * replaced by a complete one
+     * @param path The checkpoint file
+     * @throws RuntimeException When something went wrong while writing the file
+     */
+    void write(Path path) {
+        Path target = path.toAbsolutePath();
+        Path temporary = null;
+        try {
+            temporary = MetricWriter.createTemporaryFile(target);
+            try (OutputStream output = Files.newOutputStream(temporary, StandardOpenOption.WRITE);
+                 ObjectOutputStream objects = new ObjectOutputStream(output)) {
+                objects.writeObject(this);
+            }
+            MetricWriter.moveAtomically(temporary, target);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the checkpoint file.");
+        } finally {
+            MetricWriter.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Read a checkpoint written by a previous run
+     * @param path The checkpoint file
+     * @return IngestionCheckpoint The checkpoint, or null when the file doesn't exist or can't be read, such as one
+     * written by an incompatible version, in which case a warning is printed and the run starts from the beginning
+     */
+    static IngestionCheckpoint read(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (InputStream input = Files.newInputStream(path);
+             ObjectInputStream objects = new ObjectInputStream(input)) {
+            return (IngestionCheckpoint) objects.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Unable to read the checkpoint file " + path + ", starting from the beginning of the file.");
+            return null;
+        }
+    }
+
+    /**
+     * @return long The checksum from the bytes right before the position, together with their amount
+     */
+    static long fingerprintOf(FileChannel channel, long position) throws IOException {
+        long start = Math.max(0L, position - FINGERPRINT_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (position - start));
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) {
+            read = channel.read(buffer, start + buffer.position());
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), 0, buffer.position());
+        return checksum.getValue() ^ ((long) buffer.position() << 32);
+    }
+}
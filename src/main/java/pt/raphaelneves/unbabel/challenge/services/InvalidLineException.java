@@ -0,0 +1,55 @@
+/**
+ * This exception is thrown when a line from the incoming file is not a valid translation event. It keeps the
+ * {@link RejectReason}, so the line can be sent to a {@link LineQuarantine} instead of stopping the run, together with
+ * the error found while parsing the line and its column, when known, so the line can be fixed.
+ * The stack trace is not filled, since the exception always comes from decoding a line and filling it would cost more
+ * than decoding the line itself when many lines are rejected.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
+
+public class InvalidLineException extends RuntimeException {
+
+    private final RejectReason reason;
+    private final String error;
+
+    /**
+     * @param reason Why the line was rejected, whose description is used as the error
+     * @param line The rejected line
+     */
+    public InvalidLineException(RejectReason reason, String line) {
+        this(reason, line, reason.getDescription(), null);
+    }
+
+    /**
+     * @param reason Why the line was rejected
+     * @param line The rejected line
+     * @param error The error found while parsing the line, such as the one from the JSON parser
+     * @param location Where the error was found on the line, or null when it's not known
+     */
+    public InvalidLineException(RejectReason reason, String line, String error, JsonLocation location) {
+        super("Error while converting the file line " + line, null, false, false);
+        this.reason = reason;
+        this.error = Objects.isNull(location) || location.getColumnNr() < 1 ? error : error + " at column " + location.getColumnNr();
+    }
+
+    /**
+     * @return RejectReason Why the line was rejected
+     */
+    public RejectReason getReason() {
+        return reason;
+    }
+
+    /**
+     * @return String The error found while parsing the line, with its column when known
+     */
+    public String getError() {
+        return error;
+    }
+}
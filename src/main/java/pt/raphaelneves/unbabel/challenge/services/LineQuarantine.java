@@ -0,0 +1,257 @@
+/**
+ * This class is used to keep reading the incoming file when some lines are not valid translation events, instead of
+ * stopping the whole run on the first one. Each rejected line is written to a quarantine file, one JSON object per
+ * line with its byte offset on the incoming file, the reject reason, the error found while parsing it with its column,
+ * and the line itself, so it can be fixed and read again later. The rejected lines are also counted by reason.
+ * E.g.: {"offset":4096,"reason":"INVALID_DURATION","error":"The duration is not an integer number, found fast at column 57","line":"{...}"}
+ * The run is still stopped when the rejected lines exceed the maximum percentage of the lines read. The percentage is
+ * only checked while reading after a minimum amount of lines, so a bad line at the file start doesn't stop the run,
+ * and once more by {@link #close()}.
+ * The quarantine file is only replaced on its first write, so a run resuming from an {@link IngestionCheckpoint} can
+ * restore the counters and the file end from the checkpoint before, and keep appending the lines rejected after it.
+ * This class is thread-safe, so the threads reading the chunks from the same file can share it.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
+
+public class LineQuarantine implements AutoCloseable {
+
+    /**
+     * The amount of lines read before the maximum percentage is checked while reading
+     */
+    static final long MIN_LINES_BEFORE_ABORT = 1_000L;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Path path;
+    private final double maxRejectedPercentage;
+    private final FileChannel channel;
+    private final OutputStream output;
+    private final JsonGenerator generator;
+
+    /**
+     * The position from where the quarantine file is written, and if it has been truncated there already
+     */
+    private long startPosition;
+    private boolean started;
+
+    /**
+     * The amount of lines read, valid or not, which is increased by every reading thread
+     */
+    private final LongAdder lines = new LongAdder();
+
+    /**
+     * The amount of rejected lines, by reason
+     */
+    private final Map<RejectReason, Long> rejectedLines = new EnumMap<>(RejectReason.class);
+    private long rejected;
+
+    /**
+     * @param path The quarantine file, which is replaced on the first write when it exists
+     * @param maxRejectedPercentage The percentage of rejected lines, from 0 to 100, that stops the run when exceeded,
+     * or a negative number to never stop it
+     * @throws RuntimeException When the quarantine file can't be created or the percentage is over 100
+     */
+    public LineQuarantine(Path path, double maxRejectedPercentage) {
+        if (Double.isNaN(maxRejectedPercentage) || maxRejectedPercentage > 100) {
+            throw new RuntimeException("The maximum percentage of rejected lines must be up to 100");
+        }
+        this.path = path;
+        this.maxRejectedPercentage = maxRejectedPercentage;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            output = Channels.newOutputStream(channel);
+            generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+            generator.setRootValueSeparator(null);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the quarantine file " + path);
+        }
+    }
+
+    /**
+     * Restore the counters and the quarantine file end saved by a checkpoint, so the lines rejected from now on are
+     * appended after the ones rejected before the checkpoint, and the ones written after it by the run that died
+     * are discarded, since they're read again
+     * @param state The state saved by {@link #saveState()}
+     * @throws RuntimeException When a line has already been written, or the quarantine file is shorter than the state
+     */
+    synchronized void restoreState(State state) {
+        if (started) {
+            throw new RuntimeException("Unable to resume the quarantine file " + path + " after writing to it");
+        }
+        try {
+            if (channel.size() < state.position) {
+                throw new RuntimeException("The quarantine file " + path + " doesn't match the checkpoint being resumed");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the quarantine file " + path);
+        }
+        lines.reset();
+        lines.add(state.lines);
+        rejectedLines.clear();
+        rejectedLines.putAll(state.rejectedLines);
+        rejected = state.rejected;
+        startPosition = state.position;
+    }
+
+    /**
+     * Flush the rejected lines written so far and save the counters together with the quarantine file end
+     * @return State The state to be restored when resuming from the same point
+     * @throws RuntimeException When the file can't be written
+     */
+    synchronized State saveState() {
+        try {
+            start();
+            generator.flush();
+            return new State(lines.sum(), rejected, new EnumMap<>(rejectedLines), channel.position());
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the quarantine file " + path);
+        }
+    }
+
+    /**
+     * Count a line read from the incoming file, valid or not
+     */
+    void countLine() {
+        lines.increment();
+    }
+
+    /**
+     * Count many lines read from the incoming file, valid or not
+     */
+    void countLines(long amount) {
+        lines.add(amount);
+    }
+
+    /**
+     * Write a rejected line to the quarantine file. The line must have been counted already.
+     * @param offset The line position on the incoming file in bytes, or -1 when it's not known, such as on the lines
+     * read as text or from a gzip file, whose positions are the decompressed ones
+     * @param buffer The byte array containing the line
+     * @param start The line first position on the byte array
+     * @param length The line length
+     * @param exception The exception describing why the line was rejected
+     * @throws RuntimeException When the rejected lines exceed the maximum percentage, or the file can't be written
+     */
+    synchronized void reject(long offset, byte[] buffer, int start, int length, InvalidLineException exception) {
+        reject(offset, new String(buffer, start, length, StandardCharsets.UTF_8), exception);
+    }
+
+    /**
+     * Write a rejected line to the quarantine file like {@link #reject(long, byte[], int, int, InvalidLineException)}
+     */
+    synchronized void reject(long offset, String line, InvalidLineException exception) {
+        rejectedLines.merge(exception.getReason(), 1L, Long::sum);
+        rejected++;
+        try {
+            start();
+            generator.writeStartObject();
+            generator.writeNumberField("offset", offset);
+            generator.writeStringField("reason", exception.getReason().name());
+            generator.writeStringField("error", exception.getError());
+            generator.writeStringField("line", line);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the quarantine file " + path);
+        }
+        if (lines.sum() >= MIN_LINES_BEFORE_ABORT) {
+            checkRejectedPercentage();
+        }
+    }
+
+    /**
+     * @return long The amount of lines read, valid or not
+     */
+    public long getLines() {
+        return lines.sum();
+    }
+
+    /**
+     * @return long The amount of rejected lines
+     */
+    public synchronized long getRejectedLines() {
+        return rejected;
+    }
+
+    /**
+     * @return Map<RejectReason, Long> The amount of rejected lines by reason, only with the reasons that happened
+     */
+    public synchronized Map<RejectReason, Long> getRejectedLinesByReason() {
+        return Collections.unmodifiableMap(new EnumMap<>(rejectedLines));
+    }
+
+    /**
+     * Close the quarantine file, checking the rejected lines percentage from the whole run
+     * @throws RuntimeException When the rejected lines exceed the maximum percentage, or the file can't be written
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            start();
+            generator.close();
+            output.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the quarantine file " + path);
+        }
+        checkRejectedPercentage();
+    }
+
+    /**
+     * Discard the quarantine file content after the start position, right before the first write
+     */
+    private void start() throws IOException {
+        if (!started) {
+            channel.truncate(startPosition);
+            channel.position(startPosition);
+            started = true;
+        }
+    }
+
+    private void checkRejectedPercentage() {
+        long read = lines.sum();
+        if (maxRejectedPercentage >= 0 && read > 0 && rejected * 100.0 / read > maxRejectedPercentage) {
+            throw new RuntimeException(String.format("%d of %d lines have been rejected, more than %s%%. The rejected lines are on %s",
+                    rejected, read, maxRejectedPercentage, path));
+        }
+    }
+
+    /**
+     * The counters and the quarantine file end at a checkpoint, stored together with it
+     */
+    static final class State implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long lines;
+        private final long rejected;
+        private final EnumMap<RejectReason, Long> rejectedLines;
+        private final long position;
+
+        private State(long lines, long rejected, EnumMap<RejectReason, Long> rejectedLines, long position) {
+            this.lines = lines;
+            this.rejected = rejected;
+            this.rejectedLines = rejectedLines;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * This class is used to read the lines from an incoming stream as raw bytes, without creating a String for each line.
+ * The same buffer is reused for every line, so it must not be kept after the handler returns.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+class LineReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The callback that receives each line read from the stream
+     */
+    @FunctionalInterface
+    interface LineHandler {
+
+        /**
+         * @param buffer The byte array containing the line, without the line separator
+         * @param offset The line first position on the byte array
+         * @param length The line length
+         * @param position The line position on the stream, in bytes
+         */
+        void onLine(byte[] buffer, int offset, int length, long position);
+    }
+
+    private LineReader() {
+    }
+
+    /**
+     * Read all lines from the stream, sending each one to the handler.
+     * Both \n and \r\n are accepted as line separators, and the last line doesn't need a separator.
+     * @param inputStream The stream to be read
+     * @param handler The handler that will receive each line
+     * @return long The amount of lines read
+     * @throws IOException When something went wrong while reading the stream
+     */
+    static long readLines(InputStream inputStream, LineHandler handler) throws IOException {
+        return readLines(inputStream, handler, null);
+    }
+
+    /**
+     * Read all lines from the stream like {@link #readLines(InputStream, LineHandler)}, but send the bytes after the
+     * last line separator to another handler, as they are, such as when the stream is only a part of the whole file
+     * @param inputStream The stream to be read
+     * @param handler The handler that will receive each line ended by a separator
+     * @param tailHandler The handler that will receive the bytes after the last separator, when there are any,
+     * or null to send them to the line handler as the last line
+     * @return long The amount of lines read, including the bytes after the last separator
+     * @throws IOException When something went wrong while reading the stream
+     */
+    static long readLines(InputStream inputStream, LineHandler handler, LineHandler tailHandler) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int start = 0;
+        int end = 0;
+        long position = 0;
+        long lines = 0;
+        int read;
+        while ((read = inputStream.read(buffer, end, buffer.length - end)) != -1) {
+            int scanFrom = end;
+            end += read;
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    handler.onLine(buffer, start, lineLength(buffer, start, i), position);
+                    position += i + 1 - start;
+                    start = i + 1;
+                    lines++;
+                }
+            }
+            if (start == end) {
+                start = 0;
+                end = 0;
+            } else if (end == buffer.length) {
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+        }
+        if (start < end) {
+            if (tailHandler == null) {
+                handler.onLine(buffer, start, lineLength(buffer, start, end), position);
+            } else {
+                tailHandler.onLine(buffer, start, end - start, position);
+            }
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Calculate the line length ignoring the carriage return before the line separator
+     */
+    private static int lineLength(byte[] buffer, int start, int separator) {
+        return separator > start && buffer[separator - 1] == '\r' ? separator - start - 1 : separator - start;
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * This class is used to calculate the moving average event duration incrementally, while the translation events are
+ * being read from the incoming file. The events are summarized by minute as soon as they are received, so the memory
+ * usage depends on the time interval covered by the file instead of its size, and the events don't need to be sorted.
+ * When the percentiles are requested, each minute also keeps a {@link LatencySketch} with its durations.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.Serializable;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import pt.raphaelneves.unbabel.challenge.models.LatencySketch;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class MetricAccumulator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The window sizes in minutes
+     */
+    private final List<Integer> windowSizes;
+
+    /**
+     * The translation events summary grouped by epoch minute.
+     * Each value holds the amount of events on the first position and the sum of their duration on the second one.
+     */
+    private final TreeMap<Long, long[]> summaries = new TreeMap<>();
+
+    /**
+     * The translation events duration sketch grouped by epoch minute, only when the percentiles have been requested
+     */
+    private final boolean percentiles;
+    private final TreeMap<Long, LatencySketch> sketches = new TreeMap<>();
+
+    /**
+     * The last summary that received an event. Consecutive events usually share the same minute,
+     * so this avoids looking up the summaries for most of them. It's not serialized, since it's found again.
+     */
+    private transient long lastMinute;
+    private transient long[] lastSummary;
+    private transient LatencySketch lastSketch;
+
+    MetricAccumulator(Integer windowSize) {
+        this(Collections.singletonList(windowSize));
+    }
+
+    MetricAccumulator(List<Integer> windowSizes) {
+        this(windowSizes, false);
+    }
+
+    MetricAccumulator(List<Integer> windowSizes, boolean percentiles) {
+        this.windowSizes = new ArrayList<>(windowSizes);
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Add a translation event to the metric calculation
+     * @param translation The translation event read from the incoming file
+     */
+    public void accept(Translation translation) {
+        add(translation.getTimestamp().toEpochSecond(ZoneOffset.UTC), translation.getDuration());
+    }
+
+    /**
+     * Add a decoded translation event to the metric calculation
+     * @param event The translation event decoded from the incoming file
+     */
+    public void accept(TranslationEvent event) {
+        add(event.getTimestamp(), event.getDuration());
+    }
+
+    /**
+     * Add a translation event duration to the summary from its minute
+     * @param epochSecond The event timestamp as epoch second
+     * @param duration The event duration
+     */
+    void add(long epochSecond, long duration) {
+        long minute = TimestampParser.toEpochMinute(epochSecond);
+        if (lastSummary == null || minute != lastMinute) {
+            lastMinute = minute;
+            lastSummary = summaries.computeIfAbsent(minute, key -> new long[2]);
+            lastSketch = percentiles ? sketches.computeIfAbsent(minute, key -> new LatencySketch()) : null;
+        }
+        lastSummary[0]++;
+        lastSummary[1] += duration;
+        if (percentiles) {
+            lastSketch.record(duration);
+        }
+    }
+
+    /**
+     * Add the aggregate from a whole minute, such as one read from a {@link RollupSegment}
+     * @param epochMinute The minute as epoch minute
+     * @param count The amount of events
+     * @param sum The events duration sum
+     * @param sketch The events durations sketch, only used when the percentiles have been requested
+     */
+    void addMinute(long epochMinute, long count, long sum, LatencySketch sketch) {
+        long[] summary = summaries.computeIfAbsent(epochMinute, key -> new long[2]);
+        summary[0] += count;
+        summary[1] += sum;
+        if (percentiles) {
+            sketches.computeIfAbsent(epochMinute, key -> new LatencySketch()).merge(sketch);
+        }
+    }
+
+    /**
+     * Merge the summaries from another accumulator into this one, as if all its events had been added here
+     * @param other The accumulator to be merged
+     * @throws RuntimeException When the accumulators don't share the same window sizes and percentiles option
+     */
+    void merge(MetricAccumulator other) {
+        if (!hasSameSettings(other)) {
+            throw new RuntimeException("Unable to merge metrics with different window sizes.");
+        }
+        other.summaries.forEach((minute, otherSummary) -> {
+            long[] summary = summaries.computeIfAbsent(minute, key -> new long[2]);
+            summary[0] += otherSummary[0];
+            summary[1] += otherSummary[1];
+        });
+        other.sketches.forEach((minute, otherSketch) -> sketches.computeIfAbsent(minute, key -> new LatencySketch()).merge(otherSketch));
+    }
+
+    /**
+     * @param other Another accumulator
+     * @return boolean If both accumulators share the same window sizes and percentiles option
+     */
+    boolean hasSameSettings(MetricAccumulator other) {
+        return windowSizes.equals(other.windowSizes) && percentiles == other.percentiles;
+    }
+
+    /**
+     * Calculate the moving average event duration by minute from the events received so far, oldest first.
+     * The result is the same one produced by {@link MetricService#calculateAverageEventDuration(List, Integer)}.
+     * When there are multiple window sizes, each minute has one row per window size.
+     * @return List<MetricResponse> A collection containing the moving average event duration by minute
+     * @throws RuntimeException When no events have been received
+     */
+    public List<MetricResponse> getMetrics() {
+        if (summaries.isEmpty()) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(windowSizes, percentiles, metrics::add);
+        summaries.forEach((minute, summary) -> engine.add(minute, summary[0], summary[1], sketches.get(minute)));
+        engine.flush();
+        return metrics;
+    }
+
+    /**
+     * Calculate the moving average event duration by minute from the events received so far, grouped by window size
+     * @return Map<Integer, List<MetricResponse>> The moving average event duration by minute from each window size,
+     * on the same order as the requested window sizes
+     * @throws RuntimeException When no events have been received
+     */
+    public Map<Integer, List<MetricResponse>> getMetricsByWindowSize() {
+        Map<Integer, List<MetricResponse>> metrics = new LinkedHashMap<>();
+        windowSizes.forEach(windowSize -> metrics.put(windowSize, new ArrayList<>()));
+        getMetrics().forEach(metric -> metrics.get(Objects.isNull(metric.getWindowSize()) ? windowSizes.get(0) : metric.getWindowSize()).add(metric));
+        return metrics;
+    }
+}
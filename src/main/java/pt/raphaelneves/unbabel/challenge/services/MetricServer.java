@@ -0,0 +1,202 @@
+/**
+ * This class exposes the aggregates from a {@link MetricStore} through the HTTP server embedded in the JDK, so the
+ * moving average is answered from memory, in milliseconds, without starting the application for each query.
+ * The requests are handled by a fixed pool of threads, apart from the ingestion thread. The endpoints are:
+ * - GET /metrics?window=10&client=easyjet: the moving average by minute, one row per line as shown in the console.
+ *   The window is required and the client is optional.
+ * - GET /status: the amount of events received, of late events and of sealed minutes as a JSON object. When a file
+ *   is followed, also the amount of invalid lines skipped, if it's still followed and the failure that stopped it,
+ *   answered with the status 503 so the frozen metrics are noticed. When a file is read once, also if it's still
+ *   being read, the amount of invalid lines quarantined and the failure that stopped the reading.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.core.util.BufferRecyclers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+public class MetricServer implements AutoCloseable {
+
+    private static final int BACKLOG = 128;
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    private final MetricStore store;
+    private final FileFollower follower;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * If the file is read once while answering, with the quarantine receiving its invalid lines and the failure that
+     * stopped reading it
+     */
+    private volatile boolean loading;
+    private volatile boolean readOnce;
+    private volatile LineQuarantine quarantine;
+    private volatile String loadFailure;
+
+    /**
+     * @param store The store answering the queries
+     * @param port The port to listen on, or zero to pick a free one
+     * @param threads The amount of threads handling the requests
+     * @throws RuntimeException When the port is not available or the amount of threads is not a positive number
+     */
+    public MetricServer(MetricStore store, int port, int threads) {
+        this(store, null, port, threads);
+    }
+
+    /**
+     * @param store The store answering the queries
+     * @param follower The follower feeding the store, reported on the status, or null when the file is read once
+     * @param port The port to listen on, or zero to pick a free one
+     * @param threads The amount of threads handling the requests
+     * @throws RuntimeException When the port is not available or the amount of threads is not a positive number
+     */
+    public MetricServer(MetricStore store, FileFollower follower, int port, int threads) {
+        if (Objects.isNull(store) || threads < 1) {
+            throw new RuntimeException("Invalid settings to start the server.");
+        }
+        this.store = store;
+        this.follower = follower;
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to listen on port " + port);
+        }
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/status", this::handleStatus);
+    }
+
+    /**
+     * Start answering the requests on the background threads
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Report on the status that the file is being read once into the store
+     * @param quarantine The quarantine receiving the invalid lines, or null when the reading stops on the first one
+     */
+    public void startLoading(LineQuarantine quarantine) {
+        this.quarantine = quarantine;
+        this.readOnce = true;
+        this.loading = true;
+    }
+
+    /**
+     * Report on the status that the file has been read and the store flushed
+     */
+    public void finishLoading() {
+        loading = false;
+    }
+
+    /**
+     * Report on the status the failure that stopped reading the file, answered with the status 503
+     * @param failure The failure description
+     */
+    public void failLoading(String failure) {
+        loadFailure = failure;
+        loading = false;
+    }
+
+    /**
+     * @return int The port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stop answering the requests, closing the open connections
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, TEXT_CONTENT_TYPE, "Only GET is supported\n");
+            return;
+        }
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        int windowSize;
+        try {
+            windowSize = Integer.parseInt(parameters.get("window"));
+        } catch (NumberFormatException e) {
+            windowSize = -1;
+        }
+        if (windowSize < 0) {
+            send(exchange, 400, TEXT_CONTENT_TYPE, "The window parameter must be a non-negative number of minutes\n");
+            return;
+        }
+        List<MetricResponse> metrics = store.query(windowSize, parameters.get("client"));
+        StringBuilder body = new StringBuilder();
+        metrics.forEach(metric -> body.append(metric).append('\n'));
+        send(exchange, 200, TEXT_CONTENT_TYPE, body.toString());
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        StringBuilder body = new StringBuilder(String.format("{\"events\": %d, \"late_events\": %d, \"sealed_minutes\": %d",
+                store.getEvents(), store.getLateEvents(), store.getSealedMinutes()));
+        String failure = Objects.isNull(follower) ? loadFailure : follower.getFailure();
+        if (Objects.nonNull(follower)) {
+            body.append(String.format(", \"rejected_lines\": %d, \"following\": %b", follower.getRejectedLines(), follower.isRunning()));
+        } else if (readOnce) {
+            if (Objects.nonNull(quarantine)) {
+                body.append(String.format(", \"rejected_lines\": %d", quarantine.getRejectedLines()));
+            }
+            body.append(String.format(", \"loading\": %b", loading));
+        }
+        if (Objects.nonNull(failure)) {
+            body.append(", \"failure\": \"");
+            BufferRecyclers.quoteAsJsonText(failure, body);
+            body.append('"');
+        }
+        send(exchange, Objects.isNull(failure) ? 200 : 503, JSON_CONTENT_TYPE, body.append("}\n").toString());
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (Objects.isNull(query) || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
@@ -5,34 +5,407 @@
 
 package pt.raphaelneves.unbabel.challenge.services;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.EventBatch;
+import pt.raphaelneves.unbabel.challenge.models.LatePolicy;
 import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.MinuteRollup;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
 import pt.raphaelneves.unbabel.challenge.models.Translation;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
 
 public class MetricService {
 
+    private static final long MINUTES_PER_DAY = 1_440L;
+
+    /**
+     * The metrics measuring each stage, which measure nothing unless they're received on the constructor
+     */
+    private final PipelineMetrics metrics;
+
     /**
-     * Calculate the average translation duration based on a window size interval
+     * The quarantine receiving the invalid lines from the files read here, or null to stop reading on the first one
+     */
+    private final LineQuarantine quarantine;
+
+    public MetricService() {
+        this(PipelineMetrics.DISABLED);
+    }
+
+    public MetricService(PipelineMetrics metrics) {
+        this(metrics, null);
+    }
+
+    public MetricService(PipelineMetrics metrics, LineQuarantine quarantine) {
+        this.metrics = metrics;
+        this.quarantine = quarantine;
+    }
+
+    /**
+     * Calculate the moving average translation duration, minute by minute, based on a window size interval.
+     * The events are summarized by minute in a single pass and then sent to a {@link MovingAverageEngine}, so no
+     * sorting is needed. The result goes from the oldest event minute until the minute after the newest event,
+     * including the minutes without events.
      * @param translations A list of translations coming from the processed file
      * @param windowSize The window size to define the extraction interval
+     * @return List<MetricResponse> A collection containing the moving average event duration by minute, oldest first
      */
     public List<MetricResponse> calculateAverageEventDuration(List<Translation> translations, Integer windowSize) {
-        if(translations.isEmpty() || Objects.isNull(translations) || Objects.isNull(windowSize) || windowSize < 0) {
+        if(Objects.isNull(translations) || translations.isEmpty() || Objects.isNull(windowSize) || windowSize < 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        MetricAccumulator accumulator = createAccumulator(windowSize);
+        translations.forEach(accumulator::accept);
+        return accumulator.getMetrics();
+    }
+
+    /**
+     * Calculate the moving average translation duration, minute by minute, for multiple window sizes in a single pass.
+     * All window sizes share the same minute summaries.
+     * @param translations A list of translations coming from the processed file
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @return Map<Integer, List<MetricResponse>> The moving average event duration by minute from each window size,
+     * on the same order as the requested window sizes
+     */
+    public Map<Integer, List<MetricResponse>> calculateAverageEventDurationForWindows(List<Translation> translations, List<Integer> windowSizes) {
+        if(Objects.isNull(translations) || translations.isEmpty()) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        MetricAccumulator accumulator = createAccumulatorForWindows(windowSizes);
+        translations.forEach(accumulator::accept);
+        return accumulator.getMetricsByWindowSize();
+    }
+
+    /**
+     * Calculate the moving average translation duration, minute by minute, from a columnar batch of events.
+     * The result is the same one produced by {@link #calculateAverageEventDuration(List, Integer)}, but the events
+     * are read straight from the batch primitive columns.
+     * @param batch The batch containing the events from the processed file
+     * @param windowSize The window size to define the extraction interval
+     * @return List<MetricResponse> A collection containing the moving average event duration by minute, oldest first
+     */
+    public List<MetricResponse> calculateAverageEventDurationFromBatch(EventBatch batch, Integer windowSize) {
+        if(Objects.isNull(batch) || batch.size() == 0 || Objects.isNull(windowSize) || windowSize < 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        MetricAccumulator accumulator = createAccumulator(windowSize);
+        for (int i = 0; i < batch.size(); i++) {
+            accumulator.add(batch.getTimestamp(i), batch.getDuration(i));
+        }
+        return accumulator.getMetrics();
+    }
+
+    /**
+     * Calculate the average translation duration broken down by the requested dimensions, such as client name and
+     * language pair, from the events within the window size interval before the minute after the newest event.
+     * The rows cover the same interval as the last row from {@link #calculateAverageEventDurationFromBatch(EventBatch, Integer)}.
+     * @param batch The batch containing the events from the processed file
+     * @param windowSize The window size to define the extraction interval
+     * @param dimensions The dimensions used to group the events
+     * @return List<MetricResponse> A collection containing the average event duration from each dimension combination,
+     * sorted by the dimension values
+     * @throws RuntimeException When the batch is empty, the window size is negative or no dimension is defined
+     */
+    public List<MetricResponse> calculateAverageEventDurationByDimensions(EventBatch batch, Integer windowSize, Set<Dimension> dimensions) {
+        if(Objects.isNull(batch) || batch.size() == 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        DimensionAccumulator accumulator = createDimensionAccumulator(windowSize, dimensions, batch.getDictionaries());
+        Set<Dimension> groupedDimensions = EnumSet.copyOf(dimensions);
+        int[] ids = new int[Dimension.values().length];
+        for (int i = 0; i < batch.size(); i++) {
+            int languagePairId = batch.getLanguagePairId(i);
+            boolean undefinedPair = languagePairId == TranslationEvent.UNDEFINED;
+            ids[Dimension.CLIENT_NAME.ordinal()] = batch.getClientId(i);
+            ids[Dimension.SOURCE_LANGUAGE.ordinal()] = undefinedPair ? TranslationEvent.UNDEFINED : batch.getSourceLanguageId(languagePairId);
+            ids[Dimension.TARGET_LANGUAGE.ordinal()] = undefinedPair ? TranslationEvent.UNDEFINED : batch.getTargetLanguageId(languagePairId);
+            ids[Dimension.EVENT_NAME.ordinal()] = batch.getEventNameId(i);
+            accumulator.add(batch.getTimestamp(i), batch.getDuration(i), DimensionKey.pack(groupedDimensions, ids));
+        }
+        return accumulator.getMetrics();
+    }
+
+    /**
+     * Calculate the moving average translation duration, minute by minute, reading the minutes already stored on a
+     * {@link RollupStore} from their rollups and only the lines after the position where the previous run stopped.
+     * The minutes read from the file, except the newest one, which may still receive events, are appended to the
+     * store for the next run, which starts reading from the first line of that newest minute. The lines read again
+     * from minutes stored meanwhile are skipped, as well as the events appended later to a minute already stored.
+     * The result is the same one produced by {@link MetricAccumulator#getMetrics()} over the whole file.
+     * @param store The store keeping the rollups from the previous runs
+     * @param file The file containing the translation events
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param percentiles If the duration percentiles must be calculated as well
+     * @param deduplicator The deduplicator dropping the repeated events from the file, or null to keep all of them
+     * @return List<MetricResponse> A collection containing the moving average event duration by minute, oldest first
+     * @throws RuntimeException When no window size is valid, there are no events, or the percentiles are requested
+     * from a store kept without sketches
+     */
+    public List<MetricResponse> calculateAverageEventDurationFromRollups(RollupStore store, File file, List<Integer> windowSizes,
+                                                                         boolean percentiles, EventDeduplicator deduplicator) {
+        if (Objects.isNull(store) || (percentiles && store.getSegments() > 0 && !store.hasSketches())) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        MetricAccumulator accumulator = createAccumulatorForWindows(windowSizes, percentiles);
+        store.forEachMinute(Long.MIN_VALUE, Long.MAX_VALUE, Collections.emptyMap(), new MinuteRollup(percentiles),
+                (epochMinute, rollup) -> accumulator.addMinute(epochMinute, rollup.getCount(), rollup.getSum(), rollup.getSketch()));
+
+        EventDecoder decoder = new EventDecoder(EnumSet.allOf(Dimension.class));
+        RollupSegmentWriter writer = new RollupSegmentWriter(decoder.getDictionaries(), percentiles);
+        long lastStoredMinute = store.getLastMinute();
+        Map<Long, Long> firstPositions = new HashMap<>();
+        long[] linePosition = new long[1];
+        Consumer<TranslationEvent> consumer = event -> {
+            long minute = TimestampParser.toEpochMinute(event.getTimestamp());
+            if (minute > lastStoredMinute) {
+                firstPositions.putIfAbsent(minute, linePosition[0]);
+                accumulator.accept(event);
+                writer.accept(event);
+            }
+        };
+        Consumer<TranslationEvent> filtered = Objects.isNull(deduplicator) ? consumer : deduplicator.filter(consumer);
+        try (FileChannel channel = FileChannel.open(Paths.get(file.getAbsolutePath()), StandardOpenOption.READ)) {
+            if (GzipMemberDecoder.isGzip(channel)) {
+                throw new RuntimeException("Unable to keep rollups while reading a gzip file");
+            }
+            if (!store.matches(channel)) {
+                throw new RuntimeException("The rollup folder has been built from another file than " + file);
+            }
+            long start = store.getPosition();
+            new FileProcessor(metrics, quarantine).streamChannelEvents(channel, start, decoder, (event, position) -> {
+                linePosition[0] = position;
+                filtered.accept(event);
+            });
+            long newestMinute = writer.getNewestMinute();
+            long nextPosition = firstPositions.isEmpty() ? channel.size() : firstPositions.get(newestMinute);
+            store.append(writer, newestMinute, channel, nextPosition);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while reading file lines.");
+        }
+        return calculateMovingAverage(accumulator);
+    }
+
+    /**
+     * Calculate the average translation duration of each minute within the window size interval
+     * from the newest event, with the newest minute on top
+     * @param translations A list of translations coming from the processed file
+     * @param windowSize The window size to define the extraction interval
+     * @return List<MetricResponse> A collection containing the average event duration by minute
+     */
+    public List<MetricResponse> calculateAverageEventDurationPerMinute(List<Translation> translations, Integer windowSize) {
+        if(Objects.isNull(translations) || translations.isEmpty() || Objects.isNull(windowSize) || windowSize < 0) {
             throw new RuntimeException("Unable to extract metrics based on the received data.");
         }
+        PipelineMetrics.Stage stage = metrics.start("sort");
         orderTranslationEventsByTimestamp(translations);
+        stage.stop(translations.size(), 0);
+
+        stage = metrics.start("window_filter");
         List<Translation> dataSet = extractEventsWithinWindowSize(translations, windowSize);
-        Map<String, List<Long>> group = groupEventsByTimestampAsIndexAndDurationAsValue(dataSet);
-        return calculateAverage(group);
+        stage.stop(translations.size(), 0);
+
+        stage = metrics.start("group");
+        Map<Long, List<Long>> group = groupEventsByTimestampAsIndexAndDurationAsValue(dataSet);
+        stage.stop(dataSet.size(), 0);
+
+        stage = metrics.start("average");
+        List<MetricResponse> averages = calculateAverage(group);
+        stage.stop(dataSet.size(), 0);
+        return averages;
+    }
+
+    /**
+     * Calculate the moving average event duration by minute from the events received by the accumulator, measured as
+     * the moving_average stage
+     * @param accumulator The accumulator that has received the translation events
+     * @return List<MetricResponse> A collection containing the moving average event duration by minute, oldest first
+     * @throws RuntimeException When no events have been received
+     */
+    public List<MetricResponse> calculateMovingAverage(MetricAccumulator accumulator) {
+        PipelineMetrics.Stage stage = metrics.start("moving_average");
+        List<MetricResponse> movingAverages = accumulator.getMetrics();
+        stage.stop(movingAverages.size(), 0);
+        return movingAverages;
+    }
+
+    /**
+     * Create a {@link MetricAccumulator} to calculate the moving average translation duration while the events are
+     * being read, without loading all of them into memory
+     * @param windowSize The window size to define the extraction interval
+     * @return MetricAccumulator The accumulator that will receive the translation events
+     * @throws RuntimeException When the window size is not defined or is a negative number
+     */
+    public MetricAccumulator createAccumulator(Integer windowSize) {
+        if(Objects.isNull(windowSize) || windowSize < 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        return new MetricAccumulator(windowSize);
+    }
+
+    /**
+     * Create a {@link MetricAccumulator} to calculate the moving average translation duration for multiple window sizes
+     * while the events are being read. Repeated window sizes are considered only once.
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @return MetricAccumulator The accumulator that will receive the translation events
+     * @throws RuntimeException When no window size is defined or any of them is a negative number
+     */
+    public MetricAccumulator createAccumulatorForWindows(List<Integer> windowSizes) {
+        return createAccumulatorForWindows(windowSizes, false);
+    }
+
+    /**
+     * Create a {@link MetricAccumulator} to calculate the moving average translation duration for multiple window sizes,
+     * optionally together with the p50, p90 and p99 durations from each window
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param percentiles If the duration percentiles must be calculated as well
+     * @return MetricAccumulator The accumulator that will receive the translation events
+     * @throws RuntimeException When no window size is defined or any of them is a negative number
+     */
+    public MetricAccumulator createAccumulatorForWindows(List<Integer> windowSizes, boolean percentiles) {
+        return new MetricAccumulator(validateWindowSizes(windowSizes), percentiles);
+    }
+
+    /**
+     * Create a {@link DimensionAccumulator} to calculate the average translation duration by dimension while the events
+     * are being decoded. The events must be decoded with the received dictionaries.
+     * @param windowSize The window size to define the extraction interval
+     * @param dimensions The dimensions used to group the events
+     * @param dictionaries The dictionaries used to encode the dimension values
+     * @return DimensionAccumulator The accumulator that will receive the translation events
+     * @throws RuntimeException When the window size is not defined, is a negative number or no dimension is defined
+     */
+    public DimensionAccumulator createDimensionAccumulator(Integer windowSize, Set<Dimension> dimensions, Map<Dimension, Dictionary> dictionaries) {
+        if(Objects.isNull(windowSize) || windowSize < 0 || Objects.isNull(dimensions) || dimensions.isEmpty()) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        return new DimensionAccumulator(windowSize, dimensions, dictionaries);
+    }
+
+    /**
+     * Create a {@link TopKAccumulator} to find the slowest clients or language pairs from each window while the
+     * events are being decoded, such as in the same pass as a {@link MetricAccumulator}. The events must be decoded
+     * with the received dictionaries. Repeated window sizes are considered only once.
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param dimensions The dimensions identifying each key, such as the client name or the language pair
+     * @param dictionaries The dictionaries used to encode the dimension values
+     * @param k The amount of rows reported by window
+     * @param capacity The amount of keys tracked by each minute, at least k. The bigger it is, the smaller the errors.
+     * @return TopKAccumulator The accumulator that will receive the translation events
+     * @throws RuntimeException When no window size is defined, any of them is a negative number, no dimension is
+     * defined, k is not a positive number or the capacity is smaller than k
+     */
+    public TopKAccumulator createTopKAccumulator(List<Integer> windowSizes, Set<Dimension> dimensions, Map<Dimension, Dictionary> dictionaries,
+                                                 int k, int capacity) {
+        if(Objects.isNull(dimensions) || dimensions.isEmpty() || k < 1 || capacity < k) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        return new TopKAccumulator(validateWindowSizes(windowSizes), dimensions, dictionaries, k, capacity);
+    }
+
+    /**
+     * Create a {@link MovingAverageEngine} that emits each minute as soon as it closes, to be used when the events
+     * arrive in time order, such as when following a growing file
+     * @param windowSize The window size to define the extraction interval
+     * @param sink The consumer that will receive each emitted minute
+     * @return MovingAverageEngine The engine that will receive the translation events
+     * @throws RuntimeException When the window size is not defined or is a negative number
+     */
+    public MovingAverageEngine createEngine(Integer windowSize, Consumer<MetricResponse> sink) {
+        if(Objects.isNull(windowSize) || windowSize < 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        return new MovingAverageEngine(windowSize, sink);
+    }
+
+    /**
+     * Create a {@link MovingAverageEngine} for multiple window sizes that emits each minute as soon as it closes,
+     * with one row per window size. Repeated window sizes are considered only once.
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param sink The consumer that will receive each emitted minute
+     * @return MovingAverageEngine The engine that will receive the translation events
+     * @throws RuntimeException When no window size is defined or any of them is a negative number
+     */
+    public MovingAverageEngine createEngineForWindows(List<Integer> windowSizes, Consumer<MetricResponse> sink) {
+        return createEngineForWindows(windowSizes, false, sink);
+    }
+
+    /**
+     * Create a {@link MovingAverageEngine} for multiple window sizes that emits each minute as soon as it closes,
+     * optionally together with the p50, p90 and p99 durations from each window
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param percentiles If the duration percentiles must be calculated as well
+     * @param sink The consumer that will receive each emitted minute
+     * @return MovingAverageEngine The engine that will receive the translation events
+     * @throws RuntimeException When no window size is defined or any of them is a negative number
+     */
+    public MovingAverageEngine createEngineForWindows(List<Integer> windowSizes, boolean percentiles, Consumer<MetricResponse> sink) {
+        return new MovingAverageEngine(validateWindowSizes(windowSizes), percentiles, sink);
+    }
+
+    /**
+     * Create an {@link EventTimeProcessor} for multiple window sizes, which reorders the events by their timestamp
+     * within the allowed lateness before emitting each minute
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param percentiles If the duration percentiles must be calculated as well
+     * @param allowedLatenessSeconds How long after the newest event an older event is still considered as on time
+     * @param latePolicy What must be done with the events arriving after their minute has been emitted
+     * @param sink The consumer that will receive each emitted minute
+     * @return EventTimeProcessor The processor that will receive the translation events
+     * @throws RuntimeException When no window size is defined, any of them or the allowed lateness is a negative number
+     */
+    public EventTimeProcessor createEventTimeProcessor(List<Integer> windowSizes, boolean percentiles, long allowedLatenessSeconds,
+                                                       LatePolicy latePolicy, Consumer<MetricResponse> sink) {
+        return new EventTimeProcessor(createEngineForWindows(windowSizes, percentiles, sink), allowedLatenessSeconds, latePolicy);
+    }
+
+    /**
+     * Create an {@link EventDeduplicator} that keeps the translation identifiers from the biggest window exactly, and
+     * the older ones in daily Bloom filters
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @param expectedIdsPerDay The amount of translation identifiers expected per day, used to size the filters
+     * @param falsePositiveRate The probability of dropping a valid event once its identifier left the biggest window
+     * @return EventDeduplicator The deduplicator that will receive the translation events
+     * @throws RuntimeException When no window size is defined, any of them is a negative number or the filter settings are invalid
+     */
+    public EventDeduplicator createDeduplicator(List<Integer> windowSizes, long expectedIdsPerDay, double falsePositiveRate) {
+        int exactMinutes = Math.max(1, validateWindowSizes(windowSizes).stream().mapToInt(Integer::intValue).max().getAsInt());
+        return new EventDeduplicator(exactMinutes, MINUTES_PER_DAY, expectedIdsPerDay, falsePositiveRate);
+    }
+
+    /**
+     * Validate the requested window sizes, removing the repeated ones
+     * @param windowSizes The window sizes to define the extraction intervals
+     * @return List<Integer> The distinct window sizes, on the same order as requested
+     * @throws RuntimeException When no window size is defined or any of them is a negative number
+     */
+    List<Integer> validateWindowSizes(List<Integer> windowSizes) {
+        if(Objects.isNull(windowSizes) || windowSizes.isEmpty() || windowSizes.stream().anyMatch(windowSize -> Objects.isNull(windowSize) || windowSize < 0)) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        return new ArrayList<>(new LinkedHashSet<>(windowSizes));
     }
 
     /**
@@ -80,16 +453,17 @@ public class MetricService {
     }
 
     /**
-     * Receive all duration from the extracted events grouped by timestamp and calculate the event average duration
-     * @param group The map containing the translation events duration grouped by timestamp
+     * Receive all duration from the extracted events grouped by epoch minute and calculate the event average duration.
+     * The epoch minute is rendered as timestamp only here, when the metric is created.
+     * @param group The map containing the translation events duration grouped by epoch minute
      * @return List<MetricResponse> A collection containing the average event duration by time
      */
-    List<MetricResponse> calculateAverage(final Map<String, List<Long>> group) {
+    List<MetricResponse> calculateAverage(final Map<Long, List<Long>> group) {
         List<MetricResponse> metrics = new ArrayList<>();
         group.forEach((k, v) -> {
             OptionalDouble average = v.stream().mapToLong(a -> a).average();
             MetricResponse response = MetricResponse.builder()
-                                                    .timestamp(k)
+                                                    .timestamp(TimestampParser.formatEpochMinute(k))
                                                     .averageDeliveryTime(average.orElse(0))
                                                     .build();
             metrics.add(response);
@@ -98,15 +472,16 @@ public class MetricService {
     }
 
     /**
-     * Create a map with the translation events timestamp as bucket index and group all
-     * the translation event duration value from each translation object within the window size interval
+     * Create a map with the translation events epoch minute as bucket index and group all
+     * the translation event duration value from each translation object within the window size interval.
+     * The buckets keep the order from the translation list, so the newest timestamp stays on top.
      * @param translations The list containing translation objects within the window size
-     * @return Map<String, List<Long>> The map containing the translation event duration grouped by timestamp
+     * @return Map<Long, List<Long>> The map containing the translation event duration grouped by epoch minute
      */
-    Map<String, List<Long>> groupEventsByTimestampAsIndexAndDurationAsValue(final List<Translation> translations) {
-        Map<String, List<Long>> indexes = new HashMap<>();
+    Map<Long, List<Long>> groupEventsByTimestampAsIndexAndDurationAsValue(final List<Translation> translations) {
+        Map<Long, List<Long>> indexes = new LinkedHashMap<>();
         translations.forEach(translation -> {
-            String key = convertTimestampAsIndex(translation.getTimestamp());
+            Long key = convertTimestampAsIndex(translation.getTimestamp());
             List<Long> dataList = indexes.get(key);
             if (Objects.isNull(dataList)) {
                 dataList = new ArrayList<>();
@@ -118,14 +493,12 @@ public class MetricService {
     }
 
     /**
-     * Convert a translation timestamp as a string key to be used as bucket indetifier in a hash table
-     * The key format is defined as "yyyy-MM-dd HH:ss:00".
-     * E.g.: 2019-09-09 10:10:00
+     * Convert a translation timestamp as an epoch minute key to be used as bucket identifier in a hash table
+     * E.g.: 2019-09-09 10:10:35 is converted into 26133730, rendered as 2019-09-09 10:10:00
      * @param timestamp The LocalDateTime to be converted as index
-     * @return String The timestamp as String on format "yyyy-MM-dd HH:ss:00"
+     * @return long The timestamp as epoch minute (UTC)
      */
-    String convertTimestampAsIndex(final LocalDateTime timestamp) {
-        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:00");
-        return dateTimeFormatter.format(timestamp);
+    long convertTimestampAsIndex(final LocalDateTime timestamp) {
+        return TimestampParser.toEpochMinute(timestamp.toEpochSecond(ZoneOffset.UTC));
     }
 }
@@ -0,0 +1,233 @@
+/**
+ * This class keeps the per-minute aggregates from the translation events in memory, so the moving average can be
+ * queried many times, by any window size and client, without reading the events again.
+ * A single ingestion thread adds the events into the open minutes, which are only visible to it. Once the watermark,
+ * the newest event timestamp minus the allowed lateness, passes a minute it is sealed: its aggregate is published into
+ * a concurrent sorted map and never changed again. Late events replace the sealed aggregate by an updated copy, so the
+ * query threads read the sealed minutes without any lock and never block the ingestion.
+ * Each aggregate keeps the events amount and duration sum from all clients and from each client, by their
+ * {@link Dictionary} identifier. The oldest sealed minutes are dropped beyond the retention, when it is defined.
+ * This class is thread-safe as long as a single thread calls {@link #accept(TranslationEvent)} and {@link #flush()}.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.RollupTable;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class MetricStore {
+
+    /**
+     * The dictionary used by the ingestion decoder to encode the client names
+     */
+    private final Dictionary clientNames;
+    private final long allowedLatenessSeconds;
+    private final long retentionMinutes;
+
+    /**
+     * The aggregates from the minutes still receiving events, only seen by the ingestion thread
+     */
+    private final TreeMap<Long, MinuteAggregate> openMinutes = new TreeMap<>();
+
+    /**
+     * The sealed aggregates by epoch minute, read by the query threads
+     */
+    private final ConcurrentSkipListMap<Long, MinuteAggregate> sealedMinutes = new ConcurrentSkipListMap<>();
+
+    /**
+     * The client identifiers by name, published for the query threads when the minutes are sealed
+     */
+    private final Map<String, Integer> clientIds = new ConcurrentHashMap<>();
+    private int publishedClients;
+
+    /**
+     * The newest event timestamp as epoch second, and the epoch minute containing the watermark
+     */
+    private long maxEventSecond = Long.MIN_VALUE;
+    private long watermarkMinute = Long.MIN_VALUE;
+
+    /**
+     * The amount of events received and the amount of them that have arrived after their minute has been sealed
+     */
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong lateEvents = new AtomicLong();
+
+    /**
+     * @param clientNames The dictionary used by the ingestion decoder to encode the client names
+     * @param allowedLatenessSeconds How long after the newest event a minute is kept open for older events
+     * @param retentionMinutes How many sealed minutes are kept, counting back from the newest one, or zero to keep all of them
+     * @throws RuntimeException When the dictionary is not defined or any amount is a negative number
+     */
+    public MetricStore(Dictionary clientNames, long allowedLatenessSeconds, long retentionMinutes) {
+        if (Objects.isNull(clientNames) || allowedLatenessSeconds < 0 || retentionMinutes < 0) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        this.clientNames = clientNames;
+        this.allowedLatenessSeconds = allowedLatenessSeconds;
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    /**
+     * Add a decoded translation event, sealing the minutes passed by the watermark when it is the newest one.
+     * Must be called by the ingestion thread only.
+     * @param event The translation event decoded with the client name dimension, which is not kept
+     */
+    public void accept(TranslationEvent event) {
+        events.incrementAndGet();
+        long epochMinute = TimestampParser.toEpochMinute(event.getTimestamp());
+        int clientId = event.getDimensionId(Dimension.CLIENT_NAME);
+        if (epochMinute < watermarkMinute) {
+            lateEvents.incrementAndGet();
+            if (retentionMinutes > 0 && !sealedMinutes.isEmpty() && epochMinute <= sealedMinutes.lastKey() - retentionMinutes) {
+                return;
+            }
+            MinuteAggregate sealed = sealedMinutes.get(epochMinute);
+            MinuteAggregate updated = Objects.isNull(sealed) ? new MinuteAggregate() : sealed.copy();
+            updated.add(clientId, event.getDuration());
+            publishClients();
+            sealedMinutes.put(epochMinute, updated);
+            return;
+        }
+        openMinutes.computeIfAbsent(epochMinute, minute -> new MinuteAggregate()).add(clientId, event.getDuration());
+        if (event.getTimestamp() > maxEventSecond) {
+            maxEventSecond = event.getTimestamp();
+            long newWatermarkMinute = TimestampParser.toEpochMinute(maxEventSecond - allowedLatenessSeconds);
+            if (newWatermarkMinute > watermarkMinute) {
+                watermarkMinute = newWatermarkMinute;
+                sealMinutesBefore(newWatermarkMinute);
+            }
+        }
+    }
+
+    /**
+     * Seal all open minutes, such as when the whole file has been read. Must be called by the ingestion thread only.
+     */
+    public void flush() {
+        sealMinutesBefore(Long.MAX_VALUE);
+    }
+
+    /**
+     * Calculate the moving average from the sealed minutes, from the oldest one with events until the minute after
+     * the newest sealed one, including the minutes without events
+     * @param windowSize The window size in minutes
+     * @param clientName The client whose events must be considered, or null to consider all of them
+     * @return List<MetricResponse> The moving average by minute, oldest first, or an empty list when there is no
+     * sealed event from the client
+     * @throws RuntimeException When the window size is a negative number
+     */
+    public List<MetricResponse> query(int windowSize, String clientName) {
+        List<MetricResponse> metrics = new ArrayList<>();
+        Integer clientId = Objects.isNull(clientName) ? null : clientIds.get(clientName);
+        if (Objects.nonNull(clientName) && Objects.isNull(clientId)) {
+            return metrics;
+        }
+        MovingAverageEngine engine = new MovingAverageEngine(windowSize, metric -> {
+            metric.setClientName(clientName);
+            metrics.add(metric);
+        });
+        Long firstMinute = null;
+        long newestMinute = Long.MIN_VALUE;
+        for (Map.Entry<Long, MinuteAggregate> entry : sealedMinutes.entrySet()) {
+            newestMinute = entry.getKey();
+            MinuteAggregate aggregate = entry.getValue();
+            long count = Objects.isNull(clientId) ? aggregate.count : aggregate.clients.getCount(clientId);
+            if (count > 0) {
+                long sum = Objects.isNull(clientId) ? aggregate.sum : aggregate.clients.getSum(clientId);
+                engine.add(entry.getKey(), count, sum);
+                firstMinute = Objects.isNull(firstMinute) ? entry.getKey() : firstMinute;
+            }
+        }
+        if (Objects.isNull(firstMinute)) {
+            return metrics;
+        }
+        engine.advanceTo(newestMinute);
+        engine.flush();
+        return metrics;
+    }
+
+    /**
+     * @return long The amount of events received
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * @return long The amount of events that have arrived after their minute has been sealed
+     */
+    public long getLateEvents() {
+        return lateEvents.get();
+    }
+
+    /**
+     * @return int The amount of sealed minutes
+     */
+    public int getSealedMinutes() {
+        return sealedMinutes.size();
+    }
+
+    private void sealMinutesBefore(long epochMinute) {
+        Iterator<Map.Entry<Long, MinuteAggregate>> iterator = openMinutes.headMap(epochMinute).entrySet().iterator();
+        if (!iterator.hasNext()) {
+            return;
+        }
+        publishClients();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, MinuteAggregate> entry = iterator.next();
+            sealedMinutes.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        if (retentionMinutes > 0) {
+            sealedMinutes.headMap(sealedMinutes.lastKey() - retentionMinutes + 1).clear();
+        }
+    }
+
+    /**
+     * Publish the client names registered since the last call, before the minutes using them are sealed
+     */
+    private void publishClients() {
+        for (; publishedClients < clientNames.size(); publishedClients++) {
+            clientIds.put(clientNames.getValue(publishedClients), publishedClients);
+        }
+    }
+
+    /**
+     * The events amount and duration sum from a minute, in total and by client identifier.
+     * It's only changed while open, by the ingestion thread.
+     */
+    private static class MinuteAggregate {
+
+        private long count;
+        private long sum;
+        private final RollupTable clients = new RollupTable();
+
+        private void add(int clientId, long duration) {
+            count++;
+            sum += duration;
+            clients.add(clientId, 1, duration);
+        }
+
+        private MinuteAggregate copy() {
+            MinuteAggregate copy = new MinuteAggregate();
+            copy.count = count;
+            copy.sum = sum;
+            copy.clients.addAll(clients);
+            return copy;
+        }
+    }
+}
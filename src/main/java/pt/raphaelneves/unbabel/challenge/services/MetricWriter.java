@@ -0,0 +1,261 @@
+/**
+ * This class is used to export the extracted metrics to a file. All metrics are streamed through a single buffered
+ * channel into a temporary file on the same folder, which is renamed to the requested path only when everything has
+ * been written, so the exported file is never seen partially written and an existing one is replaced atomically.
+ * The binary format is a 4 bytes "UBMR" magic number followed by a 2 bytes version, and then one record per metric:
+ * - The timestamp as epoch second (8 bytes)
+ * - The window size, or -1 when undefined (4 bytes)
+ * - The flags, where the first bit tells if the record has percentiles and the second one if it is a correction (1 byte)
+ * - The client name, source language, target language and event name, each one as its UTF-8 length (2 bytes, -1 when
+ * undefined) followed by its UTF-8 bytes
+ * - The average delivery time (8 bytes), followed by the p50, p90 and p99 delivery times (8 bytes each) when present
+ * All numbers are big-endian, so the records can be read with a {@link java.io.DataInputStream}.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.OutputFormat;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+
+public class MetricWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BINARY_MAGIC = 0x55424D52;
+    private static final short BINARY_VERSION = 1;
+    private static final byte HAS_PERCENTILES = 1;
+    private static final byte IS_CORRECTION = 2;
+    private static final String CSV_HEADER = "date,window_size,client_name,source_language,target_language,event_name,average_delivery_time,p50,p90,p99,corrected\n";
+
+    private final OutputFormat format;
+    private final StringBuilder line = new StringBuilder();
+    private ByteBuffer buffer;
+    private FileChannel channel;
+
+    /**
+     * @param format The format used to write the metrics
+     */
+    public MetricWriter(OutputFormat format) {
+        this.format = Objects.requireNonNull(format);
+    }
+
+    /**
+     * Write all metrics to a file, creating its folder when needed and replacing the existing file
+     * @param metrics The metrics to be written, on the same order as they must appear on the file
+     * @param pathToSaveFile The path from the file to be written
+     * @return String The full path of the written file
+     * @throws RuntimeException When something went wrong while writing the file
+     */
+    public String write(Iterable<MetricResponse> metrics, String pathToSaveFile) {
+        Path target = Paths.get(pathToSaveFile).toAbsolutePath();
+        Path temporary = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temporary = createTemporaryFile(target);
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            try (FileChannel fileChannel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel = fileChannel;
+                writeHeader();
+                for (MetricResponse metric : metrics) {
+                    writeMetric(metric);
+                }
+                flush();
+                channel.force(false);
+            }
+            moveAtomically(temporary, target);
+            return target.toString();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the response file");
+        } finally {
+            channel = null;
+            buffer = null;
+            deleteQuietly(temporary);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (format == OutputFormat.CSV) {
+            writeText(CSV_HEADER);
+        } else if (format == OutputFormat.BINARY) {
+            buffer.putInt(BINARY_MAGIC).putShort(BINARY_VERSION);
+        }
+    }
+
+    private void writeMetric(MetricResponse metric) throws IOException {
+        switch (format) {
+            case CSV:
+                writeCsv(metric);
+                break;
+            case BINARY:
+                writeBinary(metric);
+                break;
+            default:
+                writeText(metric.toString() + "\n");
+        }
+    }
+
+    private void writeCsv(MetricResponse metric) throws IOException {
+        line.setLength(0);
+        appendCsv(metric.getTimestamp()).append(',');
+        appendCsv(metric.getWindowSize()).append(',');
+        appendCsv(metric.getClientName()).append(',');
+        appendCsv(metric.getSourceLanguage()).append(',');
+        appendCsv(metric.getTargetLanguage()).append(',');
+        appendCsv(metric.getEventName()).append(',');
+        appendCsv(metric.getAverageDeliveryTime()).append(',');
+        appendCsv(metric.getP50()).append(',');
+        appendCsv(metric.getP90()).append(',');
+        appendCsv(metric.getP99()).append(',');
+        appendCsv(metric.getCorrected()).append('\n');
+        writeText(line);
+    }
+
+    /**
+     * Append a CSV field, quoting it when it contains a separator, a quote or a line break
+     */
+    private StringBuilder appendCsv(Object value) {
+        if (Objects.isNull(value)) {
+            return line;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return line.append(text);
+        }
+        return line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    private void writeBinary(MetricResponse metric) throws IOException {
+        byte[][] dimensions = {
+                encode(metric.getClientName()),
+                encode(metric.getSourceLanguage()),
+                encode(metric.getTargetLanguage()),
+                encode(metric.getEventName())
+        };
+        boolean hasPercentiles = Objects.nonNull(metric.getP50());
+        int recordSize = 8 + 4 + 1 + 8 + (hasPercentiles ? 24 : 0);
+        for (byte[] dimension : dimensions) {
+            recordSize += 2 + (Objects.isNull(dimension) ? 0 : dimension.length);
+        }
+        ensureRemaining(recordSize);
+        buffer.putLong(TimestampParser.parseEpochSecond(metric.getTimestamp()));
+        buffer.putInt(Objects.isNull(metric.getWindowSize()) ? -1 : metric.getWindowSize());
+        buffer.put((byte) ((hasPercentiles ? HAS_PERCENTILES : 0) | (Boolean.TRUE.equals(metric.getCorrected()) ? IS_CORRECTION : 0)));
+        for (byte[] dimension : dimensions) {
+            if (Objects.isNull(dimension)) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) dimension.length).put(dimension);
+            }
+        }
+        buffer.putDouble(Objects.isNull(metric.getAverageDeliveryTime()) ? Double.NaN : metric.getAverageDeliveryTime());
+        if (hasPercentiles) {
+            buffer.putDouble(metric.getP50()).putDouble(metric.getP90()).putDouble(metric.getP99());
+        }
+    }
+
+    private static byte[] encode(String value) {
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new RuntimeException("Dimension value too long to be written: " + value.substring(0, 32) + "...");
+        }
+        return bytes;
+    }
+
+    private void writeText(CharSequence text) throws IOException {
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Flush the buffer when it has no room for the next record, growing it when the record is bigger than the buffer
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocate(bytes);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Create an empty temporary file on the target folder, to be moved over the target once written.
+     * Unlike {@link Files#createTempFile}, which is only readable by its owner, the file gets the permissions from the
+     * existing target, or the ones from the umask when there is no target yet, so the move keeps the file as readable
+     * as if it had been written in place.
+     * @param target The file that will be replaced by the temporary one
+     * @return Path The created temporary file
+     */
+    static Path createTemporaryFile(Path target) throws IOException {
+        Path temporary;
+        while (true) {
+            String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong());
+            try {
+                temporary = Files.createFile(target.resolveSibling("." + target.getFileName() + suffix + ".tmp"));
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // another temporary file has the same name, so a new one is drawn
+            }
+        }
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (Objects.nonNull(targetView) && Files.exists(target)) {
+            try {
+                Files.setPosixFilePermissions(temporary, targetView.readAttributes().permissions());
+            } catch (IOException e) {
+                deleteQuietly(temporary);
+                throw e;
+            }
+        }
+        return temporary;
+    }
+
+    /**
+     * Move a file replacing the target, atomically when the file system supports it
+     */
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void deleteQuietly(Path path) {
+        if (Objects.nonNull(path)) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // the temporary file is left behind, which does not affect the written file
+            }
+        }
+    }
+}
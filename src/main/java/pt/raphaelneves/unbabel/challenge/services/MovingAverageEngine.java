@@ -0,0 +1,435 @@
+/**
+ * This class is used to calculate the moving average from the translation events duration, minute by minute.
+ * The duration summary from each closed minute is kept in a ring buffer sized to the biggest window, together with the
+ * running sum and count from each window, so each minute is added and removed in constant time per window.
+ * Multiple window sizes share the same minute summaries, so all of them are calculated in a single pass.
+ * For each minute M a {@link MetricResponse} is emitted with the average duration from the events that have occurred
+ * within the window size interval before it, from M minus the window size (inclusive) until M (exclusive).
+ * Minutes without events are emitted as well, with one row per window size.
+ * Optionally a {@link LatencySketch} is kept with each minute summary and each window as well, so the rows also have
+ * the p50, p90 and p99 durations from the window, moved minute by minute with the same additions and removals.
+ * The window totals from the last emitted rows are kept as well, so events arriving after their rows have been emitted
+ * can correct them through {@link #correct(long, long, long, LatencySketch)}.
+ * E.g:
+ * Window size: 10 minutes
+ * The row from 2018-12-26 18:24:00 considers the events from 2018-12-26 18:14:00 until 2018-12-26 18:23:59
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import pt.raphaelneves.unbabel.challenge.models.LatencySketch;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+
+public class MovingAverageEngine {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The window sizes in minutes and the biggest one among them
+     */
+    private final int[] windowSizes;
+    private final int maxWindowSize;
+
+    /**
+     * If the emitted rows must identify their window size, which is needed when there are multiple ones
+     */
+    private final boolean tagWindowSize;
+
+    /**
+     * If the emitted rows must have the duration percentiles, which requires the latency sketches
+     */
+    private final boolean percentiles;
+
+    /**
+     * The consumer that receives each emitted minute
+     */
+    private final Consumer<MetricResponse> sink;
+
+    /**
+     * The ring buffer with the events amount and duration sum from the last closed minutes, oldest first.
+     * It grows on demand until the biggest window size, so small inputs don't allocate the whole window.
+     */
+    private long[] counts = new long[0];
+    private long[] sums = new long[0];
+    private LatencySketch[] sketches = new LatencySketch[0];
+    private int head;
+    private int size;
+
+    /**
+     * The events amount and duration sum from the closed minutes within each window, indexed as the window sizes
+     */
+    private final long[] windowCounts;
+    private final long[] windowSums;
+    private final LatencySketch[] windowSketches;
+
+    /**
+     * The ring buffer with the events amount and duration sum from each window on the last emitted rows, indexed by
+     * window and then by row, oldest first. It grows on demand until the biggest window size as well.
+     */
+    private long[][] rowCounts;
+    private long[][] rowSums;
+    private int rowHead;
+    private int rowSize;
+
+    /**
+     * The events amount and duration sum from the minute still receiving events
+     */
+    private long currentCount;
+    private long currentSum;
+    private LatencySketch currentSketch;
+
+    /**
+     * The sketch used to add a single event duration
+     */
+    private final LatencySketch eventSketch;
+
+    /**
+     * The epoch minute still receiving events
+     */
+    private long currentMinute;
+
+    /**
+     * If the first minute has been emitted already
+     */
+    private boolean started;
+
+    /**
+     * The amount of events older than the window size interval, which could not be considered anymore
+     */
+    private long discardedEvents;
+
+    /**
+     * @param windowSize The window size in minutes
+     * @param sink The consumer that will receive each emitted minute, oldest first
+     */
+    public MovingAverageEngine(int windowSize, Consumer<MetricResponse> sink) {
+        this(Collections.singletonList(windowSize), sink);
+    }
+
+    /**
+     * @param windowSizes The window sizes in minutes. When there is more than one, each row identifies its window size.
+     * @param sink The consumer that will receive each emitted minute, oldest first, with one row per window size
+     * on the same order as the received list
+     */
+    public MovingAverageEngine(List<Integer> windowSizes, Consumer<MetricResponse> sink) {
+        this(windowSizes, false, sink);
+    }
+
+    /**
+     * @param windowSizes The window sizes in minutes. When there is more than one, each row identifies its window size.
+     * @param percentiles If the rows must have the p50, p90 and p99 durations from each window
+     * @param sink The consumer that will receive each emitted minute, oldest first, with one row per window size
+     * on the same order as the received list
+     */
+    public MovingAverageEngine(List<Integer> windowSizes, boolean percentiles, Consumer<MetricResponse> sink) {
+        if (windowSizes.isEmpty() || windowSizes.stream().anyMatch(windowSize -> Objects.isNull(windowSize) || windowSize < 0)) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        this.windowSizes = windowSizes.stream().mapToInt(Integer::intValue).toArray();
+        this.maxWindowSize = Arrays.stream(this.windowSizes).max().getAsInt();
+        this.tagWindowSize = this.windowSizes.length > 1;
+        this.windowCounts = new long[this.windowSizes.length];
+        this.windowSums = new long[this.windowSizes.length];
+        this.rowCounts = new long[this.windowSizes.length][0];
+        this.rowSums = new long[this.windowSizes.length][0];
+        this.percentiles = percentiles;
+        this.windowSketches = new LatencySketch[percentiles ? this.windowSizes.length : 0];
+        Arrays.setAll(this.windowSketches, i -> new LatencySketch());
+        this.currentSketch = percentiles ? new LatencySketch() : null;
+        this.eventSketch = percentiles ? new LatencySketch() : null;
+        this.sink = sink;
+    }
+
+    /**
+     * Add the events summary from a minute. When the minute is newer than the current one, all the minutes before
+     * it are closed and emitted. Events from a minute older than the current one are still considered by the minutes
+     * not emitted yet, as long as they are within their window size interval. Otherwise they are discarded.
+     * @param epochMinute The events timestamp as epoch minute
+     * @param count The amount of events
+     * @param sum The events duration sum
+     */
+    public void add(long epochMinute, long count, long sum) {
+        add(epochMinute, count, sum, null);
+    }
+
+    /**
+     * Add the events summary from a minute together with their durations sketch, used to calculate the percentiles
+     * @param epochMinute The events timestamp as epoch minute
+     * @param count The amount of events
+     * @param sum The events duration sum
+     * @param sketch The events duration sketch, ignored when the percentiles have not been requested
+     */
+    public void add(long epochMinute, long count, long sum, LatencySketch sketch) {
+        boolean withSketch = percentiles && Objects.nonNull(sketch);
+        advanceTo(epochMinute);
+        if (epochMinute == currentMinute) {
+            currentCount += count;
+            currentSum += sum;
+            if (withSketch) {
+                currentSketch.merge(sketch);
+            }
+            return;
+        }
+        if (!addToClosedMinute(currentMinute - epochMinute, count, sum, withSketch ? sketch : null)) {
+            discardedEvents += count;
+        }
+    }
+
+    /**
+     * Add a single event
+     * @param epochSecond The event timestamp as epoch second
+     * @param duration The event duration
+     */
+    public void add(long epochSecond, long duration) {
+        if (percentiles) {
+            eventSketch.reset();
+            eventSketch.record(duration);
+        }
+        add(TimestampParser.toEpochMinute(epochSecond), 1, duration, eventSketch);
+    }
+
+    /**
+     * Add the events summary from a minute whose rows may have been emitted already, such as late events.
+     * Each emitted row whose window contains the minute is emitted again with the corrected average, and the minutes
+     * not emitted yet consider the events as in {@link #add(long, long, long, LatencySketch)}. Only the rows emitted
+     * within the biggest window size are kept, so older rows are not corrected. The corrected rows have no percentiles,
+     * since only the window counts and sums are kept from the emitted rows.
+     * @param epochMinute The events timestamp as epoch minute
+     * @param count The amount of events
+     * @param sum The events duration sum
+     * @param sketch The events duration sketch, ignored when the percentiles have not been requested
+     * @return int The amount of rows emitted again
+     */
+    public int correct(long epochMinute, long count, long sum, LatencySketch sketch) {
+        if (!started || epochMinute >= currentMinute) {
+            add(epochMinute, count, sum, sketch);
+            return 0;
+        }
+        int corrected = 0;
+        for (long row = Math.max(epochMinute + 1, currentMinute - rowSize + 1); row <= currentMinute; row++) {
+            int index = (rowHead + rowSize - 1 - (int) (currentMinute - row)) % rowCounts[0].length;
+            String timestamp = TimestampParser.formatEpochMinute(row);
+            for (int i = 0; i < windowSizes.length; i++) {
+                if (row - epochMinute > windowSizes[i]) {
+                    continue;
+                }
+                rowCounts[i][index] += count;
+                rowSums[i][index] += sum;
+                MetricResponse metric = createRow(timestamp, i, rowCounts[i][index], rowSums[i][index]);
+                metric.setCorrected(true);
+                sink.accept(metric);
+                corrected++;
+            }
+        }
+        boolean added = addToClosedMinute(currentMinute - epochMinute, count, sum, percentiles ? sketch : null);
+        if (!added && corrected == 0) {
+            discardedEvents += count;
+        }
+        return corrected;
+    }
+
+    /**
+     * Close and emit all minutes before the received one. The first call emits the received minute itself,
+     * which has no previous events.
+     * @param epochMinute The epoch minute that starts receiving events
+     */
+    public void advanceTo(long epochMinute) {
+        if (!started) {
+            started = true;
+            currentMinute = epochMinute;
+            emit(epochMinute);
+            return;
+        }
+        while (currentMinute < epochMinute) {
+            closeCurrentMinute();
+            emit(currentMinute);
+        }
+    }
+
+    /**
+     * Close the current minute, emitting the minute after it. No more events are expected after this call.
+     */
+    public void flush() {
+        if (started) {
+            closeCurrentMinute();
+            emit(currentMinute);
+        }
+    }
+
+    /**
+     * @return boolean If the emitted rows have the duration percentiles
+     */
+    public boolean isPercentiles() {
+        return percentiles;
+    }
+
+    /**
+     * @return long The amount of events older than the window size interval that have been discarded
+     */
+    public long getDiscardedEvents() {
+        return discardedEvents;
+    }
+
+    /**
+     * Add the events summary into a closed minute from the ring buffer and into the windows containing it, so they are
+     * considered by the minutes not emitted yet
+     * @return boolean If the minute is still within the biggest window size interval
+     */
+    private boolean addToClosedMinute(long age, long count, long sum, LatencySketch sketch) {
+        if (age > size || age >= maxWindowSize) {
+            return false;
+        }
+        int index = (head + size - (int) age) % counts.length;
+        counts[index] += count;
+        sums[index] += sum;
+        if (Objects.nonNull(sketch)) {
+            sketches[index].merge(sketch);
+        }
+        for (int i = 0; i < windowSizes.length; i++) {
+            if (age <= windowSizes[i]) {
+                windowCounts[i] += count;
+                windowSums[i] += sum;
+                if (Objects.nonNull(sketch)) {
+                    windowSketches[i].merge(sketch);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Move the current minute summary into the ring buffer and into each window, removing from each window the minute
+     * that falls out of it. The oldest minute is dropped from the ring buffer when the biggest window is full.
+     */
+    private void closeCurrentMinute() {
+        for (int i = 0; i < windowSizes.length; i++) {
+            if (windowSizes[i] == 0) {
+                continue;
+            }
+            if (size >= windowSizes[i]) {
+                int index = (head + size - windowSizes[i]) % counts.length;
+                windowCounts[i] -= counts[index];
+                windowSums[i] -= sums[index];
+                if (percentiles) {
+                    windowSketches[i].subtract(sketches[index]);
+                }
+            }
+            windowCounts[i] += currentCount;
+            windowSums[i] += currentSum;
+            if (percentiles) {
+                windowSketches[i].merge(currentSketch);
+            }
+        }
+        if (maxWindowSize > 0) {
+            if (size == maxWindowSize) {
+                head = (head + 1) % counts.length;
+                size--;
+            } else if (size == counts.length) {
+                grow();
+            }
+            int index = (head + size) % counts.length;
+            counts[index] = currentCount;
+            sums[index] = currentSum;
+            if (percentiles) {
+                LatencySketch evicted = sketches[index];
+                sketches[index] = currentSketch;
+                currentSketch = Objects.isNull(evicted) ? new LatencySketch() : evicted;
+            }
+            size++;
+        }
+        if (percentiles) {
+            currentSketch.reset();
+        }
+        currentCount = 0;
+        currentSum = 0;
+        currentMinute++;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(maxWindowSize, Math.max(INITIAL_CAPACITY, counts.length * 2L));
+        long[] newCounts = new long[capacity];
+        long[] newSums = new long[capacity];
+        LatencySketch[] newSketches = new LatencySketch[percentiles ? capacity : 0];
+        for (int i = 0; i < size; i++) {
+            newCounts[i] = counts[(head + i) % counts.length];
+            newSums[i] = sums[(head + i) % counts.length];
+            if (percentiles) {
+                newSketches[i] = sketches[(head + i) % counts.length];
+            }
+        }
+        counts = newCounts;
+        sums = newSums;
+        sketches = newSketches;
+        head = 0;
+    }
+
+    private void emit(long epochMinute) {
+        String timestamp = TimestampParser.formatEpochMinute(epochMinute);
+        for (int i = 0; i < windowSizes.length; i++) {
+            MetricResponse metric = createRow(timestamp, i, windowCounts[i], windowSums[i]);
+            if (percentiles) {
+                metric.setP50((double) windowSketches[i].getValueAtPercentile(50));
+                metric.setP90((double) windowSketches[i].getValueAtPercentile(90));
+                metric.setP99((double) windowSketches[i].getValueAtPercentile(99));
+            }
+            sink.accept(metric);
+        }
+        rememberRow();
+    }
+
+    private MetricResponse createRow(String timestamp, int window, long count, long sum) {
+        return MetricResponse.builder()
+                             .timestamp(timestamp)
+                             .windowSize(tagWindowSize ? windowSizes[window] : null)
+                             .averageDeliveryTime(count == 0 ? 0.0 : (double) sum / count)
+                             .build();
+    }
+
+    /**
+     * Keep the window totals from the row just emitted, dropping the oldest row when the biggest window is full
+     */
+    private void rememberRow() {
+        if (maxWindowSize == 0) {
+            return;
+        }
+        int capacity = rowCounts[0].length;
+        if (rowSize == maxWindowSize) {
+            rowHead = (rowHead + 1) % capacity;
+            rowSize--;
+        } else if (rowSize == capacity) {
+            growRows();
+            capacity = rowCounts[0].length;
+        }
+        int index = (rowHead + rowSize) % capacity;
+        for (int i = 0; i < windowSizes.length; i++) {
+            rowCounts[i][index] = windowCounts[i];
+            rowSums[i][index] = windowSums[i];
+        }
+        rowSize++;
+    }
+
+    private void growRows() {
+        int capacity = rowCounts[0].length;
+        int newCapacity = (int) Math.min(maxWindowSize, Math.max(INITIAL_CAPACITY, capacity * 2L));
+        for (int i = 0; i < windowSizes.length; i++) {
+            long[] newCounts = new long[newCapacity];
+            long[] newSums = new long[newCapacity];
+            for (int j = 0; j < rowSize; j++) {
+                newCounts[j] = rowCounts[i][(rowHead + j) % capacity];
+                newSums[j] = rowSums[i][(rowHead + j) % capacity];
+            }
+            rowCounts[i] = newCounts;
+            rowSums[i] = newSums;
+        }
+        rowHead = 0;
+    }
+}
@@ -0,0 +1,114 @@
+/**
+ * This class holds the Java Flight Recorder events committed by {@link PipelineMetrics}, so a recording started with
+ * -XX:StartFlightRecording shows each pipeline stage on the timeline next to the GC and I/O events.
+ * The jdk.jfr API is only available on JDK 8u262 and later, so this class is only loaded by name, through the
+ * {@link FlightRecorder} interface, after checking it. It's left out of the build by the without-jfr profile.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+final class PipelineEvents implements FlightRecorder {
+
+    private static final String CATEGORY = "Unbabel Challenge";
+
+    PipelineEvents() {
+    }
+
+    @Override
+    public Object beginStage() {
+        Stage event = new Stage();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void commitStage(Object stageEvent, String name, long events, long bytes, long allocatedBytes) {
+        Stage event = (Stage) stageEvent;
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = name;
+            event.events = events;
+            event.bytes = bytes;
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void commitRun(long events, long bytes, long rejectedLines, double eventsPerSecond, double bytesPerSecond,
+                          double allocatedBytesPerEvent) {
+        Run event = new Run();
+        if (event.shouldCommit()) {
+            event.events = events;
+            event.bytes = bytes;
+            event.rejectedLines = rejectedLines;
+            event.eventsPerSecond = eventsPerSecond;
+            event.bytesPerSecond = bytesPerSecond;
+            event.allocatedBytesPerEvent = allocatedBytesPerEvent;
+            event.commit();
+        }
+    }
+
+    /**
+     * A single pipeline stage execution, such as reading the file lines or writing the output file
+     */
+    @Name("pt.raphaelneves.unbabel.challenge.Stage")
+    @Label("Pipeline Stage")
+    @Category(CATEGORY)
+    @Description("A stage from the metric extraction pipeline")
+    static class Stage extends Event {
+
+        @Label("Stage")
+        String stage;
+
+        @Label("Events")
+        long events;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Allocated")
+        @Description("The bytes allocated by the thread running the stage, or -1 when it's not supported")
+        @DataAmount
+        long allocatedBytes;
+    }
+
+    /**
+     * The totals from a whole run, committed together with the summary
+     */
+    @Name("pt.raphaelneves.unbabel.challenge.Run")
+    @Label("Pipeline Run")
+    @Category(CATEGORY)
+    @Description("The totals from a metric extraction run")
+    static class Run extends Event {
+
+        @Label("Events")
+        long events;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+
+        @Label("Rejected Lines")
+        long rejectedLines;
+
+        @Label("Events Per Second")
+        double eventsPerSecond;
+
+        @Label("Bytes Per Second")
+        double bytesPerSecond;
+
+        @Label("Allocated Per Event")
+        @Description("The bytes allocated per event, or -1 when it's not supported")
+        double allocatedBytesPerEvent;
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * This class is used to measure where the time goes while the metrics are extracted: the wall time, events, bytes and
+ * allocated bytes from each pipeline stage, such as reading the file lines, sorting or writing the output file, together
+ * with the events and bytes read from the incoming files and the rejected lines.
+ * The measures are only taken when a stage starts and stops, never per event, so the overhead doesn't depend on the
+ * file size. Each stage is also committed as a Java Flight Recorder event when the JDK supports it, and the whole run
+ * is summarized as a JSON object by {@link #getSummary()}.
+ * The allocated bytes come from the thread running the stage, so the stages whose work is spread over a thread pool
+ * only count the allocation from the thread that started them.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class PipelineMetrics {
+
+    /**
+     * The instance used when nothing must be measured, whose stages do nothing
+     */
+    public static final PipelineMetrics DISABLED = new PipelineMetrics(false);
+
+    private static final Stage NO_STAGE = new Stage(null, null);
+    private static final com.sun.management.ThreadMXBean THREADS = findThreadBean();
+    private static final FlightRecorder FLIGHT_RECORDER = loadFlightRecorder();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final boolean enabled;
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * The totals from all executions of each stage, by stage name, on the order they first ran
+     */
+    private final Map<String, long[]> stages = new LinkedHashMap<>();
+
+    /**
+     * The events and bytes read from the incoming files, and the lines that have been rejected
+     */
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong rejectedLines = new AtomicLong();
+
+    public PipelineMetrics() {
+        this(true);
+    }
+
+    private PipelineMetrics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Start measuring a stage on the current thread. It must be stopped on the same thread.
+     * @param name The stage name, such as extract_lines. Many executions from the same stage are summed up.
+     * @return Stage The running stage
+     */
+    public Stage start(String name) {
+        return enabled ? new Stage(this, name) : NO_STAGE;
+    }
+
+    /**
+     * Count the events and bytes read from an incoming file, used to calculate the run throughput
+     * @param events The amount of events read
+     * @param bytes The amount of bytes read, compressed when the file is a gzip file
+     */
+    public void countInput(long events, long bytes) {
+        if (enabled) {
+            this.events.addAndGet(events);
+            this.bytes.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * Count the lines that have been rejected instead of becoming events
+     * @param lines The amount of rejected lines
+     */
+    public void countRejectedLines(long lines) {
+        if (enabled) {
+            rejectedLines.addAndGet(lines);
+        }
+    }
+
+    /**
+     * @return long The amount of events read from the incoming files so far
+     */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /**
+     * @return long The amount of bytes read from the incoming files so far
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * @return long The amount of rejected lines so far
+     */
+    public long getRejectedLines() {
+        return rejectedLines.get();
+    }
+
+    /**
+     * @param name The stage name
+     * @return long[] The executions, wall time in nanoseconds, events, bytes and allocated bytes from the stage,
+     * or null when it never ran. The allocated bytes are -1 when they're not supported by the JDK.
+     */
+    synchronized long[] getStage(String name) {
+        long[] totals = stages.get(name);
+        return totals == null ? null : totals.clone();
+    }
+
+    /**
+     * Summarize the run so far as a single line JSON object, committing it as a Java Flight Recorder event as well.
+     * E.g.: {"wallTimeMillis":1520,"events":1000000,"bytes":180000000,"eventsPerSecond":657894.73,...,
+     * "stages":[{"name":"decode","executions":1,"wallTimeMillis":1410,"events":1000000,...}]}
+     * @return String The run summary
+     */
+    public String getSummary() {
+        long wallNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = 0;
+        List<Map<String, Object>> stageSummaries = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<String, long[]> stage : stages.entrySet()) {
+                long[] totals = stage.getValue();
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("name", stage.getKey());
+                summary.put("executions", totals[0]);
+                summary.put("wallTimeMillis", TimeUnit.NANOSECONDS.toMillis(totals[1]));
+                summary.put("events", totals[2]);
+                summary.put("bytes", totals[3]);
+                summary.put("eventsPerSecond", perSecond(totals[2], totals[1]));
+                summary.put("bytesPerSecond", perSecond(totals[3], totals[1]));
+                summary.put("allocatedBytes", totals[4]);
+                summary.put("allocatedBytesPerEvent", perEvent(totals[4], totals[2]));
+                stageSummaries.add(summary);
+                allocatedBytes = allocatedBytes < 0 || totals[4] < 0 ? -1 : allocatedBytes + totals[4];
+            }
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("wallTimeMillis", TimeUnit.NANOSECONDS.toMillis(wallNanos));
+        summary.put("events", events.get());
+        summary.put("bytes", bytes.get());
+        summary.put("eventsPerSecond", perSecond(events.get(), wallNanos));
+        summary.put("bytesPerSecond", perSecond(bytes.get(), wallNanos));
+        summary.put("rejectedLines", rejectedLines.get());
+        summary.put("allocatedBytes", allocatedBytes);
+        summary.put("allocatedBytesPerEvent", perEvent(allocatedBytes, events.get()));
+        summary.put("stages", stageSummaries);
+        if (enabled && FLIGHT_RECORDER != null) {
+            FLIGHT_RECORDER.commitRun(events.get(), bytes.get(), rejectedLines.get(), (Double) summary.get("eventsPerSecond"),
+                    (Double) summary.get("bytesPerSecond"), (Double) summary.get("allocatedBytesPerEvent"));
+        }
+        try {
+            return MAPPER.writeValueAsString(summary);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Unable to summarize the pipeline metrics.");
+        }
+    }
+
+    private synchronized void add(String name, long wallNanos, long events, long bytes, long allocatedBytes) {
+        long[] totals = stages.computeIfAbsent(name, key -> new long[5]);
+        totals[0]++;
+        totals[1] += wallNanos;
+        totals[2] += events;
+        totals[3] += bytes;
+        totals[4] = totals[4] < 0 || allocatedBytes < 0 ? -1 : totals[4] + allocatedBytes;
+    }
+
+    private static double perSecond(long amount, long nanos) {
+        return nanos <= 0 ? 0 : round(amount * 1e9 / nanos);
+    }
+
+    private static double perEvent(long amount, long events) {
+        return amount < 0 ? -1 : events == 0 ? 0 : round((double) amount / events);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // The allocated bytes are reported as -1
+        }
+        return null;
+    }
+
+    /**
+     * @return FlightRecorder The recorder committing the events, or null when the JDK doesn't support them or the
+     * project has been built without them
+     */
+    private static FlightRecorder loadFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (FlightRecorder) Class.forName(PipelineMetrics.class.getPackage().getName() + ".PipelineEvents")
+                                         .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A running stage, measured from its creation until {@link #stop(long, long)}
+     */
+    public static class Stage {
+
+        private final PipelineMetrics metrics;
+        private final String name;
+        private final long threadId;
+        private final long startAllocatedBytes;
+        private final long startNanos;
+        private final Object event;
+
+        private Stage(PipelineMetrics metrics, String name) {
+            this.metrics = metrics;
+            this.name = name;
+            this.threadId = Thread.currentThread().getId();
+            this.startAllocatedBytes = metrics == null ? 0 : allocatedBytes(threadId);
+            this.event = metrics != null && FLIGHT_RECORDER != null ? FLIGHT_RECORDER.beginStage() : null;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Stop measuring the stage, adding it to the stage totals
+         * @param events The amount of events handled by the stage
+         * @param bytes The amount of bytes read or written by the stage
+         */
+        public void stop(long events, long bytes) {
+            if (metrics == null) {
+                return;
+            }
+            long wallNanos = System.nanoTime() - startNanos;
+            long endAllocatedBytes = allocatedBytes(threadId);
+            long allocated = startAllocatedBytes < 0 || endAllocatedBytes < 0 ? -1 : endAllocatedBytes - startAllocatedBytes;
+            metrics.add(name, wallNanos, events, bytes, allocated);
+            if (event != null) {
+                FLIGHT_RECORDER.commitStage(event, name, events, bytes, allocated);
+            }
+        }
+
+        private static long allocatedBytes(long threadId) {
+            return THREADS == null ? -1 : THREADS.getThreadAllocatedBytes(threadId);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * This class reads a rollup segment written by {@link RollupSegmentWriter}: the per-minute aggregates from the
+ * translation events, by the full combination of their dimensions, stored in a compact binary file that is mapped
+ * into memory, so only the pages holding the requested minutes are read from the disk.
+ * All numbers are big endian. The file layout is:
+ * - Header (64 bytes): magic "UBRS" (int), version (short), flags (short, 1 when the sketches are kept),
+ *   first and last epoch minute (long), amount of minutes and of rows (int), and the offset from the dictionaries,
+ *   the minute index, the rows and the sketches areas (long).
+ * - Dictionaries: for each {@link Dimension}, by its ordinal, the amount of values (int) followed by each value
+ *   length (short) and UTF-8 bytes, by their identifier.
+ * - Minute index (16 bytes per minute, oldest first): epoch minute (long), first row and amount of rows (int).
+ * - Rows (48 bytes each, grouped by minute): packed {@link DimensionKey} from all dimensions, events amount, duration
+ *   sum, minimum and maximum duration, and the sketch offset within the sketches area (long), or -1 without sketch.
+ * - Sketches: the durations sketch from each row, as written by {@link LatencySketch#writeTo(ByteBuffer)}.
+ * A segment is never changed once written. This class is thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.LatencySketch;
+import pt.raphaelneves.unbabel.challenge.models.MinuteRollup;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class RollupSegment {
+
+    static final int MAGIC = 0x55425253;
+    static final short VERSION = 1;
+    static final short HAS_SKETCHES = 1;
+    static final int HEADER_SIZE = 64;
+    static final int INDEX_ENTRY_SIZE = 16;
+    static final int ROW_SIZE = 48;
+
+    /**
+     * The mapped file, only read with absolute positions so it can be shared by many threads
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The header attributes
+     */
+    private final boolean sketches;
+    private final long firstMinute;
+    private final long lastMinute;
+    private final int minuteCount;
+    private final int minuteIndexOffset;
+    private final int rowsOffset;
+    private final int sketchesOffset;
+
+    /**
+     * The dimension identifiers within the segment by value, indexed by the {@link Dimension} ordinal
+     */
+    private final Map<Dimension, Map<String, Integer>> dictionaries = new EnumMap<>(Dimension.class);
+
+    private RollupSegment(ByteBuffer buffer) {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION) {
+            throw new RuntimeException("Invalid rollup segment file.");
+        }
+        this.buffer = buffer;
+        this.sketches = (buffer.getShort(6) & HAS_SKETCHES) != 0;
+        this.firstMinute = buffer.getLong(8);
+        this.lastMinute = buffer.getLong(16);
+        this.minuteCount = buffer.getInt(24);
+        this.minuteIndexOffset = (int) buffer.getLong(40);
+        this.rowsOffset = (int) buffer.getLong(48);
+        this.sketchesOffset = (int) buffer.getLong(56);
+        int position = (int) buffer.getLong(32);
+        for (Dimension dimension : Dimension.values()) {
+            int size = buffer.getInt(position);
+            position += 4;
+            Map<String, Integer> ids = new HashMap<>(size * 2);
+            for (int id = 0; id < size; id++) {
+                byte[] value = new byte[buffer.getShort(position)];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = buffer.get(position + 2 + i);
+                }
+                ids.put(new String(value, StandardCharsets.UTF_8), id);
+                position += 2 + value.length;
+            }
+            dictionaries.put(dimension, ids);
+        }
+    }
+
+    /**
+     * Map a segment file into memory. The file stays mapped until the segment is garbage collected.
+     * @param path The segment file
+     * @return RollupSegment The segment ready to be read
+     * @throws RuntimeException When the file can't be read or is not a rollup segment
+     */
+    public static RollupSegment open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new RollupSegment(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the rollup segment " + path);
+        }
+    }
+
+    /**
+     * @return long The oldest epoch minute within the segment
+     */
+    public long getFirstMinute() {
+        return firstMinute;
+    }
+
+    /**
+     * @return long The newest epoch minute within the segment
+     */
+    public long getLastMinute() {
+        return lastMinute;
+    }
+
+    /**
+     * @return boolean If the rows keep their durations sketch
+     */
+    public boolean hasSketches() {
+        return sketches;
+    }
+
+    /**
+     * Aggregate the rows matching the filter from each minute within the interval, oldest first.
+     * The minutes without matching rows are skipped.
+     * @param fromMinute The first epoch minute to be read, inclusive
+     * @param toMinute The last epoch minute to be read, inclusive
+     * @param filter The dimension values the rows must have, or an empty map to aggregate all rows
+     * @param rollup The instance reset and filled for each minute. It must keep a sketch to read the sketches.
+     * @param consumer The consumer that will receive each minute aggregate, which must not keep the received instance
+     */
+    public void forEachMinute(long fromMinute, long toMinute, Map<Dimension, String> filter, MinuteRollup rollup, MinuteConsumer consumer) {
+        int[] filterIds = resolve(filter);
+        if (Objects.isNull(filterIds)) {
+            return;
+        }
+        for (int entry = findMinute(fromMinute); entry < minuteCount; entry++) {
+            int position = minuteIndexOffset + entry * INDEX_ENTRY_SIZE;
+            long epochMinute = buffer.getLong(position);
+            if (epochMinute > toMinute) {
+                return;
+            }
+            int firstRow = buffer.getInt(position + 8);
+            int rowCount = buffer.getInt(position + 12);
+            rollup.reset();
+            for (int row = firstRow; row < firstRow + rowCount; row++) {
+                int rowPosition = rowsOffset + row * ROW_SIZE;
+                if (!matches(buffer.getLong(rowPosition), filterIds)) {
+                    continue;
+                }
+                rollup.add(buffer.getLong(rowPosition + 8), buffer.getLong(rowPosition + 16),
+                        buffer.getLong(rowPosition + 24), buffer.getLong(rowPosition + 32));
+                long sketchOffset = buffer.getLong(rowPosition + 40);
+                if (sketchOffset >= 0) {
+                    rollup.mergeSketch(buffer, (int) (sketchesOffset + sketchOffset));
+                }
+            }
+            if (rollup.getCount() > 0) {
+                consumer.accept(epochMinute, rollup);
+            }
+        }
+    }
+
+    /**
+     * Find the segment identifiers from the filter values
+     * @return int[] The identifiers indexed by the {@link Dimension} ordinal, {@link TranslationEvent#UNDEFINED} for
+     * the dimensions not filtered, or null when a value is not present on the segment
+     */
+    private int[] resolve(Map<Dimension, String> filter) {
+        int[] ids = new int[Dimension.values().length];
+        for (Dimension dimension : Dimension.values()) {
+            String value = filter.get(dimension);
+            Integer id = Objects.isNull(value) ? Integer.valueOf(TranslationEvent.UNDEFINED) : dictionaries.get(dimension).get(value);
+            if (Objects.isNull(id)) {
+                return null;
+            }
+            ids[dimension.ordinal()] = id;
+        }
+        return ids;
+    }
+
+    private static boolean matches(long key, int[] filterIds) {
+        for (Dimension dimension : Dimension.values()) {
+            int id = filterIds[dimension.ordinal()];
+            if (id != TranslationEvent.UNDEFINED && DimensionKey.unpack(key, dimension) != id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Binary search the minute index
+     * @return int The position from the first minute not older than the received one, or the amount of minutes
+     */
+    private int findMinute(long epochMinute) {
+        int low = 0;
+        int high = minuteCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(minuteIndexOffset + middle * INDEX_ENTRY_SIZE) < epochMinute) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Receives the aggregate from each minute read from a segment
+     */
+    public interface MinuteConsumer {
+
+        /**
+         * @param epochMinute The minute as epoch minute
+         * @param rollup The minute aggregate, reused for the next minute
+         */
+        void accept(long epochMinute, MinuteRollup rollup);
+    }
+}
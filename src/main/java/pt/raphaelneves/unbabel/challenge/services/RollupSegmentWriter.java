@@ -0,0 +1,218 @@
+/**
+ * This class is used to build a {@link RollupSegment} from the translation events: the events are aggregated by
+ * minute and by the full combination of their dimensions, and the minutes before a given one are written into a
+ * segment file. The file is written into a temporary file on the same folder and then renamed, so a segment is never
+ * seen partially written.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.MinuteRollup;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class RollupSegmentWriter {
+
+    private static final Set<Dimension> ALL_DIMENSIONS = EnumSet.allOf(Dimension.class);
+
+    /**
+     * The dictionaries used by the decoder to encode the dimensions
+     */
+    private final Map<Dimension, Dictionary> dictionaries = new EnumMap<>(Dimension.class);
+    private final boolean withSketches;
+
+    /**
+     * The aggregates by epoch minute and then by the packed dimension identifiers
+     */
+    private final TreeMap<Long, TreeMap<Long, MinuteRollup>> minutes = new TreeMap<>();
+
+    /**
+     * The rows from the last minute that received an event, since consecutive events usually share it
+     */
+    private long lastMinute;
+    private TreeMap<Long, MinuteRollup> lastRows;
+
+    /**
+     * @param dictionaries The dictionaries used by the decoder to encode the dimensions. The missing dimensions are
+     * written as undefined.
+     * @param withSketches If each row must keep the durations sketch as well
+     */
+    public RollupSegmentWriter(Map<Dimension, Dictionary> dictionaries, boolean withSketches) {
+        this.dictionaries.putAll(dictionaries);
+        this.withSketches = withSketches;
+    }
+
+    /**
+     * Add a decoded translation event
+     * @param event The translation event, which is not kept
+     * @throws RuntimeException When a dimension has more distinct values than its key bits can hold
+     */
+    public void accept(TranslationEvent event) {
+        long minute = TimestampParser.toEpochMinute(event.getTimestamp());
+        if (lastRows == null || minute != lastMinute) {
+            lastMinute = minute;
+            lastRows = minutes.computeIfAbsent(minute, key -> new TreeMap<>());
+        }
+        long key = DimensionKey.pack(ALL_DIMENSIONS, event.getDimensionIds());
+        lastRows.computeIfAbsent(key, row -> new MinuteRollup(withSketches)).add(event.getDuration());
+    }
+
+    /**
+     * @return long The oldest epoch minute with events, or Long.MAX_VALUE when no event has been received
+     */
+    public long getOldestMinute() {
+        return minutes.isEmpty() ? Long.MAX_VALUE : minutes.firstKey();
+    }
+
+    /**
+     * @return long The newest epoch minute with events, or Long.MIN_VALUE when no event has been received
+     */
+    public long getNewestMinute() {
+        return minutes.isEmpty() ? Long.MIN_VALUE : minutes.lastKey();
+    }
+
+    /**
+     * Write the minutes before the received one into a segment file, replacing an existing one
+     * @param path The segment file to be written
+     * @param untilMinute The first epoch minute that must not be written, such as a minute still receiving events
+     * @return int The amount of rows written. No file is written when there is no minute before the received one.
+     * @throws RuntimeException When something went wrong while writing the file
+     */
+    public int write(Path path, long untilMinute) {
+        NavigableMap<Long, TreeMap<Long, MinuteRollup>> sealed = minutes.headMap(untilMinute, false);
+        if (sealed.isEmpty()) {
+            return 0;
+        }
+        byte[][][] values = encodeDictionaries();
+        long dictionariesSize = 0;
+        for (byte[][] dimensionValues : values) {
+            dictionariesSize += 4;
+            for (byte[] value : dimensionValues) {
+                dictionariesSize += 2 + value.length;
+            }
+        }
+        int rowCount = 0;
+        long sketchesSize = 0;
+        for (TreeMap<Long, MinuteRollup> rows : sealed.values()) {
+            rowCount += rows.size();
+            if (withSketches) {
+                for (MinuteRollup rollup : rows.values()) {
+                    sketchesSize += rollup.getSketch().getSerializedSize();
+                }
+            }
+        }
+        long minuteIndexOffset = RollupSegment.HEADER_SIZE + dictionariesSize;
+        long rowsOffset = minuteIndexOffset + (long) sealed.size() * RollupSegment.INDEX_ENTRY_SIZE;
+        long sketchesOffset = rowsOffset + (long) rowCount * RollupSegment.ROW_SIZE;
+        long fileSize = sketchesOffset + sketchesSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new RuntimeException("Too many rollups to be written into a single segment.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+        buffer.putInt(RollupSegment.MAGIC)
+              .putShort(RollupSegment.VERSION)
+              .putShort(withSketches ? RollupSegment.HAS_SKETCHES : 0)
+              .putLong(sealed.firstKey())
+              .putLong(sealed.lastKey())
+              .putInt(sealed.size())
+              .putInt(rowCount)
+              .putLong(RollupSegment.HEADER_SIZE)
+              .putLong(minuteIndexOffset)
+              .putLong(rowsOffset)
+              .putLong(sketchesOffset);
+        for (byte[][] dimensionValues : values) {
+            buffer.putInt(dimensionValues.length);
+            for (byte[] value : dimensionValues) {
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+        int firstRow = 0;
+        for (Map.Entry<Long, TreeMap<Long, MinuteRollup>> minute : sealed.entrySet()) {
+            buffer.putLong(minute.getKey()).putInt(firstRow).putInt(minute.getValue().size());
+            firstRow += minute.getValue().size();
+        }
+        int sketchPosition = (int) sketchesOffset;
+        for (TreeMap<Long, MinuteRollup> rows : sealed.values()) {
+            for (Map.Entry<Long, MinuteRollup> row : rows.entrySet()) {
+                MinuteRollup rollup = row.getValue();
+                buffer.putLong(row.getKey()).putLong(rollup.getCount()).putLong(rollup.getSum())
+                      .putLong(rollup.getMin()).putLong(rollup.getMax());
+                if (withSketches) {
+                    buffer.putLong(sketchPosition - sketchesOffset);
+                    int rowEnd = buffer.position();
+                    buffer.position(sketchPosition);
+                    rollup.getSketch().writeTo(buffer);
+                    sketchPosition = buffer.position();
+                    buffer.position(rowEnd);
+                } else {
+                    buffer.putLong(-1L);
+                }
+            }
+        }
+        buffer.position(0);
+        writeAtomically(path, buffer);
+        return rowCount;
+    }
+
+    /**
+     * Encode the dictionary values from each dimension as UTF-8, indexed by the dimension ordinal and then by the
+     * dictionary identifier
+     */
+    private byte[][][] encodeDictionaries() {
+        byte[][][] values = new byte[Dimension.values().length][][];
+        for (Dimension dimension : Dimension.values()) {
+            Dictionary dictionary = dictionaries.get(dimension);
+            int size = Objects.isNull(dictionary) ? 0 : dictionary.size();
+            values[dimension.ordinal()] = new byte[size][];
+            for (int id = 0; id < size; id++) {
+                byte[] value = dictionary.getValue(id).getBytes(StandardCharsets.UTF_8);
+                if (value.length > Short.MAX_VALUE) {
+                    throw new RuntimeException("Dimension value too long to be written: " + dictionary.getValue(id).substring(0, 32) + "...");
+                }
+                values[dimension.ordinal()][id] = value;
+            }
+        }
+        return values;
+    }
+
+    private static void writeAtomically(Path path, ByteBuffer buffer) {
+        Path target = path.toAbsolutePath();
+        Path temporary = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temporary = MetricWriter.createTemporaryFile(target);
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            MetricWriter.moveAtomically(temporary, target);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create the rollup segment file");
+        } finally {
+            MetricWriter.deleteQuietly(temporary);
+        }
+    }
+}
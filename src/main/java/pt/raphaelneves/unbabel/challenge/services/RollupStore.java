@@ -0,0 +1,209 @@
+/**
+ * This class keeps the {@link RollupSegment} files from a folder, named rollup-<first epoch minute>.seg, so the
+ * per-minute aggregates from the minutes already read are loaded from the disk instead of decoding their events again.
+ * Each run appends a new segment with the minutes newer than the last stored one, and the segments never overlap.
+ * The store is tied to a single incoming file: the rollup.progress file keeps the position from where the next run
+ * reads the file, together with the checksums from the bytes at the file start and right before that position, like
+ * the {@link IngestionCheckpoint}. So the lines already stored are never decoded again, and a store built from another
+ * file is refused instead of mixing both. All numbers are big endian. The progress file layout is: magic "UBRP" (int),
+ * version (short), position, start checksum and position checksum (long).
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.MinuteRollup;
+
+public class RollupStore {
+
+    private static final String SEGMENT_PREFIX = "rollup-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String PROGRESS_FILE = "rollup.progress";
+    private static final int PROGRESS_MAGIC = 0x55425250;
+    private static final short PROGRESS_VERSION = 1;
+    private static final int PROGRESS_SIZE = 30;
+
+    /**
+     * The amount of bytes from the file start used to recognize the file
+     */
+    private static final int START_FINGERPRINT_SIZE = 4096;
+
+    private final Path directory;
+
+    /**
+     * The position from where the next run reads the file, and the checksums from the bytes at the file start and
+     * right before the position. The position is -1 when nothing has been stored yet.
+     */
+    private long position = -1L;
+    private long startFingerprint;
+    private long fingerprint;
+
+    /**
+     * The segments from the folder, oldest first
+     */
+    private final List<RollupSegment> segments = new ArrayList<>();
+
+    /**
+     * Open all segments from a folder, creating it when it doesn't exist
+     * @param directory The folder keeping the segment files
+     * @throws RuntimeException When the folder or any segment can't be read
+     */
+    public RollupStore(Path directory) {
+        if (Objects.isNull(directory)) {
+            throw new RuntimeException("Unable to read the rollup folder.");
+        }
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                files.forEach(file -> segments.add(RollupSegment.open(file)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the rollup folder " + directory);
+        }
+        segments.sort(Comparator.comparingLong(RollupSegment::getFirstMinute));
+        readProgress();
+    }
+
+    /**
+     * @return long The position from where the next run reads the incoming file, which is zero on an empty store
+     */
+    public long getPosition() {
+        return Math.max(position, 0L);
+    }
+
+    /**
+     * @param channel The incoming file channel
+     * @return boolean If the store is empty, or the file bytes at its start and right before the position are the ones
+     * seen when the store was written, so the file is the same one, maybe with more lines appended
+     * @throws IOException When something went wrong while reading the file
+     */
+    boolean matches(FileChannel channel) throws IOException {
+        if (position < 0) {
+            return segments.isEmpty();
+        }
+        return position <= channel.size() && startFingerprint == startFingerprintOf(channel, position)
+                && fingerprint == IngestionCheckpoint.fingerprintOf(channel, position);
+    }
+
+    /**
+     * @return long The newest stored epoch minute, or Long.MIN_VALUE when the store is empty
+     */
+    public long getLastMinute() {
+        return segments.isEmpty() ? Long.MIN_VALUE : segments.get(segments.size() - 1).getLastMinute();
+    }
+
+    /**
+     * @return boolean If the store is not empty and all its segments keep the durations sketches
+     */
+    public boolean hasSketches() {
+        return !segments.isEmpty() && segments.stream().allMatch(RollupSegment::hasSketches);
+    }
+
+    /**
+     * @return int The amount of segments
+     */
+    public int getSegments() {
+        return segments.size();
+    }
+
+    /**
+     * Aggregate the rows matching the filter from each stored minute within the interval, oldest first
+     * @see RollupSegment#forEachMinute(long, long, Map, MinuteRollup, RollupSegment.MinuteConsumer)
+     */
+    public void forEachMinute(long fromMinute, long toMinute, Map<Dimension, String> filter, MinuteRollup rollup,
+                              RollupSegment.MinuteConsumer consumer) {
+        for (RollupSegment segment : segments) {
+            if (segment.getLastMinute() >= fromMinute && segment.getFirstMinute() <= toMinute) {
+                segment.forEachMinute(fromMinute, toMinute, filter, rollup, consumer);
+            }
+        }
+    }
+
+    /**
+     * Write the minutes before the received one into a new segment, and then the position from where the next run
+     * must read the incoming file. Every line before the position must belong to a stored minute. When the run dies
+     * between both, the next run reads again the lines from the previous position, skipping the ones whose minutes
+     * have been stored meanwhile, so no minute is ever stored twice.
+     * @param writer The writer holding the minutes newer than the stored ones
+     * @param untilMinute The first epoch minute that must not be written, such as a minute still receiving events
+     * @param channel The incoming file channel
+     * @param nextPosition The position from where the next run must read the incoming file
+     * @return int The amount of rows written, or zero when there was no minute to be written
+     * @throws RuntimeException When the writer holds minutes already stored or the files can't be written
+     */
+    int append(RollupSegmentWriter writer, long untilMinute, FileChannel channel, long nextPosition) {
+        int rows = appendSegment(writer, untilMinute);
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(PROGRESS_SIZE);
+            buffer.putInt(PROGRESS_MAGIC)
+                  .putShort(PROGRESS_VERSION)
+                  .putLong(nextPosition)
+                  .putLong(startFingerprintOf(channel, nextPosition))
+                  .putLong(IngestionCheckpoint.fingerprintOf(channel, nextPosition));
+            Path target = directory.resolve(PROGRESS_FILE).toAbsolutePath();
+            Path temporary = MetricWriter.createTemporaryFile(target);
+            try {
+                Files.write(temporary, buffer.array());
+                MetricWriter.moveAtomically(temporary, target);
+            } finally {
+                MetricWriter.deleteQuietly(temporary);
+            }
+            position = nextPosition;
+            startFingerprint = buffer.getLong(14);
+            fingerprint = buffer.getLong(22);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the rollup progress on " + directory);
+        }
+        return rows;
+    }
+
+    private int appendSegment(RollupSegmentWriter writer, long untilMinute) {
+        if (writer.getOldestMinute() >= untilMinute) {
+            return 0;
+        }
+        if (writer.getOldestMinute() <= getLastMinute()) {
+            throw new RuntimeException("Unable to store minutes that have been already stored.");
+        }
+        Path path = directory.resolve(SEGMENT_PREFIX + writer.getOldestMinute() + SEGMENT_SUFFIX);
+        int rows = writer.write(path, untilMinute);
+        segments.add(RollupSegment.open(path));
+        return rows;
+    }
+
+    private void readProgress() {
+        Path path = directory.resolve(PROGRESS_FILE);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (buffer.limit() != PROGRESS_SIZE || buffer.getInt(0) != PROGRESS_MAGIC || buffer.getShort(4) != PROGRESS_VERSION) {
+                throw new RuntimeException("Invalid rollup progress file " + path);
+            }
+            position = buffer.getLong(6);
+            startFingerprint = buffer.getLong(14);
+            fingerprint = buffer.getLong(22);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read the rollup folder " + directory);
+        }
+    }
+
+    private static long startFingerprintOf(FileChannel channel, long position) throws IOException {
+        return IngestionCheckpoint.fingerprintOf(channel, Math.min(position, START_FINGERPRINT_SIZE));
+    }
+}
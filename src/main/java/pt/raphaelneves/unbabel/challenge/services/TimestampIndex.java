@@ -0,0 +1,260 @@
+/**
+ * This class represents a sparse sidecar index from an incoming file, used to read only the lines within a time range
+ * instead of the whole file. The file is split into blocks of about the same size, always starting on a line, and the
+ * index keeps the position and the oldest and newest timestamps from each block.
+ * The files are appended in near time order, but not sorted, so a block may have events older than the ones before it.
+ * The range is found by binary searching the running maximum timestamp from the start of the file and the running
+ * minimum timestamp from its end: every block before the first one whose running maximum reaches the range start only
+ * has older events, and every block after the last one whose running minimum is before the range end only has newer
+ * events. So the blocks between them are the only ones that may have events within the range.
+ * The index only covers the lines ended by a separator, and keeps a checksum from the bytes before its end, like the
+ * {@link IngestionCheckpoint}. So the lines appended later are indexed from where it stopped, and a file that has been
+ * rewritten is indexed again from the beginning. It's stored with the Java serialization and replaced atomically.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class TimestampIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The block size used when none is requested, so each block holds a few hundred events
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The minimum amount of bytes from each block
+     */
+    private final int blockSize;
+
+    /**
+     * The position, oldest and newest timestamps as epoch seconds from each block. A block without valid lines has
+     * the oldest timestamp as Long.MAX_VALUE and the newest as Long.MIN_VALUE.
+     */
+    private long[] positions = new long[INITIAL_CAPACITY];
+    private long[] minTimestamps = new long[INITIAL_CAPACITY];
+    private long[] maxTimestamps = new long[INITIAL_CAPACITY];
+    private int blocks;
+
+    /**
+     * The position right after the last line indexed, and the checksum from the bytes right before it
+     */
+    private long length;
+    private long fingerprint;
+
+    /**
+     * The running maximum timestamp from the first block and the running minimum timestamp from the last block,
+     * computed again after the index is updated
+     */
+    private transient long[] prefixMaxTimestamps;
+    private transient long[] suffixMinTimestamps;
+
+    /**
+     * @param blockSize The minimum amount of bytes from each block
+     * @throws RuntimeException When the block size is not a positive number
+     */
+    TimestampIndex(int blockSize) {
+        if (blockSize < 1) {
+            throw new RuntimeException("The index block size must be a positive number");
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * @return int The minimum amount of bytes from each block
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return int The amount of blocks indexed
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * @return long The position right after the last line indexed, from where the lines appended later are indexed
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * @return boolean If the bytes before the index end on the file are the ones seen when it was updated
+     */
+    boolean matches(FileChannel channel) throws IOException {
+        return length <= channel.size() && fingerprint == IngestionCheckpoint.fingerprintOf(channel, length);
+    }
+
+    /**
+     * Index the lines appended after the index end, continuing its last block. When the file doesn't match the index
+     * anymore, such as when it has been truncated or rewritten, it's indexed again from the beginning. The invalid
+     * lines are not indexed, and they're handled once the range containing them is read.
+     * @param channel The incoming file channel
+     * @return long The amount of bytes indexed
+     * @throws IOException When something went wrong while reading the file
+     */
+    long update(FileChannel channel) throws IOException {
+        if (!matches(channel)) {
+            blocks = 0;
+            length = 0;
+        }
+        long start = length;
+        long[] tailPosition = {-1L};
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        ChannelInputStream input = new ChannelInputStream(channel, start, Long.MAX_VALUE, BUFFER_SIZE);
+        LineReader.readLines(input, (buffer, offset, lineLength, position) -> {
+            long linePosition = start + position;
+            if (blocks == 0 || linePosition - positions[blocks - 1] >= blockSize) {
+                addBlock(linePosition);
+            }
+            try {
+                decoder.decode(buffer, offset, lineLength, event);
+                minTimestamps[blocks - 1] = Math.min(minTimestamps[blocks - 1], event.getTimestamp());
+                maxTimestamps[blocks - 1] = Math.max(maxTimestamps[blocks - 1], event.getTimestamp());
+            } catch (InvalidLineException e) {
+                // The line is rejected when a range containing it is read
+            }
+        }, (buffer, offset, lineLength, position) -> tailPosition[0] = start + position);
+        length = tailPosition[0] < 0 ? input.getPosition() : tailPosition[0];
+        fingerprint = IngestionCheckpoint.fingerprintOf(channel, length);
+        prefixMaxTimestamps = null;
+        suffixMinTimestamps = null;
+        return length - start;
+    }
+
+    /**
+     * Find the indexed bytes that may have events with timestamp from the range start, inclusive, until the range
+     * end, exclusive. The lines after the index end are not considered, so they must be read as well.
+     * @param fromEpochSecond The range start as epoch second
+     * @param toEpochSecond The range end as epoch second
+     * @return long[] The first position and the position right after the bytes to be read, or null when no indexed
+     * block may have events within the range
+     */
+    long[] findRange(long fromEpochSecond, long toEpochSecond) {
+        if (blocks == 0 || fromEpochSecond >= toEpochSecond) {
+            return null;
+        }
+        if (Objects.isNull(prefixMaxTimestamps)) {
+            computeRunningTimestamps();
+        }
+        int first = 0;
+        int last = blocks;
+        while (first < last) {
+            int middle = (first + last) >>> 1;
+            if (prefixMaxTimestamps[middle] >= fromEpochSecond) {
+                last = middle;
+            } else {
+                first = middle + 1;
+            }
+        }
+        int low = first;
+        int high = blocks;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (suffixMinTimestamps[middle] < toEpochSecond) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int end = low;
+        if (first >= end) {
+            return null;
+        }
+        return new long[]{positions[first], end < blocks ? positions[end] : length};
+    }
+
+    /**
+     * Write the index into a temporary file on the same folder and rename it, so the previous index is only
+     * replaced by a complete one
+     * @param path The index file
+     * @throws RuntimeException When something went wrong while writing the file
+     */
+    void write(Path path) {
+        Path target = path.toAbsolutePath();
+        Path temporary = null;
+        try {
+            temporary = MetricWriter.createTemporaryFile(target);
+            try (OutputStream output = Files.newOutputStream(temporary, StandardOpenOption.WRITE);
+                 ObjectOutputStream objects = new ObjectOutputStream(output)) {
+                objects.writeObject(this);
+            }
+            MetricWriter.moveAtomically(temporary, target);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write the index file.");
+        } finally {
+            MetricWriter.deleteQuietly(temporary);
+        }
+    }
+
+    /**
+     * Read an index written by a previous run
+     * @param path The index file
+     * @return TimestampIndex The index, or null when the file doesn't exist or can't be read, such as one written by
+     * an incompatible version, in which case a warning is printed and the whole file must be indexed again
+     */
+    static TimestampIndex read(Path path) {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (InputStream input = Files.newInputStream(path);
+             ObjectInputStream objects = new ObjectInputStream(input)) {
+            return (TimestampIndex) objects.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            System.err.println("Unable to read the index file " + path + ", indexing the whole file again.");
+            return null;
+        }
+    }
+
+    private void addBlock(long position) {
+        if (blocks == positions.length) {
+            positions = Arrays.copyOf(positions, blocks * 2);
+            minTimestamps = Arrays.copyOf(minTimestamps, blocks * 2);
+            maxTimestamps = Arrays.copyOf(maxTimestamps, blocks * 2);
+        }
+        positions[blocks] = position;
+        minTimestamps[blocks] = Long.MAX_VALUE;
+        maxTimestamps[blocks] = Long.MIN_VALUE;
+        blocks++;
+    }
+
+    private void computeRunningTimestamps() {
+        prefixMaxTimestamps = new long[blocks];
+        suffixMinTimestamps = new long[blocks];
+        long max = Long.MIN_VALUE;
+        for (int block = 0; block < blocks; block++) {
+            max = Math.max(max, maxTimestamps[block]);
+            prefixMaxTimestamps[block] = max;
+        }
+        long min = Long.MAX_VALUE;
+        for (int block = blocks - 1; block >= 0; block--) {
+            min = Math.min(min, minTimestamps[block]);
+            suffixMinTimestamps[block] = min;
+        }
+    }
+}
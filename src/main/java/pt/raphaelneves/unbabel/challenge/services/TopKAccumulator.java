@@ -0,0 +1,170 @@
+/**
+ * This class is used to find the slowest clients or language pairs, by total and by average event duration, from
+ * each window size interval in a single pass over the events, such as the same pass feeding a {@link MetricAccumulator}.
+ * Each minute keeps a {@link SpaceSavingSketch} with a fixed amount of counters, so the memory depends on the sketch
+ * capacity and the biggest window size, never on the amount of distinct keys. The window is the merge from the sketches
+ * of its minutes, and each row reports how much its total duration may be overestimated.
+ * The ranking by average only considers the keys tracked by the window sketch, which are the ones with the biggest
+ * total duration, so a key with a few slow events is not ranked unless its total is among the biggest ones.
+ * This class is not thread-safe.
+ * @author Raphael Neves
+ **/
+
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.HeavyHitter;
+import pt.raphaelneves.unbabel.challenge.models.SpaceSavingSketch;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+public class TopKAccumulator {
+
+    /**
+     * The window sizes in minutes, and the biggest one, which defines the minutes kept
+     */
+    private final List<Integer> windowSizes;
+    private final int maxWindowSize;
+
+    /**
+     * The amount of rows reported by window, and the amount of counters kept by each minute sketch
+     */
+    private final int k;
+    private final int capacity;
+
+    /**
+     * The grouped dimensions and the dictionaries used to encode their values
+     */
+    private final Set<Dimension> dimensions;
+    private final Map<Dimension, Dictionary> dictionaries;
+
+    /**
+     * The sketch from each minute within the biggest window size interval
+     */
+    private final TreeMap<Long, SpaceSavingSketch> minutes = new TreeMap<>();
+
+    /**
+     * The epoch minute from the newest event received so far
+     */
+    private long newestMinute = Long.MIN_VALUE;
+
+    /**
+     * The last sketch that received an event, since consecutive events usually share the same minute
+     */
+    private long lastMinute;
+    private SpaceSavingSketch lastSketch;
+
+    TopKAccumulator(List<Integer> windowSizes, Set<Dimension> dimensions, Map<Dimension, Dictionary> dictionaries, int k, int capacity) {
+        this.windowSizes = windowSizes;
+        this.maxWindowSize = windowSizes.stream().mapToInt(Integer::intValue).max().getAsInt();
+        this.dimensions = EnumSet.copyOf(dimensions);
+        this.dictionaries = dictionaries;
+        this.k = k;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add a decoded translation event, whose dimensions have been encoded with the accumulator dictionaries
+     * @param event The translation event decoded from the incoming file
+     */
+    public void accept(TranslationEvent event) {
+        add(event.getTimestamp(), event.getDuration(), DimensionKey.pack(dimensions, event.getDimensionIds()));
+    }
+
+    /**
+     * Add a translation event duration to the sketch from its minute. When the event is the newest one received so
+     * far, all the minutes that fell out of the biggest window size interval are discarded.
+     * @param epochSecond The event timestamp as epoch second
+     * @param duration The event duration
+     * @param key The event dimension key
+     */
+    void add(long epochSecond, long duration, long key) {
+        long minute = TimestampParser.toEpochMinute(epochSecond);
+        if (minute > newestMinute) {
+            newestMinute = minute;
+            minutes.headMap(getFirstMinute(maxWindowSize)).clear();
+            lastSketch = null;
+        } else if (minute < getFirstMinute(maxWindowSize)) {
+            return;
+        }
+        if (Objects.isNull(lastSketch) || minute != lastMinute) {
+            lastMinute = minute;
+            lastSketch = minutes.computeIfAbsent(minute, newMinute -> new SpaceSavingSketch(capacity));
+        }
+        lastSketch.add(key, duration);
+    }
+
+    /**
+     * Find the keys with the biggest total event duration from each window size interval before the minute after
+     * the newest event
+     * @return List<HeavyHitter> Up to k rows by window size, on the requested order, slowest first
+     * @throws RuntimeException When no events have been received
+     */
+    public List<HeavyHitter> getTopByTotalDuration() {
+        return getTop(Comparator.comparingLong(HeavyHitter::getTotalDuration).reversed());
+    }
+
+    /**
+     * Find the keys with the biggest average event duration, among the ones tracked by each window sketch
+     * @return List<HeavyHitter> Up to k rows by window size, on the requested order, slowest first
+     * @throws RuntimeException When no events have been received
+     */
+    public List<HeavyHitter> getTopByAverageDuration() {
+        return getTop(Comparator.comparingDouble(HeavyHitter::getAverageDeliveryTime).reversed());
+    }
+
+    private List<HeavyHitter> getTop(Comparator<HeavyHitter> order) {
+        if (newestMinute == Long.MIN_VALUE) {
+            throw new RuntimeException("Unable to extract metrics based on the received data.");
+        }
+        String timestamp = TimestampParser.formatEpochMinute(newestMinute + 1);
+        List<HeavyHitter> heavyHitters = new ArrayList<>();
+        for (Integer windowSize : windowSizes) {
+            SpaceSavingSketch window = new SpaceSavingSketch(capacity);
+            for (SpaceSavingSketch minute : minutes.tailMap(getFirstMinute(windowSize)).values()) {
+                window = window.merge(minute);
+            }
+            List<HeavyHitter> rows = new ArrayList<>();
+            window.forEach((key, weight, error, count) -> rows.add(HeavyHitter.builder()
+                                                                             .timestamp(timestamp)
+                                                                             .windowSize(windowSize)
+                                                                             .clientName(resolve(key, Dimension.CLIENT_NAME))
+                                                                             .sourceLanguage(resolve(key, Dimension.SOURCE_LANGUAGE))
+                                                                             .targetLanguage(resolve(key, Dimension.TARGET_LANGUAGE))
+                                                                             .totalDuration(weight)
+                                                                             .totalDurationError(error)
+                                                                             .events(count)
+                                                                             .averageDeliveryTime((double) (weight - error) / count)
+                                                                             .build()));
+            rows.sort(order.thenComparing(HeavyHitter::toString));
+            heavyHitters.addAll(rows.subList(0, Math.min(k, rows.size())));
+        }
+        return heavyHitters;
+    }
+
+    /**
+     * Find the dimension value from a dimension key
+     */
+    private String resolve(long key, Dimension dimension) {
+        int id = DimensionKey.unpack(key, dimension);
+        return id == TranslationEvent.UNDEFINED ? null : dictionaries.get(dimension).getValue(id);
+    }
+
+    /**
+     * @return long The first epoch minute within the window size interval from the newest event
+     */
+    private long getFirstMinute(int windowSize) {
+        return newestMinute - windowSize + 1;
+    }
+}
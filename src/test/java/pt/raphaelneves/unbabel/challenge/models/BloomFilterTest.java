@@ -0,0 +1,66 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the BloomFilter and LongSet classes")
+public class BloomFilterTest {
+
+    @Test
+    @DisplayName("Always find the added hashes and find the other ones close to the requested false positive rate")
+    void mightContain_falsePositiveRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] added = new long[100_000];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = random.nextLong();
+            filter.put(added[i]);
+        }
+        for (long hash : added) {
+            Assertions.assertTrue(filter.mightContain(hash));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        Assertions.assertEquals(1_000, falsePositives, 200);
+        Assertions.assertEquals(7, filter.getHashCount());
+
+        filter.clear();
+        Assertions.assertFalse(filter.mightContain(added[0]));
+    }
+
+    @Test
+    @DisplayName("Throw exception if the false positive rate is out of its range")
+    void bloomFilter_invalidFalsePositiveRate() {
+        Assertions.assertThrows(RuntimeException.class, () -> new BloomFilter(100, 1.0));
+        Assertions.assertThrows(RuntimeException.class, () -> new BloomFilter(0, 0.01));
+    }
+
+    @Test
+    @DisplayName("Keep the same values as a HashSet through additions and removals, including zero")
+    void add_sameAsHashSet() {
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextLong(2_000);
+            if (random.nextBoolean()) {
+                Assertions.assertEquals(expected.add(value), set.add(value));
+            } else {
+                Assertions.assertEquals(expected.remove(value), set.remove(value));
+            }
+        }
+        Assertions.assertEquals(expected.size(), set.size());
+        for (long value = 0; value < 2_000; value++) {
+            Assertions.assertEquals(expected.contains(value), set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the DimensionKey and RollupTable classes")
+public class DimensionKeyTest {
+
+    @Test
+    @DisplayName("Pack the grouped dimensions only, keeping the undefined values apart from the defined ones")
+    void pack_groupedDimensionsOnly() {
+        int[] ids = new int[]{5, 0, TranslationEvent.UNDEFINED, 7};
+        long key = DimensionKey.pack(EnumSet.of(Dimension.CLIENT_NAME, Dimension.SOURCE_LANGUAGE, Dimension.TARGET_LANGUAGE), ids);
+        Assertions.assertEquals(5, DimensionKey.unpack(key, Dimension.CLIENT_NAME));
+        Assertions.assertEquals(0, DimensionKey.unpack(key, Dimension.SOURCE_LANGUAGE));
+        Assertions.assertEquals(TranslationEvent.UNDEFINED, DimensionKey.unpack(key, Dimension.TARGET_LANGUAGE));
+        Assertions.assertEquals(TranslationEvent.UNDEFINED, DimensionKey.unpack(key, Dimension.EVENT_NAME));
+        Assertions.assertEquals(key, DimensionKey.pack(EnumSet.of(Dimension.CLIENT_NAME, Dimension.SOURCE_LANGUAGE, Dimension.TARGET_LANGUAGE), new int[]{5, 0, TranslationEvent.UNDEFINED, 8}));
+    }
+
+    @Test
+    @DisplayName("Throw exception if a dimension has more distinct values than its key bits can hold")
+    void pack_tooManyDistinctValues() {
+        Assertions.assertThrows(RuntimeException.class, () -> DimensionKey.pack(EnumSet.of(Dimension.SOURCE_LANGUAGE), new int[]{0, 4095, 0, 0}));
+    }
+
+    @Test
+    @DisplayName("Summarize the events by key, growing the table as needed")
+    void rollupTable_addAndMerge() {
+        RollupTable table = new RollupTable();
+        RollupTable other = new RollupTable();
+        for (long key = 0; key < 1000; key++) {
+            table.add(key, 1, key);
+            other.add(key * 2, 2, 10);
+        }
+        table.addAll(other);
+        Assertions.assertEquals(1500, table.size());
+        Assertions.assertEquals(3, table.getCount(998));
+        Assertions.assertEquals(1008, table.getSum(998));
+        Assertions.assertEquals(1, table.getCount(999));
+        Assertions.assertEquals(0, table.getCount(5000));
+    }
+}
@@ -0,0 +1,37 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the EventBatch class")
+public class EventBatchTest {
+
+    @Test
+    @DisplayName("Store the events by column and encode the language pairs from both languages")
+    void add_encodeLanguagePairs() {
+        EventBatch batch = new EventBatch();
+        Map<Dimension, Dictionary> dictionaries = batch.getDictionaries();
+        TranslationEvent event = new TranslationEvent();
+        for (int i = 0; i < 3000; i++) {
+            event.reset();
+            event.setTimestamp(i);
+            event.setDuration(i * 10L);
+            event.getDimensionIds()[Dimension.CLIENT_NAME.ordinal()] = dictionaries.get(Dimension.CLIENT_NAME).lookup("easyjet");
+            event.getDimensionIds()[Dimension.SOURCE_LANGUAGE.ordinal()] = dictionaries.get(Dimension.SOURCE_LANGUAGE).lookup(i % 2 == 0 ? "en" : "pt");
+            event.getDimensionIds()[Dimension.TARGET_LANGUAGE.ordinal()] = dictionaries.get(Dimension.TARGET_LANGUAGE).lookup("fr");
+            batch.add(event);
+        }
+        Assertions.assertEquals(3000, batch.size());
+        Assertions.assertEquals(2999L, batch.getTimestamp(2999));
+        Assertions.assertEquals(29990L, batch.getDuration(2999));
+        Assertions.assertEquals(batch.getLanguagePairId(0), batch.getLanguagePairId(2));
+        Assertions.assertNotEquals(batch.getLanguagePairId(0), batch.getLanguagePairId(1));
+        Assertions.assertEquals("pt", batch.getSourceLanguage(batch.getLanguagePairId(1)));
+        Assertions.assertEquals("fr", batch.getTargetLanguage(batch.getLanguagePairId(1)));
+        Assertions.assertEquals("easyjet", batch.getClientName(batch.getClientId(1)));
+        Assertions.assertEquals(TranslationEvent.UNDEFINED, batch.getEventNameId(1));
+    }
+}
@@ -0,0 +1,65 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the LatencySketch class")
+public class LatencySketchTest {
+
+    @Test
+    @DisplayName("Estimate the percentiles with a relative error below 1%")
+    void getValueAtPercentile_boundedRelativeError() {
+        Random random = new Random(42);
+        long[] durations = new long[100_000];
+        LatencySketch sketch = new LatencySketch();
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = (long) Math.exp(random.nextDouble() * 25);
+            sketch.record(durations[i]);
+        }
+        Arrays.sort(durations);
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9, 100}) {
+            long expected = durations[(int) Math.ceil(percentile / 100 * durations.length) - 1];
+            long estimated = sketch.getValueAtPercentile(percentile);
+            Assertions.assertTrue(Math.abs(estimated - expected) <= expected * 0.01, percentile + "th percentile: " + estimated + " instead of " + expected);
+        }
+        Assertions.assertEquals(100_000, sketch.getTotalCount());
+    }
+
+    @Test
+    @DisplayName("Keep the durations below 128 exact and return zero when the sketch is empty")
+    void getValueAtPercentile_smallDurations() {
+        LatencySketch sketch = new LatencySketch();
+        Assertions.assertEquals(0, sketch.getValueAtPercentile(50));
+        for (long duration = 1; duration <= 100; duration++) {
+            sketch.record(duration);
+        }
+        Assertions.assertEquals(50, sketch.getValueAtPercentile(50));
+        Assertions.assertEquals(90, sketch.getValueAtPercentile(90));
+        Assertions.assertEquals(99, sketch.getValueAtPercentile(99));
+        Assertions.assertEquals(1, sketch.getValueAtPercentile(0));
+    }
+
+    @Test
+    @DisplayName("Merge and subtract sketches as if the durations had been recorded or removed one by one")
+    void merge_subtract() {
+        LatencySketch first = new LatencySketch();
+        LatencySketch second = new LatencySketch();
+        first.record(10, 3);
+        second.record(5_000);
+        second.record(Long.MAX_VALUE);
+        first.merge(second);
+        Assertions.assertEquals(5, first.getTotalCount());
+        Assertions.assertEquals(10, first.getValueAtPercentile(60));
+        Assertions.assertTrue(first.getValueAtPercentile(100) > Long.MAX_VALUE / 100 * 99);
+        first.subtract(second);
+        Assertions.assertEquals(3, first.getTotalCount());
+        Assertions.assertEquals(10, first.getValueAtPercentile(100));
+        first.reset();
+        Assertions.assertEquals(0, first.getTotalCount());
+        Assertions.assertEquals(0, first.getValueAtPercentile(100));
+    }
+}
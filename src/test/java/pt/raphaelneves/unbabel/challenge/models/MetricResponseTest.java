@@ -0,0 +1,34 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the MetricResponse and HeavyHitter classes")
+public class MetricResponseTest {
+
+    private static final String CLIENT_NAME = "easy\"jet\\ \n";
+
+    @Test
+    @DisplayName("Escape the quotes, backslashes and control characters from the dimension values")
+    void toString_escapedDimensions() {
+        MetricResponse response = MetricResponse.builder()
+                                                .timestamp("2018-12-26 18:11:00")
+                                                .clientName(CLIENT_NAME)
+                                                .averageDeliveryTime(20.0)
+                                                .build();
+        Assertions.assertEquals("{\"date\": 2018-12-26 18:11:00, \"client_name\": \"easy\\\"jet\\\\ \\n\", \"average_delivery_time\": 20.0}",
+                response.toString());
+    }
+
+    @Test
+    @DisplayName("Escape the dimension values from the heavy hitters like the metric responses")
+    void toString_escapedHeavyHitter() {
+        HeavyHitter heavyHitter = HeavyHitter.builder()
+                                             .timestamp("2018-12-26 18:11:00")
+                                             .windowSize(10)
+                                             .clientName(CLIENT_NAME)
+                                             .build();
+        Assertions.assertTrue(heavyHitter.toString().contains(", \"client_name\": \"easy\\\"jet\\\\ \\n\","));
+    }
+}
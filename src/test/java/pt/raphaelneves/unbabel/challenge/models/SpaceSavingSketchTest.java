@@ -0,0 +1,77 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the SpaceSavingSketch class")
+public class SpaceSavingSketchTest {
+
+    @Test
+    @DisplayName("Keep the exact totals while every key has its own counter")
+    void add_exactWithinCapacity() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for (long key = 0; key < 4; key++) {
+            for (int event = 0; event <= key; event++) {
+                sketch.add(key, 10);
+            }
+        }
+        sketch.add(0, -5);
+        Assertions.assertEquals(4, sketch.size());
+        sketch.forEach((key, weight, error, count) -> {
+            Assertions.assertEquals(0, error);
+            Assertions.assertEquals(key == 0 ? 2 : key + 1, count);
+            Assertions.assertEquals((key + 1) * 10, weight);
+        });
+        Assertions.assertEquals(10, sketch.getFloor());
+        Assertions.assertThrows(RuntimeException.class, () -> new SpaceSavingSketch(0));
+    }
+
+    @Test
+    @DisplayName("Bound the real totals and track every key above the floor, before and after merging")
+    void add_boundsWithManyKeys() {
+        Random random = new Random(42);
+        SpaceSavingSketch first = new SpaceSavingSketch(50);
+        SpaceSavingSketch second = new SpaceSavingSketch(50);
+        Map<Long, Long> firstTotals = new HashMap<>();
+        Map<Long, Long> totals = new HashMap<>();
+        for (int event = 0; event < 100_000; event++) {
+            long key = random.nextInt(10) < 7 ? random.nextInt(10) : random.nextInt(5_000);
+            long duration = random.nextInt(100) + (key < 3 ? 100 : 0);
+            SpaceSavingSketch sketch = event % 2 == 0 ? first : second;
+            sketch.add(key, duration);
+            if (sketch == first) {
+                firstTotals.merge(key, duration, Long::sum);
+            }
+            totals.merge(key, duration, Long::sum);
+        }
+        assertBounds(first, firstTotals);
+        SpaceSavingSketch merged = first.merge(second);
+        Assertions.assertEquals(50, merged.size());
+        assertBounds(merged, totals);
+    }
+
+    private static void assertBounds(SpaceSavingSketch sketch, Map<Long, Long> totals) {
+        Set<Long> tracked = new HashSet<>();
+        sketch.forEach((key, weight, error, count) -> {
+            tracked.add(key);
+            long total = totals.get(key);
+            Assertions.assertTrue(total <= weight, "The total must not be underestimated");
+            Assertions.assertTrue(total >= weight - error, "The error must bound the total");
+        });
+        totals.forEach((key, total) -> {
+            if (total > sketch.getFloor()) {
+                Assertions.assertTrue(tracked.contains(key), "Every key above the floor must be tracked");
+            }
+        });
+        for (long key = 0; key < 3; key++) {
+            Assertions.assertTrue(tracked.contains(key));
+        }
+    }
+}
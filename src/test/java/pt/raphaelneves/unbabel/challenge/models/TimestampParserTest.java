@@ -0,0 +1,51 @@
+package pt.raphaelneves.unbabel.challenge.models;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the TimestampParser class")
+public class TimestampParserTest {
+
+    @Test
+    @DisplayName("Convert timestamps into the same epoch second and microsecond as the LocalDateTime conversion")
+    void parse_sameAsLocalDateTime() {
+        for (String timestamp : new String[]{"1970-01-01 00:00:00", "2000-02-29 23:59:59.1", "2018-12-26 18:11:08.509654",
+                "1969-12-31 23:59:59.000001", "2100-03-01 00:00:00", "0000-01-01 00:00:00", "9999-12-31 23:59:59.999999999"}) {
+            LocalDateTime expected = LocalDateTime.parse(timestamp.replace(' ', 'T'));
+            long expectedMicros = expected.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + expected.getNano() / 1_000;
+            Assertions.assertEquals(expected.toEpochSecond(ZoneOffset.UTC), TimestampParser.parseEpochSecond(timestamp));
+            Assertions.assertEquals(expectedMicros, TimestampParser.parseEpochMicros(timestamp));
+            char[] chars = ("  " + timestamp + "\"").toCharArray();
+            Assertions.assertEquals(expected.toEpochSecond(ZoneOffset.UTC), TimestampParser.parseEpochSecond(chars, 2, timestamp.length()));
+            Assertions.assertEquals(expectedMicros, TimestampParser.parseEpochMicros(chars, 2, timestamp.length()));
+        }
+    }
+
+    @Test
+    @DisplayName("Throw exception when the timestamp does not follow the expected format or is not a valid date")
+    void parse_invalidTimestamp() {
+        for (String timestamp : new String[]{"2018-12-26", "2018-12-26T18:11:08", "2018-02-30 18:11:08", "2018-12-26 24:00:00",
+                "2018-12-26 18:11:08Z", "2018-12-26 18:1a:08"}) {
+            Assertions.assertThrows(RuntimeException.class, () -> TimestampParser.parseEpochSecond(timestamp), timestamp);
+        }
+        Assertions.assertThrows(RuntimeException.class, () -> TimestampParser.parseEpochMicros("2018-12-26 18:11:08."));
+        Assertions.assertThrows(RuntimeException.class, () -> TimestampParser.parseEpochMicros("2018-12-26 18:11:08.5x"));
+    }
+
+    @Test
+    @DisplayName("Render epoch minutes as the same timestamp as the DateTimeFormatter")
+    void formatEpochMinute_sameAsDateTimeFormatter() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:00");
+        for (long epochMinute = -60_000_000L; epochMinute < 60_000_000L; epochMinute += 9_973L) {
+            String expected = formatter.format(LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC));
+            Assertions.assertEquals(expected, TimestampParser.formatEpochMinute(epochMinute));
+        }
+        Assertions.assertEquals("2018-12-26 18:11:00", TimestampParser.formatEpochMinute(TimestampParser.toEpochMinute(1545847868L)));
+        Assertions.assertEquals(-1L, TimestampParser.toEpochMinute(-1L));
+    }
+}
@@ -0,0 +1,123 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@DisplayName("Test cases for the EventDecoder class")
+public class EventDecoderTest {
+
+    static final String LINE = "{\"timestamp\": \"2018-12-26 18:11:08.509654\",\"translation_id\": \"A\",\"source_language\": \"en\","
+            + "\"target_language\": \"fr\",\"client_name\": \"easyjet\",\"event_name\": \"translation_delivered\",\"nr_words\": 30, \"duration\": 20}";
+
+    @Test
+    @DisplayName("Decode the metric attributes from a valid line")
+    void decode_validLine() {
+        TranslationEvent event = decode(new EventDecoder(), LINE);
+        Assertions.assertEquals(LocalDateTime.of(2018, 12, 26, 18, 11, 8).toEpochSecond(ZoneOffset.UTC), event.getTimestamp());
+        Assertions.assertEquals(20, event.getDuration());
+        Assertions.assertEquals(30, event.getNumberWords());
+        Assertions.assertEquals(TranslationEvent.UNDEFINED, event.getDimensionId(Dimension.CLIENT_NAME));
+    }
+
+    @Test
+    @DisplayName("Hash the translation id, keeping zero for the lines without it")
+    void decode_translationIdHash() {
+        EventDecoder decoder = new EventDecoder();
+        long hash = decode(decoder, LINE).getTranslationIdHash();
+        Assertions.assertNotEquals(0, hash);
+        Assertions.assertEquals(hash, decode(decoder, LINE.replace("easyjet", "booking")).getTranslationIdHash());
+        Assertions.assertNotEquals(hash, decode(decoder, LINE.replace("\"A\"", "\"B\"")).getTranslationIdHash());
+        Assertions.assertEquals(0, decode(decoder, LINE.replace("\"translation_id\": \"A\",", "")).getTranslationIdHash());
+    }
+
+    @Test
+    @DisplayName("Encode the requested dimensions through the decoder dictionaries")
+    void decode_requestedDimensions() {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME, Dimension.TARGET_LANGUAGE));
+        TranslationEvent event = decode(decoder, LINE);
+        Assertions.assertEquals("easyjet", decoder.getDictionary(Dimension.CLIENT_NAME).getValue(event.getDimensionId(Dimension.CLIENT_NAME)));
+        Assertions.assertEquals("fr", decoder.getDictionary(Dimension.TARGET_LANGUAGE).getValue(event.getDimensionId(Dimension.TARGET_LANGUAGE)));
+        Assertions.assertEquals(TranslationEvent.UNDEFINED, event.getDimensionId(Dimension.SOURCE_LANGUAGE));
+        Assertions.assertNull(decoder.getDictionary(Dimension.EVENT_NAME));
+
+        TranslationEvent otherEvent = decode(decoder, LINE.replace("easyjet", "booking"));
+        Assertions.assertEquals(1, otherEvent.getDimensionId(Dimension.CLIENT_NAME));
+        Assertions.assertEquals(0, decode(decoder, LINE).getDimensionId(Dimension.CLIENT_NAME));
+        Assertions.assertEquals(2, decoder.getDictionary(Dimension.CLIENT_NAME).size());
+    }
+
+    @Test
+    @DisplayName("Throw exception when the line doesn't have the timestamp")
+    void decode_missingTimestamp() {
+        InvalidLineException exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), "{\"timest\": \"2018-12-26 18:11:08.509654\"}"));
+        Assertions.assertEquals(RejectReason.MISSING_TIMESTAMP, exception.getReason());
+    }
+
+    @Test
+    @DisplayName("Throw exception when the line doesn't have the duration")
+    void decode_missingDuration() {
+        InvalidLineException exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), "{\"timestamp\": \"2018-12-26 18:11:08.509654\"}"));
+        Assertions.assertEquals(RejectReason.MISSING_DURATION, exception.getReason());
+        exception = Assertions.assertThrows(InvalidLineException.class, () -> decode(new EventDecoder(), LINE.replace("20}", "\"twenty\"}")));
+        Assertions.assertEquals(RejectReason.INVALID_DURATION, exception.getReason());
+    }
+
+    @Test
+    @DisplayName("Throw exception when the line is not a valid JSON")
+    void decode_malformedLine() {
+        InvalidLineException exception = Assertions.assertThrows(InvalidLineException.class, () -> decode(new EventDecoder(), LINE.substring(0, 60)));
+        Assertions.assertEquals(RejectReason.MALFORMED_JSON, exception.getReason());
+        Assertions.assertEquals(0, exception.getStackTrace().length);
+        exception = Assertions.assertThrows(InvalidLineException.class, () -> decode(new EventDecoder(), "[1, 2]"));
+        Assertions.assertEquals(RejectReason.NOT_AN_OBJECT, exception.getReason());
+    }
+
+    @Test
+    @DisplayName("Throw exception when the timestamp is not a valid date")
+    void decode_invalidTimestamp() {
+        InvalidLineException exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), LINE.replace("2018-12-26", "2018-02-30")));
+        Assertions.assertEquals(RejectReason.INVALID_TIMESTAMP, exception.getReason());
+        exception = Assertions.assertThrows(InvalidLineException.class, () -> decode(new EventDecoder(), LINE.replace("18:11:08", "18:61:08")));
+        Assertions.assertEquals(RejectReason.INVALID_TIMESTAMP, exception.getReason());
+    }
+
+    @Test
+    @DisplayName("Accept the integral durations written as a float or as a string, like the Jackson coercion")
+    void decode_coercedDuration() {
+        Assertions.assertEquals(20, decode(new EventDecoder(), LINE.replace("\"duration\": 20", "\"duration\": 20.0")).getDuration());
+        Assertions.assertEquals(20, decode(new EventDecoder(), LINE.replace("\"duration\": 20", "\"duration\": \"20\"")).getDuration());
+    }
+
+    @Test
+    @DisplayName("Throw exception when the duration is fractional or not a number")
+    void decode_invalidDuration() {
+        InvalidLineException exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), LINE.replace("\"duration\": 20", "\"duration\": 20.5")));
+        Assertions.assertEquals(RejectReason.INVALID_DURATION, exception.getReason());
+        exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), LINE.replace("\"duration\": 20", "\"duration\": \"fast\"")));
+        Assertions.assertEquals(RejectReason.INVALID_DURATION, exception.getReason());
+        exception = Assertions.assertThrows(InvalidLineException.class,
+                () -> decode(new EventDecoder(), LINE.replace("\"duration\": 20", "\"duration\": true")));
+        Assertions.assertEquals(RejectReason.INVALID_DURATION, exception.getReason());
+    }
+
+    TranslationEvent decode(EventDecoder decoder, String line) {
+        TranslationEvent event = new TranslationEvent();
+        byte[] bytes = ("  " + line).getBytes(StandardCharsets.UTF_8);
+        decoder.decode(bytes, 2, bytes.length - 2, event);
+        return event;
+    }
+}
@@ -0,0 +1,95 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.GeneratorSettings;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@DisplayName("Test cases for the EventDeduplicator class")
+public class EventDeduplicatorTest {
+
+    static final long FIRST_SECOND = MovingAverageEngineTest.FIRST_MINUTE * 60;
+
+    @Test
+    @DisplayName("Throw exception if no minute is kept in the exact set")
+    void eventDeduplicator_invalidExactMinutes() {
+        Assertions.assertThrows(RuntimeException.class, () -> new EventDeduplicator(0));
+    }
+
+    @Test
+    @DisplayName("Drop the events repeating a translation id within the exact minutes, but never the ones without id")
+    void isDuplicate_exactMinutes() {
+        EventDeduplicator deduplicator = new EventDeduplicator(2);
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 30, 12));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 59, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND, 0));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND, 0));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 60, 12));
+        Assertions.assertEquals(2, deduplicator.getExactIds());
+
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 120, 13));
+        Assertions.assertEquals(1, deduplicator.getExactIds());
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 120, 11));
+        Assertions.assertEquals(2, deduplicator.getDuplicates());
+    }
+
+    @Test
+    @DisplayName("Drop the events repeating a translation id that left the exact minutes through the filters")
+    void isDuplicate_filters() {
+        EventDeduplicator deduplicator = new EventDeduplicator(1, 60, 1_000, 0.001);
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 600, 12));
+        Assertions.assertEquals(1, deduplicator.getExactIds());
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 660, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND - 600, 13));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 700, 13));
+
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 3_700, 14));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 3_700, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 7_400, 15));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 7_400, 11));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 11_000, 16));
+        Assertions.assertFalse(deduplicator.isDuplicate(FIRST_SECOND + 11_000, 11));
+        Assertions.assertTrue(deduplicator.isDuplicate(FIRST_SECOND + 11_000, 14));
+    }
+
+    @Test
+    @DisplayName("Drop exactly the lines replayed by the generator")
+    void filter_generatedDuplicates() {
+        GeneratorSettings settings = GeneratorSettings.builder().events(50_000).duplicateRatio(0.05).outOfOrderRatio(0.05)
+                                                      .maxDelaySeconds(30).build();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new EventGenerator(settings).generate(output);
+        byte[] bytes = output.toByteArray();
+
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        EventDeduplicator deduplicator = new EventDeduplicator(5, 1_440, 100_000, 0.001);
+        List<Long> kept = new ArrayList<>();
+        int replayed = 0;
+        int start = 0;
+        String previous = null;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, start, i - start);
+            if (line.equals(previous)) {
+                replayed++;
+            }
+            previous = line;
+            decoder.decode(bytes, start, i - start, event);
+            deduplicator.filter(accepted -> kept.add(accepted.getTranslationIdHash())).accept(event);
+            start = i + 1;
+        }
+        Assertions.assertTrue(replayed > 2_000);
+        Assertions.assertEquals(replayed, deduplicator.getDuplicates());
+        Assertions.assertEquals(50_000 - replayed, kept.size());
+    }
+}
@@ -0,0 +1,107 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.GeneratorSettings;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@DisplayName("Test cases for the EventGenerator class")
+public class EventGeneratorTest {
+
+    @Test
+    @DisplayName("Generate the same lines from the same seed and different lines from another seed")
+    void generate_seeded() {
+        GeneratorSettings settings = GeneratorSettings.builder().events(1_000).duplicateRatio(0.1).malformedRatio(0.1).outOfOrderRatio(0.1).build();
+        String first = generate(settings);
+        Assertions.assertEquals(first, generate(settings));
+        settings.setSeed(7L);
+        Assertions.assertNotEquals(first, generate(settings));
+    }
+
+    @Test
+    @DisplayName("Generate valid events in time order within the requested cardinality and duration mean")
+    void generate_validEvents() {
+        GeneratorSettings settings = GeneratorSettings.builder().events(20_000).clients(50).languages(3).eventsPerSecond(10)
+                                                      .durationDistribution(GeneratorSettings.DurationDistribution.EXPONENTIAL)
+                                                      .durationMean(40).build();
+        List<String> lines = lines(generate(settings));
+        EventDecoder decoder = new EventDecoder(EnumSet.allOf(Dimension.class));
+        TranslationEvent event = new TranslationEvent();
+        long previousTimestamp = Long.MIN_VALUE;
+        long durations = 0;
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            decoder.decode(bytes, 0, bytes.length, event);
+            Assertions.assertTrue(event.getTimestamp() >= previousTimestamp);
+            previousTimestamp = event.getTimestamp();
+            durations += event.getDuration();
+        }
+        Assertions.assertEquals(20_000, lines.size());
+        Assertions.assertEquals(50, decoder.getDictionary(Dimension.CLIENT_NAME).size());
+        Assertions.assertEquals(3, decoder.getDictionary(Dimension.SOURCE_LANGUAGE).size());
+        Assertions.assertEquals(40.0, (double) durations / lines.size(), 1.0);
+        Assertions.assertEquals(2_000, previousTimestamp - settings.getStartEpochSecond(), 100);
+    }
+
+    @Test
+    @DisplayName("Generate duplicated, malformed and out of order lines close to the requested ratios")
+    void generate_unusualLines() {
+        GeneratorSettings settings = GeneratorSettings.builder().events(20_000).duplicateRatio(0.05).malformedRatio(0.02)
+                                                      .outOfOrderRatio(0.1).maxDelaySeconds(600).build();
+        EventDecoder decoder = new EventDecoder();
+        TranslationEvent event = new TranslationEvent();
+        Set<String> translationIds = new HashSet<>();
+        long previousTimestamp = Long.MIN_VALUE;
+        int duplicates = 0;
+        int malformed = 0;
+        int outOfOrder = 0;
+        for (String line : lines(generate(settings))) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            try {
+                decoder.decode(bytes, 0, bytes.length, event);
+            } catch (RuntimeException e) {
+                malformed++;
+                continue;
+            }
+            if (!translationIds.add(line.substring(line.indexOf("translation_id"), line.indexOf("source_language")))) {
+                duplicates++;
+                continue;
+            }
+            if (event.getTimestamp() < previousTimestamp) {
+                outOfOrder++;
+            }
+            previousTimestamp = Math.max(previousTimestamp, event.getTimestamp());
+        }
+        Assertions.assertEquals(1_000, duplicates, 150);
+        Assertions.assertEquals(400, malformed, 100);
+        Assertions.assertTrue(outOfOrder > 1_000, "out of order lines: " + outOfOrder);
+    }
+
+    @Test
+    @DisplayName("Throw exception if any setting is out of its valid range")
+    void eventGenerator_invalidSettings() {
+        Assertions.assertThrows(RuntimeException.class, () -> new EventGenerator(GeneratorSettings.builder().clients(0).build()));
+        Assertions.assertThrows(RuntimeException.class, () -> new EventGenerator(GeneratorSettings.builder().malformedRatio(1.5).build()));
+        Assertions.assertThrows(RuntimeException.class, () -> new EventGenerator(GeneratorSettings.builder().duplicateRatio(0.6).malformedRatio(0.6).build()));
+    }
+
+    String generate(GeneratorSettings settings) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new EventGenerator(settings).generate(output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    List<String> lines(String content) {
+        return Arrays.asList(content.split("\n"));
+    }
+}
@@ -0,0 +1,110 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.LatePolicy;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+@DisplayName("Test cases for the EventTimeProcessor class")
+public class EventTimeProcessorTest {
+
+    static final long FIRST_SECOND = MovingAverageEngineTest.FIRST_MINUTE * 60;
+
+    @Test
+    @DisplayName("Throw exception if the allowed lateness is a negative number")
+    void eventTimeProcessor_negativeAllowedLateness() {
+        Assertions.assertThrows(RuntimeException.class,
+                () -> new MetricService().createEventTimeProcessor(Arrays.asList(10), false, -1, LatePolicy.DROP, metric -> {}));
+    }
+
+    @Test
+    @DisplayName("Emit the same rows as the ordered events when they are out of order within the allowed lateness")
+    void add_reorderWithinAllowedLateness() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<long[]> events = new ArrayList<>();
+        for (long second = FIRST_SECOND; second < FIRST_SECOND + 3_600; second += 1 + random.nextInt(20)) {
+            events.add(new long[]{second - random.nextInt(120), random.nextInt(100)});
+        }
+        List<MetricResponse> expected = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(Arrays.asList(1, 10), true, expected::add);
+        events.stream().sorted(Comparator.comparingLong(event -> event[0])).forEach(event -> engine.add(event[0], event[1]));
+        engine.flush();
+
+        List<MetricResponse> metrics = new ArrayList<>();
+        EventTimeProcessor processor = new MetricService().createEventTimeProcessor(Arrays.asList(1, 10), true, 120, LatePolicy.DROP, metrics::add);
+        for (long[] event : events) {
+            processor.add(event[0], event[1]);
+            Assertions.assertTrue(processor.getBufferedMinutes() <= 4);
+        }
+        processor.flush();
+        Assertions.assertEquals(0, processor.getLateEvents());
+        Assertions.assertEquals(expected, metrics);
+    }
+
+    @Test
+    @DisplayName("Emit a minute only once the watermark passes it")
+    void add_emitWhenWatermarkPasses() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        EventTimeProcessor processor = new MetricService().createEventTimeProcessor(Arrays.asList(3), false, 90, LatePolicy.DROP, metrics::add);
+        processor.add(FIRST_SECOND + 10, 10);
+        processor.add(FIRST_SECOND + 100, 20);
+        Assertions.assertTrue(metrics.isEmpty());
+        processor.add(FIRST_SECOND + 160, 30);
+        Assertions.assertEquals(Arrays.asList(0.0, 10.0), averages(metrics));
+        processor.add(FIRST_SECOND + 70, 40);
+        processor.add(FIRST_SECOND + 200, 50);
+        processor.flush();
+        Assertions.assertEquals(Arrays.asList(0.0, 10.0, 70.0 / 3, 25.0, 35.0), averages(metrics));
+        Assertions.assertEquals(0, processor.getLateEvents());
+    }
+
+    @Test
+    @DisplayName("Only count the events arriving after their minute has been finalized when they must be dropped")
+    void add_dropLateEvents() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        EventTimeProcessor processor = new MetricService().createEventTimeProcessor(Arrays.asList(3), false, 0, LatePolicy.DROP, metrics::add);
+        processor.add(FIRST_SECOND, 10);
+        processor.add(FIRST_SECOND + 60, 20);
+        processor.add(FIRST_SECOND + 120, 30);
+        processor.add(FIRST_SECOND + 30, 1000);
+        processor.flush();
+        Assertions.assertEquals(Arrays.asList(0.0, 10.0, 15.0, 20.0), averages(metrics));
+        Assertions.assertEquals(1, processor.getLateEvents());
+        Assertions.assertEquals(0, processor.getCorrectedRows());
+    }
+
+    @Test
+    @DisplayName("Emit again the rows containing the events arriving after their minute has been finalized")
+    void add_correctLateEvents() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        EventTimeProcessor processor = new MetricService().createEventTimeProcessor(Arrays.asList(1, 3), false, 0, LatePolicy.CORRECT, metrics::add);
+        processor.add(FIRST_SECOND, 10);
+        processor.add(FIRST_SECOND + 60, 20);
+        processor.add(FIRST_SECOND + 120, 30);
+        processor.add(FIRST_SECOND + 30, 40);
+        processor.flush();
+
+        List<MetricResponse> corrected = metrics.stream().filter(metric -> Boolean.TRUE.equals(metric.getCorrected())).collect(Collectors.toList());
+        Assertions.assertEquals(3, corrected.size());
+        Assertions.assertEquals(Arrays.asList(1, 3, 3), corrected.stream().map(MetricResponse::getWindowSize).collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList(25.0, 25.0, 70.0 / 3), averages(corrected));
+        Assertions.assertEquals(metrics.get(2).getTimestamp(), corrected.get(0).getTimestamp());
+        Assertions.assertEquals(metrics.get(2).getTimestamp(), corrected.get(1).getTimestamp());
+        Assertions.assertEquals(metrics.get(4).getTimestamp(), corrected.get(2).getTimestamp());
+        Assertions.assertEquals(100.0 / 4, metrics.get(metrics.size() - 1).getAverageDeliveryTime());
+        Assertions.assertEquals(1, processor.getLateEvents());
+        Assertions.assertEquals(3, processor.getCorrectedRows());
+    }
+
+    private static List<Double> averages(List<MetricResponse> metrics) {
+        return metrics.stream().map(MetricResponse::getAverageDeliveryTime).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,166 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+@DisplayName("Test cases for the FileFollower class")
+public class FileFollowerTest {
+
+    Path directory;
+    Path file;
+    List<Long> durations;
+    FileFollower follower;
+
+    @BeforeEach
+    void createFollowedFile() throws IOException {
+        directory = Files.createTempDirectory("unbabel-challenge-follow");
+        file = directory.resolve("events.json");
+        Files.createFile(file);
+        durations = new ArrayList<>();
+        follower = new FileFollower(file.toFile(), new EventDecoder(), event -> durations.add(event.getDuration()), 10);
+    }
+
+    @AfterEach
+    void deleteFollowedFile() {
+        follower.close();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File each : files) {
+                each.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    @DisplayName("Decode only the lines appended since the last poll")
+    void poll_onlyAppendedLines() throws IOException {
+        append(file, line("18:11:08", 20), line("18:12:08", 30));
+        Assertions.assertEquals(2, follower.poll());
+        append(file, line("18:13:08", 40));
+        Assertions.assertEquals(1, follower.poll());
+        Assertions.assertEquals(0, follower.poll());
+        Assertions.assertEquals(3, durations.size());
+        Assertions.assertEquals(40L, durations.get(2));
+    }
+
+    @Test
+    @DisplayName("Wait for the line separator before decoding an incomplete line")
+    void poll_incompleteLine() throws IOException {
+        String line = line("18:11:08", 20);
+        append(file, line.substring(0, 30));
+        Assertions.assertEquals(0, follower.poll());
+        append(file, line.substring(30));
+        Assertions.assertEquals(1, follower.poll());
+        Assertions.assertEquals(20L, durations.get(0));
+    }
+
+    @Test
+    @DisplayName("Read the file from the beginning after it is truncated")
+    void poll_truncatedFile() throws IOException {
+        append(file, line("18:11:08", 20), line("18:12:08", 30));
+        follower.poll();
+        Files.write(file, line("18:20:08", 50).getBytes(StandardCharsets.UTF_8), StandardOpenOption.TRUNCATE_EXISTING);
+        Assertions.assertEquals(1, follower.poll());
+        Assertions.assertEquals(50L, durations.get(2));
+    }
+
+    @Test
+    @DisplayName("Read the remaining lines from the rotated file before moving to the new one")
+    void poll_rotatedFile() throws IOException {
+        append(file, line("18:11:08", 20));
+        follower.poll();
+        append(file, line("18:12:08", 30));
+        Files.move(file, directory.resolve("events.json.1"));
+        Assertions.assertEquals(1, follower.poll());
+        append(file, line("18:13:08", 40));
+        Assertions.assertEquals(1, follower.poll());
+        Assertions.assertEquals(3, durations.size());
+        Assertions.assertEquals(30L, durations.get(1));
+        Assertions.assertEquals(40L, durations.get(2));
+    }
+
+    @Test
+    @DisplayName("Skip and count the invalid lines, writing them to the quarantine with their offset")
+    void poll_invalidLines() throws IOException {
+        Path quarantinePath = directory.resolve("quarantine.json");
+        LineQuarantine quarantine = new LineQuarantine(quarantinePath, -1);
+        FileFollower quarantineFollower = new FileFollower(file.toFile(), new EventDecoder(), event -> durations.add(event.getDuration()),
+                10, quarantine);
+        String first = line("18:11:08", 20);
+        append(file, first, "not a translation event\n", line("18:12:08", 30));
+        Assertions.assertEquals(2, quarantineFollower.poll());
+        append(file, "{\"timestamp\": \"2018-12-26 18:13:08\", \"duration\": \"slow\"}\n");
+        Assertions.assertEquals(0, quarantineFollower.poll());
+        quarantineFollower.close();
+        quarantine.close();
+
+        Assertions.assertEquals(2, quarantineFollower.getRejectedLines());
+        Assertions.assertEquals(2, durations.size());
+        Assertions.assertEquals(4, quarantine.getLines());
+        List<String> quarantined = Files.readAllLines(quarantinePath);
+        Assertions.assertEquals(2, quarantined.size());
+        Assertions.assertTrue(quarantined.get(0).contains("\"offset\":" + first.length()));
+    }
+
+    @Test
+    @DisplayName("Keep the failure that stopped following the file")
+    void run_failure() {
+        FileFollower failingFollower = new FileFollower(file.toFile(), new EventDecoder(), event -> {
+            throw new RuntimeException("Unable to keep the event");
+        }, 10);
+        Assertions.assertTrue(failingFollower.isRunning());
+        Assertions.assertNull(failingFollower.getFailure());
+        Assertions.assertDoesNotThrow(() -> append(file, line("18:11:08", 20)));
+        Assertions.assertThrows(RuntimeException.class, failingFollower::run);
+        Assertions.assertFalse(failingFollower.isRunning());
+        Assertions.assertEquals("Unable to keep the event", failingFollower.getFailure());
+    }
+
+    @Test
+    @DisplayName("Emit each minute as soon as it closes while following the file")
+    void run_emitClosedMinutes() throws Exception {
+        List<MetricResponse> metrics = Collections.synchronizedList(new ArrayList<>());
+        MovingAverageEngine engine = new MetricService().createEngine(10, metrics::add);
+        FileFollower engineFollower = new FileFollower(file.toFile(), new EventDecoder(), event -> engine.add(event.getTimestamp(), event.getDuration()), 10);
+        Thread thread = new Thread(engineFollower);
+        thread.start();
+        append(file, line("18:11:08", 20), line("18:15:19", 31));
+        waitUntil(() -> metrics.size() == 5);
+        Assertions.assertEquals("2018-12-26 18:15:00", metrics.get(4).getTimestamp());
+        Assertions.assertEquals(20.0, metrics.get(4).getAverageDeliveryTime());
+        engineFollower.stop();
+        thread.join(5000);
+        Assertions.assertEquals(Boolean.FALSE, thread.isAlive());
+    }
+
+    static String line(String time, long duration) {
+        return "{\"timestamp\": \"2018-12-26 " + time + ".509654\",\"translation_id\": \"A\",\"duration\": " + duration + "}\n";
+    }
+
+    static void append(Path path, String... lines) throws IOException {
+        Files.write(path, String.join("", lines).getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
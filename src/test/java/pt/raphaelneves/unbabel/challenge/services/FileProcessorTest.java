@@ -1,16 +1,33 @@
 package pt.raphaelneves.unbabel.challenge.services;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.EventBatch;
 import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
 import pt.raphaelneves.unbabel.challenge.models.Translation;
 
@@ -125,6 +142,367 @@ public class FileProcessorTest {
         Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.convertFileLines(fileLines));
     }
 
+    @Test
+    @DisplayName("Stream all lines from a file as translation objects")
+    void streamFileLines_fileWithMultipleLines() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        List<Translation> translations = new ArrayList<>();
+        long processedLines = fileProcessor.streamFileLines(loadedFile, translations::add);
+        Assertions.assertEquals(21, processedLines);
+        Assertions.assertEquals(21, translations.size());
+        Assertions.assertEquals("fr", translations.get(0).getTargetLanguage());
+        Assertions.assertEquals("en", translations.get(3).getSourceLanguage());
+    }
+
+    @Test
+    @DisplayName("Throw exception when streaming an empty file")
+    void streamFileLines_emptyFile() {
+        URL fileUrl = getClass().getClassLoader().getResource("empty_file.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileLines(loadedFile, translation -> {}));
+    }
+
+    @Test
+    @DisplayName("Throw exception while streaming a file with an invalid line")
+    void streamFileLines_withInvalidLine() {
+        URL fileUrl = getClass().getClassLoader().getResource("invalid_file_line.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileLines(loadedFile, translation -> {}));
+    }
+
+    @Test
+    @DisplayName("Stream all lines from a file as decoded events")
+    void streamFileEvents_fileWithMultipleLines() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        List<Long> durations = new ArrayList<>();
+        long processedLines = fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), event -> durations.add(event.getDuration()));
+        Assertions.assertEquals(21, processedLines);
+        Assertions.assertEquals(21, durations.size());
+        Assertions.assertEquals(20L, durations.get(0));
+        Assertions.assertEquals(12L, durations.get(20));
+    }
+
+    @Test
+    @DisplayName("Throw exception when streaming events from an empty file")
+    void streamFileEvents_emptyFile() {
+        URL fileUrl = getClass().getClassLoader().getResource("empty_file.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), event -> {}));
+    }
+
+    @Test
+    @DisplayName("Throw exception while streaming events from a file with an invalid line")
+    void streamFileEvents_withInvalidLine() {
+        URL fileUrl = getClass().getClassLoader().getResource("invalid_file_line.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), event -> {}));
+    }
+
+    @Test
+    @DisplayName("Stream the events from a pipe as soon as each line arrives")
+    void streamEvents_pipe() throws IOException, InterruptedException {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        List<String> lines = Files.readAllLines(Paths.get(fileUrl.getPath()));
+        PipedOutputStream output = new PipedOutputStream();
+        PipedInputStream input = new PipedInputStream(output);
+        CountDownLatch firstEvent = new CountDownLatch(1);
+        List<Long> durations = new ArrayList<>();
+        AtomicLong processedLines = new AtomicLong();
+        Thread reader = new Thread(() -> processedLines.set(fileProcessor.streamEvents(input, new EventDecoder(), event -> {
+            durations.add(event.getDuration());
+            firstEvent.countDown();
+        })));
+        reader.start();
+
+        output.write((lines.get(0) + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+        Assertions.assertTrue(firstEvent.await(5, TimeUnit.SECONDS));
+        for (String line : lines.subList(1, lines.size())) {
+            output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        output.close();
+        reader.join();
+        Assertions.assertEquals(21, processedLines.get());
+        Assertions.assertEquals(21, durations.size());
+        Assertions.assertEquals(12L, durations.get(20));
+        Assertions.assertEquals(0, fileProcessor.streamEvents(new ByteArrayInputStream(new byte[0]), new EventDecoder(), event -> {}));
+    }
+
+    @Test
+    @DisplayName("Load all events from a file into a columnar batch")
+    void loadEventBatch_fileWithMultipleLines() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        EventBatch batch = fileProcessor.loadEventBatch(loadedFile);
+        Assertions.assertEquals(21, batch.size());
+        Assertions.assertEquals(20L, batch.getDuration(0));
+        Assertions.assertEquals("easyjet", batch.getClientName(batch.getClientId(0)));
+        Assertions.assertEquals("en", batch.getSourceLanguage(batch.getLanguagePairId(3)));
+        Assertions.assertEquals("fr", batch.getTargetLanguage(batch.getLanguagePairId(3)));
+        Assertions.assertEquals("translation_delivered", batch.getEventName(batch.getEventNameId(20)));
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics when decoding the file chunks in parallel")
+    void streamFileEventsInParallel_sameResultAsSequentialCalculation() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        List<Translation> translations = fileProcessor.convertFileLines(fileProcessor.extractFileLines(loadedFile));
+        for (int windowSize : new int[]{0, 10, 45, Integer.MAX_VALUE}) {
+            List<MetricResponse> expected = metricService.calculateAverageEventDuration(new ArrayList<>(translations), windowSize);
+            for (int parallelism = 1; parallelism <= 32; parallelism *= 2) {
+                MetricAccumulator accumulator = fileProcessor.streamFileEventsInParallel(loadedFile, () -> metricService.createAccumulator(windowSize), parallelism);
+                Assertions.assertEquals(expected, accumulator.getMetrics());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Split the file into chunks aligned to the line separator")
+    void splitIntoChunks_alignedToLineSeparator() throws IOException {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        try (FileChannel channel = FileChannel.open(Paths.get(fileUrl.getPath()), StandardOpenOption.READ)) {
+            long[] boundaries = fileProcessor.splitIntoChunks(channel, 4);
+            byte[] content = Files.readAllBytes(Paths.get(fileUrl.getPath()));
+            Assertions.assertEquals(5, boundaries.length);
+            Assertions.assertEquals(0, boundaries[0]);
+            Assertions.assertEquals(content.length, boundaries[4]);
+            for (int i = 1; i < boundaries.length - 1; i++) {
+                Assertions.assertEquals('\n', content[(int) boundaries[i] - 1]);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Throw exception when decoding an empty file in parallel")
+    void streamFileEventsInParallel_emptyFile() {
+        URL fileUrl = getClass().getClassLoader().getResource("empty_file.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsInParallel(loadedFile, () -> metricService.createAccumulator(10), 4));
+    }
+
+    @Test
+    @DisplayName("Throw exception when decoding a file with an invalid line in parallel")
+    void streamFileEventsInParallel_withInvalidLine() {
+        URL fileUrl = getClass().getClassLoader().getResource("invalid_file_line.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsInParallel(loadedFile, () -> metricService.createAccumulator(10), 4));
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics when writing checkpoints, deleting the checkpoint at the end")
+    void streamFileEventsWithCheckpoints_uninterrupted() throws IOException {
+        File loadedFile = fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath());
+        MetricAccumulator expected = metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), expected::accept);
+        Path directory = Files.createTempDirectory("unbabel-challenge-checkpoint");
+        Path checkpointPath = directory.resolve("checkpoint.bin");
+        try {
+            IngestionCheckpoint checkpoint = fileProcessor.streamFileEventsWithCheckpoints(loadedFile, checkpointPath, 500,
+                    metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true), null);
+            Assertions.assertEquals(expected.getMetrics(), checkpoint.getAccumulator().getMetrics());
+            Assertions.assertEquals(21, checkpoint.getLines());
+            Assertions.assertEquals(loadedFile.length(), checkpoint.getPosition());
+            Assertions.assertEquals(0, directory.toFile().listFiles().length);
+        } finally {
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Start from the beginning when the checkpoint file can't be read")
+    void streamFileEventsWithCheckpoints_unreadableCheckpoint() throws IOException {
+        File loadedFile = fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath());
+        MetricAccumulator expected = metricService.createAccumulator(10);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), expected::accept);
+        Path directory = Files.createTempDirectory("unbabel-challenge-checkpoint");
+        Path checkpointPath = directory.resolve("checkpoint.bin");
+        try {
+            Files.write(checkpointPath, "not a checkpoint".getBytes(StandardCharsets.UTF_8));
+            Assertions.assertNull(IngestionCheckpoint.read(checkpointPath));
+            IngestionCheckpoint checkpoint = fileProcessor.streamFileEventsWithCheckpoints(loadedFile, checkpointPath, 500,
+                    metricService.createAccumulator(10), null);
+            Assertions.assertEquals(expected.getMetrics(), checkpoint.getAccumulator().getMetrics());
+            Assertions.assertFalse(Files.exists(checkpointPath));
+        } finally {
+            Files.deleteIfExists(checkpointPath);
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Resume from the last checkpoint after a failure, producing the same metrics as an uninterrupted run")
+    void streamFileEventsWithCheckpoints_resume() throws IOException {
+        List<String> lines = fileProcessor.extractFileLines(
+                fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath()));
+        Path directory = Files.createTempDirectory("unbabel-challenge-checkpoint");
+        Path input = directory.resolve("events.json");
+        Path checkpointPath = directory.resolve("checkpoint.bin");
+        try {
+            Files.write(input, lines);
+            MetricAccumulator expected = metricService.createAccumulator(10);
+            EventDeduplicator expectedDeduplicator = new EventDeduplicator(10);
+            fileProcessor.streamFileEvents(input.toFile(), new EventDecoder(), expectedDeduplicator.filter(expected::accept));
+
+            List<String> broken = new ArrayList<>(lines);
+            broken.set(15, "not a translation event");
+            Files.write(input, broken);
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsWithCheckpoints(input.toFile(),
+                    checkpointPath, 1, metricService.createAccumulator(10), new EventDeduplicator(10)));
+            Assertions.assertEquals(15, IngestionCheckpoint.read(checkpointPath).getLines());
+
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsWithCheckpoints(input.toFile(),
+                    checkpointPath, 1, metricService.createAccumulator(45), new EventDeduplicator(10)));
+            List<String> other = new ArrayList<>(broken);
+            other.set(0, lines.get(1));
+            Files.write(input, other);
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsWithCheckpoints(input.toFile(),
+                    checkpointPath, 1, metricService.createAccumulator(10), new EventDeduplicator(10)));
+
+            Files.write(input, lines);
+            IngestionCheckpoint checkpoint = fileProcessor.streamFileEventsWithCheckpoints(input.toFile(), checkpointPath, 1,
+                    metricService.createAccumulator(10), new EventDeduplicator(10));
+            Assertions.assertEquals(expected.getMetrics(), checkpoint.getAccumulator().getMetrics());
+            Assertions.assertEquals(expectedDeduplicator.getDuplicates(), checkpoint.getDeduplicator().getDuplicates());
+            Assertions.assertFalse(Files.exists(checkpointPath));
+        } finally {
+            Files.deleteIfExists(checkpointPath);
+            Files.deleteIfExists(input);
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Read a gzip file with multiple members, splitting lines between them, sequentially and in parallel")
+    void streamFileEvents_gzipMembers() throws IOException {
+        File loadedFile = fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath());
+        byte[] content = Files.readAllBytes(loadedFile.toPath());
+        MetricAccumulator expected = metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), expected::accept);
+        int firstLineEnd = new String(content, StandardCharsets.UTF_8).indexOf('\n') + 1;
+        Path directory = Files.createTempDirectory("unbabel-challenge-gzip");
+        Path input = directory.resolve("events.json.gz");
+        try {
+            for (int[] boundaries : new int[][]{{}, {firstLineEnd, firstLineEnd + 7, content.length / 2, content.length - 3}, {1, 2, 3}}) {
+                Files.write(input, gzipMembers(content, boundaries));
+                MetricAccumulator sequential = metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true);
+                Assertions.assertEquals(21, fileProcessor.streamFileEvents(input.toFile(), new EventDecoder(), sequential::accept));
+                Assertions.assertEquals(expected.getMetrics(), sequential.getMetrics());
+                for (int parallelism = 1; parallelism <= 4; parallelism *= 2) {
+                    Assertions.assertEquals(expected.getMetrics(), fileProcessor.streamFileEventsInParallel(input.toFile(),
+                            () -> metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true), parallelism).getMetrics());
+                }
+                Assertions.assertEquals(fileProcessor.extractFileLines(loadedFile), fileProcessor.extractFileLines(input.toFile()));
+            }
+        } finally {
+            Files.deleteIfExists(input);
+            directory.toFile().delete();
+        }
+    }
+
+    @Test
+    @DisplayName("Throw exception when a gzip file has an invalid member or an invalid line")
+    void streamFileEventsInParallel_invalidGzip() throws IOException {
+        File loadedFile = fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath());
+        byte[] content = Files.readAllBytes(loadedFile.toPath());
+        Path directory = Files.createTempDirectory("unbabel-challenge-gzip");
+        Path input = directory.resolve("events.json.gz");
+        try {
+            byte[] compressed = gzipMembers(content, new int[]{content.length / 2});
+            compressed[compressed.length - 5] ^= 1;
+            Files.write(input, compressed);
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsInParallel(input.toFile(),
+                    () -> metricService.createAccumulator(10), 2));
+
+            Files.write(input, gzipMembers("not a translation event\n".getBytes(StandardCharsets.UTF_8), new int[0]));
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsInParallel(input.toFile(),
+                    () -> metricService.createAccumulator(10), 2));
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFileEventsWithCheckpoints(input.toFile(),
+                    directory.resolve("checkpoint.bin"), 1, metricService.createAccumulator(10), null));
+        } finally {
+            Files.deleteIfExists(input);
+            directory.toFile().delete();
+        }
+    }
+
+    private static byte[] gzipMembers(byte[] content, int[] boundaries) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int start = 0;
+        for (int i = 0; i <= boundaries.length; i++) {
+            int end = i < boundaries.length ? boundaries[i] : content.length;
+            ByteArrayOutputStream member = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+                gzip.write(content, start, end - start);
+            }
+            member.writeTo(output);
+            start = end;
+        }
+        return output.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Load the files from a folder or matching a glob pattern, sorted by their path")
+    void loadFilesFrom_folderAndGlob() throws IOException {
+        Path directory = Files.createTempDirectory("unbabel-challenge-shards");
+        Path nested = Files.createDirectory(directory.resolve("host-b"));
+        List<Path> files = Arrays.asList(directory.resolve("host-a-10.json"), directory.resolve("host-a-09.json.gz"),
+                nested.resolve("host-b-09.json"));
+        try {
+            for (Path file : files) {
+                Files.write(file, new byte[0]);
+            }
+            Assertions.assertEquals(Arrays.asList(files.get(1).toFile(), files.get(0).toFile()),
+                    fileProcessor.loadFilesFrom(directory.toString()));
+            Assertions.assertEquals(Arrays.asList(files.get(1).toFile(), files.get(0).toFile()),
+                    fileProcessor.loadFilesFrom(directory.resolve("host-a-*").toString()));
+            Assertions.assertEquals(Arrays.asList(files.get(0).toFile(), nested.resolve("host-b-09.json").toFile()),
+                    fileProcessor.loadFilesFrom(directory.resolve("**.json").toString()));
+            Assertions.assertEquals(Arrays.asList(files.get(0).toFile()), fileProcessor.loadFilesFrom(files.get(0).toString()));
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.loadFilesFrom(directory.resolve("host-c-*").toString()));
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.loadFilesFrom(null));
+        } finally {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(nested);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics from the file shards decoded in parallel as from the whole file")
+    void streamFilesEventsInParallel_sameResultAsWholeFile() throws IOException {
+        File loadedFile = fileProcessor.loadFileFrom(getClass().getClassLoader().getResource("full_events.json").getPath());
+        List<String> lines = fileProcessor.extractFileLines(loadedFile);
+        MetricAccumulator expected = metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), expected::accept);
+        Path directory = Files.createTempDirectory("unbabel-challenge-shards");
+        List<File> shards = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < 4; shard++) {
+                List<String> shardLines = new ArrayList<>();
+                for (int i = shard; i < lines.size() && shard < 3; i += 3) {
+                    shardLines.add(lines.get(i));
+                }
+                Path path = directory.resolve("shard-" + shard + ".json");
+                Files.write(path, shardLines);
+                shards.add(path.toFile());
+            }
+            for (int parallelism = 1; parallelism <= 8; parallelism *= 2) {
+                Assertions.assertEquals(expected.getMetrics(), fileProcessor.streamFilesEventsInParallel(shards,
+                        () -> metricService.createAccumulatorForWindows(Arrays.asList(1, 10), true), parallelism).getMetrics());
+            }
+            Assertions.assertThrows(RuntimeException.class, () -> fileProcessor.streamFilesEventsInParallel(shards.subList(3, 4),
+                    () -> metricService.createAccumulator(10), 2));
+        } finally {
+            for (File shard : shards) {
+                shard.delete();
+            }
+            directory.toFile().delete();
+        }
+    }
 
     @Test
     @DisplayName("Create the output file containing the report result")
@@ -0,0 +1,192 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.RejectReason;
+
+@DisplayName("Test cases for the LineQuarantine class")
+public class LineQuarantineTest {
+
+    static final List<String> INVALID_LINES = Arrays.asList(
+            "{\"timestamp\": \"2018-12-26 18:1",
+            "{\"timestamp\": \"2018-12-26 18:15:19.903159\", \"duration\": \"fast\"}",
+            "{\"timestamp\": \"2018-13-26 18:15:19.903159\", \"duration\": 10}");
+
+    Path directory;
+
+    @BeforeEach
+    void createQuarantineFolder() throws IOException {
+        directory = Files.createTempDirectory("unbabel-challenge-quarantine");
+    }
+
+    @AfterEach
+    void deleteQuarantineFolder() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File each : files) {
+                each.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    @DisplayName("Write the invalid lines to the quarantine with their offset and keep reading the valid ones")
+    void streamFileEvents_invalidLines() throws IOException {
+        List<String> validLines = Files.readAllLines(MetricStoreTest.loadFile("full_events.json").toPath());
+        List<String> lines = new ArrayList<>(validLines);
+        lines.add(3, INVALID_LINES.get(0));
+        lines.add(10, INVALID_LINES.get(1));
+        lines.add(INVALID_LINES.get(2));
+        Path input = directory.resolve("events.json");
+        Files.write(input, lines);
+        Path valid = directory.resolve("valid.json");
+        Files.write(valid, validLines);
+        Path quarantinePath = directory.resolve("quarantine.json");
+
+        List<MetricResponse> expected = calculate(new FileProcessor(), valid.toFile());
+        PipelineMetrics metrics = new PipelineMetrics();
+        LineQuarantine quarantine = new LineQuarantine(quarantinePath, -1);
+        Assertions.assertEquals(expected, calculate(new FileProcessor(metrics, quarantine), input.toFile()));
+        quarantine.close();
+
+        Assertions.assertEquals(24, quarantine.getLines());
+        Assertions.assertEquals(3, quarantine.getRejectedLines());
+        Assertions.assertEquals(3, metrics.getRejectedLines());
+        Map<RejectReason, Long> reasons = quarantine.getRejectedLinesByReason();
+        Assertions.assertEquals(1L, reasons.get(RejectReason.MALFORMED_JSON));
+        Assertions.assertEquals(1L, reasons.get(RejectReason.INVALID_DURATION));
+        Assertions.assertEquals(1L, reasons.get(RejectReason.INVALID_TIMESTAMP));
+
+        List<String> quarantined = Files.readAllLines(quarantinePath);
+        Assertions.assertEquals(3, quarantined.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < quarantined.size(); i++) {
+            JsonNode rejected = mapper.readTree(quarantined.get(i));
+            String line = rejected.get("line").asText();
+            Assertions.assertEquals(INVALID_LINES.get(i), line);
+            Assertions.assertEquals(offsetOf(lines, lines.indexOf(line)), rejected.get("offset").asLong());
+        }
+        Assertions.assertEquals("INVALID_DURATION", mapper.readTree(quarantined.get(1)).get("reason").asText());
+        Assertions.assertEquals("The duration is not an integer number, found fast at column 57",
+                mapper.readTree(quarantined.get(1)).get("error").asText());
+        Assertions.assertTrue(mapper.readTree(quarantined.get(0)).get("error").asText().startsWith("Unexpected end-of-input"));
+        Assertions.assertEquals("Invalid timestamp 2018-13-26 18:15:19.903159 at column 15",
+                mapper.readTree(quarantined.get(2)).get("error").asText());
+
+        Path gzipInput = directory.resolve("events.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzipInput))) {
+            output.write(Files.readAllBytes(input));
+        }
+        Path gzipQuarantinePath = directory.resolve("gzip.json");
+        LineQuarantine gzipQuarantine = new LineQuarantine(gzipQuarantinePath, -1);
+        Assertions.assertEquals(expected, calculate(new FileProcessor(PipelineMetrics.DISABLED, gzipQuarantine), gzipInput.toFile()));
+        gzipQuarantine.close();
+        for (String rejected : Files.readAllLines(gzipQuarantinePath)) {
+            Assertions.assertEquals(-1L, mapper.readTree(rejected).get("offset").asLong());
+        }
+
+        LineQuarantine parallelQuarantine = new LineQuarantine(directory.resolve("parallel.json"), -1);
+        MetricAccumulator accumulator = new FileProcessor(PipelineMetrics.DISABLED, parallelQuarantine).streamFileEventsInParallel(input.toFile(),
+                () -> new MetricService().createAccumulatorForWindows(RollupStoreTest.WINDOW_SIZES), 4);
+        parallelQuarantine.close();
+        Assertions.assertEquals(expected, accumulator.getMetrics());
+        Assertions.assertEquals(3, parallelQuarantine.getRejectedLines());
+        Assertions.assertEquals(quarantine.getRejectedLinesByReason(), parallelQuarantine.getRejectedLinesByReason());
+    }
+
+    @Test
+    @DisplayName("Stop the run when the invalid lines exceed the maximum percentage")
+    void reject_maxRejectedPercentage() throws IOException {
+        String validLine = Files.readAllLines(MetricStoreTest.loadFile("full_events.json").toPath()).get(0);
+        List<String> lines = new ArrayList<>(Collections.nCopies((int) LineQuarantine.MIN_LINES_BEFORE_ABORT, validLine));
+        for (int i = 0; i < 30; i++) {
+            lines.add(INVALID_LINES.get(0));
+        }
+        Path input = directory.resolve("events.json");
+        Files.write(input, lines);
+
+        LineQuarantine tolerant = new LineQuarantine(directory.resolve("tolerant.json"), 5);
+        new FileProcessor(PipelineMetrics.DISABLED, tolerant).streamFileEvents(input.toFile(), new EventDecoder(), event -> {});
+        tolerant.close();
+        Assertions.assertEquals(30, tolerant.getRejectedLines());
+
+        LineQuarantine strict = new LineQuarantine(directory.resolve("strict.json"), 1);
+        Assertions.assertThrows(RuntimeException.class, () ->
+                new FileProcessor(PipelineMetrics.DISABLED, strict).streamFileEvents(input.toFile(), new EventDecoder(), event -> {}));
+        Assertions.assertEquals(11, strict.getRejectedLines());
+
+        Files.write(input, Arrays.asList(validLine, INVALID_LINES.get(1)));
+        LineQuarantine smallFile = new LineQuarantine(directory.resolve("small.json"), 10);
+        new FileProcessor(PipelineMetrics.DISABLED, smallFile).streamFileEvents(input.toFile(), new EventDecoder(), event -> {});
+        Assertions.assertThrows(RuntimeException.class, smallFile::close);
+        Assertions.assertEquals(1, Files.readAllLines(directory.resolve("small.json")).size());
+    }
+
+    @Test
+    @DisplayName("Keep the lines rejected before a checkpoint and append the ones rejected after it when resuming")
+    void restoreState_appendAfterCheckpoint() throws IOException {
+        List<String> validLines = Files.readAllLines(MetricStoreTest.loadFile("full_events.json").toPath());
+        Path beforeCheckpoint = directory.resolve("before.json");
+        Path afterCheckpoint = directory.resolve("after.json");
+        Files.write(beforeCheckpoint, Arrays.asList(validLines.get(0), INVALID_LINES.get(0), validLines.get(1)));
+        Files.write(afterCheckpoint, Arrays.asList(INVALID_LINES.get(1), validLines.get(2)));
+        Path quarantinePath = directory.resolve("quarantine.json");
+
+        LineQuarantine died = new LineQuarantine(quarantinePath, -1);
+        new FileProcessor(PipelineMetrics.DISABLED, died).streamFileEvents(beforeCheckpoint.toFile(), new EventDecoder(), event -> {});
+        LineQuarantine.State state = died.saveState();
+        new FileProcessor(PipelineMetrics.DISABLED, died).streamFileEvents(afterCheckpoint.toFile(), new EventDecoder(), event -> {});
+        died.close();
+        Assertions.assertEquals(2, Files.readAllLines(quarantinePath).size());
+
+        LineQuarantine resumed = new LineQuarantine(quarantinePath, -1);
+        Assertions.assertEquals(2, Files.readAllLines(quarantinePath).size());
+        resumed.restoreState(state);
+        new FileProcessor(PipelineMetrics.DISABLED, resumed).streamFileEvents(afterCheckpoint.toFile(), new EventDecoder(), event -> {});
+        resumed.close();
+
+        Assertions.assertEquals(5, resumed.getLines());
+        Assertions.assertEquals(2, resumed.getRejectedLines());
+        Assertions.assertEquals(died.getRejectedLinesByReason(), resumed.getRejectedLinesByReason());
+        List<String> quarantined = Files.readAllLines(quarantinePath);
+        Assertions.assertEquals(2, quarantined.size());
+        ObjectMapper mapper = new ObjectMapper();
+        Assertions.assertEquals(INVALID_LINES.get(0), mapper.readTree(quarantined.get(0)).get("line").asText());
+        Assertions.assertEquals(INVALID_LINES.get(1), mapper.readTree(quarantined.get(1)).get("line").asText());
+        Assertions.assertThrows(RuntimeException.class, () -> resumed.restoreState(state));
+    }
+
+    private static List<MetricResponse> calculate(FileProcessor fileProcessor, File file) {
+        MetricAccumulator accumulator = new MetricService().createAccumulatorForWindows(RollupStoreTest.WINDOW_SIZES);
+        fileProcessor.streamFileEvents(file, new EventDecoder(), accumulator::accept);
+        return accumulator.getMetrics();
+    }
+
+    private static long offsetOf(List<String> lines, int index) {
+        long offset = 0;
+        for (String line : lines.subList(0, index)) {
+            offset += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,51 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the LineReader class")
+public class LineReaderTest {
+
+    @Test
+    @DisplayName("Read lines separated by \\n and \\r\\n, with and without a trailing separator")
+    void readLines_mixedSeparators() throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        long read = LineReader.readLines(new ByteArrayInputStream("a\r\nbb\nccc".getBytes(StandardCharsets.UTF_8)), (buffer, offset, length, position) -> {
+            lines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            positions.add(position);
+        });
+        Assertions.assertEquals(3, read);
+        Assertions.assertEquals(3, lines.size());
+        Assertions.assertEquals("a", lines.get(0));
+        Assertions.assertEquals("bb", lines.get(1));
+        Assertions.assertEquals("ccc", lines.get(2));
+        Assertions.assertEquals(3L, positions.get(1));
+        Assertions.assertEquals(6L, positions.get(2));
+    }
+
+    @Test
+    @DisplayName("Read lines bigger than the read buffer")
+    void readLines_linesBiggerThanBuffer() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 100_000; j++) {
+                content.append((char) ('a' + i));
+            }
+            content.append('\n');
+        }
+        List<String> lines = new ArrayList<>();
+        long read = LineReader.readLines(new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8)),
+                (buffer, offset, length, position) -> lines.add(new String(buffer, offset, length, StandardCharsets.UTF_8)));
+        Assertions.assertEquals(5, read);
+        Assertions.assertEquals(100_000, lines.get(4).length());
+        Assertions.assertEquals('e', lines.get(4).charAt(99_999));
+    }
+}
@@ -0,0 +1,115 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+
+@DisplayName("Test cases to extract events performance metric while streaming the file")
+public class MetricAccumulatorTest {
+
+    static MetricService metricService;
+    static FileProcessor fileProcessor;
+
+    @BeforeAll
+    static void loadTestedServiceAndAuxiliarServices() {
+        metricService = new MetricService();
+        fileProcessor = new FileProcessor();
+    }
+
+    @Test
+    @DisplayName("Throw exception if the window size is a negative number")
+    void createAccumulator_negativeWindowSize() {
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.createAccumulator(Integer.MIN_VALUE));
+    }
+
+    @Test
+    @DisplayName("Throw exception if the window size has not been defined")
+    void createAccumulator_windowSizeDoesNotExist() {
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.createAccumulator(null));
+    }
+
+    @Test
+    @DisplayName("Throw exception if no events have been received")
+    void getMetrics_noEventsReceived() {
+        MetricAccumulator accumulator = metricService.createAccumulator(10);
+        Assertions.assertThrows(RuntimeException.class, accumulator::getMetrics);
+    }
+
+    @Test
+    @DisplayName("Validate the moving average duration from two events that have occurred at the same timestamp")
+    void getMetrics_singleTimestamp() {
+        List<MetricResponse> metrics = streamMetricsFromFilePath("single_timestamp.json", Integer.MAX_VALUE);
+        Assertions.assertEquals(2, metrics.size());
+        Assertions.assertEquals("2018-12-26 18:12:00", metrics.get(1).getTimestamp());
+        Assertions.assertEquals(15.0, metrics.get(1).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Validate the moving average duration from multiple events with window size equals to 45 minutes")
+    void getMetrics_multipleTimestampsWith45MinutesWindowsSize() {
+        List<MetricResponse> metrics = streamMetricsFromFilePath("full_events.json", 45);
+        Assertions.assertEquals(55, metrics.size());
+        Assertions.assertEquals("2018-12-26 19:04:00", metrics.get(54).getTimestamp());
+        Assertions.assertEquals(34.166666666666664, metrics.get(53).getAverageDeliveryTime());
+        Assertions.assertEquals(32.42857142857143, metrics.get(54).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics as the in-memory calculation for different window sizes")
+    void getMetrics_sameResultAsInMemoryCalculation() {
+        for (int windowSize : new int[]{0, 1, 10, 45, 60, Integer.MAX_VALUE}) {
+            List<MetricResponse> streamed = streamMetricsFromFilePath("full_events.json", windowSize);
+            List<MetricResponse> expected = metricService.calculateAverageEventDuration(loadTranslationFromFilePath("full_events.json"), windowSize);
+            Assertions.assertEquals(expected, streamed);
+        }
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics from decoded events and from translation objects")
+    void getMetrics_sameResultFromDecodedEvents() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        MetricAccumulator accumulator = metricService.createAccumulator(45);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), accumulator::accept);
+        Assertions.assertEquals(streamMetricsFromFilePath("full_events.json", 45), accumulator.getMetrics());
+    }
+
+    @Test
+    @DisplayName("Produce the same percentiles when the file is decoded in parallel and the partial results are merged")
+    void getMetrics_sameMergedPercentiles() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        List<Integer> windowSizes = Arrays.asList(10, 45);
+        MetricAccumulator accumulator = metricService.createAccumulatorForWindows(windowSizes, true);
+        fileProcessor.streamFileEvents(loadedFile, new EventDecoder(), accumulator::accept);
+        List<MetricResponse> metrics = accumulator.getMetrics();
+        Assertions.assertEquals(metrics, fileProcessor.streamFileEventsInParallel(loadedFile, () -> metricService.createAccumulatorForWindows(windowSizes, true), 4).getMetrics());
+        MetricResponse lastRow = metrics.get(metrics.size() - 1);
+        Assertions.assertEquals(45, lastRow.getWindowSize());
+        Assertions.assertEquals(21.0, lastRow.getP50());
+        Assertions.assertEquals(87.0, lastRow.getP99());
+    }
+
+    List<MetricResponse> streamMetricsFromFilePath(String filePath, Integer windowSize) {
+        URL fileUrl = getClass().getClassLoader().getResource(filePath);
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        MetricAccumulator accumulator = metricService.createAccumulator(windowSize);
+        fileProcessor.streamFileLines(loadedFile, accumulator::accept);
+        return accumulator.getMetrics();
+    }
+
+    List<Translation> loadTranslationFromFilePath(String filePath) {
+        URL fileUrl = getClass().getClassLoader().getResource(filePath);
+        File loadedFile = fileProcessor.loadFileFrom(fileUrl.getPath());
+        List<String> lines = fileProcessor.extractFileLines(loadedFile);
+        return fileProcessor.convertFileLines(lines);
+    }
+}
@@ -0,0 +1,132 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+@DisplayName("Test cases for the MetricServer class")
+public class MetricServerTest {
+
+    static MetricStore store;
+    static MetricServer server;
+
+    @BeforeAll
+    static void startServer() {
+        store = MetricStoreTest.loadStore(MetricStoreTest.loadFile("full_events.json"), 0);
+        server = new MetricServer(store, 0, 2);
+        server.start();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Answer the moving average from a window and a client, one row per line")
+    void metrics_windowAndClient() throws IOException {
+        String expected = store.query(10, "easyjet").stream().map(MetricResponse::toString).collect(Collectors.joining("\n", "", "\n"));
+        Assertions.assertEquals(expected, get("/metrics?window=10&client=easyjet", 200));
+        Assertions.assertEquals(store.query(45, null).size(), get("/metrics?window=45", 200).split("\n").length);
+    }
+
+    @Test
+    @DisplayName("Reject the queries without a valid window size")
+    void metrics_invalidWindow() throws IOException {
+        get("/metrics", 400);
+        get("/metrics?window=-1", 400);
+        get("/metrics?window=ten", 400);
+    }
+
+    @Test
+    @DisplayName("Answer the amount of events, late events and sealed minutes")
+    void status() throws IOException {
+        Assertions.assertEquals(String.format("{\"events\": %d, \"late_events\": %d, \"sealed_minutes\": %d}\n",
+                store.getEvents(), store.getLateEvents(), store.getSealedMinutes()), get("/status", 200));
+    }
+
+    @Test
+    @DisplayName("Report the invalid lines from the followed file and the failure that stopped following it")
+    void status_followerFailure() throws IOException {
+        Path directory = Files.createTempDirectory("unbabel-challenge-server");
+        Path file = directory.resolve("events.json");
+        MetricServer followerServer = null;
+        try {
+            FileFollowerTest.append(file, "not a translation event\n", FileFollowerTest.line("18:11:08", 20));
+            FileFollower follower = new FileFollower(file.toFile(), new EventDecoder(), event -> {
+                throw new RuntimeException("The \"store\" is full");
+            }, 10);
+            followerServer = new MetricServer(store, follower, 0, 1);
+            followerServer.start();
+            Assertions.assertThrows(RuntimeException.class, follower::run);
+            Assertions.assertEquals(String.format("{\"events\": %d, \"late_events\": %d, \"sealed_minutes\": %d, \"rejected_lines\": 1, "
+                    + "\"following\": false, \"failure\": \"The \\\"store\\\" is full\"}\n", store.getEvents(), store.getLateEvents(),
+                    store.getSealedMinutes()), get(followerServer, "/status", 503));
+        } finally {
+            if (followerServer != null) {
+                followerServer.close();
+            }
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    @DisplayName("Report while the file is read once, its quarantined lines and the failure that stopped reading it")
+    void status_loadFailure() throws IOException {
+        Path directory = Files.createTempDirectory("unbabel-challenge-server");
+        Path quarantinePath = directory.resolve("quarantine.json");
+        LineQuarantine quarantine = new LineQuarantine(quarantinePath, -1);
+        MetricServer loadingServer = new MetricServer(store, 0, 1);
+        try {
+            loadingServer.startLoading(quarantine);
+            loadingServer.start();
+            String counts = String.format("{\"events\": %d, \"late_events\": %d, \"sealed_minutes\": %d, \"rejected_lines\": 0, ",
+                    store.getEvents(), store.getLateEvents(), store.getSealedMinutes());
+            Assertions.assertEquals(counts + "\"loading\": true}\n", get(loadingServer, "/status", 200));
+            loadingServer.failLoading("Error while converting the file line \"not json\"");
+            Assertions.assertEquals(counts + "\"loading\": false, \"failure\": \"Error while converting the file line \\\"not json\\\"\"}\n",
+                    get(loadingServer, "/status", 503));
+        } finally {
+            loadingServer.close();
+            quarantine.close();
+            Files.deleteIfExists(quarantinePath);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static String get(String path, int expectedStatus) throws IOException {
+        return get(server, path, expectedStatus);
+    }
+
+    private static String get(MetricServer server, String path, int expectedStatus) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        try {
+            Assertions.assertEquals(expectedStatus, connection.getResponseCode());
+            try (InputStream input = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = input.read(buffer)) > 0) {
+                    body.write(buffer, 0, read);
+                }
+                return new String(body.toByteArray(), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -5,7 +5,9 @@ import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 
@@ -14,7 +16,10 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.EventBatch;
 import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.TimestampParser;
 import pt.raphaelneves.unbabel.challenge.models.Translation;
 
 @DisplayName("Test cases to extract events performance metric")
@@ -56,21 +61,72 @@ public class MetricServiceTest {
     }
 
     @Test
-    @DisplayName("Validate the average duration from two events that have occurred at the same timestamp")
+    @DisplayName("Validate the moving average duration from two events that have occurred at the same timestamp")
     void calculateAverageEventDuration_singleTimestamp() {
         List<Translation> translations = loadTranslationFromFilePath("single_timestamp.json");
         List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, Integer.MAX_VALUE);
         Assertions.assertNotEquals(null, metrics);
+        Assertions.assertEquals(2, metrics.size());
+        Assertions.assertEquals("2018-12-26 18:11:00", metrics.get(0).getTimestamp());
+        Assertions.assertEquals(0.0, metrics.get(0).getAverageDeliveryTime());
+        Assertions.assertEquals("2018-12-26 18:12:00", metrics.get(1).getTimestamp());
+        Assertions.assertEquals(15.0, metrics.get(1).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Validate the moving average duration from the challenge events with window size equals to 10 minutes")
+    void calculateAverageEventDuration_challengeEventsWith10MinutesWindowSize() {
+        List<Translation> translations = loadTranslationFromFilePath("challenge_events.json");
+        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, 10);
+        double[] expected = {0, 20, 20, 20, 20, 25.5, 25.5, 25.5, 25.5, 25.5, 25.5, 31, 31, 42.5};
+        Assertions.assertEquals(expected.length, metrics.size());
+        Assertions.assertEquals("2018-12-26 18:11:00", metrics.get(0).getTimestamp());
+        Assertions.assertEquals("2018-12-26 18:24:00", metrics.get(expected.length - 1).getTimestamp());
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(expected[i], metrics.get(i).getAverageDeliveryTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Validate the moving average duration from multiple unordered events with window size equals to 10 minutes")
+    void calculateAverageEventDuration_multipleTimestampsWith10MinutesWindowsSize() {
+        List<Translation> translations = loadTranslationFromFilePath("full_events.json");
+        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, 10);
+        Assertions.assertEquals(55, metrics.size());
+        Assertions.assertEquals("2018-12-26 18:10:00", metrics.get(0).getTimestamp());
+        Assertions.assertEquals(0.0, metrics.get(0).getAverageDeliveryTime());
+        Assertions.assertEquals(34.0, metrics.get(1).getAverageDeliveryTime());
+        Assertions.assertEquals(80.0, metrics.get(2).getAverageDeliveryTime());
+        Assertions.assertEquals(12.0, metrics.get(53).getAverageDeliveryTime());
+        Assertions.assertEquals("2018-12-26 19:04:00", metrics.get(54).getTimestamp());
+        Assertions.assertEquals(17.0, metrics.get(54).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Validate the moving average duration with window size equals to zero")
+    void calculateAverageEventDuration_zeroWindowSize() {
+        List<Translation> translations = loadTranslationFromFilePath("full_events.json");
+        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, 0);
+        Assertions.assertEquals(55, metrics.size());
+        metrics.forEach(metric -> Assertions.assertEquals(0.0, metric.getAverageDeliveryTime()));
+    }
+
+    @Test
+    @DisplayName("Validate the average duration by minute from two events that have occurred at the same timestamp")
+    void calculateAverageEventDurationPerMinute_singleTimestamp() {
+        List<Translation> translations = loadTranslationFromFilePath("single_timestamp.json");
+        List<MetricResponse> metrics = metricService.calculateAverageEventDurationPerMinute(translations, Integer.MAX_VALUE);
+        Assertions.assertNotEquals(null, metrics);
         Assertions.assertNotEquals(Boolean.TRUE, metrics.isEmpty());
         Assertions.assertEquals(1, metrics.size());
         Assertions.assertEquals(15.0, metrics.get(0).getAverageDeliveryTime());
     }
 
     @Test
-    @DisplayName("Validate the average duration from multiple events with window size equals to 10 minutes")
-    void calculateAverageEventDuration_multipleTimestampsWith10MinutesWindowsSize() {
+    @DisplayName("Validate the average duration by minute from multiple events with window size equals to 10 minutes")
+    void calculateAverageEventDurationPerMinute_multipleTimestampsWith10MinutesWindowsSize() {
         List<Translation> translations = loadTranslationFromFilePath("full_events.json");
-        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, 10);
+        List<MetricResponse> metrics = metricService.calculateAverageEventDurationPerMinute(translations, 10);
         Assertions.assertNotEquals(null, metrics);
         Assertions.assertNotEquals(Boolean.TRUE, metrics.isEmpty());
         Assertions.assertEquals(2, metrics.size());
@@ -79,10 +135,10 @@ public class MetricServiceTest {
     }
 
     @Test
-    @DisplayName("Validate the average duration from multiple events with window size equals to 45 minutes")
-    void calculateAverageEventDuration_multipleTimestampsWith45MinutesWindowsSize() {
+    @DisplayName("Validate the average duration by minute from multiple events with window size equals to 45 minutes")
+    void calculateAverageEventDurationPerMinute_multipleTimestampsWith45MinutesWindowsSize() {
         List<Translation> translations = loadTranslationFromFilePath("full_events.json");
-        List<MetricResponse> metrics = metricService.calculateAverageEventDuration(translations, 45);
+        List<MetricResponse> metrics = metricService.calculateAverageEventDurationPerMinute(translations, 45);
         Assertions.assertNotEquals(null, metrics);
         Assertions.assertNotEquals(Boolean.TRUE, metrics.isEmpty());
         Assertions.assertEquals(4, metrics.size());
@@ -92,6 +148,94 @@ public class MetricServiceTest {
         Assertions.assertEquals(56.4, metrics.get(3).getAverageDeliveryTime());
     }
 
+    @Test
+    @DisplayName("Calculate multiple window sizes in a single pass with the same result as each window alone")
+    void calculateAverageEventDurationForWindows_sameResultAsEachWindow() {
+        List<Integer> windowSizes = Arrays.asList(1, 5, 15, 60, 5);
+        Map<Integer, List<MetricResponse>> metrics = metricService.calculateAverageEventDurationForWindows(loadTranslationFromFilePath("full_events.json"), windowSizes);
+        Assertions.assertEquals(Arrays.asList(1, 5, 15, 60), new ArrayList<>(metrics.keySet()));
+        metrics.forEach((windowSize, windowMetrics) -> {
+            List<MetricResponse> expected = metricService.calculateAverageEventDuration(loadTranslationFromFilePath("full_events.json"), windowSize);
+            Assertions.assertEquals(expected.size(), windowMetrics.size());
+            for (int i = 0; i < expected.size(); i++) {
+                Assertions.assertEquals(windowSize, windowMetrics.get(i).getWindowSize());
+                Assertions.assertEquals(expected.get(i).getTimestamp(), windowMetrics.get(i).getTimestamp());
+                Assertions.assertEquals(expected.get(i).getAverageDeliveryTime(), windowMetrics.get(i).getAverageDeliveryTime());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Throw exception if any of the window sizes is a negative number")
+    void calculateAverageEventDurationForWindows_negativeWindowSize() {
+        List<Translation> translations = loadTranslationFromFilePath("full_events.json");
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationForWindows(translations, Arrays.asList(10, -1)));
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationForWindows(translations, Collections.emptyList()));
+    }
+
+    @Test
+    @DisplayName("Produce the same moving average from a columnar batch and from translation objects")
+    void calculateAverageEventDurationFromBatch_sameResultAsTranslations() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        EventBatch batch = fileProcessor.loadEventBatch(fileProcessor.loadFileFrom(fileUrl.getPath()));
+        for (int windowSize : new int[]{0, 10, 45, Integer.MAX_VALUE}) {
+            List<MetricResponse> expected = metricService.calculateAverageEventDuration(loadTranslationFromFilePath("full_events.json"), windowSize);
+            Assertions.assertEquals(expected, metricService.calculateAverageEventDurationFromBatch(batch, windowSize));
+        }
+    }
+
+    @Test
+    @DisplayName("Throw exception if the event batch is empty")
+    void calculateAverageEventDurationFromBatch_emptyEventBatch() {
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationFromBatch(new EventBatch(), 10));
+    }
+
+    @Test
+    @DisplayName("Calculate the average event duration by client name from the last 10 minutes")
+    void calculateAverageEventDurationByDimensions_byClientName() {
+        URL fileUrl = getClass().getClassLoader().getResource("challenge_events.json");
+        EventBatch batch = fileProcessor.loadEventBatch(fileProcessor.loadFileFrom(fileUrl.getPath()));
+        List<MetricResponse> metrics = metricService.calculateAverageEventDurationByDimensions(batch, 10, EnumSet.of(Dimension.CLIENT_NAME));
+        Assertions.assertEquals(Arrays.asList(
+                MetricResponse.builder().timestamp("2018-12-26 18:24:00").windowSize(10).clientName("booking").averageDeliveryTime(54.0).build(),
+                MetricResponse.builder().timestamp("2018-12-26 18:24:00").windowSize(10).clientName("easyjet").averageDeliveryTime(31.0).build()),
+                metrics);
+    }
+
+    @Test
+    @DisplayName("Calculate the same average as the last moving average row when all events share the grouped dimensions")
+    void calculateAverageEventDurationByDimensions_sameResultAsLastRow() {
+        URL fileUrl = getClass().getClassLoader().getResource("full_events.json");
+        EventBatch batch = fileProcessor.loadEventBatch(fileProcessor.loadFileFrom(fileUrl.getPath()));
+        for (int windowSize : new int[]{10, 45, Integer.MAX_VALUE}) {
+            List<MetricResponse> expected = metricService.calculateAverageEventDurationFromBatch(batch, windowSize);
+            MetricResponse lastRow = expected.get(expected.size() - 1);
+            List<MetricResponse> metrics = metricService.calculateAverageEventDurationByDimensions(batch, windowSize, EnumSet.of(Dimension.EVENT_NAME, Dimension.TARGET_LANGUAGE));
+            Assertions.assertEquals(1, metrics.size());
+            Assertions.assertEquals(lastRow.getTimestamp(), metrics.get(0).getTimestamp());
+            Assertions.assertEquals(lastRow.getAverageDeliveryTime(), metrics.get(0).getAverageDeliveryTime());
+            Assertions.assertEquals("translation_delivered", metrics.get(0).getEventName());
+            Assertions.assertEquals("fr", metrics.get(0).getTargetLanguage());
+            Assertions.assertNull(metrics.get(0).getSourceLanguage());
+        }
+    }
+
+    @Test
+    @DisplayName("Return no rows by dimension when the window size is zero")
+    void calculateAverageEventDurationByDimensions_zeroWindowSize() {
+        URL fileUrl = getClass().getClassLoader().getResource("challenge_events.json");
+        EventBatch batch = fileProcessor.loadEventBatch(fileProcessor.loadFileFrom(fileUrl.getPath()));
+        Assertions.assertTrue(metricService.calculateAverageEventDurationByDimensions(batch, 0, EnumSet.of(Dimension.CLIENT_NAME)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Throw exception if no dimension has been defined")
+    void calculateAverageEventDurationByDimensions_noDimensions() {
+        URL fileUrl = getClass().getClassLoader().getResource("challenge_events.json");
+        EventBatch batch = fileProcessor.loadEventBatch(fileProcessor.loadFileFrom(fileUrl.getPath()));
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationByDimensions(batch, 10, EnumSet.noneOf(Dimension.class)));
+    }
+
     @Test
     @DisplayName("Order the translation event list with the newest event on top and the oldest on bottom")
     void orderTranslationEventsByTimestamp() {
@@ -138,7 +282,7 @@ public class MetricServiceTest {
         List<Translation> translations = loadTranslationFromFilePath("full_events.json");
         metricService.orderTranslationEventsByTimestamp(translations);
         List<Translation> dataSet = metricService.extractEventsWithinWindowSize(translations, 45);
-        Map<String, List<Long>> group = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(dataSet);
+        Map<Long, List<Long>> group = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(dataSet);
         List<MetricResponse> metricResponses = metricService.calculateAverage(group);
         Assertions.assertNotEquals(null, metricResponses);
         Assertions.assertNotEquals(Boolean.TRUE, metricResponses.isEmpty());
@@ -151,33 +295,38 @@ public class MetricServiceTest {
     @DisplayName("Group all events by timestamp and store their duration as a collection (single timestamp)")
     void groupEventsByTimestampAsIndexAndDurationAsValue_withSingleTimestamp() {
         List<Translation> translations = loadTranslationFromFilePath("single_timestamp.json");
-        Map<String, List<Long>> groupedEvents = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(translations);
+        Map<Long, List<Long>> groupedEvents = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(translations);
         Assertions.assertNotEquals(null, groupedEvents);
         Assertions.assertNotEquals(Boolean.TRUE, groupedEvents.isEmpty());
         Assertions.assertEquals(1, groupedEvents.size());
-        Assertions.assertEquals(2, groupedEvents.get("2018-12-26 18:11:00").size());
+        Assertions.assertEquals(2, groupedEvents.get(epochMinuteOf("2018-12-26 18:11:00")).size());
     }
 
     @Test
     @DisplayName("Group all events by timestamp and store their duration as a collection (multiple timestamp)")
     void groupEventsByTimestampAsIndexAndDurationAsValue_withMultipleTimestamps() {
         List<Translation> translations = loadTranslationFromFilePath("full_events.json");
-        Map<String, List<Long>> groupedEvents = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(translations);
+        Map<Long, List<Long>> groupedEvents = metricService.groupEventsByTimestampAsIndexAndDurationAsValue(translations);
         Assertions.assertNotEquals(null, groupedEvents);
         Assertions.assertNotEquals(Boolean.TRUE, groupedEvents.isEmpty());
         Assertions.assertEquals(7, groupedEvents.size());
-        Assertions.assertEquals(2, groupedEvents.get("2018-12-26 18:11:00").size());
-        Assertions.assertEquals(5, groupedEvents.get("2018-12-26 18:37:00").size());
-        Assertions.assertEquals(3, groupedEvents.get("2018-12-26 18:15:00").size());
+        Assertions.assertEquals(2, groupedEvents.get(epochMinuteOf("2018-12-26 18:11:00")).size());
+        Assertions.assertEquals(5, groupedEvents.get(epochMinuteOf("2018-12-26 18:37:00")).size());
+        Assertions.assertEquals(3, groupedEvents.get(epochMinuteOf("2018-12-26 18:15:00")).size());
     }
 
     @Test
-    @DisplayName("Convert a LocalDateTime of pattern yyyy-MM-dd HH:mm:ss into a string of pattern yyyy-MM-dd HH:mm:00 to be used as bucket index")
+    @DisplayName("Convert a LocalDateTime of pattern yyyy-MM-dd HH:mm:ss into an epoch minute to be used as bucket index")
     void convertTimestampAsIndex() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         LocalDateTime dateTime = LocalDateTime.parse("2018-12-26 18:23:19", formatter);
-        String index = metricService.convertTimestampAsIndex(dateTime);
-        Assertions.assertEquals("2018-12-26 18:23:00", index);
+        long index = metricService.convertTimestampAsIndex(dateTime);
+        Assertions.assertEquals(25_764_143L, index);
+        Assertions.assertEquals("2018-12-26 18:23:00", TimestampParser.formatEpochMinute(index));
+    }
+
+    long epochMinuteOf(String timestamp) {
+        return TimestampParser.toEpochMinute(TimestampParser.parseEpochSecond(timestamp));
     }
 
     List<Translation> loadTranslationFromFilePath(String filePath) {
@@ -0,0 +1,131 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.net.URL;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@DisplayName("Test cases for the MetricStore class")
+public class MetricStoreTest {
+
+    static final long FIRST_SECOND = MovingAverageEngineTest.FIRST_MINUTE * 60;
+
+    @Test
+    @DisplayName("Answer the same metrics as the streaming calculation for different window sizes")
+    void query_sameResultAsStreamingCalculation() {
+        File file = loadFile("full_events.json");
+        MetricStore store = loadStore(file, 0);
+        for (int windowSize : new int[]{0, 1, 10, 45, Integer.MAX_VALUE}) {
+            MetricAccumulator accumulator = new MetricService().createAccumulator(windowSize);
+            new FileProcessor().streamFileEvents(file, new EventDecoder(), accumulator::accept);
+            Assertions.assertEquals(accumulator.getMetrics(), store.query(windowSize, null));
+        }
+    }
+
+    @Test
+    @DisplayName("Answer the metrics from a single client, until the minute after the newest sealed one")
+    void query_singleClient() {
+        MetricStore store = loadStore(loadFile("full_events.json"), 0);
+        List<MetricResponse> all = store.query(10, null);
+        List<MetricResponse> client = store.query(10, "easyjet");
+        Assertions.assertFalse(client.isEmpty());
+        Assertions.assertEquals(all.get(all.size() - 1).getTimestamp(), client.get(client.size() - 1).getTimestamp());
+        Assertions.assertTrue(client.stream().allMatch(metric -> "easyjet".equals(metric.getClientName())));
+        Assertions.assertTrue(store.query(10, "unknown").isEmpty());
+        Assertions.assertThrows(RuntimeException.class, () -> store.query(-1, null));
+    }
+
+    @Test
+    @DisplayName("Seal a minute once the watermark passes it, and update it with the late events")
+    void accept_sealByWatermark() {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricStore store = new MetricStore(decoder.getDictionary(Dimension.CLIENT_NAME), 60, 0);
+        store.accept(event(FIRST_SECOND, 10));
+        store.accept(event(FIRST_SECOND + 90, 20));
+        Assertions.assertEquals(0, store.getSealedMinutes());
+        Assertions.assertTrue(store.query(1, null).isEmpty());
+        store.accept(event(FIRST_SECOND + 125, 30));
+        Assertions.assertEquals(1, store.getSealedMinutes());
+        Assertions.assertEquals(10.0, store.query(1, null).get(1).getAverageDeliveryTime());
+
+        store.accept(event(FIRST_SECOND + 30, 40));
+        Assertions.assertEquals(1, store.getLateEvents());
+        Assertions.assertEquals(25.0, store.query(1, null).get(1).getAverageDeliveryTime());
+        store.flush();
+        Assertions.assertEquals(3, store.getSealedMinutes());
+        Assertions.assertEquals(4, store.getEvents());
+    }
+
+    @Test
+    @DisplayName("Drop the oldest sealed minutes beyond the retention")
+    void accept_retention() {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricStore store = new MetricStore(decoder.getDictionary(Dimension.CLIENT_NAME), 0, 5);
+        for (int minute = 0; minute < 20; minute++) {
+            store.accept(event(FIRST_SECOND + minute * 60, minute));
+        }
+        store.flush();
+        Assertions.assertEquals(5, store.getSealedMinutes());
+        store.accept(event(FIRST_SECOND, 1000));
+        Assertions.assertEquals(5, store.getSealedMinutes());
+        Assertions.assertEquals(17.0, store.query(5, null).get(5).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Answer queries while the events are being added by another thread")
+    void query_concurrentIngestion() throws InterruptedException {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricStore store = new MetricStore(decoder.getDictionary(Dimension.CLIENT_NAME), 0, 0);
+        AtomicBoolean failed = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            try {
+                while (store.getSealedMinutes() < 500) {
+                    List<MetricResponse> metrics = store.query(10, null);
+                    for (MetricResponse metric : metrics) {
+                        if (metric.getAverageDeliveryTime() != 0.0 && metric.getAverageDeliveryTime() != 10.0) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                failed.set(true);
+            }
+        });
+        reader.start();
+        for (int second = 0; second < 501 * 60; second += 5) {
+            store.accept(event(FIRST_SECOND + second, 10));
+        }
+        reader.join(10_000);
+        Assertions.assertFalse(failed.get());
+        Assertions.assertEquals(500, store.getSealedMinutes());
+    }
+
+    static MetricStore loadStore(File file, long allowedLatenessSeconds) {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricStore store = new MetricStore(decoder.getDictionary(Dimension.CLIENT_NAME), allowedLatenessSeconds, 0);
+        new FileProcessor().streamFileEvents(file, decoder, store::accept);
+        store.flush();
+        return store;
+    }
+
+    static File loadFile(String fileName) {
+        URL fileUrl = MetricStoreTest.class.getClassLoader().getResource(fileName);
+        return new FileProcessor().loadFileFrom(fileUrl.getPath());
+    }
+
+    private static TranslationEvent event(long epochSecond, long duration) {
+        TranslationEvent event = new TranslationEvent();
+        event.reset();
+        event.setTimestamp(epochSecond);
+        event.setDuration(duration);
+        return event;
+    }
+}
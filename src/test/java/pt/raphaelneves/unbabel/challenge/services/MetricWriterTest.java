@@ -0,0 +1,121 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.OutputFormat;
+
+@DisplayName("Test cases for the MetricWriter class")
+public class MetricWriterTest {
+
+    static final List<MetricResponse> METRICS = Arrays.asList(
+            MetricResponse.builder().timestamp("2018-12-26 18:11:00").averageDeliveryTime(0.0).build(),
+            MetricResponse.builder().timestamp("2018-12-26 18:12:00").windowSize(10).clientName("booking, inc.")
+                          .eventName("translation_delivered").averageDeliveryTime(25.5).p50(20.0).p90(31.0).p99(31.0).build());
+
+    Path directory;
+
+    @BeforeEach
+    void createOutputFolder() throws IOException {
+        directory = Files.createTempDirectory("unbabel-challenge-writer");
+    }
+
+    @AfterEach
+    void deleteOutputFolder() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File each : files) {
+                each.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    @DisplayName("Write one JSON object per line, replacing the existing file without leaving temporary files")
+    void write_json() throws IOException {
+        Path output = directory.resolve("response.json");
+        Files.write(output, "previous content that is longer than the new one".getBytes(StandardCharsets.UTF_8));
+        String writtenPath = new MetricWriter(OutputFormat.JSON).write(METRICS, output.toString());
+        Assertions.assertEquals(output.toAbsolutePath().toString(), writtenPath);
+        Assertions.assertEquals(METRICS.stream().map(MetricResponse::toString).collect(Collectors.toList()), Files.readAllLines(output));
+        Assertions.assertEquals(1, directory.toFile().listFiles().length);
+    }
+
+    @Test
+    @DisplayName("Write a CSV header and one line per metric, quoting the values with separators")
+    void write_csv() throws IOException {
+        Path output = directory.resolve("nested/response.csv");
+        new MetricWriter(OutputFormat.CSV).write(METRICS, output.toString());
+        Assertions.assertEquals(Arrays.asList(
+                "date,window_size,client_name,source_language,target_language,event_name,average_delivery_time,p50,p90,p99,corrected",
+                "2018-12-26 18:11:00,,,,,,0.0,,,,",
+                "2018-12-26 18:12:00,10,\"booking, inc.\",,,translation_delivered,25.5,20.0,31.0,31.0,"),
+                Files.readAllLines(output));
+    }
+
+    @Test
+    @DisplayName("Write length-prefixed binary records that can be read back")
+    void write_binary() throws IOException {
+        Path output = directory.resolve("response.bin");
+        new MetricWriter(OutputFormat.BINARY).write(METRICS, output.toString());
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(output))) {
+            Assertions.assertEquals(0x55424D52, input.readInt());
+            Assertions.assertEquals(1, input.readShort());
+
+            Assertions.assertEquals(1545847860L, input.readLong());
+            Assertions.assertEquals(-1, input.readInt());
+            Assertions.assertEquals(0, input.readByte());
+            for (int i = 0; i < 4; i++) {
+                Assertions.assertEquals(-1, input.readShort());
+            }
+            Assertions.assertEquals(0.0, input.readDouble());
+
+            Assertions.assertEquals(1545847920L, input.readLong());
+            Assertions.assertEquals(10, input.readInt());
+            Assertions.assertEquals(1, input.readByte());
+            byte[] clientName = new byte[input.readShort()];
+            input.readFully(clientName);
+            Assertions.assertEquals("booking, inc.", new String(clientName, StandardCharsets.UTF_8));
+            Assertions.assertEquals(-1, input.readShort());
+            Assertions.assertEquals(-1, input.readShort());
+            input.skipBytes(input.readShort());
+            Assertions.assertEquals(25.5, input.readDouble());
+            Assertions.assertEquals(20.0, input.readDouble());
+            Assertions.assertEquals(31.0, input.readDouble());
+            Assertions.assertEquals(31.0, input.readDouble());
+            Assertions.assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    @DisplayName("Keep the permissions from the replaced file, and the ones from the umask on a new file")
+    void write_permissions() throws IOException {
+        Assumptions.assumeTrue(Files.getFileAttributeView(directory, PosixFileAttributeView.class) != null);
+        Path plain = Files.createFile(directory.resolve("plain.json"));
+        Path output = directory.resolve("response.json");
+        new MetricWriter(OutputFormat.JSON).write(METRICS, output.toString());
+        Assertions.assertEquals(Files.getPosixFilePermissions(plain), Files.getPosixFilePermissions(output));
+
+        Files.setPosixFilePermissions(output, PosixFilePermissions.fromString("rw-rw-r--"));
+        new MetricWriter(OutputFormat.JSON).write(METRICS, output.toString());
+        Assertions.assertEquals(PosixFilePermissions.fromString("rw-rw-r--"), Files.getPosixFilePermissions(output));
+        Assertions.assertEquals(2, directory.toFile().listFiles().length);
+    }
+}
@@ -0,0 +1,116 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+
+@DisplayName("Test cases for the MovingAverageEngine class")
+public class MovingAverageEngineTest {
+
+    static final long FIRST_MINUTE = 25_765_091L;
+
+    @Test
+    @DisplayName("Throw exception if the window size is a negative number")
+    void movingAverageEngine_negativeWindowSize() {
+        Assertions.assertThrows(RuntimeException.class, () -> new MovingAverageEngine(-1, metric -> {}));
+    }
+
+    @Test
+    @DisplayName("Emit every minute, including the ones without events, until the minute after the last event")
+    void add_emitMinutesWithoutEvents() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(3, metrics::add);
+        engine.add(FIRST_MINUTE, 1, 10);
+        engine.add(FIRST_MINUTE + 1, 1, 20);
+        engine.add(FIRST_MINUTE + 5, 2, 100);
+        engine.flush();
+        double[] expected = {0, 10, 15, 15, 20, 0, 50};
+        Assertions.assertEquals(expected.length, metrics.size());
+        for (int i = 0; i < expected.length; i++) {
+            Assertions.assertEquals(expected[i], metrics.get(i).getAverageDeliveryTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Consider an out of order event only on the minutes that have not been emitted yet")
+    void add_outOfOrderEvents() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(3, metrics::add);
+        engine.add(FIRST_MINUTE, 1, 10);
+        engine.add(FIRST_MINUTE + 2, 1, 20);
+        engine.add(FIRST_MINUTE + 1, 1, 30);
+        engine.add(FIRST_MINUTE - 1, 1, 1000);
+        engine.flush();
+        Assertions.assertEquals(4, metrics.size());
+        Assertions.assertEquals(10.0, metrics.get(2).getAverageDeliveryTime());
+        Assertions.assertEquals(20.0, metrics.get(3).getAverageDeliveryTime());
+        Assertions.assertEquals(1, engine.getDiscardedEvents());
+    }
+
+    @Test
+    @DisplayName("Keep the running average right after the ring buffer grows and wraps around")
+    void add_ringBufferWrapsAround() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(40, metrics::add);
+        for (int i = 0; i < 200; i++) {
+            engine.add(FIRST_MINUTE + i, 1, i);
+        }
+        engine.flush();
+        Assertions.assertEquals(201, metrics.size());
+        for (int i = 1; i <= 200; i++) {
+            int from = Math.max(0, i - 40);
+            double expected = (from + i - 1) / 2.0;
+            Assertions.assertEquals(expected, metrics.get(i).getAverageDeliveryTime());
+        }
+    }
+
+    @Test
+    @DisplayName("Emit one row per window size for each minute, identifying its window size")
+    void add_multipleWindowSizes() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(Arrays.asList(1, 3), metrics::add);
+        engine.add(FIRST_MINUTE, 1, 10);
+        engine.add(FIRST_MINUTE + 2, 1, 30);
+        engine.add(FIRST_MINUTE + 1, 1, 20);
+        engine.flush();
+        Assertions.assertEquals(8, metrics.size());
+        Assertions.assertEquals(1, metrics.get(6).getWindowSize());
+        Assertions.assertEquals(30.0, metrics.get(6).getAverageDeliveryTime());
+        Assertions.assertEquals(3, metrics.get(7).getWindowSize());
+        Assertions.assertEquals(20.0, metrics.get(7).getAverageDeliveryTime());
+        Assertions.assertEquals(0, engine.getDiscardedEvents());
+    }
+
+    @Test
+    @DisplayName("Emit the percentiles from each window, removing the durations that fall out of it")
+    void add_percentilesByWindowSize() {
+        List<MetricResponse> metrics = new ArrayList<>();
+        MovingAverageEngine engine = new MovingAverageEngine(Arrays.asList(5, 40), true, metrics::add);
+        for (int i = 0; i < 200; i++) {
+            engine.add((FIRST_MINUTE + i) * 60 + 30, i % 100);
+            engine.add((FIRST_MINUTE + i) * 60 + 45, 100 - i % 100);
+        }
+        engine.flush();
+        Assertions.assertEquals(402, metrics.size());
+        Assertions.assertEquals(0.0, metrics.get(0).getP99());
+        for (int minute = 1; minute <= 200; minute++) {
+            for (int w = 0; w < 2; w++) {
+                MetricResponse metric = metrics.get(minute * 2 + w);
+                List<Long> durations = new ArrayList<>();
+                for (int i = Math.max(0, minute - metric.getWindowSize()); i < minute; i++) {
+                    durations.add((long) (i % 100));
+                    durations.add((long) (100 - i % 100));
+                }
+                durations.sort(Long::compare);
+                Assertions.assertEquals(durations.get((int) Math.ceil(durations.size() * 0.5) - 1).doubleValue(), metric.getP50());
+                Assertions.assertEquals(durations.get((int) Math.ceil(durations.size() * 0.9) - 1).doubleValue(), metric.getP90());
+                Assertions.assertEquals(durations.get((int) Math.ceil(durations.size() * 0.99) - 1).doubleValue(), metric.getP99());
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the PipelineEvents class")
+public class PipelineEventsTest {
+
+    @Test
+    @DisplayName("Commit each stage as a flight recorder event")
+    void start_flightRecorderEvents() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        Path recordingFile = Files.createTempFile("unbabel-challenge-recording", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("pt.raphaelneves.unbabel.challenge.Stage");
+            recording.enable("pt.raphaelneves.unbabel.challenge.Run");
+            recording.start();
+            MetricAccumulator accumulator = new MetricService().createAccumulator(10);
+            long lines = new FileProcessor(metrics).streamFileEvents(MetricStoreTest.loadFile("full_events.json"), new EventDecoder(), accumulator::accept);
+            new MetricService(metrics).calculateMovingAverage(accumulator);
+            metrics.getSummary();
+            recording.stop();
+            recording.dump(recordingFile);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            List<String> stages = events.stream()
+                                        .filter(event -> event.getEventType().getName().endsWith(".Stage"))
+                                        .map(event -> event.getString("stage"))
+                                        .collect(Collectors.toList());
+            Assertions.assertTrue(stages.contains("decode"));
+            Assertions.assertTrue(stages.contains("moving_average"));
+            RecordedEvent run = events.stream().filter(event -> event.getEventType().getName().endsWith(".Run")).findFirst().get();
+            Assertions.assertEquals(lines, run.getLong("events"));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Translation;
+
+@DisplayName("Test cases for the PipelineMetrics class")
+public class PipelineMetricsTest {
+
+    @Test
+    @DisplayName("Measure each stage from the list pipeline and summarize the run as JSON")
+    void getSummary_listPipeline() throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        FileProcessor fileProcessor = new FileProcessor(metrics);
+        File file = MetricStoreTest.loadFile("full_events.json");
+
+        List<Translation> translations = fileProcessor.convertFileLines(fileProcessor.extractFileLines(file));
+        new MetricService(metrics).calculateAverageEventDurationPerMinute(translations, 10);
+
+        Assertions.assertEquals(translations.size(), metrics.getEvents());
+        Assertions.assertEquals(file.length(), metrics.getBytes());
+        Assertions.assertEquals(0, metrics.getRejectedLines());
+        for (String stage : new String[]{"extract_lines", "convert_lines", "sort", "window_filter", "group", "average"}) {
+            Assertions.assertEquals(1, metrics.getStage(stage)[0], stage);
+        }
+        Assertions.assertEquals(translations.size(), metrics.getStage("convert_lines")[2]);
+        Assertions.assertNull(metrics.getStage("write_output"));
+
+        JsonNode summary = new ObjectMapper().readTree(metrics.getSummary());
+        Assertions.assertEquals(translations.size(), summary.get("events").asLong());
+        Assertions.assertEquals(file.length(), summary.get("bytes").asLong());
+        Assertions.assertEquals(0, summary.get("rejectedLines").asLong());
+        Assertions.assertTrue(summary.get("eventsPerSecond").asDouble() > 0);
+        List<String> stages = summary.get("stages").findValuesAsText("name");
+        Assertions.assertEquals("extract_lines", stages.get(0));
+        Assertions.assertEquals(6, stages.size());
+    }
+
+    @Test
+    @DisplayName("Measure nothing when the metrics are disabled")
+    void start_disabled() {
+        PipelineMetrics metrics = PipelineMetrics.DISABLED;
+        new FileProcessor().extractFileLines(MetricStoreTest.loadFile("full_events.json"));
+        metrics.start("decode").stop(10, 10);
+        metrics.countInput(10, 10);
+        Assertions.assertNull(metrics.getStage("decode"));
+        Assertions.assertNull(metrics.getStage("extract_lines"));
+        Assertions.assertEquals(0, metrics.getEvents());
+    }
+}
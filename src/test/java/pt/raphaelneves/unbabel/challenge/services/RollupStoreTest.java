@@ -0,0 +1,145 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.MetricResponse;
+import pt.raphaelneves.unbabel.challenge.models.MinuteRollup;
+
+@DisplayName("Test cases for the RollupStore class")
+public class RollupStoreTest {
+
+    static final List<Integer> WINDOW_SIZES = Arrays.asList(1, 10, 45);
+
+    Path directory;
+
+    @BeforeEach
+    void createRollupFolder() throws IOException {
+        directory = Files.createTempDirectory("unbabel-challenge-rollup");
+    }
+
+    @AfterEach
+    void deleteRollupFolder() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File each : files) {
+                each.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    @DisplayName("Produce the same metrics as reading the whole file, before and after the rollups are stored")
+    void calculate_sameResultAsWholeFile() {
+        File file = MetricStoreTest.loadFile("full_events.json");
+        List<MetricResponse> expected = calculate(file, true);
+        MetricService metricService = new MetricService();
+
+        RollupStore store = new RollupStore(directory);
+        Assertions.assertEquals(expected, metricService.calculateAverageEventDurationFromRollups(store, file, WINDOW_SIZES, true, null));
+        Assertions.assertEquals(1, store.getSegments());
+        Assertions.assertEquals(minute(18, 58), store.getLastMinute());
+
+        RollupStore reopened = new RollupStore(directory);
+        Assertions.assertTrue(reopened.hasSketches());
+        Assertions.assertEquals(expected, metricService.calculateAverageEventDurationFromRollups(reopened, file, WINDOW_SIZES, true, null));
+        Assertions.assertEquals(1, reopened.getSegments());
+    }
+
+    @Test
+    @DisplayName("Append a new segment with the minutes added to the file since the last run")
+    void calculate_incremental() throws IOException {
+        List<String> lines = Files.readAllLines(MetricStoreTest.loadFile("full_events.json").toPath());
+        List<String> older = lines.stream().filter(line -> line.contains("18:1") || line.contains("18:2") || line.contains("18:3"))
+                                  .collect(Collectors.toList());
+        List<String> newer = new ArrayList<>(lines);
+        newer.removeAll(older);
+        Path input = directory.resolve("events.json");
+        MetricService metricService = new MetricService();
+        RollupStore store = new RollupStore(directory);
+
+        Files.write(input, older);
+        Assertions.assertEquals(calculate(input.toFile(), false),
+                metricService.calculateAverageEventDurationFromRollups(store, input.toFile(), WINDOW_SIZES, false, null));
+        Assertions.assertEquals(minute(18, 23), store.getLastMinute());
+
+        List<String> all = new ArrayList<>(older);
+        all.addAll(newer);
+        Files.write(input, all);
+        PipelineMetrics metrics = new PipelineMetrics();
+        Assertions.assertEquals(calculate(input.toFile(), false), new MetricService(metrics)
+                .calculateAverageEventDurationFromRollups(new RollupStore(directory), input.toFile(), WINDOW_SIZES, false, null));
+        Assertions.assertEquals(2, new RollupStore(directory).getSegments());
+        Assertions.assertTrue(metrics.getBytes() < Files.size(input));
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationFromRollups(
+                new RollupStore(directory), input.toFile(), WINDOW_SIZES, true, null));
+    }
+
+    @Test
+    @DisplayName("Reject a file other than the one the rollups have been built from")
+    void calculate_anotherFile() throws IOException {
+        List<String> lines = Files.readAllLines(MetricStoreTest.loadFile("full_events.json").toPath());
+        Path input = directory.resolve("events.json");
+        Path shard = directory.resolve("older.json");
+        Files.write(input, lines.subList(lines.size() / 2, lines.size()));
+        Files.write(shard, lines.subList(0, lines.size() / 2));
+        MetricService metricService = new MetricService();
+
+        metricService.calculateAverageEventDurationFromRollups(new RollupStore(directory), input.toFile(), WINDOW_SIZES, false, null);
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.calculateAverageEventDurationFromRollups(
+                new RollupStore(directory), shard.toFile(), WINDOW_SIZES, false, null));
+        Assertions.assertEquals(1, new RollupStore(directory).getSegments());
+    }
+
+    @Test
+    @DisplayName("Aggregate the rows matching the dimension filter, keeping the minimum and maximum durations")
+    void forEachMinute_filter() {
+        new MetricService().calculateAverageEventDurationFromRollups(new RollupStore(directory),
+                MetricStoreTest.loadFile("full_events.json"), WINDOW_SIZES, false, null);
+        RollupStore store = new RollupStore(directory);
+        Map<Dimension, String> filter = new EnumMap<>(Dimension.class);
+        filter.put(Dimension.CLIENT_NAME, "easyjet");
+        List<long[]> rollups = new ArrayList<>();
+        store.forEachMinute(minute(18, 15), minute(18, 23), filter, new MinuteRollup(false), (epochMinute, rollup) ->
+                rollups.add(new long[]{epochMinute, rollup.getCount(), rollup.getSum(), rollup.getMin(), rollup.getMax()}));
+        Assertions.assertEquals(1, rollups.size());
+        Assertions.assertArrayEquals(new long[]{minute(18, 15), 3, 99, 23, 45}, rollups.get(0));
+
+        rollups.clear();
+        store.forEachMinute(minute(18, 15), minute(18, 23), Collections.emptyMap(), new MinuteRollup(false), (epochMinute, rollup) ->
+                rollups.add(new long[]{epochMinute, rollup.getCount(), rollup.getSum(), rollup.getMin(), rollup.getMax()}));
+        Assertions.assertEquals(2, rollups.size());
+        Assertions.assertArrayEquals(new long[]{minute(18, 23), 5, 282, 21, 87}, rollups.get(1));
+
+        filter.put(Dimension.CLIENT_NAME, "unknown");
+        store.forEachMinute(Long.MIN_VALUE, Long.MAX_VALUE, filter, new MinuteRollup(false), (epochMinute, rollup) -> Assertions.fail());
+    }
+
+    private static List<MetricResponse> calculate(File file, boolean percentiles) {
+        MetricAccumulator accumulator = new MetricService().createAccumulatorForWindows(WINDOW_SIZES, percentiles);
+        new FileProcessor().streamFileEvents(file, new EventDecoder(), accumulator::accept);
+        return accumulator.getMetrics();
+    }
+
+    private static long minute(int hour, int minute) {
+        return LocalDateTime.of(2018, 12, 26, hour, minute).toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
@@ -0,0 +1,131 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("Test cases for the TimestampIndex class")
+public class TimestampIndexTest {
+
+    static final long START = LocalDateTime.of(2018, 12, 26, 10, 0).toEpochSecond(ZoneOffset.UTC);
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    Path directory;
+    Path input;
+    Path indexPath;
+
+    @BeforeEach
+    void createIndexFolder() throws IOException {
+        directory = Files.createTempDirectory("unbabel-challenge-index");
+        input = directory.resolve("events.json");
+        indexPath = directory.resolve("events.json.idx");
+    }
+
+    @AfterEach
+    void deleteIndexFolder() {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File each : files) {
+                each.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test
+    @DisplayName("Read only the blocks that may have events within the range, finding the same events as the whole file")
+    void streamFileEventsBetween_nearTimeOrder() throws IOException {
+        Files.write(input, lines(new Random(7), 0, 2_000), StandardCharsets.UTF_8);
+        TimestampIndex index = new FileProcessor().indexFile(input.toFile(), indexPath, 1024);
+        Assertions.assertTrue(index.getBlocks() > 100);
+        Assertions.assertEquals(Files.size(input), index.getLength());
+
+        for (long[] range : new long[][]{{0, 900}, {600, 1_500}, {3_000, 3_600}, {-100, 10}, {7_000, 8_000}, {100, 100}}) {
+            PipelineMetrics metrics = new PipelineMetrics();
+            long events = new FileProcessor(metrics).streamFileEventsBetween(input.toFile(), index, START + range[0], START + range[1],
+                    new EventDecoder(), event -> Assertions.assertTrue(event.getTimestamp() >= START + range[0] && event.getTimestamp() < START + range[1]));
+            Assertions.assertEquals(countBetween(START + range[0], START + range[1]), events);
+            Assertions.assertTrue(metrics.getBytes() < Files.size(input) / 2, "Only a part from the file must be read");
+        }
+        Assertions.assertEquals(index.getBlocks(), TimestampIndex.read(indexPath).getBlocks());
+    }
+
+    @Test
+    @DisplayName("Index the appended lines from where the index stopped and index a rewritten file again")
+    void indexFile_appendedLines() throws IOException {
+        Random random = new Random(11);
+        Files.write(input, lines(random, 0, 500), StandardCharsets.UTF_8);
+        FileProcessor fileProcessor = new FileProcessor();
+        TimestampIndex index = fileProcessor.indexFile(input.toFile(), indexPath, 1024);
+        long length = index.getLength();
+
+        List<String> appended = lines(random, 500, 1_000);
+        String partialLine = appended.remove(appended.size() - 1);
+        Files.write(input, appended, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Files.write(input, partialLine.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Assertions.assertEquals(countBetween(START, START + 3_600),
+                fileProcessor.streamFileEventsBetween(input.toFile(), index, START, START + 3_600, new EventDecoder(), event -> {}));
+
+        TimestampIndex updated = fileProcessor.indexFile(input.toFile(), indexPath, 1024);
+        Assertions.assertTrue(updated.getLength() > length);
+        Assertions.assertEquals(Files.size(input) - partialLine.length(), updated.getLength());
+        TimestampIndex rebuilt = new FileProcessor().indexFile(input.toFile(), directory.resolve("rebuilt.idx"), 1024);
+        Assertions.assertEquals(rebuilt.getBlocks(), updated.getBlocks());
+        Assertions.assertArrayEquals(rebuilt.findRange(START + 1_000, START + 1_200), updated.findRange(START + 1_000, START + 1_200));
+        Assertions.assertEquals(countBetween(START + 1_500, START + 2_000),
+                fileProcessor.streamFileEventsBetween(input.toFile(), updated, START + 1_500, START + 2_000, new EventDecoder(), event -> {}));
+
+        Files.write(input, lines(random, 0, 100), StandardCharsets.UTF_8);
+        Assertions.assertThrows(RuntimeException.class, () ->
+                fileProcessor.streamFileEventsBetween(input.toFile(), updated, START, START + 60, new EventDecoder(), event -> {}));
+        TimestampIndex rewritten = fileProcessor.indexFile(input.toFile(), indexPath, 1024);
+        Assertions.assertEquals(Files.size(input), rewritten.getLength());
+        Assertions.assertEquals(countBetween(START, START + 60),
+                fileProcessor.streamFileEventsBetween(input.toFile(), rewritten, START, START + 60, new EventDecoder(), event -> {}));
+
+        Files.write(indexPath, "not an index".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertNull(TimestampIndex.read(indexPath));
+        TimestampIndex recovered = fileProcessor.indexFile(input.toFile(), indexPath, 1024);
+        Assertions.assertEquals(rewritten.getBlocks(), recovered.getBlocks());
+        Assertions.assertEquals(rewritten.getLength(), TimestampIndex.read(indexPath).getLength());
+    }
+
+    /**
+     * Create the lines from one event every two seconds, arriving up to 30 seconds out of order
+     */
+    private static List<String> lines(Random random, int first, int last) {
+        List<String> lines = new ArrayList<>();
+        for (int i = first; i < last; i++) {
+            long timestamp = START + i * 2L - random.nextInt(30);
+            lines.add(String.format("{\"timestamp\": \"%s\",\"translation_id\": \"%d\",\"client_name\": \"easyjet\",\"event_name\": "
+                    + "\"translation_delivered\",\"nr_words\": 30, \"duration\": %d}",
+                    LocalDateTime.ofEpochSecond(timestamp, 0, ZoneOffset.UTC).format(FORMATTER), i, random.nextInt(100)));
+        }
+        return lines;
+    }
+
+    private long countBetween(long fromEpochSecond, long toEpochSecond) {
+        long[] count = new long[1];
+        new FileProcessor().streamFileEvents(input.toFile(), new EventDecoder(), event -> {
+            if (event.getTimestamp() >= fromEpochSecond && event.getTimestamp() < toEpochSecond) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+}
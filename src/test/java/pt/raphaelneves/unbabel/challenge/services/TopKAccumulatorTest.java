@@ -0,0 +1,92 @@
+package pt.raphaelneves.unbabel.challenge.services;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pt.raphaelneves.unbabel.challenge.models.Dictionary;
+import pt.raphaelneves.unbabel.challenge.models.Dimension;
+import pt.raphaelneves.unbabel.challenge.models.DimensionKey;
+import pt.raphaelneves.unbabel.challenge.models.HeavyHitter;
+import pt.raphaelneves.unbabel.challenge.models.TranslationEvent;
+
+@DisplayName("Test cases for the TopKAccumulator class")
+public class TopKAccumulatorTest {
+
+    MetricService metricService = new MetricService();
+
+    @Test
+    @DisplayName("Rank the clients by total and by average duration from each window, in the same pass as the moving average")
+    void getTop_byClientName() {
+        EventDecoder decoder = new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+        MetricAccumulator accumulator = metricService.createAccumulator(10);
+        TopKAccumulator topK = metricService.createTopKAccumulator(Arrays.asList(10, 60), EnumSet.of(Dimension.CLIENT_NAME),
+                decoder.getDictionaries(), 2, 10);
+        new FileProcessor().streamFileEvents(MetricStoreTest.loadFile("challenge_events.json"), decoder, event -> {
+            accumulator.accept(event);
+            topK.accept(event);
+        });
+
+        Assertions.assertEquals(Arrays.asList(
+                heavyHitter(10, "booking", 54, 1),
+                heavyHitter(10, "easyjet", 31, 1),
+                heavyHitter(60, "booking", 54, 1),
+                heavyHitter(60, "easyjet", 51, 2)),
+                topK.getTopByTotalDuration());
+        List<HeavyHitter> byAverage = topK.getTopByAverageDuration();
+        Assertions.assertEquals(Arrays.asList(54.0, 31.0, 54.0, 25.5),
+                Arrays.asList(byAverage.stream().map(HeavyHitter::getAverageDeliveryTime).toArray()));
+        Assertions.assertEquals(42.5, metricService.calculateMovingAverage(accumulator).get(13).getAverageDeliveryTime());
+    }
+
+    @Test
+    @DisplayName("Report the error bounds when there are more keys than counters")
+    void getTop_errorBounds() {
+        Dictionary clients = decoder().getDictionary(Dimension.CLIENT_NAME);
+        TopKAccumulator topK = metricService.createTopKAccumulator(Arrays.asList(10), EnumSet.of(Dimension.CLIENT_NAME),
+                Collections.singletonMap(Dimension.CLIENT_NAME, clients), 1, 1);
+        topK.add(1_545_847_200L, 100, key(clients, "booking"));
+        topK.add(1_545_847_201L, 10, key(clients, "easyjet"));
+        topK.add(1_545_847_202L, 5, key(clients, "easyjet"));
+
+        HeavyHitter row = topK.getTopByTotalDuration().get(0);
+        Assertions.assertEquals(115, (long) row.getTotalDuration());
+        Assertions.assertEquals(100, (long) row.getTotalDurationError());
+        Assertions.assertEquals(2, (long) row.getEvents());
+        Assertions.assertEquals(7.5, row.getAverageDeliveryTime());
+
+        Assertions.assertEquals("easyjet", row.getClientName());
+
+        topK.add(1_545_847_200L + 600, 1, key(clients, "ryanair"));
+        HeavyHitter newMinuteRow = topK.getTopByTotalDuration().get(0);
+        Assertions.assertEquals("ryanair", newMinuteRow.getClientName());
+        Assertions.assertEquals(0, (long) newMinuteRow.getTotalDurationError());
+        Assertions.assertThrows(RuntimeException.class, () -> metricService.createTopKAccumulator(Arrays.asList(10),
+                EnumSet.of(Dimension.CLIENT_NAME), decoder().getDictionaries(), 5, 4));
+    }
+
+    private static EventDecoder decoder() {
+        return new EventDecoder(EnumSet.of(Dimension.CLIENT_NAME));
+    }
+
+    private static long key(Dictionary clients, String clientName) {
+        int[] ids = new int[]{clients.lookup(clientName), TranslationEvent.UNDEFINED, TranslationEvent.UNDEFINED, TranslationEvent.UNDEFINED};
+        return DimensionKey.pack(EnumSet.of(Dimension.CLIENT_NAME), ids);
+    }
+
+    private static HeavyHitter heavyHitter(int windowSize, String clientName, long totalDuration, long events) {
+        return HeavyHitter.builder()
+                          .timestamp("2018-12-26 18:24:00")
+                          .windowSize(windowSize)
+                          .clientName(clientName)
+                          .totalDuration(totalDuration)
+                          .totalDurationError(0L)
+                          .events(events)
+                          .averageDeliveryTime((double) totalDuration / events)
+                          .build();
+    }
+}